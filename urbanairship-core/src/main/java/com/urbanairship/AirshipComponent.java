@@ -41,7 +41,7 @@ public abstract class AirshipComponent {
     /**
      * Default job executor.
      */
-    private final Executor jobExecutor = AirshipExecutors.newSerialExecutor();
+    private final Executor jobExecutor = AirshipExecutors.newSerialExecutor("components");
 
     /**
      * Initialize the manager.
@@ -56,6 +56,7 @@ public class AirshipConfigOptions {
     private static final int DEFAULT_PRODUCTION_LOG_LEVEL = Log.ERROR;
     private static final int DEFAULT_DEVELOPMENT_LOG_LEVEL = Log.DEBUG;
     private static final long DEFAULT_BG_REPORTING_INTERVAL_MS = 24 * 60 * 60 * 1000; // 24 hours
+    private static final long DEFAULT_CANONICAL_PUSH_ID_WINDOW_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
 
     private static final Pattern APP_CREDENTIAL_PATTERN = Pattern.compile("^[a-zA-Z0-9\\-_]{22}$");
 
@@ -215,6 +216,15 @@ public class AirshipConfigOptions {
      */
     public final long backgroundReportingIntervalMS;
 
+    /**
+     * How long in milliseconds a canonical push ID is remembered to dedupe redelivered pushes.
+     * The history holds a fixed number of IDs, so older IDs may be dropped before the window ends
+     * for high volume apps.
+     * <p>
+     * Defaults to 7 days.
+     */
+    public final long canonicalPushIdWindowMS;
+
     /**
      * Flag indicating whether to clear an existing named user during a re-install.
      * <p>
@@ -329,6 +339,7 @@ public class AirshipConfigOptions {
         this.inProduction = builder.inProduction;
         this.analyticsEnabled = builder.analyticsEnabled;
         this.backgroundReportingIntervalMS = builder.backgroundReportingIntervalMS;
+        this.canonicalPushIdWindowMS = builder.canonicalPushIdWindowMS;
         this.clearNamedUser = builder.clearNamedUser;
         this.autoLaunchApplication = builder.autoLaunchApplication;
         this.channelCreationDelayEnabled = builder.channelCreationDelayEnabled;
@@ -472,6 +483,7 @@ public class AirshipConfigOptions {
         private static final String FIELD_IN_PRODUCTION = "inProduction";
         private static final String FIELD_ANALYTICS_ENABLED = "analyticsEnabled";
         private static final String FIELD_BACKGROUND_REPORTING_INTERVAL_MS = "backgroundReportingIntervalMS";
+        private static final String FIELD_CANONICAL_PUSH_ID_WINDOW_MS = "canonicalPushIdWindowMS";
         private static final String FIELD_CLEAR_NAMED_USER = "clearNamedUser";
         private static final String FIELD_DEVELOPMENT_LOG_LEVEL = "developmentLogLevel";
         private static final String FIELD_PRODUCTION_LOG_LEVEL = "productionLogLevel";
@@ -509,6 +521,7 @@ public class AirshipConfigOptions {
         private Boolean inProduction = null;
         private boolean analyticsEnabled = true;
         private long backgroundReportingIntervalMS = DEFAULT_BG_REPORTING_INTERVAL_MS;
+        private long canonicalPushIdWindowMS = DEFAULT_CANONICAL_PUSH_ID_WINDOW_MS;
         private boolean clearNamedUser = false;
         private Integer developmentLogLevel;
         private Integer productionLogLevel;
@@ -717,6 +730,10 @@ public class AirshipConfigOptions {
                             this.setBackgroundReportingIntervalMS(configParser.getLong(name, backgroundReportingIntervalMS));
                             break;
 
+                        case FIELD_CANONICAL_PUSH_ID_WINDOW_MS:
+                            this.setCanonicalPushIdWindowMS(configParser.getLong(name, canonicalPushIdWindowMS));
+                            break;
+
                         case FIELD_CLEAR_NAMED_USER:
                             this.setClearNamedUser(configParser.getBoolean(name, clearNamedUser));
                             break;
@@ -1111,6 +1128,18 @@ public class AirshipConfigOptions {
             return this;
         }
 
+        /**
+         * Set how long a canonical push ID is remembered to dedupe redelivered pushes.
+         *
+         * @param canonicalPushIdWindowMS The dedupe window in milliseconds.
+         * @return The config options builder.
+         */
+        @NonNull
+        public Builder setCanonicalPushIdWindowMS(long canonicalPushIdWindowMS) {
+            this.canonicalPushIdWindowMS = canonicalPushIdWindowMS;
+            return this;
+        }
+
         /**
          * Set the flag whether to clear an existing named user during a re-install.
          *
@@ -4,8 +4,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
 
 import com.urbanairship.util.AirshipThreadFactory;
+import com.urbanairship.util.ExecutorMetrics;
 import com.urbanairship.util.SerialExecutor;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -20,6 +25,16 @@ import java.util.concurrent.TimeUnit;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class AirshipExecutors {
 
+    /**
+     * Metrics name for the shared thread pool.
+     */
+    @NonNull
+    public static final String POOL_METRICS_NAME = "pool";
+
+    private static final Map<String, ExecutorMetrics> metrics = new LinkedHashMap<>();
+
+    private static final ExecutorMetrics poolMetrics = getMetrics(POOL_METRICS_NAME);
+
     /**
      * The shared thread pool executor.
      */
@@ -28,12 +43,18 @@ public class AirshipExecutors {
 
     static {
         int processors = Runtime.getRuntime().availableProcessors();
-        int minThreads = 2;
-        int maxThreads = processors * 2;
+        int maxThreads = Math.max(4, processors * 2);
         int keepAliveTime = 30;
 
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(minThreads, maxThreads, keepAliveTime,
-                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), AirshipThreadFactory.DEFAULT_THREAD_FACTORY);
+        // A ThreadPoolExecutor with an unbounded queue never grows past its core size, so the core
+        // size is the max size and idle core threads are allowed to time out instead.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, keepAliveTime,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), AirshipThreadFactory.DEFAULT_THREAD_FACTORY) {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                super.execute(poolMetrics.wrap(command));
+            }
+        };
         executor.allowCoreThreadTimeOut(true);
 
         THREAD_POOL_EXECUTOR = executor;
@@ -42,11 +63,42 @@ public class AirshipExecutors {
     /**
      * Creates a new serial executor that shares threads with the {@link #THREAD_POOL_EXECUTOR}.
      *
+     * @param subsystem The subsystem name used to group the executor's metrics.
      * @return A new serial executor.
      */
     @NonNull
-    public static Executor newSerialExecutor() {
-        return new SerialExecutor(THREAD_POOL_EXECUTOR);
+    public static Executor newSerialExecutor(@NonNull String subsystem) {
+        return new SerialExecutor(THREAD_POOL_EXECUTOR, getMetrics(subsystem));
+    }
+
+    /**
+     * Gets the metrics for a subsystem, or {@link #POOL_METRICS_NAME} for the shared thread pool.
+     *
+     * @param name The metrics name.
+     * @return The metrics.
+     */
+    @NonNull
+    public static ExecutorMetrics getMetrics(@NonNull String name) {
+        synchronized (metrics) {
+            ExecutorMetrics executorMetrics = metrics.get(name);
+            if (executorMetrics == null) {
+                executorMetrics = new ExecutorMetrics(name);
+                metrics.put(name, executorMetrics);
+            }
+            return executorMetrics;
+        }
+    }
+
+    /**
+     * Gets the metrics for the shared thread pool and every subsystem.
+     *
+     * @return The list of metrics.
+     */
+    @NonNull
+    public static List<ExecutorMetrics> getMetrics() {
+        synchronized (metrics) {
+            return new ArrayList<>(metrics.values());
+        }
     }
 
 }
@@ -8,9 +8,11 @@ import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Handler;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import com.urbanairship.json.JsonException;
 import com.urbanairship.json.JsonSerializable;
@@ -19,13 +21,23 @@ import com.urbanairship.util.UAStringUtil;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * PreferenceDataStore stores and retrieves all the Airship preferences through the
  * {@link UrbanAirshipProvider}.
+ * <p>
+ * Values are cached in memory and written behind. Changes made with {@code put} are coalesced
+ * by key and flushed to the database in a batch after a short delay, while {@link #putSync(String, String)}
+ * writes immediately. Changes from other processes are picked up by a single observer on the
+ * preferences table.
+ * <p>
+ * Parsed JSON, long, int and boolean values are memoized per preference until the value changes.
  *
  * @hide
  */
@@ -34,15 +46,81 @@ public final class PreferenceDataStore {
 
     private static final String WHERE_CLAUSE_KEY = PreferencesDataManager.COLUMN_NAME_KEY + " = ?";
 
-    Executor executor = AirshipExecutors.newSerialExecutor();
+    /**
+     * Delay before pending writes are flushed to the database.
+     */
+    private static final long WRITE_DELAY_MS = 100;
+
+    /**
+     * Initial delay before retrying a failed write.
+     */
+    @VisibleForTesting
+    static final long INITIAL_RETRY_DELAY_MS = 1000; // 1 second
+
+    /**
+     * Max delay before retrying a failed write.
+     */
+    private static final long MAX_RETRY_DELAY_MS = 60000; // 1 minute
+
+    Executor executor = AirshipExecutors.newSerialExecutor("preferences");
 
     private final Map<String, Preference> preferences = new HashMap<>();
     private final UrbanAirshipResolver resolver;
     @NonNull
     private final Context context;
+    private final Handler handler;
+
+    // Pending writes by key. A null value removes the preference.
+    private final Map<String, String> pendingWrites = new HashMap<>();
+    private boolean isFlushScheduled = false;
+    private long retryDelayMs = 0;
+    private final Object writeLock = new Object();
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writePendingValues();
+                }
+            });
+        }
+    };
+
+    private final ContentObserver observer = new ContentObserver(null) {
+
+        @Override
+        public boolean deliverSelfNotifications() {
+            return false;
+        }
+
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, @Nullable final Uri uri) {
+            Logger.verbose("PreferenceDataStore - Preferences updated: %s", uri);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    String key = getPreferenceKey(uri);
+                    if (key == null) {
+                        syncValues();
+                    } else {
+                        getPreference(key).syncValue();
+                    }
+                }
+            });
+        }
+    };
 
     private final List<PreferenceChangeListener> listeners = new ArrayList<>();
 
+    private final AtomicLong avoidedParseCount = new AtomicLong();
+
     /**
      * Listener for when preferences changes either by the
      * current process or a different process.
@@ -70,6 +148,7 @@ public final class PreferenceDataStore {
     PreferenceDataStore(@NonNull Context context, @NonNull UrbanAirshipResolver resolver) {
         this.context = context;
         this.resolver = resolver;
+        this.handler = new Handler(AirshipLoopers.getBackgroundLooper());
     }
 
     /**
@@ -106,25 +185,32 @@ public final class PreferenceDataStore {
         int keyIndex = cursor.getColumnIndex(PreferencesDataManager.COLUMN_NAME_KEY);
         int valueIndex = cursor.getColumnIndex(PreferencesDataManager.COLUMN_NAME_VALUE);
 
-        while (cursor.moveToNext()) {
-            String key = cursor.getString(keyIndex);
-            String value = cursor.getString(valueIndex);
-            Preference preference = new Preference(key, value);
-            preference.registerObserver();
-
-            preferences.put(key, preference);
+        synchronized (preferences) {
+            while (cursor.moveToNext()) {
+                String key = cursor.getString(keyIndex);
+                String value = cursor.getString(valueIndex);
+                preferences.put(key, new Preference(key, value));
+            }
         }
 
         cursor.close();
+
+        resolver.registerContentObserver(UrbanAirshipProvider.getPreferencesContentUri(context), true, observer);
     }
 
     /**
-     * Unregisters any observers.
+     * Unregisters the observer and writes any pending values.
      */
     protected void tearDown() {
-        for (Preference preference : preferences.values()) {
-            preference.unregisterObserver();
-        }
+        resolver.unregisterContentObserver(observer);
+
+        handler.removeCallbacks(flushRunnable);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writePendingValues();
+            }
+        });
     }
 
     /**
@@ -135,8 +221,8 @@ public final class PreferenceDataStore {
      * @return The boolean value for the preference or defaultValue if it doesn't exist.
      */
     public boolean getBoolean(@NonNull String key, boolean defaultValue) {
-        String value = getPreference(key).get();
-        return value == null ? defaultValue : Boolean.valueOf(value);
+        Boolean value = getPreference(key).getBoolean();
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -161,16 +247,8 @@ public final class PreferenceDataStore {
      * @return The long value for the preference or defaultValue if it doesn't exist.
      */
     public long getLong(@NonNull String key, long defaultValue) {
-        String value = getPreference(key).get();
-        if (value == null) {
-            return defaultValue;
-        }
-
-        try {
-            return Long.parseLong(value);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Long value = getPreference(key).getLong();
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -182,16 +260,8 @@ public final class PreferenceDataStore {
      * @return The integer value for the preference or defaultValue if it doesn't exist.
      */
     public int getInt(@NonNull String key, int defaultValue) {
-        String value = getPreference(key).get();
-        if (value == null) {
-            return defaultValue;
-        }
-
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Integer value = getPreference(key).getInt();
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -202,13 +272,17 @@ public final class PreferenceDataStore {
      */
     @NonNull
     public JsonValue getJsonValue(@NonNull String key) {
-        try {
-            return JsonValue.parseString(getPreference(key).get());
-        } catch (JsonException e) {
-            // Should never happen
-            Logger.debug(e, "Unable to parse preference value: %s", key);
-            return JsonValue.NULL;
-        }
+        return getPreference(key).getJsonValue();
+    }
+
+    /**
+     * Gets the number of times a typed getter returned a memoized value instead of parsing
+     * the stored string.
+     *
+     * @return The number of avoided parses.
+     */
+    public long getAvoidedParseCount() {
+        return avoidedParseCount.get();
     }
 
     /**
@@ -340,7 +414,6 @@ public final class PreferenceDataStore {
             Preference preference = preferences.get(key);
             if (preference == null) {
                 preference = new Preference(key, null);
-                preference.registerObserver();
                 preferences.put(key, preference);
             }
             return preference;
@@ -348,34 +421,187 @@ public final class PreferenceDataStore {
     }
 
     /**
-     * A helper class that handles fetching, writing, and syncing with the
-     * preference provider.
+     * Gets the preference key from a content URI.
+     *
+     * @param uri The content URI.
+     * @return The preference key, or {@code null} if the URI does not reference a single preference.
      */
-    private class Preference {
+    @Nullable
+    private String getPreferenceKey(@Nullable Uri uri) {
+        if (uri == null) {
+            return null;
+        }
 
-        private final ContentObserver observer = new ContentObserver(null) {
+        List<String> segments = uri.getPathSegments();
+        int tableSegments = UrbanAirshipProvider.getPreferencesContentUri(context).getPathSegments().size();
+        if (segments.size() <= tableSegments) {
+            return null;
+        }
 
-            @Override
-            public boolean deliverSelfNotifications() {
-                return false;
+        return segments.get(tableSegments);
+    }
+
+    /**
+     * Schedules a value to be written to the database. Values scheduled within the write delay
+     * are coalesced and written in a single batch.
+     *
+     * @param key The preference key.
+     * @param value The preference value, or {@code null} to remove the preference.
+     */
+    private void scheduleWrite(@NonNull String key, @Nullable String value) {
+        synchronized (pendingWrites) {
+            pendingWrites.put(key, value);
+            if (!isFlushScheduled) {
+                isFlushScheduled = true;
+                handler.postDelayed(flushRunnable, WRITE_DELAY_MS);
             }
+        }
+    }
 
-            @Override
-            public void onChange(boolean selfChange) {
-                Logger.verbose("PreferenceDataStore - Preference updated: %s", key);
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        syncValue();
+    /**
+     * Schedules a flush after a failed write, backing off exponentially on repeated failures.
+     */
+    private void scheduleRetry() {
+        synchronized (pendingWrites) {
+            retryDelayMs = retryDelayMs == 0 ? INITIAL_RETRY_DELAY_MS : Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+            Logger.error("PreferenceDataStore - Failed to save preferences, retrying in %s ms.", retryDelayMs);
+
+            handler.removeCallbacks(flushRunnable);
+            handler.postDelayed(flushRunnable, retryDelayMs);
+            isFlushScheduled = true;
+        }
+    }
+
+    /**
+     * Checks if the preference has a value that has not been written to the database yet.
+     *
+     * @param key The preference key.
+     * @return {@code true} if the preference has a pending write, otherwise {@code false}.
+     */
+    private boolean isPendingWrite(@NonNull String key) {
+        synchronized (pendingWrites) {
+            return pendingWrites.containsKey(key);
+        }
+    }
+
+    /**
+     * Writes all pending values to the database. Values are inserted in a single transaction, removed
+     * preferences are deleted with a single statement, and other processes are notified with a single
+     * change notification on the preferences table.
+     */
+    private void writePendingValues() {
+        synchronized (writeLock) {
+            Map<String, String> writes;
+            synchronized (pendingWrites) {
+                isFlushScheduled = false;
+                if (pendingWrites.isEmpty()) {
+                    return;
+                }
+
+                writes = new HashMap<>(pendingWrites);
+            }
+
+            List<ContentValues> inserts = new ArrayList<>();
+            List<String> deletes = new ArrayList<>();
+            for (Map.Entry<String, String> entry : writes.entrySet()) {
+                if (entry.getValue() == null) {
+                    deletes.add(entry.getKey());
+                } else {
+                    ContentValues values = new ContentValues();
+                    values.put(PreferencesDataManager.COLUMN_NAME_KEY, entry.getKey());
+                    values.put(PreferencesDataManager.COLUMN_NAME_VALUE, entry.getValue());
+                    inserts.add(values);
+                }
+            }
+
+            Logger.verbose("PreferenceDataStore - Saving %s preferences, removing %s preferences.", inserts.size(), deletes.size());
+
+            Uri uri = UrbanAirshipProvider.getPreferencesContentUri(context);
+            boolean success = true;
+
+            if (!inserts.isEmpty()) {
+                success = resolver.bulkInsert(uri, inserts.toArray(new ContentValues[0])) == inserts.size();
+            }
+
+            if (success && !deletes.isEmpty()) {
+                StringBuilder where = new StringBuilder(PreferencesDataManager.COLUMN_NAME_KEY).append(" IN (");
+                for (int i = 0; i < deletes.size(); i++) {
+                    where.append(i == 0 ? "?" : ", ?");
+                }
+                where.append(")");
+
+                success = resolver.delete(uri, where.toString(), deletes.toArray(new String[0])) >= 0;
+            }
+
+            if (!success) {
+                scheduleRetry();
+                return;
+            }
+
+            synchronized (pendingWrites) {
+                retryDelayMs = 0;
+
+                // Only clear the values that have not changed since the snapshot
+                for (Map.Entry<String, String> entry : writes.entrySet()) {
+                    String key = entry.getKey();
+                    if (pendingWrites.containsKey(key) && UAStringUtil.equals(pendingWrites.get(key), entry.getValue())) {
+                        pendingWrites.remove(key);
                     }
-                });
+                }
+            }
+
+            resolver.notifyChange(uri, observer);
+        }
+    }
+
+    /**
+     * Syncs all the values from the database. Preferences with pending writes keep their
+     * current value.
+     */
+    private void syncValues() {
+        Cursor cursor = resolver.query(UrbanAirshipProvider.getPreferencesContentUri(context), null, null, null, null);
+        if (cursor == null) {
+            Logger.debug("PreferenceDataStore - Unable to get preferences from database. Falling back to cached values.");
+            return;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        try {
+            int keyIndex = cursor.getColumnIndex(PreferencesDataManager.COLUMN_NAME_KEY);
+            int valueIndex = cursor.getColumnIndex(PreferencesDataManager.COLUMN_NAME_VALUE);
+            while (cursor.moveToNext()) {
+                values.put(cursor.getString(keyIndex), cursor.getString(valueIndex));
             }
-        };
+        } finally {
+            cursor.close();
+        }
+
+        Set<String> keys = new HashSet<>(values.keySet());
+        synchronized (preferences) {
+            keys.addAll(preferences.keySet());
+        }
+
+        for (String key : keys) {
+            getPreference(key).applySyncedValue(values.get(key));
+        }
+    }
+
+    /**
+     * A helper class that handles fetching, writing, and syncing with the
+     * preference provider.
+     */
+    private class Preference {
 
         private final String key;
         private String value;
         private final Uri uri;
 
+        // Memoized parsed values, cleared when the value changes
+        private JsonValue jsonValue;
+        private Long longValue;
+        private Integer intValue;
+        private Boolean booleanValue;
+
         Preference(String key, String value) {
             this.key = key;
             this.value = value;
@@ -394,18 +620,125 @@ public final class PreferenceDataStore {
         }
 
         /**
-         * Put a new value for the preference.
+         * Gets the value parsed as a JsonValue.
+         *
+         * @return The parsed value, or {@link JsonValue#NULL} if the value is not set or invalid.
+         */
+        @NonNull
+        JsonValue getJsonValue() {
+            synchronized (this) {
+                if (jsonValue != null) {
+                    avoidedParseCount.incrementAndGet();
+                    return jsonValue;
+                }
+
+                try {
+                    jsonValue = JsonValue.parseString(value);
+                } catch (JsonException e) {
+                    // Should never happen
+                    Logger.debug(e, "Unable to parse preference value: %s", key);
+                    jsonValue = JsonValue.NULL;
+                }
+
+                return jsonValue;
+            }
+        }
+
+        /**
+         * Gets the value parsed as a long.
+         *
+         * @return The parsed value, or {@code null} if the value is not set or not a long.
+         */
+        @Nullable
+        Long getLong() {
+            synchronized (this) {
+                if (longValue != null) {
+                    avoidedParseCount.incrementAndGet();
+                    return longValue;
+                }
+
+                if (value == null) {
+                    return null;
+                }
+
+                try {
+                    longValue = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+
+                return longValue;
+            }
+        }
+
+        /**
+         * Gets the value parsed as an int.
+         *
+         * @return The parsed value, or {@code null} if the value is not set or not an int.
+         */
+        @Nullable
+        Integer getInt() {
+            synchronized (this) {
+                if (intValue != null) {
+                    avoidedParseCount.incrementAndGet();
+                    return intValue;
+                }
+
+                if (value == null) {
+                    return null;
+                }
+
+                try {
+                    intValue = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+
+                return intValue;
+            }
+        }
+
+        /**
+         * Gets the value parsed as a boolean.
+         *
+         * @return The parsed value, or {@code null} if the value is not set.
+         */
+        @Nullable
+        Boolean getBoolean() {
+            synchronized (this) {
+                if (booleanValue != null) {
+                    avoidedParseCount.incrementAndGet();
+                    return booleanValue;
+                }
+
+                if (value == null) {
+                    return null;
+                }
+
+                booleanValue = Boolean.valueOf(value);
+                return booleanValue;
+            }
+        }
+
+        /**
+         * Put a new value for the preference. The value will be written to the database
+         * with the next batch of pending writes.
          *
          * @param value Value of the preference.
          */
         void put(final String value) {
-            if (setValue(value)) {
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        writeValue(value);
-                    }
-                });
+            boolean changed;
+
+            // Update and schedule together so a sync can not revert the value in between
+            synchronized (pendingWrites) {
+                changed = updateValue(value);
+                if (changed) {
+                    scheduleWrite(key, value);
+                }
+            }
+
+            if (changed) {
+                onPreferenceChanged(key);
             }
         }
 
@@ -419,8 +752,13 @@ public final class PreferenceDataStore {
          * the database, otherwise <code>false</code>
          */
         boolean putSync(String value) {
-            synchronized (this) {
+            synchronized (writeLock) {
                 if (writeValue(value)) {
+                    // The value supersedes any pending write
+                    synchronized (pendingWrites) {
+                        pendingWrites.remove(key);
+                    }
+
                     setValue(value);
                     return true;
                 }
@@ -436,15 +774,52 @@ public final class PreferenceDataStore {
          * @return {@code true} if the value changed, otherwise {@code false}.
          */
         private boolean setValue(String value) {
+            if (updateValue(value)) {
+                onPreferenceChanged(key);
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Updates the value without notifying listeners.
+         *
+         * @param value The value of the preference.
+         * @return {@code true} if the value changed, otherwise {@code false}.
+         */
+        private boolean updateValue(String value) {
             synchronized (this) {
                 if (UAStringUtil.equals(value, this.value)) {
                     return false;
                 }
                 this.value = value;
+                this.jsonValue = null;
+                this.longValue = null;
+                this.intValue = null;
+                this.booleanValue = null;
+                return true;
+            }
+        }
+
+        /**
+         * Applies a value read from the database unless the preference has a pending write.
+         *
+         * @param value The database value.
+         */
+        void applySyncedValue(@Nullable String value) {
+            boolean changed;
+            synchronized (pendingWrites) {
+                if (pendingWrites.containsKey(key)) {
+                    return;
+                }
+
+                changed = updateValue(value);
             }
 
-            onPreferenceChanged(key);
-            return true;
+            if (changed) {
+                onPreferenceChanged(key);
+            }
         }
 
         /**
@@ -482,9 +857,14 @@ public final class PreferenceDataStore {
         }
 
         /**
-         * Syncs the value from the database to the preference.
+         * Syncs the value from the database to the preference. The value is kept if it has
+         * not been written to the database yet.
          */
         void syncValue() {
+            if (isPendingWrite(key)) {
+                return;
+            }
+
             Cursor cursor = null;
             try {
                 synchronized (this) {
@@ -494,7 +874,7 @@ public final class PreferenceDataStore {
                 }
 
                 if (cursor != null) {
-                    setValue(cursor.moveToFirst() ? cursor.getString(0) : null);
+                    applySyncedValue(cursor.moveToFirst() ? cursor.getString(0) : null);
                 } else {
                     Logger.debug("PreferenceDataStore - Unable to get preference %s from database. Falling back to cached value.", key);
                 }
@@ -505,14 +885,6 @@ public final class PreferenceDataStore {
             }
         }
 
-        void registerObserver() {
-            resolver.registerContentObserver(this.uri, true, observer);
-        }
-
-        void unregisterObserver() {
-            resolver.unregisterContentObserver(observer);
-        }
-
     }
 
 }
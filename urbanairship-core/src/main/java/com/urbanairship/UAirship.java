@@ -678,7 +678,7 @@ public class UAirship {
             Logger.info("Using push provider: %s", this.pushProvider);
         }
 
-        TagGroupRegistrar tagGroupRegistrar = new TagGroupRegistrar(platform, airshipConfigOptions, preferenceDataStore);
+        TagGroupRegistrar tagGroupRegistrar = new TagGroupRegistrar(application, platform, airshipConfigOptions, preferenceDataStore);
         tagGroupRegistrar.migrateKeys();
 
         this.channel = new AirshipChannel(application, preferenceDataStore, airshipConfigOptions, platform, tagGroupRegistrar);
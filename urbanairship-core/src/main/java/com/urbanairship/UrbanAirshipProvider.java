@@ -42,6 +42,7 @@ public final class UrbanAirshipProvider extends ContentProvider {
     static final String PREFERENCES_CONTENT_ITEM_TYPE = SINGLE_SUFFIX + "preference";
     static final String EVENTS_CONTENT_TYPE = MULTIPLE_SUFFIX + "events";
     static final String EVENTS_CONTENT_ITEM_TYPE = SINGLE_SUFFIX + "events";
+    static final String EVENT_TOTALS_CONTENT_TYPE = MULTIPLE_SUFFIX + "event_totals";
     /**
      * Used to match passed in Uris to databases.
      */
@@ -61,10 +62,12 @@ public final class UrbanAirshipProvider extends ContentProvider {
 
     private static final int EVENTS_URI_TYPE = 4;
     private static final int EVENT_URI_TYPE = 5;
+    private static final int EVENT_TOTALS_URI_TYPE = 6;
 
     private DatabaseModel richPushDataModel;
     private DatabaseModel preferencesDataModel;
     private DatabaseModel eventsDataModel;
+    private DatabaseModel eventTotalsDataModel;
 
     private static String authorityString;
 
@@ -98,6 +101,16 @@ public final class UrbanAirshipProvider extends ContentProvider {
         return Uri.parse("content://" + getAuthorityString(context) + "/events");
     }
 
+    /**
+     * Creates the event totals URI.
+     *
+     * @return The event totals URI.
+     */
+    @NonNull
+    public static Uri getEventTotalsContentUri(@NonNull Context context) {
+        return Uri.parse("content://" + getAuthorityString(context) + "/event_totals");
+    }
+
     /**
      * Get the package's authority string.
      *
@@ -125,6 +138,7 @@ public final class UrbanAirshipProvider extends ContentProvider {
         matcher.addURI(getAuthorityString(getContext()), "preferences/*", PREFERENCE_URI_TYPE);
         matcher.addURI(getAuthorityString(getContext()), "events", EVENT_URI_TYPE);
         matcher.addURI(getAuthorityString(getContext()), "events/*", EVENT_URI_TYPE);
+        matcher.addURI(getAuthorityString(getContext()), "event_totals", EVENT_TOTALS_URI_TYPE);
 
         Autopilot.automaticTakeOff((Application) getContext().getApplicationContext(), true);
 
@@ -160,6 +174,8 @@ public final class UrbanAirshipProvider extends ContentProvider {
                 return EVENTS_CONTENT_TYPE;
             case EVENTS_URI_TYPE:
                 return EVENTS_CONTENT_ITEM_TYPE;
+            case EVENT_TOTALS_URI_TYPE:
+                return EVENT_TOTALS_CONTENT_TYPE;
 
         }
         throw new IllegalArgumentException("Invalid Uri: " + uri);
@@ -243,6 +259,9 @@ public final class UrbanAirshipProvider extends ContentProvider {
             eventsDataModel.dataManager.close();
             eventsDataModel = null;
         }
+
+        // Shares the events data manager
+        eventTotalsDataModel = null;
     }
 
     /**
@@ -289,6 +308,17 @@ public final class UrbanAirshipProvider extends ContentProvider {
                 }
 
                 return eventsDataModel;
+
+            case EVENT_TOTALS_URI_TYPE:
+                if (eventsDataModel == null) {
+                    eventsDataModel = DatabaseModel.createEventsDataModel(getContext(), appKey);
+                }
+
+                if (eventTotalsDataModel == null) {
+                    eventTotalsDataModel = DatabaseModel.createEventTotalsDataModel(eventsDataModel.dataManager);
+                }
+
+                return eventTotalsDataModel;
         }
 
         throw new IllegalArgumentException("Invalid URI: " + uri);
@@ -345,6 +375,10 @@ public final class UrbanAirshipProvider extends ContentProvider {
             return new DatabaseModel(model, EventsStorage.Events.TABLE_NAME, EventsStorage.Events._ID);
         }
 
+        static DatabaseModel createEventTotalsDataModel(@NonNull DataManager eventsDataManager) {
+            return new DatabaseModel(eventsDataManager, EventsStorage.EventTotals.TABLE_NAME, EventsStorage.EventTotals.COLUMN_NAME_EVENT_COUNT);
+        }
+
     }
 
 }
@@ -144,7 +144,7 @@ public class Analytics extends AirshipComponent {
         this.activityMonitor = builder.activityMonitor;
         this.eventManager = builder.eventManager;
         this.airshipChannel = builder.airshipChannel;
-        this.executor = builder.executor == null ? AirshipExecutors.newSerialExecutor() : builder.executor;
+        this.executor = builder.executor == null ? AirshipExecutors.newSerialExecutor("analytics") : builder.executor;
         this.sessionId = UUID.randomUUID().toString();
 
         this.listener = new ApplicationListener() {
@@ -402,6 +402,14 @@ public class Analytics extends AirshipComponent {
         addEvent(new AppBackgroundEvent(timeMS));
         setConversionSendId(null);
         setConversionMetadata(null);
+
+        // Write any buffered events before the app process can be killed
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                eventManager.flushPendingEvents();
+            }
+        });
     }
 
     /**
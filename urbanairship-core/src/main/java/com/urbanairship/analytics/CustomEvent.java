@@ -9,6 +9,7 @@ import androidx.annotation.Size;
 
 import com.urbanairship.Logger;
 import com.urbanairship.UAirship;
+import com.urbanairship.json.JsonFieldLookup;
 import com.urbanairship.json.JsonMap;
 import com.urbanairship.json.JsonSerializable;
 import com.urbanairship.json.JsonValue;
@@ -25,7 +26,7 @@ import java.util.Map;
 /**
  * A class that represents a custom event for the application.
  */
-public class CustomEvent extends Event implements JsonSerializable {
+public class CustomEvent extends Event implements JsonSerializable, JsonFieldLookup {
 
     /**
      * The event type.
@@ -307,6 +308,33 @@ public class CustomEvent extends Event implements JsonSerializable {
         return data.build().toJsonValue();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @hide
+     */
+    @NonNull
+    @Override
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public JsonValue optField(@NonNull String key) {
+        switch (key) {
+            case EVENT_NAME:
+                return JsonValue.wrap(eventName);
+            case INTERACTION_ID:
+                return JsonValue.wrap(interactionId);
+            case INTERACTION_TYPE:
+                return JsonValue.wrap(interactionType);
+            case TRANSACTION_ID:
+                return JsonValue.wrap(transactionId);
+            case PROPERTIES:
+                return JsonValue.wrapOpt(properties);
+            case EVENT_VALUE:
+                return eventValue == null ? JsonValue.NULL : JsonValue.wrapOpt(eventValue.doubleValue());
+            default:
+                return JsonValue.NULL;
+        }
+    }
+
     @Override
     public boolean isValid() {
 
@@ -19,18 +19,12 @@ import com.urbanairship.UAirship;
 import com.urbanairship.http.Request;
 import com.urbanairship.http.RequestFactory;
 import com.urbanairship.http.Response;
-import com.urbanairship.json.JsonException;
-import com.urbanairship.json.JsonList;
-import com.urbanairship.json.JsonValue;
 import com.urbanairship.locale.LocaleManager;
 import com.urbanairship.util.ManifestUtils;
 import com.urbanairship.util.UAStringUtil;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
@@ -82,31 +76,19 @@ public class EventApiClient {
     }
 
     /**
-     * Sends a collection of events.
+     * Sends a batch of events. The events are streamed into the request body.
      *
      * @param airship The {@link UAirship} instance.
      * @param events Specified events
      * @return eventResponse or null if an error occurred
      */
     @Nullable
-    EventResponse sendEvents(@NonNull UAirship airship, @NonNull Collection<String> events) {
+    EventResponse sendEvents(@NonNull UAirship airship, @NonNull EventBatch events) {
         if (events.size() == 0) {
             Logger.verbose("EventApiClient - No analytics events to send.");
             return null;
         }
 
-        List<JsonValue> eventJSON = new ArrayList<>();
-
-        for (String eventPayload : events) {
-            try {
-                eventJSON.add(JsonValue.parseString(eventPayload));
-            } catch (JsonException e) {
-                Logger.error(e, "EventApiClient - Invalid eventPayload.");
-            }
-        }
-
-        String payload = new JsonList(eventJSON).toString();
-
         String url = airship.getAirshipConfigOptions().analyticsUrl + "warp9/";
         URL analyticsServerUrl = null;
         try {
@@ -150,7 +132,7 @@ public class EventApiClient {
         }
 
         Request request = requestFactory.createRequest("POST", analyticsServerUrl)
-                                        .setRequestBody(payload, "application/json")
+                                        .setRequestBody(events, "application/json")
                                         .setCompressRequestBody(true)
                                         .setHeader("X-UA-Device-Family", deviceFamily)
                                         .setHeader("X-UA-Sent-At", String.format(Locale.US, "%.3f", sentAt))
@@ -196,7 +178,7 @@ public class EventApiClient {
             request.setHeader("X-UA-Push-Address", channelID);
         }
 
-        Logger.debug("EventApiClient - Sending analytics events. Request: %s Events: %s", request, events);
+        Logger.debug("EventApiClient - Sending %s analytics events. Request: %s", events.size(), request);
 
         Response response = request.execute();
 
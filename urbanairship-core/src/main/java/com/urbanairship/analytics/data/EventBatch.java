@@ -0,0 +1,106 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.analytics.data;
+
+import android.database.Cursor;
+
+import com.urbanairship.Logger;
+import com.urbanairship.http.Request;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A batch of stored events.
+ * <p>
+ * The row IDs and payloads are read from the cursor up front so the cursor can be closed before
+ * the upload, and the batch can be deleted after it. The payloads are spliced into the JSON array
+ * as stored instead of being parsed and serialized again.
+ */
+class EventBatch implements Request.BodyWriter {
+
+    private final long[] rowIds;
+    private final List<String> payloads;
+
+    /**
+     * Default constructor. Reads the batch from the cursor, the caller is responsible for
+     * closing it.
+     *
+     * @param cursor The events cursor. Must contain the row ID in the first column and the event
+     * payload in the second column.
+     */
+    EventBatch(@NonNull Cursor cursor) {
+        this.rowIds = new long[cursor.getCount()];
+        this.payloads = new ArrayList<>(rowIds.length);
+
+        int i = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext() && i < rowIds.length) {
+            rowIds[i++] = cursor.getLong(0);
+            payloads.add(cursor.getString(1));
+        }
+    }
+
+    /**
+     * Gets the number of events in the batch.
+     *
+     * @return The event count.
+     */
+    int size() {
+        return rowIds.length;
+    }
+
+    /**
+     * Gets the row IDs of the events in the batch.
+     *
+     * @return The row IDs.
+     */
+    @NonNull
+    long[] getRowIds() {
+        return rowIds;
+    }
+
+    /**
+     * Writes the events as a JSON array.
+     *
+     * @param writer The writer.
+     * @throws IOException If the writer fails to write.
+     */
+    @Override
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        writer.write('[');
+
+        boolean first = true;
+        for (String payload : payloads) {
+            if (!isJsonObject(payload)) {
+                Logger.error("EventBatch - Invalid event payload: %s", payload);
+                continue;
+            }
+
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writer.write(payload);
+        }
+
+        writer.write(']');
+    }
+
+    /**
+     * Cheap sanity check that the stored payload is a JSON object, so a corrupt row does not
+     * invalidate the entire request body.
+     *
+     * @param payload The payload.
+     * @return {@code true} if the payload looks like a JSON object, otherwise {@code false}.
+     */
+    private static boolean isJsonObject(String payload) {
+        return payload != null && payload.startsWith("{") && payload.endsWith("}");
+    }
+
+}
@@ -1,9 +1,15 @@
 package com.urbanairship.analytics.data;
 
+import android.content.ContentValues;
+import android.os.Handler;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
+import com.urbanairship.AirshipExecutors;
+import com.urbanairship.AirshipLoopers;
 import com.urbanairship.Logger;
 import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.UAirship;
@@ -14,11 +20,18 @@ import com.urbanairship.job.JobDispatcher;
 import com.urbanairship.job.JobInfo;
 import com.urbanairship.util.Checks;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Handles event storage and uploading.
+ * <p>
+ * Events added while the app is in the foreground are buffered in memory and written to the
+ * database in a single transaction, either once enough events are buffered or after a short
+ * delay. Events added while the app is in the background, high priority events, and any
+ * operation that reads or deletes stored events flush the buffer first.
  *
  * @hide
  */
@@ -56,6 +69,21 @@ public class EventManager {
      */
     private static final long MULTIPLE_BATCH_DELAY = 1000; // 1s
 
+    /**
+     * Max number of buffered events before they are written to the database.
+     */
+    @VisibleForTesting
+    static final int MAX_PENDING_EVENTS = 50;
+
+    /**
+     * Delay before buffered events are written to the database in milliseconds.
+     */
+    @VisibleForTesting
+    static final long PENDING_EVENTS_FLUSH_DELAY = 1000; // 1s
+
+    @VisibleForTesting
+    Executor executor = AirshipExecutors.THREAD_POOL_EXECUTOR;
+
     private final PreferenceDataStore preferenceDataStore;
     private final JobDispatcher jobDispatcher;
     private final ActivityMonitor activityMonitor;
@@ -66,6 +94,23 @@ public class EventManager {
 
     private boolean isScheduled;
 
+    private final Handler handler;
+    private final Object pendingEventsLock = new Object();
+    private final List<ContentValues> pendingEvents = new ArrayList<>();
+    private boolean isFlushScheduled;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flushPendingEvents();
+                }
+            });
+        }
+    };
+
     /**
      * Default constructor.
      *
@@ -79,6 +124,7 @@ public class EventManager {
         this.apiClient = builder.apiClient;
         this.backgroundReportingIntervalMS = builder.backgroundReportingIntervalMS;
         this.jobAction = builder.jobAction;
+        this.handler = new Handler(AirshipLoopers.getBackgroundLooper());
     }
 
     /**
@@ -125,10 +171,25 @@ public class EventManager {
      */
     @WorkerThread
     public void addEvent(@NonNull Event event, @NonNull String sessionId) {
-        eventResolver.insertEvent(event, sessionId);
+        ContentValues values = EventResolver.createEventValues(event, sessionId);
+
+        boolean flush;
+        synchronized (pendingEventsLock) {
+            pendingEvents.add(values);
+
+            flush = pendingEvents.size() >= MAX_PENDING_EVENTS
+                    || event.getPriority() == Event.HIGH_PRIORITY
+                    || !activityMonitor.isAppForegrounded();
 
-        // Handle database max size exceeded
-        eventResolver.trimDatabase(preferenceDataStore.getInt(MAX_TOTAL_DB_SIZE_KEY, EventResponse.MAX_TOTAL_DB_SIZE_BYTES));
+            if (!flush && !isFlushScheduled) {
+                isFlushScheduled = true;
+                handler.postDelayed(flushRunnable, PENDING_EVENTS_FLUSH_DELAY);
+            }
+        }
+
+        if (flush) {
+            flushPendingEvents();
+        }
 
         switch (event.getPriority()) {
             case Event.HIGH_PRIORITY:
@@ -159,7 +220,33 @@ public class EventManager {
      */
     @WorkerThread
     public void deleteEvents() {
-        eventResolver.deleteAllEvents();
+        synchronized (pendingEventsLock) {
+            pendingEvents.clear();
+            eventResolver.deleteAllEvents();
+        }
+    }
+
+    /**
+     * Writes any buffered events to the database in a single transaction and trims the database
+     * if the stored events exceed the max database size.
+     */
+    @WorkerThread
+    public void flushPendingEvents() {
+        synchronized (pendingEventsLock) {
+            handler.removeCallbacks(flushRunnable);
+            isFlushScheduled = false;
+
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+
+            Logger.verbose("EventManager - Writing %s events.", pendingEvents.size());
+            eventResolver.insertEvents(new ArrayList<>(pendingEvents));
+            pendingEvents.clear();
+
+            // Handle database max size exceeded
+            eventResolver.trimDatabase(preferenceDataStore.getInt(MAX_TOTAL_DB_SIZE_KEY, EventResponse.MAX_TOTAL_DB_SIZE_BYTES));
+        }
     }
 
     /**
@@ -186,6 +273,8 @@ public class EventManager {
         isScheduled = false;
         preferenceDataStore.put(LAST_SEND_KEY, System.currentTimeMillis());
 
+        flushPendingEvents();
+
         final int eventCount = eventResolver.getEventCount();
 
         if (eventCount <= 0) {
@@ -193,13 +282,15 @@ public class EventManager {
             return true;
         }
 
-        final int avgSize = eventResolver.getDatabaseSize() / eventCount;
-
-        //pull enough events to fill a batch (roughly)
-        int batchEventCount = Math.min(MAX_BATCH_EVENT_COUNT, preferenceDataStore.getInt(MAX_BATCH_SIZE_KEY, EventResponse.MAX_BATCH_SIZE_BYTES) / avgSize);
-        Map<String, String> events = eventResolver.getEvents(batchEventCount);
+        // Fill the batch up to the max batch size advertised by the server
+        int maxBatchSize = preferenceDataStore.getInt(MAX_BATCH_SIZE_KEY, EventResponse.MAX_BATCH_SIZE_BYTES);
+        EventBatch events = eventResolver.getEventBatch(MAX_BATCH_EVENT_COUNT, maxBatchSize);
+        if (events == null) {
+            Logger.debug("EventManager - Unable to read events.");
+            return false;
+        }
 
-        EventResponse response = apiClient.sendEvents(airship, events.values());
+        EventResponse response = apiClient.sendEvents(airship, events);
 
         if (response == null || response.getStatus() != 200) {
             Logger.debug("EventManager - Analytic upload failed.");
@@ -207,7 +298,7 @@ public class EventManager {
         }
 
         Logger.debug("EventManager - Analytic events uploaded.");
-        eventResolver.deleteEvents(events.keySet());
+        eventResolver.deleteEvents(events.getRowIds());
 
         // Update preferences
         preferenceDataStore.put(MAX_TOTAL_DB_SIZE_KEY, response.getMaxTotalSize());
@@ -14,11 +14,8 @@ import com.urbanairship.Logger;
 import com.urbanairship.UrbanAirshipProvider;
 import com.urbanairship.UrbanAirshipResolver;
 import com.urbanairship.analytics.Event;
-import com.urbanairship.util.UAStringUtil;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
 /**
  * Performs event database operations.
@@ -34,46 +31,86 @@ public class EventResolver extends UrbanAirshipResolver {
     @NonNull
     public static final String ASCENDING_SORT_ORDER = EventsStorage.Events._ID + " ASC";
 
+    /**
+     * Number of events read at a time when trimming the database.
+     */
+    private static final int TRIM_PAGE_SIZE = 100;
+
     @NonNull
     private final Uri uri;
 
+    @NonNull
+    private final Uri totalsUri;
+
     public EventResolver(@NonNull Context context) {
         super(context);
         this.uri = UrbanAirshipProvider.getEventsContentUri(context);
+        this.totalsUri = UrbanAirshipProvider.getEventTotalsContentUri(context);
     }
 
     /**
-     * Gets a map of event data
+     * Gets a batch of the oldest events that fits within the max batch size.
+     * <p>
+     * Only the row IDs and event sizes are read to find where the batch ends. The payloads of
+     * exactly those rows are then read into the batch and the cursor is closed, so no cursor is
+     * held open during an upload. The batch always contains at least the oldest event so an event
+     * larger than the max batch size does not block uploads.
      *
-     * @param count Number of events to return, starts from the oldest to the newest.
-     * @return Map of event id to event data
+     * @param maxCount The max number of events, starts from the oldest to the newest.
+     * @param maxBatchSize The max batch size in bytes.
+     * @return The event batch, or {@code null} if the events could not be queried.
      */
-    @NonNull
-    Map<String, String> getEvents(int count) {
-        HashMap<String, String> events = new HashMap<>(count);
+    @Nullable
+    EventBatch getEventBatch(int maxCount, int maxBatchSize) {
+        String[] sizeColumns = new String[] {
+                EventsStorage.Events._ID,
+                EventsStorage.Events.COLUMN_NAME_EVENT_SIZE
+        };
+
+        Uri sizesUri = uri.buildUpon().appendQueryParameter(UrbanAirshipProvider.QUERY_PARAMETER_LIMIT, String.valueOf(maxCount)).build();
+        Cursor sizes = query(sizesUri, sizeColumns, null, null, ASCENDING_SORT_ORDER);
+        if (sizes == null) {
+            return null;
+        }
+
+        long lastId = -1;
+        int count = 0;
+
+        // Account for the JSON array brackets and separators
+        int batchSize = 2;
+        try {
+            while (sizes.moveToNext()) {
+                int eventSize = sizes.getInt(1) + (count > 0 ? 1 : 0);
+                if (count > 0 && batchSize + eventSize > maxBatchSize) {
+                    break;
+                }
+
+                batchSize += eventSize;
+                lastId = sizes.getLong(0);
+                count++;
+            }
+        } finally {
+            sizes.close();
+        }
 
         String[] columns = new String[] {
-                EventsStorage.Events.COLUMN_NAME_EVENT_ID,
+                EventsStorage.Events._ID,
                 EventsStorage.Events.COLUMN_NAME_DATA
         };
 
         Uri eventsUri = uri.buildUpon().appendQueryParameter(UrbanAirshipProvider.QUERY_PARAMETER_LIMIT, String.valueOf(count)).build();
-
-        Cursor cursor = query(eventsUri, columns, null, null, ASCENDING_SORT_ORDER);
+        Cursor cursor = query(eventsUri, columns, EventsStorage.Events._ID + " <= ?",
+                new String[] { String.valueOf(lastId) }, ASCENDING_SORT_ORDER);
 
         if (cursor == null) {
-            return events;
+            return null;
         }
 
-        cursor.moveToFirst();
-        while (!cursor.isAfterLast()) {
-            events.put(cursor.getString(0), cursor.getString(1));
-            cursor.moveToNext();
+        try {
+            return new EventBatch(cursor);
+        } finally {
+            cursor.close();
         }
-
-        cursor.close();
-
-        return events;
     }
 
     /**
@@ -84,22 +121,23 @@ public class EventResolver extends UrbanAirshipResolver {
     }
 
     /**
-     * Delete a set of events
+     * Delete a set of events by row ID.
      *
-     * @param eventIds Ids of the events to delete
+     * @param rowIds Row IDs of the events to delete.
      * @return <code>true</code> if any events were deleted, otherwise <code>false</code>
      */
-    boolean deleteEvents(@Nullable Set<String> eventIds) {
-        if (eventIds == null || eventIds.size() == 0) {
-            Logger.verbose("EventsStorage - Nothing to delete. Returning.");
+    boolean deleteEvents(@NonNull long[] rowIds) {
+        if (rowIds.length == 0) {
+            Logger.verbose("EventResolver - Nothing to delete. Returning.");
             return false;
         }
 
-        int numOfEventIds = eventIds.size();
-        String inStatement = repeat("?", numOfEventIds, ", ");
-        int deleted = delete(uri, EventsStorage.Events.COLUMN_NAME_EVENT_ID + " IN ( " + inStatement + " )",
-                eventIds.toArray(new String[numOfEventIds]));
+        String[] args = new String[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            args[i] = String.valueOf(rowIds[i]);
+        }
 
+        int deleted = delete(uri, EventsStorage.Events._ID + " IN ( " + repeat("?", rowIds.length, ", ") + " )", args);
         return deleted > 0;
     }
 
@@ -115,47 +153,39 @@ public class EventResolver extends UrbanAirshipResolver {
     }
 
     /**
-     * Gets the oldest session id in the
-     * database
+     * Gets the current event count in the database.
      *
-     * @return The oldest session id if exists, null otherwise
+     * @return The current event count, or -1 if the count could not be read.
      */
-    @Nullable
-    private String getOldestSessionId() {
-        String[] columns = new String[] { EventsStorage.Events.COLUMN_NAME_SESSION_ID };
-        Uri eventsUri = uri.buildUpon().appendQueryParameter(UrbanAirshipProvider.QUERY_PARAMETER_LIMIT, "1").build();
-
-        Cursor cursor = query(eventsUri, columns, null, null, ASCENDING_SORT_ORDER);
-
-        if (cursor == null) {
-            Logger.error("EventsStorage - Unable to query database.");
-            return null;
-        }
-
-        String sessionId = null;
-        if (cursor.moveToFirst()) {
-            sessionId = cursor.getString(0);
-        }
-        cursor.close();
+    int getEventCount() {
+        return getEventTotal(EventsStorage.EventTotals.COLUMN_NAME_EVENT_COUNT);
+    }
 
-        return sessionId;
+    /**
+     * Returns the sum of the events data fields in bytes.
+     *
+     * @return The current size of the database in bytes, or -1 if the size could not be read.
+     */
+    int getDatabaseSize() {
+        return getEventTotal(EventsStorage.EventTotals.COLUMN_NAME_EVENT_SIZE);
     }
 
     /**
-     * Gets the current event count in the database
+     * Reads a column from the event totals, which are maintained by the database as events are
+     * inserted and deleted.
      *
-     * @return The current event count
+     * @param column The totals column.
+     * @return The total, or -1 if the total could not be read.
      */
-    int getEventCount() {
-        Integer result = null;
-        String[] columns = new String[] { "COUNT(*) as _cnt" };
-        Cursor cursor = query(uri, columns, null, null, null);
+    private int getEventTotal(@NonNull String column) {
+        Cursor cursor = query(totalsUri, new String[] { column }, null, null, null);
 
         if (cursor == null) {
-            Logger.error("EventsStorage - Unable to query events database.");
+            Logger.error("EventResolver - Unable to query events database.");
             return -1;
         }
 
+        Integer result = null;
         if (cursor.moveToFirst()) {
             result = cursor.getInt(0);
         }
@@ -166,36 +196,38 @@ public class EventResolver extends UrbanAirshipResolver {
     }
 
     /**
-     * Returns the sum of the events data fields in bytes
+     * Inserts an event into the database.
      *
-     * @return The current size of the database in bytes
+     * @param event The event.
+     * @param sessionId The session ID.
      */
-    int getDatabaseSize() {
-        Integer result = null;
-        String[] columns = new String[] { "SUM(" + EventsStorage.Events.COLUMN_NAME_EVENT_SIZE + ") as _size" };
-        Cursor cursor = query(uri, columns, null, null, null);
-
-        if (cursor == null) {
-            Logger.error("EventsStorage - Unable to query events database.");
-            return -1;
-        }
+    void insertEvent(@NonNull Event event, @NonNull String sessionId) {
+        insert(uri, createEventValues(event, sessionId));
+    }
 
-        if (cursor.moveToFirst()) {
-            result = cursor.getInt(0);
+    /**
+     * Inserts events into the database in a single transaction.
+     *
+     * @param events The event values created with {@link #createEventValues(Event, String)}.
+     * @return The number of inserted events.
+     */
+    int insertEvents(@NonNull List<ContentValues> events) {
+        if (events.isEmpty()) {
+            return 0;
         }
 
-        cursor.close();
-
-        return result == null ? -1 : result;
+        return bulkInsert(uri, events.toArray(new ContentValues[0]));
     }
 
     /**
-     * Inserts an event into the database.
+     * Creates the database values for an event.
      *
      * @param event The event.
      * @param sessionId The session ID.
+     * @return The event values.
      */
-    void insertEvent(@NonNull Event event, @NonNull String sessionId) {
+    @NonNull
+    static ContentValues createEventValues(@NonNull Event event, @NonNull String sessionId) {
         String eventPayload = event.createEventPayload(sessionId);
 
         ContentValues values = new ContentValues();
@@ -205,33 +237,63 @@ public class EventResolver extends UrbanAirshipResolver {
         values.put(EventsStorage.Events.COLUMN_NAME_TIME, event.getTime());
         values.put(EventsStorage.Events.COLUMN_NAME_SESSION_ID, sessionId);
         values.put(EventsStorage.Events.COLUMN_NAME_EVENT_SIZE, eventPayload.length());
-
-        insert(uri, values);
+        return values;
     }
 
     /**
-     * Trims the database down to the specified size.
+     * Trims the database down to the specified size by deleting the oldest events.
+     * <p>
+     * Only the sizes of the events being deleted are read, a page at a time, and the events are
+     * then deleted with a single ID range.
      *
      * @param maxDatabaseSize The max db size in bytes.
      */
     void trimDatabase(int maxDatabaseSize) {
-        while (getDatabaseSize() > maxDatabaseSize) {
+        int excess = getDatabaseSize() - maxDatabaseSize;
+        if (excess <= 0) {
+            return;
+        }
+
+        String[] columns = new String[] {
+                EventsStorage.Events._ID,
+                EventsStorage.Events.COLUMN_NAME_EVENT_SIZE
+        };
+
+        Uri pageUri = uri.buildUpon().appendQueryParameter(UrbanAirshipProvider.QUERY_PARAMETER_LIMIT, String.valueOf(TRIM_PAGE_SIZE)).build();
 
-            String sessionId = getOldestSessionId();
-            if (UAStringUtil.isEmpty(sessionId)) {
+        long lastId = -1;
+        int trimmed = 0;
+        while (trimmed < excess) {
+            Cursor cursor = query(pageUri, columns, EventsStorage.Events._ID + " > ?",
+                    new String[] { String.valueOf(lastId) }, ASCENDING_SORT_ORDER);
+
+            if (cursor == null) {
+                Logger.error("EventResolver - Unable to query events database.");
                 break;
             }
 
-            Logger.debug("Event database size exceeded. Deleting oldest session: %s", sessionId);
-
-            int deleted = delete(uri, EventsStorage.Events.COLUMN_NAME_SESSION_ID + " = ?", new String[] { sessionId });
+            int count = 0;
+            try {
+                while (trimmed < excess && cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    trimmed += cursor.getInt(1);
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
 
-            if (deleted > 0) {
-                Logger.debug("EventsStorage - Deleted %s rows with session ID %s", deleted, sessionId);
-            } else {
+            if (count == 0) {
                 break;
             }
         }
+
+        if (lastId < 0) {
+            return;
+        }
+
+        int deleted = delete(uri, EventsStorage.Events._ID + " <= ?", new String[] { String.valueOf(lastId) });
+        Logger.debug("EventResolver - Event database size exceeded. Deleted %s oldest events.", deleted);
     }
 
 }
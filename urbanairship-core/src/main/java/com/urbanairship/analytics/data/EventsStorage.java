@@ -27,7 +27,7 @@ public class EventsStorage extends DataManager {
     /**
      * The database version
      */
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 2;
 
     /**
      * Events table contract
@@ -66,17 +66,47 @@ public class EventsStorage extends DataManager {
 
     }
 
+    /**
+     * Event totals table contract. The table has a single row with the event count and the total
+     * event size, kept up to date by triggers on the events table.
+     */
+    public interface EventTotals {
+
+        /**
+         * The table name offered by this provider
+         */
+        @NonNull
+        String TABLE_NAME = "event_totals";
+
+        /*
+         * Column definitions
+         */
+
+        @NonNull
+        String COLUMN_NAME_EVENT_COUNT = "event_count";
+
+        @NonNull
+        String COLUMN_NAME_EVENT_SIZE = "event_size";
+
+    }
+
     public EventsStorage(@NonNull Context context, @NonNull String appKey) {
         super(context, appKey, DATABASE_NAME, DATABASE_VERSION);
     }
 
     @Override
     protected void onUpgrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion == 1) {
+            Logger.debug("EventsStorage - Upgrading analytics database from version %s to %s", oldVersion, newVersion);
+            createEventTotals(db);
+            return;
+        }
+
         // Logs that the database is being upgraded
         Logger.debug("EventsStorage - Upgrading analytics database from version %s to %s, which will destroy all old data", oldVersion, newVersion);
 
-        // Kills the table and existing data
-        db.execSQL("DROP TABLE IF EXISTS " + Events.TABLE_NAME);
+        // Kills the tables and existing data
+        dropTables(db);
 
         // Recreates the database with a new version
         onCreate(db);
@@ -93,15 +123,63 @@ public class EventsStorage extends DataManager {
                 + Events.COLUMN_NAME_SESSION_ID + " TEXT,"
                 + Events.COLUMN_NAME_EVENT_SIZE + " INTEGER"
                 + ");");
+
+        createEventTotals(db);
     }
 
     @Override
     protected void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
         Logger.debug("EventsStorage - Downgrading analytics database from version %s to %s, which will destroy all data.", oldVersion, newVersion);
 
-        // Drop the table and recreate it
-        db.execSQL("DROP TABLE IF EXISTS " + Events.TABLE_NAME);
+        // Drop the tables and recreate them
+        dropTables(db);
         onCreate(db);
     }
 
+    /**
+     * Creates the event totals table seeded from the stored events, and the triggers that update
+     * the totals in the same transaction as any insert, update, or delete on the events table.
+     *
+     * @param db The database.
+     */
+    private void createEventTotals(@NonNull SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + EventTotals.TABLE_NAME + " ("
+                + EventTotals.COLUMN_NAME_EVENT_COUNT + " INTEGER NOT NULL,"
+                + EventTotals.COLUMN_NAME_EVENT_SIZE + " INTEGER NOT NULL"
+                + ");");
+
+        db.execSQL("DELETE FROM " + EventTotals.TABLE_NAME);
+        db.execSQL("INSERT INTO " + EventTotals.TABLE_NAME + " SELECT COUNT(*), IFNULL(SUM("
+                + Events.COLUMN_NAME_EVENT_SIZE + "), 0) FROM " + Events.TABLE_NAME);
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + Events.TABLE_NAME + "_insert AFTER INSERT ON " + Events.TABLE_NAME
+                + " BEGIN UPDATE " + EventTotals.TABLE_NAME + " SET "
+                + EventTotals.COLUMN_NAME_EVENT_COUNT + " = " + EventTotals.COLUMN_NAME_EVENT_COUNT + " + 1, "
+                + EventTotals.COLUMN_NAME_EVENT_SIZE + " = " + EventTotals.COLUMN_NAME_EVENT_SIZE
+                + " + IFNULL(NEW." + Events.COLUMN_NAME_EVENT_SIZE + ", 0); END;");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + Events.TABLE_NAME + "_delete AFTER DELETE ON " + Events.TABLE_NAME
+                + " BEGIN UPDATE " + EventTotals.TABLE_NAME + " SET "
+                + EventTotals.COLUMN_NAME_EVENT_COUNT + " = " + EventTotals.COLUMN_NAME_EVENT_COUNT + " - 1, "
+                + EventTotals.COLUMN_NAME_EVENT_SIZE + " = " + EventTotals.COLUMN_NAME_EVENT_SIZE
+                + " - IFNULL(OLD." + Events.COLUMN_NAME_EVENT_SIZE + ", 0); END;");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + Events.TABLE_NAME + "_update AFTER UPDATE OF " + Events.COLUMN_NAME_EVENT_SIZE
+                + " ON " + Events.TABLE_NAME
+                + " BEGIN UPDATE " + EventTotals.TABLE_NAME + " SET "
+                + EventTotals.COLUMN_NAME_EVENT_SIZE + " = " + EventTotals.COLUMN_NAME_EVENT_SIZE
+                + " - IFNULL(OLD." + Events.COLUMN_NAME_EVENT_SIZE + ", 0)"
+                + " + IFNULL(NEW." + Events.COLUMN_NAME_EVENT_SIZE + ", 0); END;");
+    }
+
+    /**
+     * Drops the events and event totals tables. The triggers are dropped with the events table.
+     *
+     * @param db The database.
+     */
+    private void dropTables(@NonNull SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + Events.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + EventTotals.TABLE_NAME);
+    }
+
 }
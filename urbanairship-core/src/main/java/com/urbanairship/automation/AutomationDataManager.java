@@ -3,6 +3,7 @@
 package com.urbanairship.automation;
 
 import android.annotation.TargetApi;
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
@@ -14,13 +15,17 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 import com.urbanairship.Logger;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonValue;
 import com.urbanairship.util.DataManager;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.urbanairship.util.UAStringUtil.repeat;
@@ -41,7 +46,7 @@ public class AutomationDataManager extends DataManager {
     /**
      * The database version
      */
-    private static final int DATABASE_VERSION = 5;
+    private static final int DATABASE_VERSION = 6;
 
     /**
      * Appended to the end of schedules GET queries to group rows by schedule ID.
@@ -55,14 +60,16 @@ public class AutomationDataManager extends DataManager {
             + " LEFT OUTER JOIN " + TriggerEntry.TABLE_NAME + " b ON a." + ScheduleEntry.COLUMN_NAME_SCHEDULE_ID + "=b." + TriggerEntry.COLUMN_NAME_SCHEDULE_ID;
 
     /**
-     * Query for retrieving active triggers.
+     * Active trigger lookups are served from memory. The index is loaded from the database on
+     * first use and kept in sync as schedules are saved and deleted.
      */
-    private static final String GET_ACTIVE_TRIGGERS = "SELECT * FROM " + TriggerEntry.TABLE_NAME + " t" +
-            " LEFT OUTER JOIN " + ScheduleEntry.TABLE_NAME + " a ON a." + ScheduleEntry.COLUMN_NAME_SCHEDULE_ID + " = t." + TriggerEntry.COLUMN_NAME_SCHEDULE_ID +
-            " WHERE t." + TriggerEntry.COLUMN_NAME_TYPE + " = ? AND a." + ScheduleEntry.COLUMN_NAME_START + " < ?" +
-            " AND ((t." + TriggerEntry.COLUMN_NAME_IS_CANCELLATION + " = 1 AND a." + ScheduleEntry.COLUMN_NAME_EXECUTION_STATE + " IN (" + ScheduleEntry.STATE_WAITING_SCHEDULE_CONDITIONS + "," + ScheduleEntry.STATE_TIME_DELAYED + "," + ScheduleEntry.STATE_PREPARING_SCHEDULE + "))" +
-            " OR (t." + TriggerEntry.COLUMN_NAME_IS_CANCELLATION + " = 0 AND a." + ScheduleEntry.COLUMN_NAME_EXECUTION_STATE + " = " + ScheduleEntry.STATE_IDLE + "))" +
-            " AND t." + TriggerEntry.COLUMN_NAME_SCHEDULE_ID + " LIKE ?";
+    private TriggerIndex triggerIndex;
+
+    /**
+     * The schedule data key that holds the schedule's source.
+     */
+    @Nullable
+    private final String sourceKey;
 
     /**
      * Class constructor.
@@ -71,7 +78,21 @@ public class AutomationDataManager extends DataManager {
      * @param appKey The app key.
      */
     public AutomationDataManager(@NonNull Context context, @NonNull String appKey, @NonNull String dbName) {
+        this(context, appKey, dbName, null);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param context The app context.
+     * @param appKey The app key.
+     * @param dbName The database name.
+     * @param sourceKey The schedule data key that holds the schedule's source, used by
+     * {@link #getScheduleIdsByGroup(String)}, or {@code null} if schedules have no source.
+     */
+    public AutomationDataManager(@NonNull Context context, @NonNull String appKey, @NonNull String dbName, @Nullable String sourceKey) {
         super(context, appKey, dbName, DATABASE_VERSION);
+        this.sourceKey = sourceKey;
     }
 
     @Override
@@ -97,10 +118,13 @@ public class AutomationDataManager extends DataManager {
                 + ScheduleEntry.COLUMN_NAME_REGION_ID + " TEXT,"
                 + ScheduleEntry.COLUMN_NAME_SCREEN + " TEXT,"
                 + ScheduleEntry.COLUMN_NAME_SECONDS + " DOUBLE,"
-                + ScheduleEntry.COLUMN_NAME_INTERVAL + " INTEGER"
+                + ScheduleEntry.COLUMN_NAME_INTERVAL + " INTEGER,"
+                + ScheduleEntry.COLUMN_NAME_SOURCE + " TEXT"
 
                 + ");");
 
+        createSourceIndex(db);
+
         db.execSQL("CREATE TABLE IF NOT EXISTS " + TriggerEntry.TABLE_NAME + " ("
                 + TriggerEntry.COLUMN_NAME_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + TriggerEntry.COLUMN_NAME_TYPE + " INTEGER,"
@@ -335,6 +359,17 @@ public class AutomationDataManager extends DataManager {
                 db.execSQL("ALTER TABLE " + ScheduleEntry.TABLE_NAME + " ADD COLUMN " + ScheduleEntry.COLUMN_NAME_METADATA + " TEXT;");
                 db.execSQL("COMMIT;");
 
+            case 5:
+                db.beginTransaction();
+                try {
+                    db.execSQL("ALTER TABLE " + ScheduleEntry.TABLE_NAME + " ADD COLUMN " + ScheduleEntry.COLUMN_NAME_SOURCE + " TEXT;");
+                    migrateSources(db);
+                    createSourceIndex(db);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
                 break;
             default:
                 // Kills the table and existing data
@@ -346,6 +381,49 @@ public class AutomationDataManager extends DataManager {
         }
     }
 
+    /**
+     * Creates the index used to look up schedule groups by source.
+     *
+     * @param db The database.
+     */
+    private void createSourceIndex(@NonNull SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + ScheduleEntry.TABLE_NAME + "_source_group ON " + ScheduleEntry.TABLE_NAME
+                + " (" + ScheduleEntry.COLUMN_NAME_SOURCE + ", " + ScheduleEntry.COLUMN_NAME_GROUP + ");");
+    }
+
+    /**
+     * Populates the source column from the stored schedule data.
+     *
+     * @param db The database.
+     */
+    private void migrateSources(@NonNull SQLiteDatabase db) {
+        if (sourceKey == null) {
+            return;
+        }
+
+        Cursor cursor = db.query(ScheduleEntry.TABLE_NAME, new String[] { ScheduleEntry.COLUMN_NAME_ID, ScheduleEntry.COLUMN_NAME_DATA },
+                null, null, null, null, null);
+
+        while (cursor.moveToNext()) {
+            String source;
+            try {
+                source = JsonValue.parseString(cursor.getString(1)).optMap().opt(sourceKey).getString();
+            } catch (JsonException e) {
+                Logger.error(e, "AutomationDataManager - Unable to parse schedule data.");
+                continue;
+            }
+
+            if (source != null) {
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(ScheduleEntry.COLUMN_NAME_SOURCE, source);
+                db.update(ScheduleEntry.TABLE_NAME, contentValues, ScheduleEntry.COLUMN_NAME_ID + " = ?",
+                        new String[] { String.valueOf(cursor.getLong(0)) });
+            }
+        }
+
+        cursor.close();
+    }
+
     @Override
     protected void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
         // Logs that the database is being downgraded
@@ -372,7 +450,10 @@ public class AutomationDataManager extends DataManager {
     void deleteSchedule(String scheduleId) {
         if (delete(ScheduleEntry.TABLE_NAME, ScheduleEntry.COLUMN_NAME_SCHEDULE_ID + " = ?", new String[] { scheduleId }) < 0) {
             Logger.error("AutomationDataManager - failed to delete schedule for schedule ID %s", scheduleId);
+            return;
         }
+
+        getTriggerIndex().remove(Collections.singleton(scheduleId));
     }
 
     /**
@@ -386,6 +467,8 @@ public class AutomationDataManager extends DataManager {
             Logger.error("AutomationDataManager - failed to delete schedules for group %s", group);
             return false;
         }
+
+        getTriggerIndex().removeGroups(Collections.singleton(group));
         return true;
     }
 
@@ -395,7 +478,10 @@ public class AutomationDataManager extends DataManager {
     void deleteAllSchedules() {
         if (delete(ScheduleEntry.TABLE_NAME, null, null) < 0) {
             Logger.error("AutomationDataManager - failed to delete schedules");
+            return;
         }
+
+        getTriggerIndex().clear();
     }
 
     /**
@@ -418,7 +504,7 @@ public class AutomationDataManager extends DataManager {
             db.beginTransaction();
 
             for (ScheduleEntry scheduleEntry : scheduleEntries) {
-                if (!scheduleEntry.save(db)) {
+                if (!scheduleEntry.save(db, sourceKey)) {
                     db.endTransaction();
                     return;
                 }
@@ -428,6 +514,12 @@ public class AutomationDataManager extends DataManager {
             db.endTransaction();
         } catch (SQLException e) {
             Logger.error(e, "AutomationDataManager - Unable to save schedules.");
+            return;
+        }
+
+        TriggerIndex index = getTriggerIndex();
+        for (ScheduleEntry scheduleEntry : scheduleEntries) {
+            index.put(scheduleEntry);
         }
     }
 
@@ -443,14 +535,21 @@ public class AutomationDataManager extends DataManager {
             return;
         }
 
+        boolean isSaved;
         try {
             db.beginTransaction();
-            if (entry.save(db)) {
+            isSaved = entry.save(db, sourceKey);
+            if (isSaved) {
                 db.setTransactionSuccessful();
             }
             db.endTransaction();
         } catch (SQLException e) {
             Logger.error(e, "AutomationDataManager - Unable to save schedule.");
+            return;
+        }
+
+        if (isSaved) {
+            getTriggerIndex().put(entry);
         }
     }
 
@@ -458,32 +557,41 @@ public class AutomationDataManager extends DataManager {
      * Saves triggers.
      *
      * @param triggerEntries Collection of trigger entries.
+     * @return {@code true} if the triggers were saved, otherwise {@code false}.
      */
-    void saveTriggers(@NonNull Collection<TriggerEntry> triggerEntries) {
+    boolean saveTriggers(@NonNull Collection<TriggerEntry> triggerEntries) {
         if (triggerEntries.isEmpty()) {
-            return;
+            return true;
         }
 
         final SQLiteDatabase db = getWritableDatabase();
         if (db == null) {
             Logger.error("AutomationDataManager - Unable to update automation rules.");
-            return;
+            return false;
         }
 
         try {
             db.beginTransactionNonExclusive();
 
+            TriggerIndex index = getTriggerIndex();
             for (TriggerEntry triggerEntry : triggerEntries) {
+                // Skip triggers that were deleted with their schedule
+                if (!index.containsSchedule(triggerEntry.scheduleId)) {
+                    continue;
+                }
+
                 if (!triggerEntry.save(db)) {
                     db.endTransaction();
-                    return;
+                    return false;
                 }
             }
 
             db.setTransactionSuccessful();
             db.endTransaction();
+            return true;
         } catch (SQLException e) {
             Logger.error(e, "AutomationDataManager - Unable to save triggers.");
+            return false;
         }
     }
 
@@ -504,6 +612,8 @@ public class AutomationDataManager extends DataManager {
                 delete(ScheduleEntry.TABLE_NAME, ScheduleEntry.COLUMN_NAME_GROUP + " IN ( " + inStatement + " )", subset.toArray(new String[0]));
             }
         });
+
+        getTriggerIndex().removeGroups(groups);
     }
 
     /**
@@ -523,6 +633,34 @@ public class AutomationDataManager extends DataManager {
                 delete(ScheduleEntry.TABLE_NAME, ScheduleEntry.COLUMN_NAME_SCHEDULE_ID + " IN ( " + inStatement + " )", subset.toArray(new String[0]));
             }
         });
+
+        getTriggerIndex().remove(schedulesToDelete);
+    }
+
+    /**
+     * Gets the schedule IDs by group for schedules whose data has the given value for the
+     * source key, without loading the schedules.
+     *
+     * @param source The schedule data source.
+     * @return A map of group to schedule ID.
+     */
+    @NonNull
+    Map<String, String> getScheduleIdsByGroup(@NonNull String source) {
+        Cursor cursor = query(ScheduleEntry.TABLE_NAME, new String[] { ScheduleEntry.COLUMN_NAME_GROUP, ScheduleEntry.COLUMN_NAME_SCHEDULE_ID },
+                ScheduleEntry.COLUMN_NAME_SOURCE + " = ? AND " + ScheduleEntry.COLUMN_NAME_GROUP + " IS NOT NULL",
+                new String[] { source }, ScheduleEntry.COLUMN_NAME_ID + " ASC");
+
+        if (cursor == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> scheduleIds = new HashMap<>();
+        while (cursor.moveToNext()) {
+            scheduleIds.put(cursor.getString(0), cursor.getString(1));
+        }
+
+        cursor.close();
+        return scheduleIds;
     }
 
     /**
@@ -541,7 +679,7 @@ public class AutomationDataManager extends DataManager {
 
         List<ScheduleEntry> entries = generateSchedules(cursor);
         cursor.close();
-        return entries;
+        return attachTriggers(entries);
     }
 
     /**
@@ -551,6 +689,16 @@ public class AutomationDataManager extends DataManager {
      */
     @NonNull
     List<ScheduleEntry> getScheduleEntries() {
+        return attachTriggers(loadScheduleEntries());
+    }
+
+    /**
+     * Loads all schedules with the triggers as stored in the database.
+     *
+     * @return The list of {@link ScheduleEntry} instances.
+     */
+    @NonNull
+    private List<ScheduleEntry> loadScheduleEntries() {
         String query = GET_SCHEDULES_QUERY + ORDER_SCHEDULES_STATEMENT;
         Cursor cursor = rawQuery(query, null);
         if (cursor == null) {
@@ -600,7 +748,7 @@ public class AutomationDataManager extends DataManager {
             }
         });
 
-        return schedules;
+        return attachTriggers(schedules);
     }
 
     /**
@@ -620,7 +768,7 @@ public class AutomationDataManager extends DataManager {
 
         List<ScheduleEntry> entries = generateSchedules(cursor);
         cursor.close();
-        return entries;
+        return attachTriggers(entries);
     }
 
     /**
@@ -645,7 +793,7 @@ public class AutomationDataManager extends DataManager {
 
         List<ScheduleEntry> entries = generateSchedules(cursor);
         cursor.close();
-        return entries;
+        return attachTriggers(entries);
     }
 
     /**
@@ -667,7 +815,7 @@ public class AutomationDataManager extends DataManager {
 
         List<ScheduleEntry> entries = generateSchedules(cursor);
         cursor.close();
-        return entries;
+        return attachTriggers(entries);
     }
 
     /**
@@ -678,7 +826,7 @@ public class AutomationDataManager extends DataManager {
      */
     @NonNull
     List<TriggerEntry> getActiveTriggerEntries(int type) {
-        return getActiveTriggerEntries(type, "%");
+        return getTriggerIndex().getActiveTriggerEntries(type, null, System.currentTimeMillis());
     }
 
     /**
@@ -690,24 +838,7 @@ public class AutomationDataManager extends DataManager {
      */
     @NonNull
     List<TriggerEntry> getActiveTriggerEntries(int type, @NonNull String scheduleId) {
-        List<TriggerEntry> triggers = new ArrayList<>();
-        Cursor cursor = rawQuery(GET_ACTIVE_TRIGGERS, new String[] { String.valueOf(type), String.valueOf(System.currentTimeMillis()), scheduleId });
-
-        if (cursor == null) {
-            return triggers;
-        }
-
-        // create triggers
-        cursor.moveToFirst();
-
-        while (!cursor.isAfterLast()) {
-            TriggerEntry triggerEntry = new TriggerEntry(cursor);
-            triggers.add(triggerEntry);
-            cursor.moveToNext();
-        }
-
-        cursor.close();
-        return triggers;
+        return getTriggerIndex().getActiveTriggerEntries(type, scheduleId, System.currentTimeMillis());
     }
 
     /**
@@ -746,6 +877,36 @@ public class AutomationDataManager extends DataManager {
         return entries;
     }
 
+    /**
+     * Gets the trigger index, loading it from the database if needed.
+     *
+     * @return The trigger index.
+     */
+    @NonNull
+    private synchronized TriggerIndex getTriggerIndex() {
+        if (triggerIndex == null) {
+            triggerIndex = new TriggerIndex(loadScheduleEntries());
+        }
+
+        return triggerIndex;
+    }
+
+    /**
+     * Replaces the triggers of loaded schedule entries with the indexed instances.
+     *
+     * @param entries The schedule entries.
+     * @return The schedule entries.
+     */
+    @NonNull
+    private List<ScheduleEntry> attachTriggers(@NonNull List<ScheduleEntry> entries) {
+        TriggerIndex index = getTriggerIndex();
+        for (ScheduleEntry entry : entries) {
+            index.attach(entry);
+        }
+
+        return entries;
+    }
+
     /**
      * Interface for operating on a subset of IDs.
      *
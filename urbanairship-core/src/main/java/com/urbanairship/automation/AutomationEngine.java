@@ -43,8 +43,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -165,6 +167,12 @@ public class AutomationEngine<T extends Schedule> {
 
     private final List<Integer> COMPOUND_TRIGGER_TYPES = Arrays.asList(Trigger.ACTIVE_SESSION, Trigger.VERSION);
 
+    /**
+     * Max delay before trigger progress is written to the database.
+     */
+    @VisibleForTesting
+    static final long TRIGGER_CHECKPOINT_DELAY_MS = 10000;
+
     /**
      * Used to sort schedule priority.
      */
@@ -200,6 +208,17 @@ public class AutomationEngine<T extends Schedule> {
     private String screen;
     private String regionId;
 
+    // Triggers with progress that has not been written to the database yet
+    private final Set<TriggerEntry> pendingTriggerUpdates = new HashSet<>();
+    private boolean isTriggerCheckpointScheduled = false;
+
+    private final Runnable triggerCheckpointRunnable = new Runnable() {
+        @Override
+        public void run() {
+            checkpointTriggers();
+        }
+    };
+
     private Subject<TriggerUpdate> stateObservableUpdates;
     private Subscription compoundTriggerSubscription;
     private Scheduler backgroundScheduler;
@@ -215,6 +234,8 @@ public class AutomationEngine<T extends Schedule> {
         public void onBackground(long time) {
             AutomationEngine.this.onEventAdded(JsonValue.NULL, Trigger.LIFE_CYCLE_BACKGROUND, 1.00);
             onScheduleConditionsChanged();
+
+            backgroundHandler.post(triggerCheckpointRunnable);
         }
     };
 
@@ -229,11 +250,12 @@ public class AutomationEngine<T extends Schedule> {
 
         @Override
         public void onCustomEventAdded(@NonNull CustomEvent customEvent) {
-            onEventAdded(customEvent.toJsonValue(), Trigger.CUSTOM_EVENT_COUNT, 1.00);
+            // Predicates read the event fields lazily
+            onEventAdded(customEvent, Trigger.CUSTOM_EVENT_COUNT, 1.00);
 
             BigDecimal eventValue = customEvent.getEventValue();
             if (eventValue != null) {
-                onEventAdded(customEvent.toJsonValue(), Trigger.CUSTOM_EVENT_VALUE, eventValue.doubleValue());
+                onEventAdded(customEvent, Trigger.CUSTOM_EVENT_VALUE, eventValue.doubleValue());
             }
         }
 
@@ -618,6 +640,57 @@ public class AutomationEngine<T extends Schedule> {
         return pendingResult;
     }
 
+    /**
+     * Gets the schedule IDs by group for schedules whose data has the given source, without
+     * loading the schedules.
+     *
+     * @param source The schedule data source.
+     * @return Pending result with a map of group to schedule ID.
+     */
+    @NonNull
+    public PendingResult<Map<String, String>> getScheduleIdsByGroup(@NonNull final String source) {
+        final PendingResult<Map<String, String>> pendingResult = new PendingResult<>();
+
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                pendingResult.setResult(dataManager.getScheduleIdsByGroup(source));
+            }
+        });
+
+        return pendingResult;
+    }
+
+    /**
+     * Gets the IDs of the schedules with an active trigger of one of the given types from the
+     * trigger index, without loading the schedules.
+     *
+     * @param triggerTypes The trigger types.
+     * @return Pending result with the schedule IDs.
+     */
+    @NonNull
+    public PendingResult<Set<String>> getScheduleIdsByTriggerType(@NonNull @Trigger.TriggerType final int... triggerTypes) {
+        final PendingResult<Set<String>> pendingResult = new PendingResult<>();
+
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> scheduleIds = new HashSet<>();
+                for (int type : triggerTypes) {
+                    for (TriggerEntry entry : dataManager.getActiveTriggerEntries(type)) {
+                        if (!entry.isCancellation) {
+                            scheduleIds.add(entry.scheduleId);
+                        }
+                    }
+                }
+
+                pendingResult.setResult(scheduleIds);
+            }
+        });
+
+        return pendingResult;
+    }
+
     /**
      * Edits a schedule.
      *
@@ -640,44 +713,104 @@ public class AutomationEngine<T extends Schedule> {
                     return;
                 }
 
-                entry.applyEdits(edits);
+                Long stateChangeTimeStamp = applyEdits(entry, edits);
+                dataManager.saveSchedule(entry);
+
+                if (stateChangeTimeStamp != null) {
+                    subscribeStateObservables(entry, stateChangeTimeStamp);
+                }
+
+                List<T> result = convertEntries(dataManager.getScheduleEntries(Collections.singleton(scheduleId)));
+                Logger.verbose("AutomationEngine - Updated schedule: %s", result);
+                pendingResult.setResult(result.size() > 0 ? result.get(0) : null);
+            }
+        });
+
+        return pendingResult;
+    }
 
-                boolean subscribeForStateChanges = false;
-                long stateChangeTimeStamp = -1;
+    /**
+     * Edits multiple schedules. All edits are saved in a single transaction.
+     *
+     * @param edits The schedule edits by schedule ID.
+     * @return Pending result with the updated schedules. Schedules that no longer exist are omitted.
+     */
+    @NonNull
+    public PendingResult<Collection<T>> editSchedules(@NonNull final Map<String, ? extends ScheduleEdits> edits) {
+        final PendingResult<Collection<T>> pendingResult = new PendingResult<>();
 
-                boolean isOverLimit = entry.isOverLimit();
-                boolean isExpired = entry.isExpired();
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> scheduleIds = new HashSet<>(edits.keySet());
+                List<ScheduleEntry> entries = dataManager.getScheduleEntries(scheduleIds);
 
-                // Check if the schedule needs to be rehabilitated or finished due to the edits
-                if (entry.getExecutionState() == ScheduleEntry.STATE_FINISHED && !isOverLimit && !isExpired) {
-                    subscribeForStateChanges = true;
-                    stateChangeTimeStamp = entry.getExecutionStateChangeDate();
-                    entry.setExecutionState(ScheduleEntry.STATE_IDLE);
-                } else if (entry.getExecutionState() != ScheduleEntry.STATE_FINISHED && (isOverLimit || isExpired)) {
-                    entry.setExecutionState(ScheduleEntry.STATE_FINISHED);
+                if (entries.size() != scheduleIds.size()) {
+                    Set<String> missingIds = new HashSet<>(scheduleIds);
+                    for (ScheduleEntry entry : entries) {
+                        missingIds.remove(entry.scheduleId);
+                    }
+                    Logger.error("AutomationEngine - Schedules no longer exist. Unable to edit: %s", missingIds);
+                }
 
-                    if (isOverLimit) {
-                        notifyScheduleLimitReached(entry);
-                    } else {
-                        notifyExpiredSchedules(Collections.singleton(entry));
+                Map<ScheduleEntry, Long> stateChangeTimeStamps = new HashMap<>();
+                for (ScheduleEntry entry : entries) {
+                    Long stateChangeTimeStamp = applyEdits(entry, edits.get(entry.scheduleId));
+                    if (stateChangeTimeStamp != null) {
+                        stateChangeTimeStamps.put(entry, stateChangeTimeStamp);
                     }
                 }
 
-                dataManager.saveSchedule(entry);
+                dataManager.saveSchedules(entries);
 
-                if (subscribeForStateChanges) {
-                    subscribeStateObservables(entry, stateChangeTimeStamp);
+                for (Map.Entry<ScheduleEntry, Long> entry : stateChangeTimeStamps.entrySet()) {
+                    subscribeStateObservables(entry.getKey(), entry.getValue());
                 }
 
-                List<T> result = convertEntries(dataManager.getScheduleEntries(Collections.singleton(scheduleId)));
-                Logger.verbose("AutomationEngine - Updated schedule: %s", result);
-                pendingResult.setResult(result.size() > 0 ? result.get(0) : null);
+                List<T> result = convertEntries(dataManager.getScheduleEntries(scheduleIds));
+                Logger.verbose("AutomationEngine - Updated schedules: %s", result);
+                pendingResult.setResult(result);
             }
         });
 
         return pendingResult;
     }
 
+    /**
+     * Applies edits to a schedule entry and rehabilitates or finishes the schedule if needed.
+     *
+     * @param entry The schedule entry.
+     * @param edits The schedule edits.
+     * @return The previous execution state change date if the schedule was rehabilitated and needs
+     * to subscribe for state changes, otherwise {@code null}.
+     */
+    @Nullable
+    private Long applyEdits(@NonNull ScheduleEntry entry, @NonNull ScheduleEdits edits) {
+        entry.applyEdits(edits);
+
+        boolean isOverLimit = entry.isOverLimit();
+        boolean isExpired = entry.isExpired();
+
+        // Check if the schedule needs to be rehabilitated or finished due to the edits
+        if (entry.getExecutionState() == ScheduleEntry.STATE_FINISHED && !isOverLimit && !isExpired) {
+            long stateChangeTimeStamp = entry.getExecutionStateChangeDate();
+            entry.setExecutionState(ScheduleEntry.STATE_IDLE);
+            return stateChangeTimeStamp;
+        }
+
+        if (entry.getExecutionState() != ScheduleEntry.STATE_FINISHED && (isOverLimit || isExpired)) {
+            entry.setExecutionState(ScheduleEntry.STATE_FINISHED);
+
+            if (isOverLimit) {
+                notifyScheduleLimitReached(entry);
+            } else {
+                notifyExpiredSchedules(Collections.singleton(entry));
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Triggers the engine to recheck all pending schedules.
      */
@@ -1107,14 +1240,12 @@ public class AutomationEngine<T extends Schedule> {
                 Set<String> triggeredSchedules = new HashSet<>();
                 Set<String> cancelledSchedules = new HashSet<>();
 
-                List<TriggerEntry> triggersToUpdate = new ArrayList<>();
-
                 for (TriggerEntry trigger : triggerEntries) {
                     if (trigger.jsonPredicate != null && !trigger.jsonPredicate.apply(json)) {
                         continue;
                     }
 
-                    triggersToUpdate.add(trigger);
+                    pendingTriggerUpdates.add(trigger);
                     trigger.setProgress(trigger.getProgress() + value);
 
                     if (trigger.getProgress() >= trigger.goal) {
@@ -1129,7 +1260,13 @@ public class AutomationEngine<T extends Schedule> {
                     }
                 }
 
-                dataManager.saveTriggers(triggersToUpdate);
+                // Goals that were reached need to be stored before the schedules are updated. Progress
+                // is written right away in the background since the app may be killed at any time.
+                if (!cancelledSchedules.isEmpty() || !triggeredSchedules.isEmpty() || !activityMonitor.isAppForegrounded()) {
+                    checkpointTriggers();
+                } else {
+                    scheduleTriggerCheckpoint();
+                }
 
                 if (!cancelledSchedules.isEmpty()) {
                     handleCancelledSchedules(dataManager.getScheduleEntries(cancelledSchedules));
@@ -1142,6 +1279,39 @@ public class AutomationEngine<T extends Schedule> {
         });
     }
 
+    /**
+     * Writes any pending trigger progress to the database.
+     */
+    @WorkerThread
+    private void checkpointTriggers() {
+        backgroundHandler.removeCallbacks(triggerCheckpointRunnable);
+        isTriggerCheckpointScheduled = false;
+
+        if (pendingTriggerUpdates.isEmpty()) {
+            return;
+        }
+
+        if (dataManager.saveTriggers(new ArrayList<>(pendingTriggerUpdates))) {
+            pendingTriggerUpdates.clear();
+        } else {
+            // Keep the progress and try again later
+            scheduleTriggerCheckpoint();
+        }
+    }
+
+    /**
+     * Schedules pending trigger progress to be written to the database, if not already scheduled.
+     */
+    @WorkerThread
+    private void scheduleTriggerCheckpoint() {
+        if (isTriggerCheckpointScheduled || pendingTriggerUpdates.isEmpty()) {
+            return;
+        }
+
+        isTriggerCheckpointScheduled = true;
+        backgroundHandler.postDelayed(triggerCheckpointRunnable, TRIGGER_CHECKPOINT_DELAY_MS);
+    }
+
     /**
      * Processes a list of cancelled schedule entries.
      *
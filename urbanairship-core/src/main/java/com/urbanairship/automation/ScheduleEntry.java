@@ -72,6 +72,10 @@ class ScheduleEntry implements ScheduleInfo {
     static final String COLUMN_EDIT_GRACE_PERIOD = "s_edit_grace_period";
     static final String COLUMN_NAME_INTERVAL = "s_interval";
 
+    // Value of the data manager's source key in the schedule data, stored separately so schedules
+    // can be looked up by source without parsing the data
+    static final String COLUMN_NAME_SOURCE = "s_source";
+
     // Delay
     static final String COLUMN_NAME_SECONDS = "d_seconds";
     static final String COLUMN_NAME_SCREEN = "d_screen";
@@ -299,19 +303,34 @@ class ScheduleEntry implements ScheduleInfo {
         return getLimit() > 0 && getCount() >= getLimit();
     }
 
+    /**
+     * Adds the schedule data and its source to the content values.
+     *
+     * @param contentValues The content values.
+     * @param data The schedule data.
+     * @param sourceKey The data key that holds the schedule's source, or {@code null} if schedules have no source.
+     */
+    static void putData(@NonNull ContentValues contentValues, @NonNull JsonSerializable data, @Nullable String sourceKey) {
+        JsonValue json = data.toJsonValue();
+        String source = sourceKey == null ? null : json.optMap().opt(sourceKey).getString();
+        contentValues.put(COLUMN_NAME_DATA, json.toString());
+        contentValues.put(COLUMN_NAME_SOURCE, source);
+    }
+
     /**
      * Saves the entry to the database.
      *
      * @param database Saves the entry to the database.
+     * @param sourceKey The data key that holds the schedule's source, or {@code null} if schedules have no source.
      * @return {code} true if the entry was saved, otherwise {@code false}.
      */
     @WorkerThread
-    boolean save(@NonNull SQLiteDatabase database) {
+    boolean save(@NonNull SQLiteDatabase database, @Nullable String sourceKey) {
         if (id == -1) {
             ContentValues contentValues = new ContentValues();
             contentValues.put(COLUMN_NAME_SCHEDULE_ID, scheduleId);
             contentValues.put(COLUMN_NAME_METADATA, metadata.toString());
-            contentValues.put(COLUMN_NAME_DATA, data.toJsonValue().toString());
+            putData(contentValues, data, sourceKey);
             contentValues.put(COLUMN_NAME_LIMIT, limit);
             contentValues.put(COLUMN_NAME_PRIORITY, priority);
             contentValues.put(COLUMN_NAME_GROUP, group);
@@ -344,7 +363,7 @@ class ScheduleEntry implements ScheduleInfo {
             contentValues.put(COLUMN_NAME_DELAY_FINISH_DATE, delayFinishDate);
 
             if (isEdit) {
-                contentValues.put(COLUMN_NAME_DATA, data.toJsonValue().toString());
+                putData(contentValues, data, sourceKey);
                 contentValues.put(COLUMN_NAME_METADATA, metadata.toString());
                 contentValues.put(COLUMN_NAME_LIMIT, limit);
                 contentValues.put(COLUMN_NAME_PRIORITY, priority);
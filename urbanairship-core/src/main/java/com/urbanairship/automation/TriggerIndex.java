@@ -0,0 +1,213 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.automation;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the stored triggers by trigger type.
+ * <p>
+ * The index holds a single {@link TriggerEntry} instance for every stored trigger, with its
+ * predicate already parsed, along with the schedule state needed to decide if the trigger is
+ * active. Schedule entries loaded from the database share the indexed trigger instances so
+ * trigger progress is never out of sync between the two.
+ */
+class TriggerIndex {
+
+    /**
+     * Indexed schedule state.
+     */
+    private static class ScheduleRecord {
+
+        final String group;
+        final List<TriggerEntry> triggerEntries;
+        long start;
+        int executionState;
+
+        ScheduleRecord(@NonNull ScheduleEntry entry, @NonNull List<TriggerEntry> triggerEntries) {
+            this.group = entry.group;
+            this.triggerEntries = triggerEntries;
+            this.start = entry.getStart();
+            this.executionState = entry.getExecutionState();
+        }
+
+    }
+
+    private final Map<String, ScheduleRecord> schedules = new HashMap<>();
+    private final SparseArray<Set<TriggerEntry>> triggersByType = new SparseArray<>();
+
+    /**
+     * Default constructor.
+     *
+     * @param entries The stored schedule entries.
+     */
+    TriggerIndex(@NonNull Collection<ScheduleEntry> entries) {
+        for (ScheduleEntry entry : entries) {
+            put(entry);
+        }
+    }
+
+    /**
+     * Adds or updates a saved schedule.
+     *
+     * @param entry The schedule entry.
+     */
+    synchronized void put(@NonNull ScheduleEntry entry) {
+        ScheduleRecord record = schedules.get(entry.scheduleId);
+        if (record != null) {
+            record.start = entry.getStart();
+            record.executionState = entry.getExecutionState();
+            return;
+        }
+
+        List<TriggerEntry> triggerEntries = new ArrayList<>();
+        for (TriggerEntry triggerEntry : entry.triggerEntries) {
+            // Schedules without triggers are joined with an empty trigger row
+            if (triggerEntry.scheduleId == null) {
+                continue;
+            }
+
+            triggerEntries.add(triggerEntry);
+
+            Set<TriggerEntry> typeEntries = triggersByType.get(triggerEntry.type);
+            if (typeEntries == null) {
+                typeEntries = new LinkedHashSet<>();
+                triggersByType.put(triggerEntry.type, typeEntries);
+            }
+            typeEntries.add(triggerEntry);
+        }
+
+        schedules.put(entry.scheduleId, new ScheduleRecord(entry, triggerEntries));
+    }
+
+    /**
+     * Replaces a loaded schedule entry's triggers with the indexed instances.
+     *
+     * @param entry The schedule entry.
+     */
+    synchronized void attach(@NonNull ScheduleEntry entry) {
+        ScheduleRecord record = schedules.get(entry.scheduleId);
+        if (record == null) {
+            return;
+        }
+
+        entry.triggerEntries.clear();
+        entry.triggerEntries.addAll(record.triggerEntries);
+    }
+
+    /**
+     * Checks if a schedule is indexed.
+     *
+     * @param scheduleId The schedule ID.
+     * @return {@code true} if the schedule is indexed, otherwise {@code false}.
+     */
+    synchronized boolean containsSchedule(@NonNull String scheduleId) {
+        return schedules.containsKey(scheduleId);
+    }
+
+    /**
+     * Removes schedules.
+     *
+     * @param scheduleIds The schedule IDs.
+     */
+    synchronized void remove(@NonNull Collection<String> scheduleIds) {
+        for (String scheduleId : scheduleIds) {
+            ScheduleRecord record = schedules.remove(scheduleId);
+            if (record != null) {
+                removeTriggers(record);
+            }
+        }
+    }
+
+    /**
+     * Removes schedules by group.
+     *
+     * @param groups The schedule groups.
+     */
+    synchronized void removeGroups(@NonNull Collection<String> groups) {
+        Iterator<ScheduleRecord> iterator = schedules.values().iterator();
+        while (iterator.hasNext()) {
+            ScheduleRecord record = iterator.next();
+            if (record.group != null && groups.contains(record.group)) {
+                iterator.remove();
+                removeTriggers(record);
+            }
+        }
+    }
+
+    /**
+     * Removes all schedules.
+     */
+    synchronized void clear() {
+        schedules.clear();
+        triggersByType.clear();
+    }
+
+    /**
+     * Gets the active triggers for the given type. Cancellation triggers are active while the
+     * schedule is waiting to execute, all other triggers are active while the schedule is idle.
+     *
+     * @param type The trigger type.
+     * @param scheduleId The schedule ID, or {@code null} for all schedules.
+     * @param time The current time in milliseconds. Schedules that have not started are ignored.
+     * @return The active triggers.
+     */
+    @NonNull
+    synchronized List<TriggerEntry> getActiveTriggerEntries(int type, @Nullable String scheduleId, long time) {
+        Set<TriggerEntry> typeEntries = triggersByType.get(type);
+        if (typeEntries == null || typeEntries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<TriggerEntry> activeEntries = new ArrayList<>();
+        for (TriggerEntry triggerEntry : typeEntries) {
+            if (scheduleId != null && !scheduleId.equals(triggerEntry.scheduleId)) {
+                continue;
+            }
+
+            ScheduleRecord record = schedules.get(triggerEntry.scheduleId);
+            if (record == null || record.start >= time) {
+                continue;
+            }
+
+            if (isActive(triggerEntry, record.executionState)) {
+                activeEntries.add(triggerEntry);
+            }
+        }
+
+        return activeEntries;
+    }
+
+    private void removeTriggers(@NonNull ScheduleRecord record) {
+        for (TriggerEntry triggerEntry : record.triggerEntries) {
+            Set<TriggerEntry> typeEntries = triggersByType.get(triggerEntry.type);
+            if (typeEntries != null) {
+                typeEntries.remove(triggerEntry);
+            }
+        }
+    }
+
+    private static boolean isActive(@NonNull TriggerEntry triggerEntry, int executionState) {
+        if (triggerEntry.isCancellation) {
+            return executionState == ScheduleEntry.STATE_WAITING_SCHEDULE_CONDITIONS
+                    || executionState == ScheduleEntry.STATE_TIME_DELAYED
+                    || executionState == ScheduleEntry.STATE_PREPARING_SCHEDULE;
+        }
+
+        return executionState == ScheduleEntry.STATE_IDLE;
+    }
+
+}
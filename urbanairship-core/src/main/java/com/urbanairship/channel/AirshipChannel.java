@@ -23,12 +23,14 @@ import com.urbanairship.util.UAHttpStatusUtil;
 import com.urbanairship.util.UAStringUtil;
 
 import java.net.HttpURLConnection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -86,6 +88,13 @@ public class AirshipChannel extends AirshipComponent {
     private final List<AirshipChannelListener> airshipChannelListeners = new CopyOnWriteArrayList<>();
     private final List<ChannelRegistrationPayloadExtender> channelRegistrationPayloadExtenders = new CopyOnWriteArrayList<>();
     private final Object tagLock = new Object();
+
+    /**
+     * Unmodifiable snapshot of the normalized tags, or {@code null} until loaded. Replaced on
+     * every edit and cleared when the stored tags change, including from another process.
+     */
+    private volatile Set<String> tagSnapshot;
+    private final AtomicInteger tagVersion = new AtomicInteger();
     private final Object attributeLock = new Object();
 
     private final PendingAttributeMutationStore attributeMutationStore;
@@ -131,7 +140,8 @@ public class AirshipChannel extends AirshipComponent {
                           @NonNull TagGroupRegistrar tagGroupRegistrar) {
         this(context, dataStore, configOptions, new ChannelApiClient(configOptions),
                 tagGroupRegistrar, platform, LocaleManager.shared(context), JobDispatcher.shared(context),
-                new PendingAttributeMutationStore(dataStore, ATTRIBUTE_DATASTORE_KEY), new AttributeApiClient(platform, configOptions));
+                new PendingAttributeMutationStore(dataStore, tagGroupRegistrar.getMutationDataManager(), ATTRIBUTE_DATASTORE_KEY),
+                new AttributeApiClient(platform, configOptions));
     }
 
     @VisibleForTesting
@@ -166,6 +176,17 @@ public class AirshipChannel extends AirshipComponent {
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     protected void init() {
         super.init();
+
+        getDataStore().addListener(new PreferenceDataStore.PreferenceChangeListener() {
+            @Override
+            public void onPreferenceChange(@NonNull String key) {
+                if (TAGS_KEY.equals(key)) {
+                    tagVersion.incrementAndGet();
+                    tagSnapshot = null;
+                }
+            }
+        });
+
         if (Logger.getLogLevel() < Log.ASSERT && !UAStringUtil.isEmpty(getId())) {
             Log.d(UAirship.getAppName() + " Channel ID", getId());
         }
@@ -304,7 +325,7 @@ public class AirshipChannel extends AirshipComponent {
             @Override
             void onApply(boolean clear, @NonNull Set<String> tagsToAdd, @NonNull Set<String> tagsToRemove) {
                 synchronized (tagLock) {
-                    Set<String> tags = clear ? new HashSet<String>() : getTags();
+                    Set<String> tags = clear ? new HashSet<String>() : new HashSet<>(getTagSnapshot());
                     tags.addAll(tagsToAdd);
                     tags.removeAll(tagsToRemove);
                     setTags(tags);
@@ -378,8 +399,7 @@ public class AirshipChannel extends AirshipComponent {
      */
     public void setTags(@NonNull Set<String> tags) {
         synchronized (tagLock) {
-            Set<String> normalizedTags = TagUtils.normalizeTags(tags);
-            getDataStore().put(TAGS_KEY, JsonValue.wrapOpt(normalizedTags));
+            storeTags(TagUtils.normalizeTags(tags));
         }
 
         dispatchUpdateRegistrationJob();
@@ -394,29 +414,67 @@ public class AirshipChannel extends AirshipComponent {
      */
     @NonNull
     public Set<String> getTags() {
-        synchronized (tagLock) {
-            Set<String> tags = new HashSet<>();
-            JsonValue jsonValue = getDataStore().getJsonValue(TAGS_KEY);
+        return new HashSet<>(getTagSnapshot());
+    }
 
-            if (jsonValue.isJsonList()) {
-                for (JsonValue tag : jsonValue.optList()) {
-                    if (tag.isString()) {
-                        tags.add(tag.getString());
+    /**
+     * Returns an unmodifiable snapshot of the current set of tags. The snapshot is never
+     * modified, edits replace it, so it can be read without copying or locking.
+     *
+     * @return The current set of tags.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public Set<String> getTagSnapshot() {
+        Set<String> snapshot = tagSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (tagLock) {
+            snapshot = tagSnapshot;
+            if (snapshot == null) {
+                int version = tagVersion.get();
+                Set<String> tags = new HashSet<>();
+                JsonValue jsonValue = getDataStore().getJsonValue(TAGS_KEY);
+
+                if (jsonValue.isJsonList()) {
+                    for (JsonValue tag : jsonValue.optList()) {
+                        if (tag.isString()) {
+                            tags.add(tag.getString());
+                        }
                     }
                 }
-            }
 
-            Set<String> normalizedTags = TagUtils.normalizeTags(tags);
+                Set<String> normalizedTags = TagUtils.normalizeTags(tags);
 
-            // To prevent the getTags call from constantly logging tag set failures, sync tags
-            if (tags.size() != normalizedTags.size()) {
-                this.setTags(normalizedTags);
+                snapshot = Collections.unmodifiableSet(normalizedTags);
+
+                // To prevent constantly logging tag set failures, sync tags
+                if (tags.size() != normalizedTags.size()) {
+                    storeTags(normalizedTags);
+                } else if (version == tagVersion.get()) {
+                    // Only keep the snapshot if the stored tags did not change while loading
+                    tagSnapshot = snapshot;
+                }
             }
 
-            return normalizedTags;
+            return snapshot;
         }
     }
 
+    /**
+     * Replaces the tag snapshot and persists the tags. The data store writes the tags
+     * in the background.
+     *
+     * @param normalizedTags The normalized tags.
+     */
+    private void storeTags(@NonNull Set<String> normalizedTags) {
+        tagSnapshot = Collections.unmodifiableSet(normalizedTags);
+        getDataStore().put(TAGS_KEY, JsonValue.wrapOpt(normalizedTags));
+    }
+
     /**
      * Enables channel creation if channel creation has been delayed.
      * <p>
@@ -450,7 +508,7 @@ public class AirshipChannel extends AirshipComponent {
     @NonNull
     private ChannelRegistrationPayload getNextChannelRegistrationPayload() {
         ChannelRegistrationPayload.Builder builder = new ChannelRegistrationPayload.Builder()
-                .setTags(getChannelTagRegistrationEnabled(), getTags())
+                .setTags(getChannelTagRegistrationEnabled(), getTagSnapshot())
                 .setApid(getDataStore().getString(APID_KEY, null));
 
         switch (platform) {
@@ -72,9 +72,9 @@ class AttributeApiClient extends BaseApiClient {
 
         JsonList attributes = JsonValue.wrapOpt(mutations).optList();
 
-        String attributePayload = JsonMap.newBuilder()
-                                         .putOpt(ATTRIBUTE_PAYLOAD_KEY, attributes)
-                                         .build().toString();
+        JsonMap attributePayload = JsonMap.newBuilder()
+                                          .putOpt(ATTRIBUTE_PAYLOAD_KEY, attributes)
+                                          .build();
 
         Logger.verbose("Updating channel Id:%s with payload: %s", channelId, attributePayload);
 
@@ -10,6 +10,7 @@ import com.urbanairship.Logger;
 import com.urbanairship.UAirship;
 import com.urbanairship.http.RequestFactory;
 import com.urbanairship.http.Response;
+import com.urbanairship.json.JsonSerializable;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -32,11 +33,11 @@ abstract class BaseApiClient {
      *
      * @param url The specified URL to send the request to.
      * @param requestMethod String representing the request method to use.
-     * @param jsonPayload JSON payload as a string
+     * @param jsonPayload JSON payload
      * @return response or null if an error occurred
      */
     @Nullable
-    protected Response performRequest(@Nullable URL url, @NonNull String requestMethod, @NonNull String jsonPayload) {
+    protected Response performRequest(@Nullable URL url, @NonNull String requestMethod, @NonNull JsonSerializable jsonPayload) {
         if (url == null) {
             Logger.error("Unable to perform request, invalid URL.");
             return null;
@@ -49,7 +49,7 @@ class ChannelApiClient extends BaseApiClient {
     @NonNull
     ChannelResponse<String> createChannelWithPayload(@NonNull ChannelRegistrationPayload channelPayload) throws ChannelRequestException {
         URL url = getDeviceUrl(CHANNEL_API_PATH);
-        String payload = channelPayload.toJsonValue().toString();
+        JsonValue payload = channelPayload.toJsonValue();
         Logger.verbose("ChannelApiClient - Creating channel with payload: %s", payload);
 
         Response response = performRequest(url, "POST", payload);
@@ -78,7 +78,7 @@ class ChannelApiClient extends BaseApiClient {
      */
     ChannelResponse<Void> updateChannelWithPayload(@NonNull String channelId, @NonNull ChannelRegistrationPayload channelPayload) throws ChannelRequestException {
         URL url = getDeviceUrl(CHANNEL_API_PATH + channelId);
-        String payload = channelPayload.toJsonValue().toString();
+        JsonValue payload = channelPayload.toJsonValue();
         Logger.verbose("ChannelApiClient - Updating channel with payload: %s", payload);
 
         Response response = performRequest(url, "PUT", payload);
@@ -55,7 +55,7 @@ class NamedUserApiClient extends BaseApiClient {
                                  .build();
 
         URL associateUrl = getDeviceUrl(ASSOCIATE_PATH);
-        return performRequest(associateUrl, "POST", payload.toString());
+        return performRequest(associateUrl, "POST", payload);
     }
 
     /**
@@ -72,7 +72,7 @@ class NamedUserApiClient extends BaseApiClient {
                                  .build();
 
         URL disassociateUrl = getDeviceUrl(DISASSOCIATE_PATH);
-        return performRequest(disassociateUrl, "POST", payload.toString());
+        return performRequest(disassociateUrl, "POST", payload);
     }
 
     /**
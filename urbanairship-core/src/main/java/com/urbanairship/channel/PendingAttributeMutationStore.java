@@ -3,27 +3,47 @@
 package com.urbanairship.channel;
 
 import com.urbanairship.PreferenceDataStore;
-import com.urbanairship.json.JsonList;
 import com.urbanairship.json.JsonValue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Helper class to manage pending attribute mutations.
+ * <p>
+ * Mutations are stored in a {@link PendingMutationDataManager} table so adding, peeking, and popping
+ * mutations does not require reading and rewriting the whole queue. Mutations stored in the
+ * preference data store by older versions of the SDK are moved to the table on first access.
+ */
 class PendingAttributeMutationStore {
+
+    /**
+     * Max number of mutation lists collapsed at once.
+     */
+    @VisibleForTesting
+    static final int COLLAPSE_BATCH_SIZE = 100;
+
     private final PreferenceDataStore dataStore;
+    private final PendingMutationDataManager dataManager;
     private final String storeKey;
 
+    private boolean isMigrated = false;
+
     /**
      * Default constructor.
      *
      * @param dataStore The preference data store.
+     * @param dataManager The mutation data manager.
      * @param storeKey The store key.
      */
-    PendingAttributeMutationStore(PreferenceDataStore dataStore, String storeKey) {
+    PendingAttributeMutationStore(PreferenceDataStore dataStore, PendingMutationDataManager dataManager, String storeKey) {
         this.dataStore = dataStore;
+        this.dataManager = dataManager;
         this.storeKey = storeKey;
     }
 
@@ -33,6 +53,8 @@ class PendingAttributeMutationStore {
     void clear() {
         synchronized (this) {
             dataStore.remove(storeKey);
+            dataManager.clear(storeKey);
+            isMigrated = true;
         }
     }
 
@@ -43,9 +65,8 @@ class PendingAttributeMutationStore {
      */
     void add(List<PendingAttributeMutation> pendingAttributeMutations) {
         synchronized (this) {
-            List<List<PendingAttributeMutation>> allMutations = getMutations();
-            allMutations.add(pendingAttributeMutations);
-            dataStore.put(storeKey, JsonValue.wrapOpt(allMutations));
+            migrateIfNeeded();
+            dataManager.add(storeKey, Collections.singletonList(JsonValue.wrapOpt(pendingAttributeMutations)));
         }
     }
 
@@ -57,15 +78,19 @@ class PendingAttributeMutationStore {
     @Nullable
     List<PendingAttributeMutation> pop() {
         synchronized (this) {
-            List<List<PendingAttributeMutation>> allMutations = getMutations();
-
-            if (peek() == null) {
+            migrateIfNeeded();
+            List<PendingMutationDataManager.Entry> entries = dataManager.peek(storeKey, 1);
+            if (entries.isEmpty()) {
                 return null;
             }
 
-            List<PendingAttributeMutation> mutations = allMutations.remove(0);
+            PendingMutationDataManager.Entry entry = entries.get(0);
+            List<PendingAttributeMutation> mutations = PendingAttributeMutation.fromJsonList(entry.data.optList());
+            if (mutations.isEmpty()) {
+                return null;
+            }
 
-            dataStore.put(storeKey, JsonValue.wrapOpt(allMutations));
+            dataManager.removeThrough(storeKey, entry.id);
             return mutations;
         }
     }
@@ -77,39 +102,54 @@ class PendingAttributeMutationStore {
      */
     @Nullable
     List<PendingAttributeMutation> peek() {
-        synchronized (this) {
-            List<List<PendingAttributeMutation>> allMutations = getMutations();
-
-            if (allMutations.isEmpty()) {
-                return null;
-            }
+        List<List<PendingAttributeMutation>> allMutations = peek(1);
+        if (allMutations.isEmpty() || allMutations.get(0).isEmpty()) {
+            return null;
+        }
 
-            if (allMutations.get(0).isEmpty()) {
-                return null;
-            }
+        return allMutations.get(0);
+    }
 
-            return allMutations.get(0);
+    /**
+     * Peeks the top mutations.
+     * <p>
+     * Uploads do not need to read more than one entry at a time since collapsing merges the
+     * first {@link #COLLAPSE_BATCH_SIZE} entries into a single mutation list that is sent in one
+     * request.
+     *
+     * @param count The max number of mutation lists to return, or -1 for all of them.
+     * @return A list of up to count mutation lists from the top of the store.
+     */
+    @NonNull
+    private List<List<PendingAttributeMutation>> peek(int count) {
+        synchronized (this) {
+            migrateIfNeeded();
+            return toMutations(dataManager.peek(storeKey, count));
         }
     }
 
     /**
-     * Collapses a list of mutations down to a single collection of mutations.
+     * Collapses the mutations at the top of the store down to a single collection of mutations.
      */
     void collapseAndSaveMutations() {
         synchronized (this) {
-            List<List<PendingAttributeMutation>> allMutations = getMutations();
+            migrateIfNeeded();
+            List<PendingMutationDataManager.Entry> entries = dataManager.peek(storeKey, COLLAPSE_BATCH_SIZE);
+            if (entries.isEmpty()) {
+                return;
+            }
 
             List<PendingAttributeMutation> combined = new ArrayList<>();
-            for (List<PendingAttributeMutation> mutations : allMutations) {
+            for (List<PendingAttributeMutation> mutations : toMutations(entries)) {
                 combined.addAll(mutations);
             }
 
             List<PendingAttributeMutation> collapsedMutation = PendingAttributeMutation.collapseMutations(combined);
-
-            allMutations.clear();
-            allMutations.add(collapsedMutation);
-
-            dataStore.put(storeKey, JsonValue.wrapOpt(allMutations));
+            if (collapsedMutation.isEmpty()) {
+                dataManager.replace(storeKey, entries, Collections.<JsonValue>emptyList());
+            } else {
+                dataManager.replace(storeKey, entries, Collections.singletonList(JsonValue.wrapOpt(collapsedMutation)));
+            }
         }
     }
 
@@ -120,12 +160,31 @@ class PendingAttributeMutationStore {
      */
     @NonNull
     List<List<PendingAttributeMutation>> getMutations() {
-        JsonList jsonList =  dataStore.getJsonValue(storeKey).optList();
-        List<List<PendingAttributeMutation>> allMutations = new ArrayList<>();
+        return peek(-1);
+    }
+
+    /**
+     * Moves any mutations stored in the preference data store to the mutation table.
+     */
+    private void migrateIfNeeded() {
+        if (isMigrated) {
+            return;
+        }
 
-        for (JsonValue value : jsonList) {
-            allMutations.add(PendingAttributeMutation.fromJsonList(value.optList()));
+        JsonValue stored = dataStore.getJsonValue(storeKey);
+        if (stored.isNull() || dataManager.add(storeKey, stored.optList().getList())) {
+            dataStore.remove(storeKey);
+            isMigrated = true;
+        }
+    }
+
+    @NonNull
+    private static List<List<PendingAttributeMutation>> toMutations(@NonNull List<PendingMutationDataManager.Entry> entries) {
+        List<List<PendingAttributeMutation>> allMutations = new ArrayList<>(entries.size());
+        for (PendingMutationDataManager.Entry entry : entries) {
+            allMutations.add(PendingAttributeMutation.fromJsonList(entry.data.optList()));
         }
         return allMutations;
     }
+
 }
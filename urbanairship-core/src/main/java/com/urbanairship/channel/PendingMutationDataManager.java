@@ -0,0 +1,249 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.channel;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.urbanairship.Logger;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonSerializable;
+import com.urbanairship.json.JsonValue;
+import com.urbanairship.util.DataManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link DataManager} for pending mutations. Each store is an append only FIFO queue
+ * of JSON mutations ordered by row ID.
+ */
+class PendingMutationDataManager extends DataManager {
+
+    private static final String TABLE_NAME = "mutations";
+
+    private static final String COLUMN_NAME_ID = "id";
+
+    // The store the mutation belongs to
+    private static final String COLUMN_NAME_STORE = "store";
+
+    // The JSON-serialized mutation
+    private static final String COLUMN_NAME_DATA = "data";
+
+    private static final String WHERE_CLAUSE_STORE = COLUMN_NAME_STORE + " = ?";
+
+    /**
+     * The database version.
+     */
+    private static final int DATABASE_VERSION = 1;
+
+    /**
+     * A queued mutation.
+     */
+    static class Entry {
+
+        final long id;
+        final JsonValue data;
+
+        Entry(long id, @NonNull JsonValue data) {
+            this.id = id;
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @param context The app context.
+     * @param appKey The app key.
+     * @param dbName The database name.
+     */
+    PendingMutationDataManager(@NonNull Context context, @NonNull String appKey, @NonNull String dbName) {
+        super(context, appKey, dbName, DATABASE_VERSION);
+    }
+
+    @Override
+    protected void onCreate(@NonNull SQLiteDatabase db) {
+        Logger.debug("PendingMutationDataManager - Creating database");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + COLUMN_NAME_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_NAME_STORE + " TEXT NOT NULL,"
+                + COLUMN_NAME_DATA + " TEXT NOT NULL"
+                + ");");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_NAME_STORE
+                + " ON " + TABLE_NAME + " (" + COLUMN_NAME_STORE + ", " + COLUMN_NAME_ID + ");");
+    }
+
+    @Override
+    protected void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+        onCreate(db);
+    }
+
+    /**
+     * Appends mutations to the end of the store.
+     *
+     * @param store The store.
+     * @param mutations The mutations.
+     * @return {@code true} if the mutations were added, otherwise {@code false}.
+     */
+    boolean add(@NonNull String store, @NonNull List<? extends JsonSerializable> mutations) {
+        if (mutations.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (db == null) {
+            Logger.error("PendingMutationDataManager - Unable to add mutations.");
+            return false;
+        }
+
+        try {
+            db.beginTransaction();
+            try {
+                for (JsonSerializable mutation : mutations) {
+                    ContentValues values = new ContentValues();
+                    values.put(COLUMN_NAME_STORE, store);
+                    values.put(COLUMN_NAME_DATA, mutation.toJsonValue().toString());
+
+                    if (db.insert(TABLE_NAME, null, values) == -1) {
+                        return false;
+                    }
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLException e) {
+            Logger.error(e, "PendingMutationDataManager - Unable to add mutations.");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the mutations at the front of the store without removing them.
+     *
+     * @param store The store.
+     * @param limit The max number of mutations to return, or -1 for all the mutations.
+     * @return The mutations in insertion order.
+     */
+    @NonNull
+    List<Entry> peek(@NonNull String store, int limit) {
+        Cursor cursor = query(TABLE_NAME, new String[] { COLUMN_NAME_ID, COLUMN_NAME_DATA },
+                WHERE_CLAUSE_STORE, new String[] { store }, COLUMN_NAME_ID + " ASC",
+                limit < 0 ? null : String.valueOf(limit));
+
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                try {
+                    entries.add(new Entry(cursor.getLong(0), JsonValue.parseString(cursor.getString(1))));
+                } catch (JsonException e) {
+                    Logger.error(e, "PendingMutationDataManager - Unable to parse mutation.");
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return entries;
+    }
+
+    /**
+     * Removes all the mutations up to and including the mutation with the given ID.
+     *
+     * @param store The store.
+     * @param id The mutation ID.
+     * @return {@code true} if the mutations were removed, otherwise {@code false}.
+     */
+    boolean removeThrough(@NonNull String store, long id) {
+        return delete(TABLE_NAME, WHERE_CLAUSE_STORE + " AND " + COLUMN_NAME_ID + " <= ?",
+                new String[] { store, String.valueOf(id) }) >= 0;
+    }
+
+    /**
+     * Replaces mutations at the front of the store with fewer mutations, keeping their position
+     * in the store. The replacements reuse the IDs of the first entries and the remaining entries are
+     * removed in a single transaction.
+     *
+     * @param store The store.
+     * @param entries The entries to replace. Must be at the front of the store, in insertion order.
+     * @param replacements The replacement mutations. Must not have more items than entries.
+     * @return {@code true} if the mutations were replaced, otherwise {@code false}.
+     */
+    boolean replace(@NonNull String store, @NonNull List<Entry> entries, @NonNull List<? extends JsonSerializable> replacements) {
+        if (replacements.size() > entries.size()) {
+            throw new IllegalArgumentException("Unable to replace " + entries.size() + " entries with " + replacements.size() + " mutations");
+        }
+
+        if (entries.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (db == null) {
+            Logger.error("PendingMutationDataManager - Unable to replace mutations.");
+            return false;
+        }
+
+        try {
+            db.beginTransaction();
+            try {
+                SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_NAME + " SET " + COLUMN_NAME_DATA + " = ? WHERE "
+                        + COLUMN_NAME_ID + " = ?");
+
+                for (int i = 0; i < replacements.size(); i++) {
+                    update.bindString(1, replacements.get(i).toJsonValue().toString());
+                    update.bindLong(2, entries.get(i).id);
+                    update.executeUpdateDelete();
+                }
+
+                long lastId = entries.get(entries.size() - 1).id;
+                if (replacements.isEmpty()) {
+                    db.delete(TABLE_NAME, WHERE_CLAUSE_STORE + " AND " + COLUMN_NAME_ID + " <= ?",
+                            new String[] { store, String.valueOf(lastId) });
+                } else {
+                    long lastReplacedId = entries.get(replacements.size() - 1).id;
+                    db.delete(TABLE_NAME, WHERE_CLAUSE_STORE + " AND " + COLUMN_NAME_ID + " > ? AND " + COLUMN_NAME_ID + " <= ?",
+                            new String[] { store, String.valueOf(lastReplacedId), String.valueOf(lastId) });
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLException e) {
+            Logger.error(e, "PendingMutationDataManager - Unable to replace mutations.");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all the mutations from the store.
+     *
+     * @param store The store.
+     * @return {@code true} if the mutations were removed, otherwise {@code false}.
+     */
+    boolean clear(@NonNull String store) {
+        return delete(TABLE_NAME, WHERE_CLAUSE_STORE, new String[] { store }) >= 0;
+    }
+
+}
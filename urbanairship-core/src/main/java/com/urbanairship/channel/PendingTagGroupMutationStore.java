@@ -4,10 +4,12 @@ package com.urbanairship.channel;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.json.JsonValue;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -15,20 +17,35 @@ import java.util.Set;
 
 /**
  * Helper class to manage pending tag group mutations.
+ * <p>
+ * Mutations are stored in a {@link PendingMutationDataManager} table so adding, peeking, and popping
+ * a mutation does not require reading and rewriting the whole queue. Mutations stored in the
+ * preference data store by older versions of the SDK are moved to the table on first access.
  */
 class PendingTagGroupMutationStore {
 
+    /**
+     * Max number of mutations collapsed at once.
+     */
+    @VisibleForTesting
+    static final int COLLAPSE_BATCH_SIZE = 100;
+
     private final PreferenceDataStore dataStore;
+    private final PendingMutationDataManager dataManager;
     private final String storeKey;
 
+    private boolean isMigrated = false;
+
     /**
      * Default constructor.
      *
      * @param dataStore The preference data store.
+     * @param dataManager The mutation data manager.
      * @param storeKey The store key.
      */
-    PendingTagGroupMutationStore(PreferenceDataStore dataStore, String storeKey) {
+    PendingTagGroupMutationStore(PreferenceDataStore dataStore, PendingMutationDataManager dataManager, String storeKey) {
         this.dataStore = dataStore;
+        this.dataManager = dataManager;
         this.storeKey = storeKey;
     }
 
@@ -38,6 +55,8 @@ class PendingTagGroupMutationStore {
     void clear() {
         synchronized (this) {
             dataStore.remove(storeKey);
+            dataManager.clear(storeKey);
+            isMigrated = true;
         }
     }
 
@@ -48,9 +67,8 @@ class PendingTagGroupMutationStore {
      */
     void add(List<TagGroupsMutation> tagGroupsMutations) {
         synchronized (this) {
-            List<TagGroupsMutation> mutations = getMutations();
-            mutations.addAll(tagGroupsMutations);
-            dataStore.put(storeKey, JsonValue.wrapOpt(mutations));
+            migrateIfNeeded();
+            dataManager.add(storeKey, tagGroupsMutations);
         }
     }
 
@@ -62,14 +80,38 @@ class PendingTagGroupMutationStore {
     @Nullable
     TagGroupsMutation pop() {
         synchronized (this) {
-            List<TagGroupsMutation> mutations = getMutations();
-            if (mutations.isEmpty()) {
+            migrateIfNeeded();
+            List<PendingMutationDataManager.Entry> entries = dataManager.peek(storeKey, 1);
+            if (entries.isEmpty()) {
                 return null;
             }
 
-            TagGroupsMutation mutation = mutations.remove(0);
-            dataStore.put(storeKey, JsonValue.wrapOpt(mutations));
-            return mutation;
+            PendingMutationDataManager.Entry entry = entries.get(0);
+            dataManager.removeThrough(storeKey, entry.id);
+            return TagGroupsMutation.fromJsonValue(entry.data);
+        }
+    }
+
+    /**
+     * Removes an entry from the top of the store if the entry is unchanged.
+     *
+     * @param entry The entry, from {@link #peekEntries(int)}.
+     * @return {@code true} if the entry was removed, or {@code false} if the entry is no longer
+     * at the top of the store or its mutation was collapsed since it was peeked.
+     */
+    boolean remove(@NonNull PendingMutationDataManager.Entry entry) {
+        synchronized (this) {
+            List<PendingMutationDataManager.Entry> entries = dataManager.peek(storeKey, 1);
+            if (entries.isEmpty()) {
+                return false;
+            }
+
+            PendingMutationDataManager.Entry top = entries.get(0);
+            if (top.id != entry.id || !top.data.equals(entry.data)) {
+                return false;
+            }
+
+            return dataManager.removeThrough(storeKey, entry.id);
         }
     }
 
@@ -80,27 +122,51 @@ class PendingTagGroupMutationStore {
      */
     @Nullable
     TagGroupsMutation peek() {
+        List<TagGroupsMutation> mutations = peek(1);
+        return mutations.isEmpty() ? null : mutations.get(0);
+    }
+
+    /**
+     * Peeks the top mutations.
+     *
+     * @param count The max number of mutations to return.
+     * @return A list of up to count mutations from the top of the store.
+     */
+    @NonNull
+    List<TagGroupsMutation> peek(int count) {
         synchronized (this) {
-            List<TagGroupsMutation> mutations = getMutations();
-            if (mutations.isEmpty()) {
-                return null;
-            }
-            return mutations.get(0);
+            migrateIfNeeded();
+            return toMutations(dataManager.peek(storeKey, count));
         }
     }
 
     /**
-     * Collapses mutations down to a minimum set of mutations.
+     * Peeks the top entries.
+     *
+     * @param count The max number of entries to return.
+     * @return A list of up to count entries from the top of the store.
+     */
+    @NonNull
+    List<PendingMutationDataManager.Entry> peekEntries(int count) {
+        synchronized (this) {
+            migrateIfNeeded();
+            return dataManager.peek(storeKey, count);
+        }
+    }
+
+    /**
+     * Collapses the mutations at the top of the store down to a minimum set of mutations.
      */
     void collapseMutations() {
         synchronized (this) {
-            List<TagGroupsMutation> mutations = getMutations();
-            if (mutations.isEmpty()) {
+            migrateIfNeeded();
+            List<PendingMutationDataManager.Entry> entries = dataManager.peek(storeKey, COLLAPSE_BATCH_SIZE);
+            if (entries.isEmpty()) {
                 return;
             }
 
-            mutations = TagGroupsMutation.collapseMutations(mutations);
-            dataStore.put(storeKey, JsonValue.wrapOpt(mutations));
+            List<TagGroupsMutation> mutations = TagGroupsMutation.collapseMutations(toMutations(entries));
+            dataManager.replace(storeKey, entries, mutations);
         }
     }
 
@@ -125,7 +191,12 @@ class PendingTagGroupMutationStore {
         List<TagGroupsMutation> mutations = Collections.singletonList(mutation);
         mutations = TagGroupsMutation.collapseMutations(mutations);
 
-        dataStore.put(storeKey, JsonValue.wrapOpt(mutations));
+        synchronized (this) {
+            dataStore.remove(storeKey);
+            dataManager.clear(storeKey);
+            dataManager.add(storeKey, mutations);
+            isMigrated = true;
+        }
 
         dataStore.remove(pendingAddTagsKey);
         dataStore.remove(pendingRemoveTagsKey);
@@ -138,7 +209,31 @@ class PendingTagGroupMutationStore {
      */
     @NonNull
     List<TagGroupsMutation> getMutations() {
-        return TagGroupsMutation.fromJsonList(dataStore.getJsonValue(storeKey).optList());
+        return peek(-1);
+    }
+
+    /**
+     * Moves any mutations stored in the preference data store to the mutation table.
+     */
+    private void migrateIfNeeded() {
+        if (isMigrated) {
+            return;
+        }
+
+        JsonValue stored = dataStore.getJsonValue(storeKey);
+        if (stored.isNull() || dataManager.add(storeKey, TagGroupsMutation.fromJsonList(stored.optList()))) {
+            dataStore.remove(storeKey);
+            isMigrated = true;
+        }
+    }
+
+    @NonNull
+    private static List<TagGroupsMutation> toMutations(@NonNull List<PendingMutationDataManager.Entry> entries) {
+        List<TagGroupsMutation> mutations = new ArrayList<>(entries.size());
+        for (PendingMutationDataManager.Entry entry : entries) {
+            mutations.add(TagGroupsMutation.fromJsonValue(entry.data));
+        }
+        return mutations;
     }
 
 }
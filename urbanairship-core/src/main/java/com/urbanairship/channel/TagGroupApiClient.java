@@ -66,10 +66,9 @@ class TagGroupApiClient extends BaseApiClient {
                                                            .build())
                                  .build();
 
-        String tagPayload = payload.toString();
-        Logger.verbose("Updating tag groups with payload: %s", tagPayload);
+        Logger.verbose("Updating tag groups with payload: %s", payload);
 
-        Response response = performRequest(tagUrl, "POST", tagPayload);
+        Response response = performRequest(tagUrl, "POST", payload);
         logTagGroupResponseIssues(response);
 
         return response;
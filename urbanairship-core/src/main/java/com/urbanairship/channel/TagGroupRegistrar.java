@@ -2,6 +2,8 @@
 
 package com.urbanairship.channel;
 
+import android.content.Context;
+
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
@@ -52,6 +54,18 @@ public class TagGroupRegistrar {
      */
     private static final String CHANNEL_PENDING_TAG_GROUP_MUTATIONS_KEY = "com.urbanairship.push.PENDING_TAG_GROUP_MUTATIONS";
 
+    /**
+     * Database name for the pending mutations. Tag group and attribute mutations share the
+     * database and are kept apart by their store key.
+     */
+    private static final String DATABASE_NAME = "ua_pending_mutations.db";
+
+    /**
+     * Max number of mutations uploaded per read of the store.
+     */
+    @VisibleForTesting
+    static final int UPLOAD_BATCH_SIZE = 10;
+
     // Old keys to migrate
     private static final String CHANNEL_PENDING_ADD_TAG_GROUPS_KEY = "com.urbanairship.push.PENDING_ADD_TAG_GROUPS";
     private static final String CHANNEL_PENDING_REMOVE_TAG_GROUPS_KEY = "com.urbanairship.push.PENDING_REMOVE_TAG_GROUPS";
@@ -75,29 +89,48 @@ public class TagGroupRegistrar {
     private final TagGroupApiClient client;
     private final PendingTagGroupMutationStore namedUserStore;
     private final PendingTagGroupMutationStore channelStore;
+    private final PendingMutationDataManager dataManager;
 
     private final List<Listener> listeners = new ArrayList<>();
 
     /**
      * Default constructor.
      *
+     * @param context The application context.
      * @param platform The platform.
      * @param configOptions The config options.
      * @param dataStore The data store.
      */
-    public TagGroupRegistrar(@UAirship.Platform int platform, @NonNull AirshipConfigOptions configOptions, @NonNull PreferenceDataStore dataStore) {
-        this(new TagGroupApiClient(platform, configOptions),
-                new PendingTagGroupMutationStore(dataStore, NAMED_USER_PENDING_TAG_GROUP_MUTATIONS_KEY),
-                new PendingTagGroupMutationStore(dataStore, CHANNEL_PENDING_TAG_GROUP_MUTATIONS_KEY));
+    public TagGroupRegistrar(@NonNull Context context, @UAirship.Platform int platform, @NonNull AirshipConfigOptions configOptions, @NonNull PreferenceDataStore dataStore) {
+        this(new TagGroupApiClient(platform, configOptions), dataStore,
+                new PendingMutationDataManager(context, configOptions.appKey, DATABASE_NAME));
+    }
+
+    private TagGroupRegistrar(@NonNull TagGroupApiClient client, @NonNull PreferenceDataStore dataStore, @NonNull PendingMutationDataManager dataManager) {
+        this(client, dataManager,
+                new PendingTagGroupMutationStore(dataStore, dataManager, NAMED_USER_PENDING_TAG_GROUP_MUTATIONS_KEY),
+                new PendingTagGroupMutationStore(dataStore, dataManager, CHANNEL_PENDING_TAG_GROUP_MUTATIONS_KEY));
     }
 
     @VisibleForTesting
-    TagGroupRegistrar(@NonNull TagGroupApiClient client, @NonNull PendingTagGroupMutationStore channelStore, @NonNull PendingTagGroupMutationStore namedUserStore) {
+    TagGroupRegistrar(@NonNull TagGroupApiClient client, @NonNull PendingMutationDataManager dataManager,
+                      @NonNull PendingTagGroupMutationStore channelStore, @NonNull PendingTagGroupMutationStore namedUserStore) {
         this.namedUserStore = namedUserStore;
         this.channelStore = channelStore;
+        this.dataManager = dataManager;
         this.client = client;
     }
 
+    /**
+     * Gets the pending mutation data manager so other mutation stores can share the database.
+     *
+     * @return The pending mutation data manager.
+     */
+    @NonNull
+    PendingMutationDataManager getMutationDataManager() {
+        return dataManager;
+    }
+
     /**
      * Adds mutations for the specified type.
      *
@@ -132,24 +165,31 @@ public class TagGroupRegistrar {
             // Collapse mutations before we try to send any updates
             mutationStore.collapseMutations();
 
-            TagGroupsMutation mutation = mutationStore.peek();
-            if (mutation == null) {
+            List<PendingMutationDataManager.Entry> entries = mutationStore.peekEntries(UPLOAD_BATCH_SIZE);
+            if (entries.isEmpty()) {
                 break;
             }
 
-            Response response = client.updateTagGroups(type, identifier, mutation);
+            for (PendingMutationDataManager.Entry entry : entries) {
+                TagGroupsMutation mutation = TagGroupsMutation.fromJsonValue(entry.data);
+                Response response = client.updateTagGroups(type, identifier, mutation);
 
-            // No response, 5xx, or 429
-            if (response == null || UAHttpStatusUtil.inServerErrorRange(response.getStatus()) || response.getStatus() == Response.HTTP_TOO_MANY_REQUESTS) {
-                Logger.debug("Failed to update tag groups, will retry later.");
-                return false;
-            }
+                // No response, 5xx, or 429
+                if (response == null || UAHttpStatusUtil.inServerErrorRange(response.getStatus()) || response.getStatus() == Response.HTTP_TOO_MANY_REQUESTS) {
+                    Logger.debug("Failed to update tag groups, will retry later.");
+                    return false;
+                }
 
-            notifyListeners(mutation);
-            mutationStore.pop();
+                notifyListeners(mutation);
 
-            int status = response.getStatus();
-            Logger.debug("Update tag groups finished with status: %s", status);
+                int status = response.getStatus();
+                Logger.debug("Update tag groups finished with status: %s", status);
+
+                // The store changed during the upload, read it again
+                if (!mutationStore.remove(entry)) {
+                    break;
+                }
+            }
         }
 
         return true;
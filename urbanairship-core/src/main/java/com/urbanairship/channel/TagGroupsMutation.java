@@ -344,7 +344,7 @@ public class TagGroupsMutation implements JsonSerializable {
 
         TagGroupsMutation mutation = (TagGroupsMutation) o;
 
-        return mutation.toJsonValue().equals(mutation.toJsonValue());
+        return toJsonValue().equals(mutation.toJsonValue());
 
     }
 
@@ -10,10 +10,13 @@ import android.util.Base64;
 
 import com.urbanairship.Logger;
 import com.urbanairship.UAirship;
+import com.urbanairship.json.JsonSerializable;
+import com.urbanairship.json.JsonValue;
 import com.urbanairship.locale.LocaleManager;
 import com.urbanairship.util.UAStringUtil;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -35,6 +38,21 @@ import java.util.zip.GZIPOutputStream;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class Request {
 
+    /**
+     * Writes a request body directly to the connection.
+     */
+    public interface BodyWriter {
+
+        /**
+         * Writes the body.
+         *
+         * @param writer The writer.
+         * @throws IOException If the writer fails to write.
+         */
+        void writeTo(@NonNull Writer writer) throws IOException;
+
+    }
+
     @NonNull
     protected URL url;
 
@@ -50,6 +68,12 @@ public class Request {
     @Nullable
     protected String body;
 
+    @Nullable
+    protected JsonValue jsonBody;
+
+    @Nullable
+    protected BodyWriter bodyWriter;
+
     @Nullable
     protected String contentType;
 
@@ -98,6 +122,42 @@ public class Request {
     @NonNull
     public Request setRequestBody(@Nullable String body, @Nullable String contentType) {
         this.body = body;
+        this.jsonBody = null;
+        this.bodyWriter = null;
+        this.contentType = contentType;
+        return this;
+    }
+
+    /**
+     * Sets a JSON request body. The body is streamed to the connection as UTF-8 without first
+     * being converted to a String.
+     *
+     * @param body The JSON body.
+     * @param contentType The string content type.
+     * @return The request.
+     */
+    @NonNull
+    public Request setRequestBody(@NonNull JsonSerializable body, @Nullable String contentType) {
+        this.body = null;
+        this.jsonBody = body.toJsonValue();
+        this.bodyWriter = null;
+        this.contentType = contentType;
+        return this;
+    }
+
+    /**
+     * Sets a request body that is written directly to the connection as UTF-8 when the request
+     * is executed.
+     *
+     * @param bodyWriter The body writer.
+     * @param contentType The string content type.
+     * @return The request.
+     */
+    @NonNull
+    public Request setRequestBody(@NonNull BodyWriter bodyWriter, @Nullable String contentType) {
+        this.body = null;
+        this.jsonBody = null;
+        this.bodyWriter = bodyWriter;
         this.contentType = contentType;
         return this;
     }
@@ -161,7 +221,8 @@ public class Request {
             conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod(requestMethod);
 
-            if (body != null) {
+            boolean hasBody = body != null || jsonBody != null || bodyWriter != null;
+            if (hasBody) {
                 conn.setDoOutput(true);
                 conn.setRequestProperty("Content-Type", contentType);
             }
@@ -184,24 +245,24 @@ public class Request {
             }
 
             // Create the form content
-            if (body != null) {
-
+            if (hasBody) {
                 if (compressRequestBody) {
                     conn.setRequestProperty("Content-Encoding", "gzip");
-                    OutputStream out = conn.getOutputStream();
-                    GZIPOutputStream gos = new GZIPOutputStream(out);
-                    Writer writer = new OutputStreamWriter(gos, "UTF-8");
-                    writer.write(body);
-                    writer.close();
-                    gos.close();
-                    out.close();
+                }
+
+                OutputStream out = conn.getOutputStream();
+                OutputStream bodyStream = compressRequestBody ? new GZIPOutputStream(out) : out;
+
+                Writer writer = new BufferedWriter(new OutputStreamWriter(bodyStream, "UTF-8"));
+                if (jsonBody != null) {
+                    jsonBody.writeTo(writer);
+                } else if (bodyWriter != null) {
+                    bodyWriter.writeTo(writer);
                 } else {
-                    OutputStream out = conn.getOutputStream();
-                    Writer writer = new OutputStreamWriter(out, "UTF-8");
                     writer.write(body);
-                    writer.close();
-                    out.close();
                 }
+                writer.close();
+                out.close();
             }
 
             Response.Builder responseBuilder = Response.newBuilder(conn.getResponseCode())
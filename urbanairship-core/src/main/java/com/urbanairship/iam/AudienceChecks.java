@@ -122,7 +122,7 @@ public abstract class AudienceChecks {
         }
 
         // Tags
-        if (audience.getTagSelector() != null && !audience.getTagSelector().apply(channel.getTags(), tagGroups)) {
+        if (audience.getTagSelector() != null && !audience.getTagSelector().apply(channel.getTagSnapshot(), tagGroups)) {
             return false;
         }
 
@@ -45,6 +45,7 @@ public class InAppMessage implements Parcelable, JsonSerializable {
 
     // JSON keys
     static final String MESSAGE_ID_KEY = "message_id";
+    static final String SOURCE_KEY = "source";
 
     private static final String DISPLAY_TYPE_KEY = "display_type";
     private static final String DISPLAY_CONTENT_KEY = "display";
@@ -52,7 +53,6 @@ public class InAppMessage implements Parcelable, JsonSerializable {
     private static final String EXTRA_KEY = "extra";
     private static final String AUDIENCE_KEY = "audience";
     private static final String ACTIONS_KEY = "actions";
-    private static final String SOURCE_KEY = "source";
     private static final String CAMPAIGNS_KEY = "campaigns";
     private static final String DISPLAY_BEHAVIOR_KEY = "display_behavior";
     private static final String REPORTING_ENABLED_KEY = "reporting_enabled";
@@ -477,10 +477,10 @@ public class InAppMessage implements Parcelable, JsonSerializable {
         @Nullable
         @Override
         public InAppMessage createFromParcel(@NonNull Parcel in) {
-            String payload = in.readString();
+            JsonValue payload = JsonValue.CREATOR.createFromParcel(in);
 
             try {
-                return fromJson(JsonValue.parseString(payload));
+                return fromJson(payload);
             } catch (JsonException e) {
                 Logger.error("InAppMessage - Invalid parcel: %s", e);
                 return null;
@@ -496,7 +496,7 @@ public class InAppMessage implements Parcelable, JsonSerializable {
 
     @Override
     public void writeToParcel(@NonNull Parcel dest, int flags) {
-        dest.writeString(toJsonValue().toString());
+        toJsonValue().writeToParcel(dest, flags);
     }
 
     @Override
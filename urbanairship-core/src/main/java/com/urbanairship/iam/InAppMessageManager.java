@@ -5,6 +5,7 @@ package com.urbanairship.iam;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.MainThread;
@@ -26,9 +27,12 @@ import com.urbanairship.UAirship;
 import com.urbanairship.actions.ActionRunRequestFactory;
 import com.urbanairship.analytics.Analytics;
 import com.urbanairship.app.ActivityMonitor;
+import com.urbanairship.app.ApplicationListener;
+import com.urbanairship.app.SimpleApplicationListener;
 import com.urbanairship.automation.AutomationDataManager;
 import com.urbanairship.automation.AutomationDriver;
 import com.urbanairship.automation.AutomationEngine;
+import com.urbanairship.automation.Trigger;
 import com.urbanairship.channel.AirshipChannel;
 import com.urbanairship.iam.assets.AssetManager;
 import com.urbanairship.iam.banner.BannerAdapterFactory;
@@ -46,19 +50,23 @@ import com.urbanairship.util.RetryingExecutor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * In-app messaging manager.
  */
-public class InAppMessageManager extends AirshipComponent implements InAppMessageScheduler {
+public class InAppMessageManager extends AirshipComponent implements InAppMessageScheduler, InAppRemoteDataScheduler {
 
     /**
      * Default delay between displaying in-app messages.
@@ -80,6 +88,11 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
      */
     private static final String DISPLAY_INTERVAL_KEY = "com.urbanairship.iam.displayinterval";
 
+    /**
+     * Preference key for the speculative prepare limit.
+     */
+    private static final String SPECULATIVE_PREPARE_LIMIT_KEY = "com.urbanairship.iam.speculativepreparelimit";
+
     // State
     private final Map<String, AdapterWrapper> adapterWrappers = new ConcurrentHashMap<>();
     private final InAppRemoteDataObserver remoteDataSubscriber;
@@ -100,6 +113,22 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
     private final ImmediateDisplayCoordinator immediateDisplayCoordinator;
     private final Handler backgroundHandler;
     private final AssetManager assetManager;
+    private final ActivityMonitor activityMonitor;
+
+    @VisibleForTesting
+    Executor prepareExecutor = AirshipExecutors.THREAD_POOL_EXECUTOR;
+
+    private final InAppMessageMetrics metrics = new InAppMessageMetrics();
+
+    // Prepare request times by schedule ID
+    private final Map<String, Long> prepareStartTimes = new ConcurrentHashMap<>();
+
+    private final ApplicationListener applicationListener = new SimpleApplicationListener() {
+        @Override
+        public void onBackground(long time) {
+            speculativelyPrepareSchedules();
+        }
+    };
 
     @Nullable
     private InAppMessageExtender messageExtender;
@@ -137,22 +166,23 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         this.analytics = analytics;
         this.airshipChannel = airshipChannel;
         this.remoteDataSubscriber = new InAppRemoteDataObserver(preferenceDataStore);
+        this.activityMonitor = activityMonitor;
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.backgroundHandler = new Handler(AirshipLoopers.getBackgroundLooper());
 
-        this.executor = new RetryingExecutor(this.mainHandler, AirshipExecutors.newSerialExecutor());
+        this.executor = new RetryingExecutor(this.mainHandler, AirshipExecutors.newSerialExecutor("in-app"));
         this.driver = new InAppMessageDriver();
         this.automationEngine = new AutomationEngine.Builder<InAppMessageSchedule>()
                 .setAnalytics(analytics)
                 .setActivityMonitor(activityMonitor)
-                .setDataManager(new AutomationDataManager(context, configOptions.appKey, "in-app"))
+                .setDataManager(new AutomationDataManager(context, configOptions.appKey, "in-app", InAppMessage.SOURCE_KEY))
                 .setScheduleLimit(200)
                 .setDriver(driver)
                 .setOperationScheduler(AlarmOperationScheduler.shared(context))
                 .build();
         this.actionRunRequestFactory = new ActionRunRequestFactory();
 
-        this.tagGroupManager = new TagGroupManager(configOptions, airshipChannel, tagGroupRegistrar, preferenceDataStore);
+        this.tagGroupManager = new TagGroupManager(context, configOptions, airshipChannel, tagGroupRegistrar, preferenceDataStore);
         this.assetManager = new AssetManager(context);
 
         setAdapterFactory(InAppMessage.TYPE_BANNER, new BannerAdapterFactory());
@@ -175,6 +205,7 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         this.remoteData = remoteData;
         this.airshipChannel = airshipChannel;
         this.remoteDataSubscriber = observer;
+        this.activityMonitor = activityMonitor;
         this.driver = driver;
         this.automationEngine = engine;
         this.mainHandler = new Handler(Looper.getMainLooper());
@@ -249,6 +280,7 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
             @WorkerThread
             @Override
             public void onPrepareSchedule(final @NonNull InAppMessageSchedule schedule) {
+                prepareStartTimes.put(schedule.getId(), SystemClock.elapsedRealtime());
                 executor.execute(new Runnable() {
                     @Override
                     public void run() {
@@ -298,6 +330,8 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         automationEngine.setPaused(true);
         updateEnginePauseState();
 
+        activityMonitor.addApplicationListener(applicationListener);
+
         // New user cut off time
         if (remoteDataSubscriber.getScheduleNewUserCutOffTime() == -1) {
             remoteDataSubscriber.setScheduleNewUserCutOffTime(airshipChannel.getId() == null ? System.currentTimeMillis() : 0);
@@ -321,6 +355,7 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         super.tearDown();
         remoteDataSubscriber.cancel();
         automationEngine.stop();
+        activityMonitor.removeApplicationListener(applicationListener);
     }
 
     @Override
@@ -430,6 +465,16 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         return automationEngine.getSchedule(scheduleId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public PendingResult<Map<String, String>> getScheduleIds(@NonNull @InAppMessage.Source String source) {
+        // Schedules are grouped by message ID
+        return automationEngine.getScheduleIdsByGroup(source);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -439,6 +484,15 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         return automationEngine.editSchedule(scheduleId, edit);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public PendingResult<Collection<InAppMessageSchedule>> editSchedules(@NonNull Map<String, InAppMessageScheduleEdits> edits) {
+        return automationEngine.editSchedules(edits);
+    }
+
     /**
      * Sets a {@link InAppMessageAdapter} for a given display type.
      *
@@ -474,6 +528,39 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         return getDataStore().getLong(InAppMessageManager.DISPLAY_INTERVAL_KEY, InAppMessageManager.DEFAULT_DISPLAY_INTERVAL_MS);
     }
 
+    /**
+     * Sets the max number of schedules to speculatively prepare when the app is backgrounded.
+     * Schedules triggered by the app foregrounding or initializing have their assets downloaded and
+     * their audience tag groups refreshed ahead of time, so they display sooner once triggered.
+     * Defaults to 0, which disables speculative preparation.
+     *
+     * @param limit The max number of schedules to speculatively prepare.
+     */
+    public void setSpeculativePrepareLimit(@IntRange(from = 0) int limit) {
+        getDataStore().put(SPECULATIVE_PREPARE_LIMIT_KEY, limit);
+    }
+
+    /**
+     * Gets the max number of schedules to speculatively prepare when the app is backgrounded.
+     *
+     * @return The speculative prepare limit.
+     */
+    public int getSpeculativePrepareLimit() {
+        return getDataStore().getInt(SPECULATIVE_PREPARE_LIMIT_KEY, 0);
+    }
+
+    /**
+     * Gets the in-app message prepare and display metrics.
+     *
+     * @return The metrics.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public InAppMessageMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Gets the asset manager.
      *
@@ -578,12 +665,16 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         final AdapterWrapper adapter = createAdapterWrapper(schedule);
         if (adapter == null) {
             // Failed
+            prepareStartTimes.remove(schedule.getId());
             driver.schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_PENALIZE);
             return;
         }
 
+        // Shared by the operations so the prepare result is only reported once
+        final AtomicBoolean isPrepareFinished = new AtomicBoolean();
+
         // Audience checks
-        PrepareScheduleOperation checkAudience = new PrepareScheduleOperation(schedule) {
+        PrepareScheduleOperation checkAudience = new PrepareScheduleOperation(schedule, isPrepareFinished) {
             @Override
             public int onPrepare() {
                 InAppMessage message = adapter.message;
@@ -619,17 +710,28 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
                         result = AutomationDriver.PREPARE_RESULT_PENALIZE;
                         break;
                 }
-                driver.schedulePrepared(schedule.getId(), result);
+                schedulePrepared(result);
                 return RetryingExecutor.RESULT_CANCEL;
             }
         };
 
         // Prepare Assets
-        PrepareScheduleOperation prepareAssets = new PrepareScheduleOperation(schedule) {
+        final AtomicBoolean isAssetPrepareCancelled = new AtomicBoolean();
+        PrepareScheduleOperation prepareAssets = new CancelablePrepareScheduleOperation(schedule, isPrepareFinished) {
             @Override
             public int onPrepare() {
+                if (isAssetPrepareCancelled.get()) {
+                    return RetryingExecutor.RESULT_CANCEL;
+                }
+
                 int result = assetManager.onPrepare(schedule, adapter.message);
 
+                // The audience check failed while the assets were preparing
+                if (isAssetPrepareCancelled.get()) {
+                    Logger.debug("InAppMessageManager - Asset prepare cancelled for schedule %s message %s", schedule.getId(), adapter.message.getId());
+                    return RetryingExecutor.RESULT_CANCEL;
+                }
+
                 switch (result) {
                     case AssetManager.PREPARE_RESULT_OK:
                         Logger.debug("InAppMessageManager - Assets prepared for schedule %s message %s", schedule.getId(), adapter.message.getId());
@@ -642,15 +744,19 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
                     case AssetManager.PREPARE_RESULT_CANCEL:
                     default:
                         Logger.debug("InAppMessageManager - Assets failed to prepare. Cancelling display for schedule %s message %s", schedule.getId(), adapter.message.getId());
-                        assetManager.onDisplayFinished(schedule);
-                        driver.schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_CANCEL);
+                        schedulePrepared(AutomationDriver.PREPARE_RESULT_CANCEL);
                         return RetryingExecutor.RESULT_CANCEL;
                 }
             }
+
+            @Override
+            public void cancel() {
+                isAssetPrepareCancelled.set(true);
+            }
         };
 
         // Prepare Adapter
-        PrepareScheduleOperation prepareAdapter = new PrepareScheduleOperation(schedule) {
+        PrepareScheduleOperation prepareAdapter = new PrepareScheduleOperation(schedule, isPrepareFinished) {
             @Override
             public int onPrepare() {
                 int result = adapter.prepare(getContext(), assetManager.getAssets(schedule.getId()));
@@ -661,7 +767,7 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
 
                         // Store the adapter
                         adapterWrappers.put(schedule.getId(), adapter);
-                        driver.schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_CONTINUE);
+                        schedulePrepared(AutomationDriver.PREPARE_RESULT_CONTINUE);
                         return RetryingExecutor.RESULT_FINISHED;
 
                     case InAppMessageAdapter.RETRY:
@@ -671,14 +777,27 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
                     case InAppMessageAdapter.CANCEL:
                     default:
                         Logger.debug("InAppMessageManager - Adapter failed to prepare. Cancelling display for schedule %s message %s", schedule.getId(), adapter.message.getId());
-                        driver.schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_CANCEL);
+                        schedulePrepared(AutomationDriver.PREPARE_RESULT_CANCEL);
                         return RetryingExecutor.RESULT_CANCEL;
                 }
             }
         };
 
-        // Execute the operations
-        executor.execute(checkAudience, prepareAssets, prepareAdapter);
+        // Check the audience and prepare the assets concurrently. Once both finish, release any
+        // assets if either cancelled, otherwise prepare the adapter.
+        final RetryingExecutor.Operation checkAudienceAndPrepareAssets = RetryingExecutor.parallel(prepareExecutor, checkAudience, prepareAssets);
+        RetryingExecutor.Operation releaseAssetsOnCancel = new RetryingExecutor.Operation() {
+            @Override
+            public int run() {
+                int result = checkAudienceAndPrepareAssets.run();
+                if (result == RetryingExecutor.RESULT_CANCEL) {
+                    assetManager.onDisplayFinished(schedule);
+                }
+                return result;
+            }
+        };
+
+        executor.execute(releaseAssetsOnCancel, prepareAdapter);
     }
 
     /**
@@ -697,11 +816,13 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
 
         AdapterWrapper adapterWrapper = adapterWrappers.get(scheduleId);
         if (adapterWrapper == null) {
+            prepareStartTimes.remove(scheduleId);
             return AutomationDriver.READY_RESULT_INVALIDATE;
         }
 
         if (isScheduleInvalid(adapterWrapper.schedule)) {
             adapterWrappers.remove(scheduleId);
+            prepareStartTimes.remove(scheduleId);
             return AutomationDriver.READY_RESULT_INVALIDATE;
         }
 
@@ -740,6 +861,13 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
             return;
         }
 
+        Long startTime = prepareStartTimes.remove(scheduleId);
+        if (startTime != null) {
+            long latency = SystemClock.elapsedRealtime() - startTime;
+            metrics.recordDisplayed(latency);
+            Logger.verbose("InAppMessageManager - Schedule %s displayed %s ms after it was triggered.", scheduleId, latency);
+        }
+
         if (adapterWrapper.message.isReportingEnabled()) {
             analytics.addEvent(new DisplayEvent(adapterWrapper.message));
         }
@@ -752,6 +880,94 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         Logger.verbose("InAppMessagingManager - Message displayed with scheduleId: %s", scheduleId);
     }
 
+    /**
+     * Downloads the assets and refreshes the audience tag groups of the schedules most likely to
+     * trigger next, up to the speculative prepare limit. Schedules with app foreground or app
+     * init triggers are picked by priority. The adapters are not prepared until the schedule
+     * triggers.
+     * <p>
+     * Runs on the prepare executor instead of the in-app executor so it never delays a real
+     * prepare, and the asset downloads run in the background through the asset manager.
+     */
+    private void speculativelyPrepareSchedules() {
+        final int limit = getSpeculativePrepareLimit();
+        if (limit <= 0 || !isEnabled() || !isComponentEnabled()) {
+            return;
+        }
+
+        prepareExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Collection<InAppMessageSchedule> schedules;
+                try {
+                    Set<String> scheduleIds = automationEngine.getScheduleIdsByTriggerType(Trigger.LIFE_CYCLE_FOREGROUND, Trigger.LIFE_CYCLE_APP_INIT).get();
+                    if (scheduleIds == null) {
+                        return;
+                    }
+
+                    scheduleIds = new HashSet<>(scheduleIds);
+                    scheduleIds.removeAll(adapterWrappers.keySet());
+                    scheduleIds.removeAll(prepareStartTimes.keySet());
+                    if (scheduleIds.isEmpty()) {
+                        return;
+                    }
+
+                    schedules = automationEngine.getSchedules(scheduleIds).get();
+                } catch (ExecutionException | InterruptedException e) {
+                    Logger.error(e, "InAppMessageManager - Failed to get schedules for speculative prepare.");
+                    return;
+                }
+
+                if (schedules == null) {
+                    return;
+                }
+
+                List<InAppMessageSchedule> candidates = new ArrayList<>();
+                for (InAppMessageSchedule schedule : schedules) {
+                    if (isSpeculativeCandidate(schedule)) {
+                        candidates.add(schedule);
+                    }
+                }
+
+                Collections.sort(candidates, new Comparator<InAppMessageSchedule>() {
+                    @Override
+                    public int compare(@NonNull InAppMessageSchedule lhs, @NonNull InAppMessageSchedule rhs) {
+                        return lhs.getInfo().getPriority() - rhs.getInfo().getPriority();
+                    }
+                });
+
+                Map<String, Set<String>> tags = new HashMap<>();
+                for (InAppMessageSchedule schedule : candidates.subList(0, Math.min(limit, candidates.size()))) {
+                    InAppMessage message = extendMessage(schedule.getInfo().getInAppMessage());
+                    Audience audience = message.getAudience();
+                    if (audience != null && audience.getTagSelector() != null && audience.getTagSelector().containsTagGroups()) {
+                        TagGroupUtils.addAll(tags, audience.getTagSelector().getTagGroups());
+                    }
+
+                    assetManager.onSpeculativePrepare(schedule, message);
+                    metrics.recordSpeculativePrepare();
+                    Logger.verbose("InAppMessageManager - Speculatively preparing schedule %s", schedule.getId());
+                }
+
+                if (!tags.isEmpty()) {
+                    tagGroupManager.getTagsAsync(tags);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks if a schedule can be speculatively prepared.
+     *
+     * @param schedule The schedule.
+     * @return {@code true} if the schedule is not already prepared and is still valid, otherwise
+     * {@code false}.
+     */
+    private boolean isSpeculativeCandidate(@NonNull InAppMessageSchedule schedule) {
+        return !adapterWrappers.containsKey(schedule.getId()) && !prepareStartTimes.containsKey(schedule.getId())
+                && !isScheduleInvalid(schedule);
+    }
+
     /**
      * Creates an adapter wrapper.
      *
@@ -917,20 +1133,44 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
         return !remoteData.isMetadataCurrent(schedule.getMetadata());
     }
 
+    /**
+     * Operation to prepare a schedule that can be cancelled while running.
+     */
+    private abstract class CancelablePrepareScheduleOperation extends PrepareScheduleOperation implements RetryingExecutor.CancelableOperation {
+
+        CancelablePrepareScheduleOperation(@NonNull InAppMessageSchedule schedule, @NonNull AtomicBoolean isPrepareFinished) {
+            super(schedule, isPrepareFinished);
+        }
+
+    }
+
     /**
      * Operation to prepare a schedule.
      */
     private abstract class PrepareScheduleOperation implements RetryingExecutor.Operation {
 
         private final InAppMessageSchedule schedule;
+        private final AtomicBoolean isPrepareFinished;
 
-        PrepareScheduleOperation(@NonNull InAppMessageSchedule schedule) {
+        PrepareScheduleOperation(@NonNull InAppMessageSchedule schedule, @NonNull AtomicBoolean isPrepareFinished) {
             this.schedule = schedule;
+            this.isPrepareFinished = isPrepareFinished;
         }
 
         @Override
         public int run() {
+            // Another operation already finished the prepare
+            if (isPrepareFinished.get()) {
+                return RetryingExecutor.RESULT_CANCEL;
+            }
+
             if (isScheduleInvalid(schedule)) {
+                if (!isPrepareFinished.compareAndSet(false, true)) {
+                    return RetryingExecutor.RESULT_CANCEL;
+                }
+
+                prepareStartTimes.remove(schedule.getId());
+
                 // Posted on the background handler to avoid race conditions if the remote data
                 // were to update at the same time as checking the last metadata.
                 backgroundHandler.post(new Runnable() {
@@ -957,6 +1197,28 @@ public class InAppMessageManager extends AirshipComponent implements InAppMessag
             return onPrepare();
         }
 
+        /**
+         * Reports the prepare result to the driver if no other operation has.
+         *
+         * @param result The prepare result.
+         */
+        void schedulePrepared(@AutomationDriver.PrepareResult int result) {
+            if (!isPrepareFinished.compareAndSet(false, true)) {
+                return;
+            }
+
+            Long startTime = prepareStartTimes.get(schedule.getId());
+            if (result == AutomationDriver.PREPARE_RESULT_CONTINUE) {
+                if (startTime != null) {
+                    metrics.recordPrepared(SystemClock.elapsedRealtime() - startTime);
+                }
+            } else {
+                prepareStartTimes.remove(schedule.getId());
+            }
+
+            driver.schedulePrepared(schedule.getId(), result);
+        }
+
         @RetryingExecutor.Result
         abstract int onPrepare();
 
@@ -0,0 +1,152 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how long in-app messages take to prepare and display after the automation engine
+ * requests the schedule to be prepared.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class InAppMessageMetrics {
+
+    private final AtomicLong preparedCount = new AtomicLong();
+    private final AtomicLong totalPrepareTime = new AtomicLong();
+    private final AtomicLong maxPrepareTime = new AtomicLong();
+
+    private final AtomicLong displayedCount = new AtomicLong();
+    private final AtomicLong totalDisplayLatency = new AtomicLong();
+    private final AtomicLong maxDisplayLatency = new AtomicLong();
+
+    private final AtomicLong speculativePrepareCount = new AtomicLong();
+
+    /**
+     * Records a schedule that finished preparing.
+     *
+     * @param prepareTimeMs The time from the prepare request until the schedule was prepared.
+     */
+    void recordPrepared(long prepareTimeMs) {
+        preparedCount.incrementAndGet();
+        totalPrepareTime.addAndGet(prepareTimeMs);
+        updateMax(maxPrepareTime, prepareTimeMs);
+    }
+
+    /**
+     * Records a displayed message.
+     *
+     * @param latencyMs The time from the prepare request until the message was displayed.
+     */
+    void recordDisplayed(long latencyMs) {
+        displayedCount.incrementAndGet();
+        totalDisplayLatency.addAndGet(latencyMs);
+        updateMax(maxDisplayLatency, latencyMs);
+    }
+
+    /**
+     * Records a schedule that was speculatively prepared.
+     */
+    void recordSpeculativePrepare() {
+        speculativePrepareCount.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of prepared schedules.
+     *
+     * @return The prepared count.
+     */
+    public long getPreparedCount() {
+        return preparedCount.get();
+    }
+
+    /**
+     * Gets the average time to prepare a schedule.
+     *
+     * @param unit The time unit.
+     * @return The average prepare time.
+     */
+    public long getAveragePrepareTime(@NonNull TimeUnit unit) {
+        return average(totalPrepareTime, preparedCount, unit);
+    }
+
+    /**
+     * Gets the max time to prepare a schedule.
+     *
+     * @param unit The time unit.
+     * @return The max prepare time.
+     */
+    public long getMaxPrepareTime(@NonNull TimeUnit unit) {
+        return unit.convert(maxPrepareTime.get(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of displayed messages.
+     *
+     * @return The displayed count.
+     */
+    public long getDisplayedCount() {
+        return displayedCount.get();
+    }
+
+    /**
+     * Gets the average time from the prepare request until the message displayed.
+     *
+     * @param unit The time unit.
+     * @return The average display latency.
+     */
+    public long getAverageDisplayLatency(@NonNull TimeUnit unit) {
+        return average(totalDisplayLatency, displayedCount, unit);
+    }
+
+    /**
+     * Gets the max time from the prepare request until the message displayed.
+     *
+     * @param unit The time unit.
+     * @return The max display latency.
+     */
+    public long getMaxDisplayLatency(@NonNull TimeUnit unit) {
+        return unit.convert(maxDisplayLatency.get(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of schedules that were speculatively prepared.
+     *
+     * @return The speculative prepare count.
+     */
+    public long getSpeculativePrepareCount() {
+        return speculativePrepareCount.get();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "InAppMessageMetrics{prepared=%d, avgPrepareMs=%d, maxPrepareMs=%d, displayed=%d, avgDisplayLatencyMs=%d, maxDisplayLatencyMs=%d, speculative=%d}",
+                getPreparedCount(), getAveragePrepareTime(TimeUnit.MILLISECONDS), getMaxPrepareTime(TimeUnit.MILLISECONDS),
+                getDisplayedCount(), getAverageDisplayLatency(TimeUnit.MILLISECONDS), getMaxDisplayLatency(TimeUnit.MILLISECONDS),
+                getSpeculativePrepareCount());
+    }
+
+    private static long average(@NonNull AtomicLong total, @NonNull AtomicLong count, @NonNull TimeUnit unit) {
+        long countValue = count.get();
+        if (countValue == 0) {
+            return 0;
+        }
+
+        return unit.convert(total.get() / countValue, TimeUnit.MILLISECONDS);
+    }
+
+    private static void updateMax(@NonNull AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+}
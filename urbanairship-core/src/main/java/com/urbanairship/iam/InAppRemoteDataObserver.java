@@ -74,7 +74,7 @@ class InAppRemoteDataObserver {
      * Adds a listener.
      * <p>
      * Updates will be called on the looper provided in
-     * {@link #subscribe(RemoteData, Looper, InAppMessageScheduler)}.
+     * {@link #subscribe(RemoteData, Looper, InAppRemoteDataScheduler)}.
      *
      * @param listener The listener to add.
      */
@@ -102,7 +102,7 @@ class InAppRemoteDataObserver {
      * @param looper The looper to process updates and callbacks on.
      * @param scheduler Scheduler.
      */
-    void subscribe(@NonNull final RemoteData remoteData, @NonNull Looper looper, @NonNull final InAppMessageScheduler scheduler) {
+    void subscribe(@NonNull final RemoteData remoteData, @NonNull Looper looper, @NonNull final InAppRemoteDataScheduler scheduler) {
         cancel();
 
         this.subscription = remoteData.payloadsForType(IAM_PAYLOAD_TYPE)
@@ -182,7 +182,7 @@ class InAppRemoteDataObserver {
      * @param payload The remote data payload.
      * @param scheduler The scheduler.
      */
-    private void processPayload(RemoteDataPayload payload, InAppMessageScheduler scheduler) throws ExecutionException, InterruptedException {
+    private void processPayload(RemoteDataPayload payload, InAppRemoteDataScheduler scheduler) throws ExecutionException, InterruptedException {
         long lastUpdate = preferenceDataStore.getLong(LAST_PAYLOAD_TIMESTAMP_KEY, -1);
         JsonMap lastPayloadMetadata = getLastPayloadMetadata();
 
@@ -190,8 +190,9 @@ class InAppRemoteDataObserver {
 
         List<String> messageIds = new ArrayList<>();
         List<InAppMessageScheduleInfo> newSchedules = new ArrayList<>();
+        Map<String, InAppMessageScheduleEdits> scheduleEdits = new HashMap<>();
 
-        Map<String, String> scheduleIdMap = createScheduleIdMap(scheduler.getSchedules().get());
+        Map<String, String> scheduleIdMap = createScheduleIdMap(scheduler.getScheduleIds(InAppMessage.SOURCE_REMOTE_DATA).get());
 
         for (JsonValue messageJson : payload.getData().opt(MESSAGES_JSON_KEY).optList()) {
             long createdTimeStamp, lastUpdatedTimeStamp;
@@ -239,10 +240,8 @@ class InAppRemoteDataObserver {
                                                                                .setEnd(originalEdits.getEnd() == null ? -1 : originalEdits.getEnd())
                                                                                .build();
 
-                    InAppMessageSchedule schedule = scheduler.editSchedule(existingScheduleId, edits).get();
-                    if (schedule != null) {
-                        Logger.debug("Updated in-app message: %s with edits: %s", messageId, edits);
-                    }
+                    scheduleEdits.put(existingScheduleId, edits);
+                    Logger.debug("Updating in-app message: %s with edits: %s", messageId, edits);
                 } catch (JsonException e) {
                     Logger.error(e, "Failed to parse in-app message edits: %s", messageId);
                 }
@@ -277,11 +276,16 @@ class InAppRemoteDataObserver {
             for (String messageId : removedMessageIds) {
                 String scheduleId = scheduleIdMap.get(messageId);
                 if (scheduleId != null) {
-                    scheduler.editSchedule(scheduleId, edits).get();
+                    scheduleEdits.put(scheduleId, edits);
                 }
             }
         }
 
+        // Apply the updates and removals in a single transaction
+        if (!scheduleEdits.isEmpty()) {
+            scheduler.editSchedules(scheduleEdits).get();
+        }
+
         // Store data
         preferenceDataStore.put(LAST_PAYLOAD_TIMESTAMP_KEY, payload.getTimestamp());
         preferenceDataStore.put(LAST_PAYLOAD_METADATA, payload.getMetadata());
@@ -311,28 +315,14 @@ class InAppRemoteDataObserver {
     }
 
     /**
-     * Creates a map of message Id to schedule Id from a list of schedules.
+     * Creates a mutable map of message ID to schedule ID.
      *
-     * @param schedules
-     * @return The Id map.
+     * @param scheduleIds The remote data schedule IDs by message ID.
+     * @return A map of message ID to schedule ID.
      */
     @NonNull
-    private Map<String, String> createScheduleIdMap(@Nullable Collection<InAppMessageSchedule> schedules) {
-
-        Map<String, String> scheduleIdMap = new HashMap<>();
-
-        if (schedules == null) {
-            return scheduleIdMap;
-        }
-
-        for (InAppMessageSchedule schedule : schedules) {
-            InAppMessage message = schedule.getInfo().getInAppMessage();
-            if (InAppMessage.SOURCE_REMOTE_DATA.equals(message.getSource())) {
-                scheduleIdMap.put(message.getId(), schedule.getId());
-            }
-        }
-
-        return scheduleIdMap;
+    private Map<String, String> createScheduleIdMap(@Nullable Map<String, String> scheduleIds) {
+        return scheduleIds == null ? new HashMap<String, String>() : new HashMap<>(scheduleIds);
     }
 
     /**
@@ -0,0 +1,36 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam;
+
+import androidx.annotation.NonNull;
+
+import com.urbanairship.PendingResult;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Scheduler used by {@link InAppRemoteDataObserver}. Adds the lookups and batch edits the
+ * observer needs without adding methods to the public {@link InAppMessageScheduler} interface.
+ */
+interface InAppRemoteDataScheduler extends InAppMessageScheduler {
+
+    /**
+     * Gets the schedule IDs by message ID for messages from the given source.
+     *
+     * @param source The message source.
+     * @return A pending result with a map of message ID to schedule ID.
+     */
+    @NonNull
+    PendingResult<Map<String, String>> getScheduleIds(@NonNull @InAppMessage.Source String source);
+
+    /**
+     * Edits multiple in-app message schedules.
+     *
+     * @param edits The edits by schedule ID.
+     * @return A pending result with the updated schedules.
+     */
+    @NonNull
+    PendingResult<Collection<InAppMessageSchedule>> editSchedules(@NonNull Map<String, InAppMessageScheduleEdits> edits);
+
+}
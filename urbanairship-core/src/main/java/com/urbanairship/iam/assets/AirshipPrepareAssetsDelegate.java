@@ -19,7 +19,6 @@ import com.urbanairship.util.UAHttpStatusUtil;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 
 /**
  * Default {@link PrepareAssetsDelegate} for Airship message types.
@@ -75,7 +74,9 @@ public class AirshipPrepareAssetsDelegate implements PrepareAssetsDelegate {
     }
 
     /**
-     * Helper method that caches an image in the assets.
+     * Helper method that caches an image in the assets. Images are downloaded into the
+     * store shared by all schedules, so an image used by several schedules is only
+     * downloaded once.
      *
      * @param assets The assets.
      * @param url The image URL.
@@ -84,10 +85,11 @@ public class AirshipPrepareAssetsDelegate implements PrepareAssetsDelegate {
      */
     @NonNull
     protected FileUtils.DownloadResult cacheImage(@NonNull Assets assets, @NonNull String url) throws IOException {
-        File file = assets.file(url);
-        FileUtils.DownloadResult result = FileUtils.downloadFile(new URL(url), file);
+        FileUtils.DownloadResult result = assets.download(url);
 
         if (result.isSuccess) {
+            File file = assets.file(url);
+
             // Cache the width and height for view resizing
             BitmapFactory.Options options = new BitmapFactory.Options();
             options.inJustDecodeBounds = true;
@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.urbanairship.Logger;
+import com.urbanairship.util.Clock;
 import com.urbanairship.util.FileUtils;
 
 import java.io.File;
@@ -23,8 +24,17 @@ import java.util.Map;
 class AssetCache {
 
     private static final String CACHE_DIRECTORY = "com.urbanairship.iam.assets";
+    private static final String STORE_DIRECTORY = "com.urbanairship.iam.assets.store";
+
+    /**
+     * Max size of the shared store. Files referenced by a schedule are kept even if the
+     * store is over the max size.
+     */
+    private static final long MAX_STORE_SIZE = 50 * 1024 * 1024;
+
     private final File storageDirectory;
     private final StorageManager storageManager;
+    private final AssetStore assetStore;
 
     /**
      * A map of active schedule IDs to assets. Prevents needed to load the asset's metadata
@@ -42,6 +52,7 @@ class AssetCache {
     AssetCache(@NonNull Context context) {
         this.storageDirectory = new File(context.getCacheDir(), CACHE_DIRECTORY);
         this.storageManager = findStorageManager(context);
+        this.assetStore = new AssetStore(new File(context.getCacheDir(), STORE_DIRECTORY), Clock.DEFAULT_CLOCK, MAX_STORE_SIZE);
     }
 
     /**
@@ -56,7 +67,7 @@ class AssetCache {
         synchronized (activeAssets) {
             Assets assets = activeAssets.get(scheduleId);
             if (assets == null) {
-                assets = Assets.load(getAssetsDirectory(scheduleId));
+                assets = Assets.load(getAssetsDirectory(scheduleId), scheduleId, assetStore);
                 activeAssets.put(scheduleId, assets);
             }
             return assets;
@@ -65,7 +76,8 @@ class AssetCache {
 
     /**
      * Release the assets from the cache. Use `wipeFromDisk` parameter
-     * to control if the assets should be deleted.
+     * to control if the assets should be deleted. Shared files are not deleted, only the
+     * schedule's references to them are released.
      *
      * @param scheduleId The schedule ID.
      * @param wipeFromDisk If the assets should we wiped from disk.
@@ -74,6 +86,7 @@ class AssetCache {
     void releaseAssets(@NonNull String scheduleId, boolean wipeFromDisk) {
         synchronized (activeAssets) {
             if (wipeFromDisk) {
+                assetStore.release(scheduleId);
                 FileUtils.deleteRecursively(getAssetsDirectory(scheduleId));
             }
 
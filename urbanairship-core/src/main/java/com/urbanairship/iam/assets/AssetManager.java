@@ -3,6 +3,7 @@
 package com.urbanairship.iam.assets;
 
 import android.content.Context;
+import android.os.Looper;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -10,6 +11,8 @@ import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
+import com.urbanairship.AirshipExecutors;
+import com.urbanairship.AirshipLoopers;
 import com.urbanairship.Logger;
 import com.urbanairship.iam.InAppMessage;
 import com.urbanairship.iam.InAppMessageManager;
@@ -18,6 +21,8 @@ import com.urbanairship.iam.InAppMessageSchedule;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages assets for in-app messages.
@@ -43,6 +48,31 @@ public class AssetManager {
      */
     public static final int PREPARE_RESULT_CANCEL = 2;
 
+    @IntDef({ PREFETCH_POLICY_NEVER, PREFETCH_POLICY_ANY_NETWORK, PREFETCH_POLICY_UNMETERED_NETWORK, PREFETCH_POLICY_UNMETERED_NETWORK_OR_CHARGING })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface PrefetchPolicy {}
+
+    /**
+     * Never prefetch assets. Assets are only cached on schedule if the {@link CachePolicyDelegate}
+     * opts in, otherwise they are downloaded when the message is prepared. This is the default.
+     */
+    public static final int PREFETCH_POLICY_NEVER = 0;
+
+    /**
+     * Prefetch assets on any network.
+     */
+    public static final int PREFETCH_POLICY_ANY_NETWORK = 1;
+
+    /**
+     * Prefetch assets only on unmetered networks.
+     */
+    public static final int PREFETCH_POLICY_UNMETERED_NETWORK = 2;
+
+    /**
+     * Prefetch assets on unmetered networks, or on any network while the device is charging.
+     */
+    public static final int PREFETCH_POLICY_UNMETERED_NETWORK_OR_CHARGING = 3;
+
     @Nullable
     private PrepareAssetsDelegate assetsDelegate;
 
@@ -52,6 +82,11 @@ public class AssetManager {
     @NonNull
     private final AssetCache assetCache;
 
+    @NonNull
+    private final AssetPrefetcher prefetcher;
+
+    private final AtomicLong prefetchHitCount = new AtomicLong();
+    private final AtomicLong prefetchMissCount = new AtomicLong();
 
     /**
      * Default constructor. Applications should not create their own, instead use the asset manager
@@ -61,13 +96,25 @@ public class AssetManager {
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     public AssetManager(@NonNull Context context) {
-        this.assetCache = new AssetCache(context);
+        this(context, new AssetCache(context), AirshipExecutors.THREAD_POOL_EXECUTOR, AirshipLoopers.getBackgroundLooper());
         this.assetsDelegate = new AirshipPrepareAssetsDelegate();
     }
 
     @VisibleForTesting
-    AssetManager(@NonNull AssetCache assetCache) {
+    AssetManager(@NonNull Context context, @NonNull AssetCache assetCache, @NonNull Executor prefetchExecutor, @NonNull Looper prefetchLooper) {
+        this.assetCache = assetCache;
+        this.prefetcher = new AssetPrefetcher(context, prefetchExecutor, prefetchLooper, new AssetPrefetcher.PrefetchCallback() {
+            @Override
+            public void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+                cacheOnSchedule(schedule, extendedMessageCallable);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    AssetManager(@NonNull AssetCache assetCache, @NonNull AssetPrefetcher prefetcher) {
         this.assetCache = assetCache;
+        this.prefetcher = prefetcher;
     }
 
     /**
@@ -92,6 +139,47 @@ public class AssetManager {
         this.cachePolicyDelegate = cachePolicyDelegate;
     }
 
+    /**
+     * Sets the prefetch policy. New schedules that the {@link CachePolicyDelegate} does not cache
+     * on schedule have their assets prefetched in the background when the policy allows.
+     * Defaults to {@link #PREFETCH_POLICY_NEVER}.
+     *
+     * @param policy The prefetch policy.
+     */
+    public void setPrefetchPolicy(@PrefetchPolicy int policy) {
+        prefetcher.setPolicy(policy);
+    }
+
+    /**
+     * Gets the prefetch policy.
+     *
+     * @return The prefetch policy.
+     */
+    @PrefetchPolicy
+    public int getPrefetchPolicy() {
+        return prefetcher.getPolicy();
+    }
+
+    /**
+     * Gets the number of prepared schedules whose assets were already downloaded when the
+     * message was prepared for display.
+     *
+     * @return The prefetch hit count.
+     */
+    public long getPrefetchHitCount() {
+        return prefetchHitCount.get();
+    }
+
+    /**
+     * Gets the number of prepared schedules that had to download assets when the message was
+     * prepared for display.
+     *
+     * @return The prefetch miss count.
+     */
+    public long getPrefetchMissCount() {
+        return prefetchMissCount.get();
+    }
+
     /**
      * Called when a new schedule is available.
      *
@@ -104,17 +192,30 @@ public class AssetManager {
     public void onSchedule(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
         CachePolicyDelegate cachePolicyDelegate = this.cachePolicyDelegate;
         if (cachePolicyDelegate != null && cachePolicyDelegate.shouldCacheOnSchedule(schedule)) {
-            try {
-                PrepareAssetsDelegate assetsDelegate = this.assetsDelegate;
-                if (assetsDelegate != null) {
-                    InAppMessage message = extendedMessageCallable.call();
-                    Assets assets = assetCache.getAssets(schedule.getId());
-                    assetsDelegate.onSchedule(schedule, message, assets);
-                    assetCache.releaseAssets(schedule.getId(), false);
-                }
-            } catch (Exception e) {
-                Logger.error(e, "Unable to prepare assets for schedule: %s message: %s", schedule.getId(), schedule.getInfo().getInAppMessage().getId());
+            cacheOnSchedule(schedule, extendedMessageCallable);
+        } else {
+            prefetcher.prefetch(schedule, extendedMessageCallable);
+        }
+    }
+
+    /**
+     * Caches the assets for a new schedule.
+     *
+     * @param schedule The schedule
+     * @param extendedMessageCallable Callback used to get the extended message.
+     */
+    @WorkerThread
+    private void cacheOnSchedule(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+        try {
+            PrepareAssetsDelegate assetsDelegate = this.assetsDelegate;
+            if (assetsDelegate != null) {
+                InAppMessage message = extendedMessageCallable.call();
+                Assets assets = assetCache.getAssets(schedule.getId());
+                assetsDelegate.onSchedule(schedule, message, assets);
+                assetCache.releaseAssets(schedule.getId(), false);
             }
+        } catch (Exception e) {
+            Logger.error(e, "Unable to prepare assets for schedule: %s message: %s", schedule.getId(), schedule.getInfo().getInAppMessage().getId());
         }
     }
 
@@ -130,13 +231,54 @@ public class AssetManager {
     public int onPrepare(@NonNull InAppMessageSchedule schedule, @NonNull InAppMessage message) {
         PrepareAssetsDelegate assetsDelegate = this.assetsDelegate;
         if (assetsDelegate != null) {
+            prefetcher.cancel(schedule.getId());
+
             Assets assets = assetCache.getAssets(schedule.getId());
-            return assetsDelegate.onPrepare(schedule, message, assets);
+            int downloadCount = assets.getDownloadCount();
+            int result = assetsDelegate.onPrepare(schedule, message, assets);
+
+            if (assets.getDownloadCount() > downloadCount) {
+                prefetchMissCount.incrementAndGet();
+            } else if (assets.hasStoredFiles()) {
+                prefetchHitCount.incrementAndGet();
+            }
+
+            return result;
         }
 
         return PREPARE_RESULT_OK;
     }
 
+    /**
+     * Called to prepare the assets of a schedule ahead of its trigger. The assets are downloaded
+     * in the background and kept on disk so the real prepare can reuse them. A real prepare of
+     * the schedule drops the download if it has not started, otherwise waits for it to finish.
+     *
+     * @param schedule The schedule.
+     * @param message The message.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public void onSpeculativePrepare(@NonNull final InAppMessageSchedule schedule, @NonNull final InAppMessage message) {
+        final PrepareAssetsDelegate assetsDelegate = this.assetsDelegate;
+        if (assetsDelegate == null) {
+            return;
+        }
+
+        prefetcher.prefetchNow(schedule.getId(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Assets assets = assetCache.getAssets(schedule.getId());
+                    assetsDelegate.onPrepare(schedule, message, assets);
+                    assetCache.releaseAssets(schedule.getId(), false);
+                } catch (Exception e) {
+                    Logger.error(e, "Unable to speculatively prepare assets for schedule: %s message: %s", schedule.getId(), message.getId());
+                }
+            }
+        });
+    }
+
     /**
      * Called when the schedule's message finished displaying.
      *
@@ -164,6 +306,7 @@ public class AssetManager {
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     @WorkerThread
     public void onScheduleFinished(@NonNull InAppMessageSchedule schedule) {
+        prefetcher.cancel(schedule.getId());
         assetCache.releaseAssets(schedule.getId(), true);
     }
 
@@ -0,0 +1,432 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.assets;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.urbanairship.Logger;
+import com.urbanairship.iam.InAppMessage;
+import com.urbanairship.iam.InAppMessageSchedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Prefetches assets for new schedules in the background.
+ * <p>
+ * New schedules are collected for a short batch delay, then prefetched in schedule priority
+ * order, soonest end date first, with a limited number of concurrent prefetches. Prefetches
+ * that are not allowed by the prefetch policy stay queued until the network or charging
+ * state changes.
+ * <p>
+ * Cancelling a schedule waits for any running prefetch of the schedule to finish so the caller
+ * can safely prepare or delete the schedule's assets afterwards. Prefetches that have not started
+ * yet are dropped instead of waited on, so a caller on the prefetch executor never waits on work
+ * queued behind it.
+ */
+class AssetPrefetcher {
+
+    /**
+     * Prefetch callback.
+     */
+    interface PrefetchCallback {
+
+        /**
+         * Called to prefetch the assets for a schedule.
+         *
+         * @param schedule The schedule.
+         * @param extendedMessageCallable Callback used to get the extended message.
+         */
+        @WorkerThread
+        void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable);
+
+    }
+
+    /**
+     * How long to collect new schedules before prefetching.
+     */
+    static final long BATCH_DELAY_MS = 1000;
+
+    /**
+     * Max number of concurrent prefetches.
+     */
+    static final int MAX_CONCURRENT_PREFETCHES = 2;
+
+    private final Context context;
+    private final Executor executor;
+    private final Handler handler;
+    private final PrefetchCallback callback;
+
+    private final List<Request> queue = new ArrayList<>();
+    private final Set<String> running = new HashSet<>();
+    private final Set<String> pendingImmediate = new HashSet<>();
+    private int activeCount;
+    private boolean isDrainScheduled;
+    private boolean isReceiverRegistered;
+
+    @AssetManager.PrefetchPolicy
+    private volatile int policy = AssetManager.PREFETCH_POLICY_NEVER;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (queue) {
+                isDrainScheduled = false;
+            }
+            drain();
+        }
+    };
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(@NonNull Context context, @Nullable Intent intent) {
+            scheduleDrain(0);
+        }
+    };
+
+    /**
+     * Default constructor.
+     *
+     * @param context The application context.
+     * @param executor The executor used for prefetches.
+     * @param looper The looper used to batch prefetches.
+     * @param callback The prefetch callback.
+     */
+    AssetPrefetcher(@NonNull Context context, @NonNull Executor executor, @NonNull Looper looper, @NonNull PrefetchCallback callback) {
+        this.context = context.getApplicationContext() == null ? context : context.getApplicationContext();
+        this.executor = executor;
+        this.handler = new Handler(looper);
+        this.callback = callback;
+    }
+
+    /**
+     * Sets the prefetch policy.
+     *
+     * @param policy The prefetch policy.
+     */
+    void setPolicy(@AssetManager.PrefetchPolicy int policy) {
+        this.policy = policy;
+        if (policy == AssetManager.PREFETCH_POLICY_NEVER) {
+            synchronized (queue) {
+                queue.clear();
+                unregisterReceiver();
+            }
+        } else {
+            scheduleDrain(0);
+        }
+    }
+
+    /**
+     * Gets the prefetch policy.
+     *
+     * @return The prefetch policy.
+     */
+    @AssetManager.PrefetchPolicy
+    int getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Queues a schedule to be prefetched. Replaces any queued prefetch for the same schedule.
+     *
+     * @param schedule The schedule.
+     * @param extendedMessageCallable Callback used to get the extended message.
+     */
+    void prefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+        if (policy == AssetManager.PREFETCH_POLICY_NEVER) {
+            return;
+        }
+
+        synchronized (queue) {
+            removeRequest(schedule.getId());
+            queue.add(new Request(schedule, extendedMessageCallable));
+        }
+
+        scheduleDrain(BATCH_DELAY_MS);
+    }
+
+    /**
+     * Runs a prefetch for a schedule on the prefetch executor right away, regardless of the
+     * prefetch policy. Replaces any queued prefetch for the schedule and does nothing if a
+     * prefetch of the schedule is already pending or running.
+     *
+     * @param scheduleId The schedule ID.
+     * @param prefetch The prefetch.
+     */
+    void prefetchNow(@NonNull final String scheduleId, @NonNull final Runnable prefetch) {
+        synchronized (queue) {
+            if (running.contains(scheduleId) || !pendingImmediate.add(scheduleId)) {
+                return;
+            }
+
+            removeRequest(scheduleId);
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (queue) {
+                    // Cancelled before it started
+                    if (!pendingImmediate.remove(scheduleId)) {
+                        return;
+                    }
+
+                    running.add(scheduleId);
+                }
+
+                try {
+                    prefetch.run();
+                } catch (Exception e) {
+                    Logger.error(e, "AssetPrefetcher - Failed to prefetch schedule: %s", scheduleId);
+                } finally {
+                    synchronized (queue) {
+                        running.remove(scheduleId);
+                        queue.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels a queued prefetch and waits for a running prefetch of the schedule to finish.
+     *
+     * @param scheduleId The schedule ID.
+     */
+    @WorkerThread
+    void cancel(@NonNull String scheduleId) {
+        synchronized (queue) {
+            removeRequest(scheduleId);
+            pendingImmediate.remove(scheduleId);
+
+            while (running.contains(scheduleId)) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    Logger.error(e, "AssetPrefetcher - Interrupted while waiting for prefetch: %s", scheduleId);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of queued prefetches.
+     *
+     * @return The queued count.
+     */
+    int getQueuedCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Checks if the prefetch policy currently allows prefetching.
+     *
+     * @param policy The prefetch policy.
+     * @return {@code true} if prefetching is allowed, otherwise {@code false}.
+     */
+    @VisibleForTesting
+    boolean isAllowed(@AssetManager.PrefetchPolicy int policy) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo info = connectivityManager == null ? null : connectivityManager.getActiveNetworkInfo();
+        if (info == null || !info.isConnected()) {
+            return false;
+        }
+
+        switch (policy) {
+            case AssetManager.PREFETCH_POLICY_ANY_NETWORK:
+                return true;
+
+            case AssetManager.PREFETCH_POLICY_UNMETERED_NETWORK:
+                return !connectivityManager.isActiveNetworkMetered();
+
+            case AssetManager.PREFETCH_POLICY_UNMETERED_NETWORK_OR_CHARGING:
+                return !connectivityManager.isActiveNetworkMetered() || isCharging();
+
+            case AssetManager.PREFETCH_POLICY_NEVER:
+            default:
+                return false;
+        }
+    }
+
+    private boolean isCharging() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    private void scheduleDrain(long delayMs) {
+        synchronized (queue) {
+            if (isDrainScheduled && delayMs > 0) {
+                return;
+            }
+
+            isDrainScheduled = true;
+            handler.removeCallbacks(drainRunnable);
+            handler.postDelayed(drainRunnable, delayMs);
+        }
+    }
+
+    /**
+     * Starts workers up to the concurrency limit, or waits for a network or charging change if
+     * the policy does not allow prefetching.
+     */
+    private void drain() {
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                unregisterReceiver();
+                return;
+            }
+
+            if (!isAllowed(policy)) {
+                Logger.verbose("AssetPrefetcher - Deferring %s prefetches.", queue.size());
+                registerReceiver();
+                return;
+            }
+
+            unregisterReceiver();
+            while (activeCount < MAX_CONCURRENT_PREFETCHES && activeCount < queue.size()) {
+                activeCount++;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runWorker();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Prefetches queued schedules until the queue is empty or prefetching is no longer allowed.
+     */
+    @WorkerThread
+    private void runWorker() {
+        while (true) {
+            Request request;
+            synchronized (queue) {
+                if (queue.isEmpty() || !isAllowed(policy)) {
+                    activeCount--;
+                    break;
+                }
+
+                Collections.sort(queue, REQUEST_COMPARATOR);
+                request = queue.remove(0);
+                running.add(request.schedule.getId());
+            }
+
+            try {
+                callback.onPrefetch(request.schedule, request.extendedMessageCallable);
+            } catch (Exception e) {
+                Logger.error(e, "AssetPrefetcher - Failed to prefetch schedule: %s", request.schedule.getId());
+            } finally {
+                synchronized (queue) {
+                    running.remove(request.schedule.getId());
+                    queue.notifyAll();
+                }
+            }
+        }
+
+        // Defers any remaining prefetches if they are no longer allowed
+        scheduleDrain(0);
+    }
+
+    private void removeRequest(@NonNull String scheduleId) {
+        for (int i = 0; i < queue.size(); i++) {
+            if (queue.get(i).schedule.getId().equals(scheduleId)) {
+                queue.remove(i);
+                return;
+            }
+        }
+    }
+
+    private void registerReceiver() {
+        if (isReceiverRegistered) {
+            return;
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        filter.addAction(Intent.ACTION_POWER_CONNECTED);
+
+        try {
+            context.registerReceiver(receiver, filter);
+            isReceiverRegistered = true;
+        } catch (Exception e) {
+            Logger.error(e, "AssetPrefetcher - Unable to register receiver.");
+        }
+    }
+
+    private void unregisterReceiver() {
+        if (!isReceiverRegistered) {
+            return;
+        }
+
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (Exception e) {
+            Logger.error(e, "AssetPrefetcher - Unable to unregister receiver.");
+        }
+
+        isReceiverRegistered = false;
+    }
+
+    /**
+     * Orders requests by schedule priority, then by soonest end date.
+     */
+    private static final Comparator<Request> REQUEST_COMPARATOR = new Comparator<Request>() {
+        @Override
+        public int compare(@NonNull Request lhs, @NonNull Request rhs) {
+            int lhsPriority = lhs.schedule.getInfo().getPriority();
+            int rhsPriority = rhs.schedule.getInfo().getPriority();
+            if (lhsPriority != rhsPriority) {
+                return lhsPriority < rhsPriority ? -1 : 1;
+            }
+
+            long lhsEnd = getEnd(lhs.schedule);
+            long rhsEnd = getEnd(rhs.schedule);
+            return lhsEnd == rhsEnd ? 0 : (lhsEnd < rhsEnd ? -1 : 1);
+        }
+
+        private long getEnd(@NonNull InAppMessageSchedule schedule) {
+            long end = schedule.getInfo().getEnd();
+            return end < 0 ? Long.MAX_VALUE : end;
+        }
+    };
+
+    /**
+     * A queued prefetch.
+     */
+    private static class Request {
+
+        final InAppMessageSchedule schedule;
+        final Callable<InAppMessage> extendedMessageCallable;
+
+        Request(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+            this.schedule = schedule;
+            this.extendedMessageCallable = extendedMessageCallable;
+        }
+
+    }
+
+}
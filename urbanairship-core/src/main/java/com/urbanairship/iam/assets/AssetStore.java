@@ -0,0 +1,673 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.assets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.urbanairship.Logger;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
+import com.urbanairship.util.Clock;
+import com.urbanairship.util.FileUtils;
+import com.urbanairship.util.UAHttpStatusUtil;
+import com.urbanairship.util.UAStringUtil;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content addressed asset store shared by all schedules.
+ * <p>
+ * Downloaded files are stored once by the SHA-256 of their contents and referenced by the
+ * schedules that use them. Referenced files are never evicted. Unreferenced files are kept
+ * for reuse until the store exceeds its max size, then evicted least recently used first.
+ * Files older than the revalidate interval are revalidated with the ETag and Last-Modified
+ * of the previous download before being reused.
+ */
+class AssetStore {
+
+    /**
+     * How long a downloaded file is reused before it is revalidated.
+     */
+    static final long REVALIDATE_INTERVAL_MS = TimeUnit.HOURS.toMillis(24);
+
+    private static final String INDEX_FILE = "index";
+    private static final String INDEX_TEMP_FILE = "index.tmp";
+    private static final String TEMP_FILE_PREFIX = "download-";
+
+    private static final String BLOBS_KEY = "blobs";
+    private static final String URLS_KEY = "urls";
+    private static final String SIZE_KEY = "size";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "last_modified";
+    private static final String VALIDATED_KEY = "validated";
+    private static final String ACCESSED_KEY = "accessed";
+    private static final String REFERENCES_KEY = "references";
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private final File directory;
+    private final Clock clock;
+    private final long maxSize;
+
+    private final Object lock = new Object();
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private final Map<String, String> blobIdsByUrl = new HashMap<>();
+    private final Map<String, UrlLock> urlLocks = new HashMap<>();
+    private boolean isLoaded;
+
+    /**
+     * Result of fetching a URL.
+     */
+    static class FetchResult {
+
+        /**
+         * The download result.
+         */
+        @NonNull
+        final FileUtils.DownloadResult downloadResult;
+
+        /**
+         * The ID of the stored file, or {@code null} if the fetch failed.
+         */
+        @Nullable
+        final String blobId;
+
+        FetchResult(@NonNull FileUtils.DownloadResult downloadResult, @Nullable String blobId) {
+            this.downloadResult = downloadResult;
+            this.blobId = blobId;
+        }
+
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @param directory The store directory.
+     * @param clock The clock.
+     * @param maxSize The max size of the store in bytes.
+     */
+    AssetStore(@NonNull File directory, @NonNull Clock clock, long maxSize) {
+        this.directory = directory;
+        this.clock = clock;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the store directory.
+     *
+     * @return The store directory.
+     */
+    @NonNull
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the file for a stored ID.
+     *
+     * @param blobId The stored ID.
+     * @return The file.
+     */
+    @NonNull
+    File getFile(@NonNull String blobId) {
+        return new File(directory, blobId);
+    }
+
+    /**
+     * Fetches a URL into the store and adds a reference to the stored file.
+     *
+     * @param url The URL.
+     * @param owner The reference owner.
+     * @return The fetch result.
+     * @throws IOException If the URL is invalid or the download failed without a stored copy.
+     */
+    @WorkerThread
+    @NonNull
+    FetchResult fetch(@NonNull String url, @NonNull String owner) throws IOException {
+        // Only one download per URL at a time so concurrent schedules share it
+        UrlLock urlLock = acquireUrlLock(url);
+        try {
+            synchronized (urlLock) {
+                return fetchLocked(url, owner);
+            }
+        } finally {
+            releaseUrlLock(url, urlLock);
+        }
+    }
+
+    /**
+     * Fetches a URL while holding the URL's lock.
+     *
+     * @param url The URL.
+     * @param owner The reference owner.
+     * @return The fetch result.
+     * @throws IOException If the URL is invalid or the download failed without a stored copy.
+     */
+    @WorkerThread
+    @NonNull
+    private FetchResult fetchLocked(@NonNull String url, @NonNull String owner) throws IOException {
+        Blob cached;
+        synchronized (lock) {
+            load();
+            String blobId = blobIdsByUrl.get(url);
+            cached = blobId == null ? null : blobs.get(blobId);
+            if (cached != null && !getFile(cached.id).exists()) {
+                removeBlob(cached.id);
+                cached = null;
+            }
+
+            if (cached != null && clock.currentTimeMillis() - cached.validated < REVALIDATE_INTERVAL_MS) {
+                addReference(cached, owner);
+                return new FetchResult(new FileUtils.DownloadResult(true, 200), cached.id);
+            }
+        }
+
+        File temp = File.createTempFile(TEMP_FILE_PREFIX, null, prepareDirectory());
+        FileUtils.DownloadResult result;
+        try {
+            result = download(new URL(url), temp, cached == null ? null : cached.eTag, cached == null ? 0 : cached.lastModified);
+        } catch (IOException e) {
+            temp.delete();
+            if (cached == null) {
+                throw e;
+            }
+
+            Logger.debug(e, "AssetStore - Unable to revalidate %s, using stored file.", url);
+            return reuse(cached, owner, false);
+        }
+
+        if (!result.isSuccess) {
+            temp.delete();
+            if (cached != null && (result.isNotModified() || UAHttpStatusUtil.inServerErrorRange(result.statusCode))) {
+                return reuse(cached, owner, result.isNotModified());
+            }
+
+            return new FetchResult(result, null);
+        }
+
+        return store(url, temp, result, owner);
+    }
+
+    /**
+     * Releases all references held by an owner.
+     *
+     * @param owner The reference owner.
+     */
+    @WorkerThread
+    void release(@NonNull String owner) {
+        synchronized (lock) {
+            load();
+            boolean changed = false;
+            for (Blob blob : blobs.values()) {
+                changed |= blob.references.remove(owner);
+            }
+
+            if (changed) {
+                trim();
+                saveIndex();
+            }
+        }
+    }
+
+    /**
+     * Gets the total size of the stored files.
+     *
+     * @return The size in bytes.
+     */
+    long getSize() {
+        synchronized (lock) {
+            load();
+            long size = 0;
+            for (Blob blob : blobs.values()) {
+                size += blob.size;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Downloads a URL. Overridable for tests.
+     *
+     * @param url The URL.
+     * @param file The destination file.
+     * @param eTag The ETag of the stored copy.
+     * @param lastModified The Last-Modified time of the stored copy.
+     * @return The download result.
+     * @throws IOException If the download failed.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    @NonNull
+    FileUtils.DownloadResult download(@NonNull URL url, @NonNull File file, @Nullable String eTag, long lastModified) throws IOException {
+        return FileUtils.downloadFile(url, file, eTag, lastModified);
+    }
+
+    /**
+     * Reuses a stored file.
+     *
+     * @param blob The stored file.
+     * @param owner The reference owner.
+     * @param isValidated If the file was validated with the server.
+     * @return The fetch result.
+     */
+    @NonNull
+    private FetchResult reuse(@NonNull Blob blob, @NonNull String owner, boolean isValidated) {
+        synchronized (lock) {
+            // Evicted while revalidating
+            if (!blobs.containsKey(blob.id)) {
+                return new FetchResult(new FileUtils.DownloadResult(false, 0), null);
+            }
+
+            if (isValidated) {
+                blob.validated = clock.currentTimeMillis();
+            }
+
+            addReference(blob, owner);
+            return new FetchResult(new FileUtils.DownloadResult(true, 200), blob.id);
+        }
+    }
+
+    /**
+     * Moves a downloaded file into the store.
+     *
+     * @param url The URL.
+     * @param temp The downloaded file.
+     * @param result The download result.
+     * @param owner The reference owner.
+     * @return The fetch result.
+     * @throws IOException If the file could not be stored.
+     */
+    @NonNull
+    private FetchResult store(@NonNull String url, @NonNull File temp, @NonNull FileUtils.DownloadResult result,
+                              @NonNull String owner) throws IOException {
+        String blobId = digest(temp);
+        long size = temp.length();
+
+        synchronized (lock) {
+            File file = getFile(blobId);
+            if (file.exists()) {
+                temp.delete();
+            } else if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Unable to store file for " + url);
+            }
+
+            Blob blob = blobs.get(blobId);
+            if (blob == null) {
+                blob = new Blob(blobId);
+                blobs.put(blobId, blob);
+            }
+
+            blob.size = size;
+            blob.eTag = result.eTag;
+            blob.lastModified = result.lastModified;
+            blob.validated = clock.currentTimeMillis();
+            blobIdsByUrl.put(url, blobId);
+
+            addReference(blob, owner);
+            return new FetchResult(result, blobId);
+        }
+    }
+
+    /**
+     * Adds a reference to a stored file and persists the index.
+     *
+     * @param blob The stored file.
+     * @param owner The reference owner.
+     */
+    private void addReference(@NonNull Blob blob, @NonNull String owner) {
+        blob.references.add(owner);
+        blob.accessed = clock.currentTimeMillis();
+        trim();
+        saveIndex();
+    }
+
+    /**
+     * Evicts unreferenced files, least recently used first, until the store fits its max size.
+     */
+    private void trim() {
+        long size = 0;
+        for (Blob blob : blobs.values()) {
+            size += blob.size;
+        }
+
+        while (size > maxSize) {
+            Blob oldest = null;
+            for (Blob blob : blobs.values()) {
+                if (blob.references.isEmpty() && (oldest == null || blob.accessed < oldest.accessed)) {
+                    oldest = blob;
+                }
+            }
+
+            if (oldest == null) {
+                return;
+            }
+
+            Logger.verbose("AssetStore - Evicting %s", oldest.id);
+            size -= oldest.size;
+            removeBlob(oldest.id);
+        }
+    }
+
+    /**
+     * Removes a stored file and any URLs that point to it.
+     *
+     * @param blobId The stored ID.
+     */
+    private void removeBlob(@NonNull String blobId) {
+        blobs.remove(blobId);
+        getFile(blobId).delete();
+
+        Iterator<Map.Entry<String, String>> iterator = blobIdsByUrl.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (blobId.equals(iterator.next().getValue())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the lock for a URL and marks it in use.
+     *
+     * @param url The URL.
+     * @return The URL lock.
+     */
+    @NonNull
+    private UrlLock acquireUrlLock(@NonNull String url) {
+        synchronized (urlLocks) {
+            UrlLock urlLock = urlLocks.get(url);
+            if (urlLock == null) {
+                urlLock = new UrlLock();
+                urlLocks.put(url, urlLock);
+            }
+            urlLock.users++;
+            return urlLock;
+        }
+    }
+
+    /**
+     * Releases a URL lock, removing it once no fetch is using it.
+     *
+     * @param url The URL.
+     * @param urlLock The URL lock.
+     */
+    private void releaseUrlLock(@NonNull String url, @NonNull UrlLock urlLock) {
+        synchronized (urlLocks) {
+            urlLock.users--;
+            if (urlLock.users == 0) {
+                urlLocks.remove(url);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of URL locks in use.
+     *
+     * @return The URL lock count.
+     */
+    @VisibleForTesting
+    int getUrlLockCount() {
+        synchronized (urlLocks) {
+            return urlLocks.size();
+        }
+    }
+
+    /**
+     * Loads the index and deletes any files that are not in it. If the index can't be read,
+     * the stored files are kept as unreferenced files instead.
+     */
+    private void load() {
+        if (isLoaded) {
+            return;
+        }
+
+        isLoaded = true;
+
+        JsonMap index = readIndex();
+        if (index == null) {
+            recover();
+            return;
+        }
+
+        for (Map.Entry<String, JsonValue> entry : index.opt(BLOBS_KEY).optMap()) {
+            JsonMap json = entry.getValue().optMap();
+            Blob blob = new Blob(entry.getKey());
+            blob.size = json.opt(SIZE_KEY).getLong(0);
+            blob.eTag = json.opt(ETAG_KEY).getString();
+            blob.lastModified = json.opt(LAST_MODIFIED_KEY).getLong(0);
+            blob.validated = json.opt(VALIDATED_KEY).getLong(0);
+            blob.accessed = json.opt(ACCESSED_KEY).getLong(0);
+            for (JsonValue reference : json.opt(REFERENCES_KEY).optList()) {
+                if (reference.isString()) {
+                    blob.references.add(reference.optString());
+                }
+            }
+
+            if (getFile(blob.id).exists()) {
+                blobs.put(blob.id, blob);
+            }
+        }
+
+        for (Map.Entry<String, JsonValue> entry : index.opt(URLS_KEY).optMap()) {
+            String blobId = entry.getValue().getString();
+            if (blobId != null && blobs.containsKey(blobId)) {
+                blobIdsByUrl.put(entry.getKey(), blobId);
+            }
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!INDEX_FILE.equals(file.getName()) && !blobs.containsKey(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the stored files after the index could not be read. The files
+     * are kept unreferenced so they can still be evicted, and are revalidated before reuse.
+     */
+    private void recover() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (INDEX_FILE.equals(name)) {
+                continue;
+            }
+
+            // Leftover partial writes
+            if (INDEX_TEMP_FILE.equals(name) || name.startsWith(TEMP_FILE_PREFIX)) {
+                file.delete();
+                continue;
+            }
+
+            Blob blob = new Blob(name);
+            blob.size = file.length();
+            blob.accessed = file.lastModified();
+            blobs.put(blob.id, blob);
+        }
+
+        Logger.debug("AssetStore - Recovered %s stored files.", blobs.size());
+        saveIndex();
+    }
+
+    /**
+     * Reads the index.
+     *
+     * @return The index, an empty index if there is none, or {@code null} if it can't be read.
+     */
+    @Nullable
+    private JsonMap readIndex() {
+        File file = new File(directory, INDEX_FILE);
+        if (!file.exists()) {
+            return JsonMap.EMPTY_MAP;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(file));
+            StringWriter writer = new StringWriter();
+            char[] buffer = new char[BUFFER_SIZE];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, count);
+            }
+            JsonValue json = JsonValue.parseString(writer.toString());
+            if (json.isJsonMap()) {
+                return json.optMap();
+            }
+
+            Logger.error("AssetStore - Invalid index: %s", json);
+        } catch (IOException | JsonException e) {
+            Logger.error(e, "AssetStore - Unable to read index.");
+        } finally {
+            closeQuietly(reader);
+        }
+
+        return null;
+    }
+
+    private void saveIndex() {
+        JsonMap.Builder blobsJson = JsonMap.newBuilder();
+        for (Blob blob : blobs.values()) {
+            blobsJson.put(blob.id, JsonMap.newBuilder()
+                                          .put(SIZE_KEY, blob.size)
+                                          .putOpt(ETAG_KEY, blob.eTag)
+                                          .put(LAST_MODIFIED_KEY, blob.lastModified)
+                                          .put(VALIDATED_KEY, blob.validated)
+                                          .put(ACCESSED_KEY, blob.accessed)
+                                          .put(REFERENCES_KEY, JsonValue.wrapOpt(blob.references))
+                                          .build());
+        }
+
+        JsonMap index = JsonMap.newBuilder()
+                               .put(BLOBS_KEY, blobsJson.build())
+                               .putOpt(URLS_KEY, blobIdsByUrl)
+                               .build();
+
+        // Write to a temp file and rename it so a failed write never leaves a partial index
+        File temp = new File(prepareDirectory(), INDEX_TEMP_FILE);
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(temp);
+            outputStream.write(index.toString().getBytes("UTF-8"));
+            outputStream.getFD().sync();
+            outputStream.close();
+            outputStream = null;
+
+            if (!temp.renameTo(new File(directory, INDEX_FILE))) {
+                throw new IOException("Unable to rename " + temp);
+            }
+        } catch (IOException e) {
+            Logger.error(e, "AssetStore - Unable to write index.");
+            temp.delete();
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    @NonNull
+    private File prepareDirectory() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Logger.error("AssetStore - Failed to create directory: %s", directory.getAbsoluteFile());
+        }
+        return directory;
+    }
+
+    /**
+     * Generates the SHA-256 hex digest of a file's contents.
+     *
+     * @param file The file.
+     * @return The digest.
+     * @throws IOException If the file could not be read.
+     */
+    @NonNull
+    private static String digest(@NonNull File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            closeQuietly(inputStream);
+        }
+
+        return UAStringUtil.byteToHex(digest.digest());
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    /**
+     * A lock shared by the fetches of a URL.
+     */
+    private static class UrlLock {
+
+        int users;
+
+    }
+
+    /**
+     * A stored file.
+     */
+    private static class Blob {
+
+        final String id;
+        final Set<String> references = new HashSet<>();
+        long size;
+        String eTag;
+        long lastModified;
+        long validated;
+        long accessed;
+
+        Blob(@NonNull String id) {
+            this.id = id;
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ import com.urbanairship.json.JsonException;
 import com.urbanairship.json.JsonMap;
 import com.urbanairship.json.JsonSerializable;
 import com.urbanairship.json.JsonValue;
+import com.urbanairship.util.FileUtils;
 import com.urbanairship.util.UAStringUtil;
 
 import java.io.BufferedReader;
@@ -27,9 +28,11 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Assets for an in-app message. All assets are stored on disk
@@ -46,15 +49,11 @@ public class Assets implements Parcelable {
         @NonNull
         @Override
         public Assets createFromParcel(@NonNull Parcel in) {
-            JsonMap parsedMap;
-            try {
-                parsedMap = JsonValue.parseString(in.readString()).optMap();
-            } catch (JsonException e) {
-                Logger.error(e, "Failed to parse metadata");
-                parsedMap = JsonMap.EMPTY_MAP;
-            }
-
-            return new Assets(new File(in.readString()), parsedMap);
+            JsonMap metadata = JsonValue.CREATOR.createFromParcel(in).optMap();
+            File root = new File(in.readString());
+            JsonMap storedFiles = JsonValue.CREATOR.createFromParcel(in).optMap();
+            String storeDirectory = in.readString();
+            return new Assets(root, metadata, storedFiles, storeDirectory == null ? null : new File(storeDirectory), null, null);
         }
 
         @NonNull
@@ -69,6 +68,11 @@ public class Assets implements Parcelable {
      */
     private static final String METADATA_FILE = "metadata";
 
+    /**
+     * The file that maps keys to files in the shared store.
+     */
+    private static final String STORED_FILES_FILE = "stored";
+
     /**
      * The file store directory.
      */
@@ -78,9 +82,19 @@ public class Assets implements Parcelable {
     private final File rootDirectory;
     private final File filesDirectory;
     private final File metadataFile;
+    private final File storedFilesFile;
 
     private final Map<String, JsonValue> metadata;
+    private final Map<String, String> storedFiles = new HashMap<>();
     private final Object metadataLock = new Object();
+    private final AtomicInteger downloadCount = new AtomicInteger();
+
+    @Nullable
+    private final File storeDirectory;
+    @Nullable
+    private final AssetStore store;
+    @Nullable
+    private final String scheduleId;
 
     /**
      * Loads assets from a directory.
@@ -92,7 +106,23 @@ public class Assets implements Parcelable {
     @NonNull
     static Assets load(@NonNull File root) {
         File metadata = new File(root, METADATA_FILE);
-        return new Assets(root, readJson(metadata).optMap());
+        return new Assets(root, readJson(metadata).optMap(), JsonMap.EMPTY_MAP, null, null, null);
+    }
+
+    /**
+     * Loads assets from a directory that share downloads through an asset store.
+     *
+     * @param root The assets' root directory.
+     * @param scheduleId The schedule ID that owns the assets.
+     * @param store The shared asset store.
+     * @return The assets.
+     */
+    @WorkerThread
+    @NonNull
+    static Assets load(@NonNull File root, @NonNull String scheduleId, @NonNull AssetStore store) {
+        JsonMap metadata = readJson(new File(root, METADATA_FILE)).optMap();
+        JsonMap storedFiles = readJson(new File(root, STORED_FILES_FILE)).optMap();
+        return new Assets(root, metadata, storedFiles, store.getDirectory(), store, scheduleId);
     }
 
     /**
@@ -100,21 +130,38 @@ public class Assets implements Parcelable {
      *
      * @param root The assets' root directory.
      * @param metadata The metadata.
+     * @param storedFiles The stored file IDs by key.
+     * @param storeDirectory The shared store directory.
+     * @param store The shared store, or {@code null} if the assets can't download.
+     * @param scheduleId The schedule ID, or {@code null} if the assets can't download.
      */
-    private Assets(@NonNull File root, @NonNull JsonMap metadata) {
+    private Assets(@NonNull File root, @NonNull JsonMap metadata, @NonNull JsonMap storedFiles,
+                   @Nullable File storeDirectory, @Nullable AssetStore store, @Nullable String scheduleId) {
         this.rootDirectory = root;
         this.filesDirectory = new File(root, FILES_DIRECTORY);
         this.metadataFile = new File(root, METADATA_FILE);
+        this.storedFilesFile = new File(root, STORED_FILES_FILE);
         this.metadata = new HashMap<>(metadata.getMap());
-        this.executor = AirshipExecutors.newSerialExecutor();
+        this.storeDirectory = storeDirectory;
+        this.store = store;
+        this.scheduleId = scheduleId;
+        this.executor = AirshipExecutors.newSerialExecutor("assets");
+
+        for (Map.Entry<String, JsonValue> entry : storedFiles) {
+            if (entry.getValue().isString()) {
+                this.storedFiles.put(entry.getKey(), entry.getValue().optString());
+            }
+        }
     }
 
     @Override
     public void writeToParcel(@NonNull Parcel dest, int flags) {
         synchronized (metadataLock) {
-            dest.writeString(JsonValue.wrapOpt(metadata).toString());
+            JsonValue.wrapOpt(metadata).writeToParcel(dest, flags);
+            dest.writeString(rootDirectory.getAbsolutePath());
+            JsonValue.wrapOpt(storedFiles).writeToParcel(dest, flags);
         }
-        dest.writeString(rootDirectory.getAbsolutePath());
+        dest.writeString(storeDirectory == null ? null : storeDirectory.getAbsolutePath());
     }
 
     @Override
@@ -130,10 +177,77 @@ public class Assets implements Parcelable {
      */
     @NonNull
     public File file(@NonNull String key) {
+        String storedFileId;
+        synchronized (metadataLock) {
+            storedFileId = storedFiles.get(key);
+        }
+
+        if (storedFileId != null && storeDirectory != null) {
+            return new File(storeDirectory, storedFileId);
+        }
+
         prepareDirectory();
         return new File(filesDirectory, UAStringUtil.sha256(key));
     }
 
+    /**
+     * Downloads a URL. If the assets are backed by the shared store, the file is shared with
+     * any other schedule that downloads the same content, and {@link #file(String)} for the URL
+     * will return the stored file.
+     *
+     * @param url The URL.
+     * @return The download result.
+     * @throws IOException If the URL is invalid or the download failed.
+     */
+    @WorkerThread
+    @NonNull
+    FileUtils.DownloadResult download(@NonNull String url) throws IOException {
+        downloadCount.incrementAndGet();
+
+        AssetStore store = this.store;
+        String scheduleId = this.scheduleId;
+        if (store == null || scheduleId == null) {
+            return FileUtils.downloadFile(new URL(url), file(url));
+        }
+
+        AssetStore.FetchResult result = store.fetch(url, scheduleId);
+        if (result.blobId != null) {
+            synchronized (metadataLock) {
+                storedFiles.put(url, result.blobId);
+                final JsonValue json = JsonValue.wrapOpt(storedFiles);
+
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeJson(storedFilesFile, json);
+                    }
+                });
+            }
+        }
+
+        return result.downloadResult;
+    }
+
+    /**
+     * Gets the number of downloads requested through {@link #download(String)}.
+     *
+     * @return The download count.
+     */
+    int getDownloadCount() {
+        return downloadCount.get();
+    }
+
+    /**
+     * Checks if any downloads are stored for the assets.
+     *
+     * @return {@code true} if the assets reference a stored download, otherwise {@code false}.
+     */
+    boolean hasStoredFiles() {
+        synchronized (metadataLock) {
+            return !storedFiles.isEmpty();
+        }
+    }
+
     /**
      * Gets metadata for a key.
      *
@@ -17,7 +17,6 @@ import com.urbanairship.util.Clock;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +24,10 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Tracks pending and sent mutations.
+ * <p>
+ * Sent mutations are recorded in a {@link TagGroupHistoryDataManager} indexed by time, so recording only
+ * inserts a row and expires dated rows, and applying local data only reads the records since the
+ * requested time.
  */
 class TagGroupHistorian {
 
@@ -34,18 +37,23 @@ class TagGroupHistorian {
 
     private final TagGroupRegistrar tagGroupRegistrar;
     private final PreferenceDataStore dataStore;
+    private final TagGroupHistoryDataManager dataManager;
     private final Clock clock;
     private long maxRecordAge = Long.MAX_VALUE;
+    private boolean isMigrated = false;
 
     /**
      * Default constructor.
      *
      * @param tagGroupRegistrar The tag group registrar.
      * @param dataStore The data store.
+     * @param dataManager The record data manager.
+     * @param clock The clock.
      */
-    TagGroupHistorian(TagGroupRegistrar tagGroupRegistrar, PreferenceDataStore dataStore, Clock clock) {
+    TagGroupHistorian(TagGroupRegistrar tagGroupRegistrar, PreferenceDataStore dataStore, TagGroupHistoryDataManager dataManager, Clock clock) {
         this.tagGroupRegistrar = tagGroupRegistrar;
         this.dataStore = dataStore;
+        this.dataManager = dataManager;
         this.clock = clock;
     }
 
@@ -80,10 +88,8 @@ class TagGroupHistorian {
      */
     void applyLocalData(@NonNull Map<String, Set<String>> tags, long sinceDate) {
         // Records
-        for (MutationRecord record : getMutationRecords()) {
-            if (record.time >= sinceDate) {
-                record.mutation.apply(tags);
-            }
+        for (MutationRecord record : getMutationRecords(sinceDate)) {
+            record.mutation.apply(tags);
         }
 
         // Named User
@@ -104,57 +110,66 @@ class TagGroupHistorian {
      */
     private void recordMutation(@NonNull TagGroupsMutation mutation) {
         synchronized (recordLock) {
-            List<MutationRecord> records = getMutationRecords();
-
-            // Add new record
-            records.add(new MutationRecord(clock.currentTimeMillis(), mutation));
-
-            // Sort entries by oldest first
-            Collections.sort(records, new Comparator<MutationRecord>() {
-                @Override
-                public int compare(@NonNull MutationRecord lh, @NonNull MutationRecord rh) {
-                    if (lh.time == rh.time) {
-                        return 0;
-                    }
-                    if (lh.time > rh.time) {
-                        return 1;
-                    }
-                    return -1;
-                }
-            });
+            migrateIfNeeded();
+            dataManager.insertRecords(Collections.singletonList(new MutationRecord(clock.currentTimeMillis(), mutation)));
 
-            dataStore.put(RECORDS_KEY, JsonValue.wrapOpt(records));
+            // Expire dated records
+            long expiry = getExpiryTime();
+            if (expiry > Long.MIN_VALUE) {
+                dataManager.deleteRecords(expiry);
+            }
         }
     }
 
     /**
      * Gets the recorded mutations.
      *
-     * @return The list of recorded mutations.
+     * @param sinceDate The earliest record time in milliseconds since the epoch.
+     * @return The list of recorded mutations, oldest first.
      */
     @NonNull
-    private List<MutationRecord> getMutationRecords() {
+    private List<MutationRecord> getMutationRecords(long sinceDate) {
         synchronized (recordLock) {
-            // Grab entries, should already be sorted
-            List<MutationRecord> allRecords = MutationRecord.fromJsonList(dataStore.getJsonValue(RECORDS_KEY).optList());
-
-            // Remove any dated records
-            List<MutationRecord> filteredRecords = new ArrayList<>();
-            for (MutationRecord record : allRecords) {
-                long age = clock.currentTimeMillis() - record.time;
-                if (age <= maxRecordAge) {
-                    filteredRecords.add(record);
-                }
-            }
+            migrateIfNeeded();
+
+            // Skip any dated records that have not been expired yet
+            return dataManager.getRecords(Math.max(sinceDate, getExpiryTime()));
+        }
+    }
+
+    /**
+     * Gets the time records older than the max record age were created before.
+     *
+     * @return The expiry time in milliseconds, or {@code Long.MIN_VALUE} if records do not expire.
+     */
+    private long getExpiryTime() {
+        long now = clock.currentTimeMillis();
+        if (maxRecordAge == Long.MAX_VALUE || now < Long.MIN_VALUE + maxRecordAge) {
+            return Long.MIN_VALUE;
+        }
+
+        return now - maxRecordAge;
+    }
+
+    /**
+     * Moves any records stored in the preference data store to the record database.
+     */
+    private void migrateIfNeeded() {
+        if (isMigrated) {
+            return;
+        }
 
-            return filteredRecords;
+        JsonValue stored = dataStore.getJsonValue(RECORDS_KEY);
+        if (stored.isNull() || dataManager.insertRecords(MutationRecord.fromJsonList(stored.optList()))) {
+            dataStore.remove(RECORDS_KEY);
+            isMigrated = true;
         }
     }
 
     /**
      * Defines a mutation and a timestamp.
      */
-    private static class MutationRecord implements JsonSerializable {
+    static class MutationRecord implements JsonSerializable {
 
         private final static String TIME_KEY = "time";
         private final static String MUTATION = "mutation";
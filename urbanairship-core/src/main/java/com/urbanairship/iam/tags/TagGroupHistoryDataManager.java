@@ -0,0 +1,158 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.tags;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.urbanairship.Logger;
+import com.urbanairship.channel.TagGroupsMutation;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonValue;
+import com.urbanairship.util.DataManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link DataManager} for uploaded tag group mutation records, indexed by record time.
+ */
+class TagGroupHistoryDataManager extends DataManager {
+
+    private static final String TABLE_NAME = "records";
+
+    private static final String COLUMN_NAME_ID = "id";
+
+    // The record time in milliseconds
+    private static final String COLUMN_NAME_TIME = "time";
+
+    // The JSON-serialized mutation
+    private static final String COLUMN_NAME_MUTATION = "mutation";
+
+    /**
+     * The database version.
+     */
+    private static final int DATABASE_VERSION = 1;
+
+    /**
+     * Default constructor.
+     *
+     * @param context The app context.
+     * @param appKey The app key.
+     * @param dbName The database name.
+     */
+    TagGroupHistoryDataManager(@NonNull Context context, @NonNull String appKey, @NonNull String dbName) {
+        super(context, appKey, dbName, DATABASE_VERSION);
+    }
+
+    @Override
+    protected void onCreate(@NonNull SQLiteDatabase db) {
+        Logger.debug("TagGroupHistoryDataManager - Creating database");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + COLUMN_NAME_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_NAME_TIME + " INTEGER NOT NULL,"
+                + COLUMN_NAME_MUTATION + " TEXT NOT NULL"
+                + ");");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_NAME_TIME
+                + " ON " + TABLE_NAME + " (" + COLUMN_NAME_TIME + ");");
+    }
+
+    @Override
+    protected void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+        onCreate(db);
+    }
+
+    /**
+     * Inserts mutation records.
+     *
+     * @param records The records.
+     * @return {@code true} if the records were inserted, otherwise {@code false}.
+     */
+    boolean insertRecords(@NonNull List<TagGroupHistorian.MutationRecord> records) {
+        if (records.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (db == null) {
+            Logger.error("TagGroupHistoryDataManager - Unable to insert records.");
+            return false;
+        }
+
+        try {
+            db.beginTransaction();
+            try {
+                for (TagGroupHistorian.MutationRecord record : records) {
+                    ContentValues values = new ContentValues();
+                    values.put(COLUMN_NAME_TIME, record.time);
+                    values.put(COLUMN_NAME_MUTATION, record.mutation.toJsonValue().toString());
+
+                    if (db.insert(TABLE_NAME, null, values) == -1) {
+                        return false;
+                    }
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLException e) {
+            Logger.error(e, "TagGroupHistoryDataManager - Unable to insert records.");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the records created at or after the specified time, oldest first.
+     *
+     * @param sinceTime The time in milliseconds.
+     * @return The matching records.
+     */
+    @NonNull
+    List<TagGroupHistorian.MutationRecord> getRecords(long sinceTime) {
+        Cursor cursor = query(TABLE_NAME, new String[] { COLUMN_NAME_TIME, COLUMN_NAME_MUTATION },
+                COLUMN_NAME_TIME + " >= ?", new String[] { String.valueOf(sinceTime) },
+                COLUMN_NAME_TIME + " ASC, " + COLUMN_NAME_ID + " ASC");
+
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+
+        List<TagGroupHistorian.MutationRecord> records = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                try {
+                    TagGroupsMutation mutation = TagGroupsMutation.fromJsonValue(JsonValue.parseString(cursor.getString(1)));
+                    records.add(new TagGroupHistorian.MutationRecord(cursor.getLong(0), mutation));
+                } catch (JsonException e) {
+                    Logger.error(e, "TagGroupHistoryDataManager - Failed to parse tag group record.");
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return records;
+    }
+
+    /**
+     * Deletes the records created before the specified time.
+     *
+     * @param beforeTime The time in milliseconds.
+     * @return The number of deleted records, or -1 on error.
+     */
+    int deleteRecords(long beforeTime) {
+        return delete(TABLE_NAME, COLUMN_NAME_TIME + " < ?", new String[] { String.valueOf(beforeTime) });
+    }
+
+}
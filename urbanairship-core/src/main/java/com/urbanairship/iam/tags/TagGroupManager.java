@@ -2,6 +2,8 @@
 
 package com.urbanairship.iam.tags;
 
+import android.content.Context;
+
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -10,7 +12,9 @@ import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.urbanairship.AirshipConfigOptions;
+import com.urbanairship.AirshipExecutors;
 import com.urbanairship.Logger;
+import com.urbanairship.PendingResult;
 import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.UAirship;
 import com.urbanairship.channel.AirshipChannel;
@@ -20,8 +24,11 @@ import com.urbanairship.channel.TagGroupRegistrar;
 import com.urbanairship.util.Clock;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,6 +51,9 @@ public class TagGroupManager {
     private static final String PREFER_LOCAL_DATA_TIME_KEY = "com.urbanairship.iam.tags.TAG_PREFER_LOCAL_DATA_TIME";
     private static final String ENABLED_KEY = "com.urbanairship.iam.tags.FETCH_ENABLED";
 
+    // Tag group history database
+    private static final String DATABASE_NAME = "ua_tag_group_history.db";
+
     /**
      * Min cache age time.
      */
@@ -64,6 +74,16 @@ public class TagGroupManager {
      */
     public static final long DEFAULT_PREFER_LOCAL_DATA_TIME_MS = 600000; // 10 minutes
 
+    /**
+     * Percent of the max cache age after which a cache hit refreshes the cache in the background.
+     */
+    static final int REFRESH_AHEAD_PERCENT = 80;
+
+    /**
+     * Min time between refresh ahead attempts.
+     */
+    static final long REFRESH_AHEAD_RETRY_INTERVAL_MS = 30000; // 30 seconds
+
     /**
      * Callback used to get the request tags when refreshing the cache.
      */
@@ -85,32 +105,46 @@ public class TagGroupManager {
     private final TagGroupLookupApiClient client;
     private final Clock clock;
 
-    private RequestTagsCallback requestTagsCallback;
+    private final Executor executor;
+
+    private volatile RequestTagsCallback requestTagsCallback;
+
+    private final Object cacheLock = new Object();
+    private CachedResponse cache;
+    private boolean isCacheLoaded;
+
+    private final Object refreshLock = new Object();
+    private Refresh inFlightRefresh;
+    private Refresh queuedRefresh;
+    private long lastRefreshAheadTime = -1;
 
     /**
      * Default constructor.
      *
+     * @param context The application context.
      * @param configOptions The airship config options.
      * @param airshipChannel The Airship channel.
      * @param tagGroupRegistrar The tag group registrar.
      * @param dataStore The preference data store.
      */
-    public TagGroupManager(@NonNull AirshipConfigOptions configOptions, @NonNull AirshipChannel airshipChannel,
+    public TagGroupManager(@NonNull Context context, @NonNull AirshipConfigOptions configOptions, @NonNull AirshipChannel airshipChannel,
                            @NonNull TagGroupRegistrar tagGroupRegistrar, @NonNull PreferenceDataStore dataStore) {
         this(new TagGroupLookupApiClient(configOptions), airshipChannel,
-                new TagGroupHistorian(tagGroupRegistrar, dataStore, Clock.DEFAULT_CLOCK),
-                dataStore, Clock.DEFAULT_CLOCK);
+                new TagGroupHistorian(tagGroupRegistrar, dataStore,
+                        new TagGroupHistoryDataManager(context, configOptions.appKey, DATABASE_NAME), Clock.DEFAULT_CLOCK),
+                dataStore, Clock.DEFAULT_CLOCK, AirshipExecutors.THREAD_POOL_EXECUTOR);
     }
 
     @VisibleForTesting
     TagGroupManager(@NonNull TagGroupLookupApiClient client, @NonNull AirshipChannel airshipChannel,
                     @NonNull TagGroupHistorian historian, @NonNull PreferenceDataStore dataStore,
-                    @NonNull Clock clock) {
+                    @NonNull Clock clock, @NonNull Executor executor) {
         this.client = client;
         this.airshipChannel = airshipChannel;
         this.historian = historian;
         this.dataStore = dataStore;
         this.clock = clock;
+        this.executor = executor;
 
         this.historian.init();
         updateMaxRecordAge();
@@ -208,19 +242,78 @@ public class TagGroupManager {
         updateMaxRecordAge();
     }
 
+    /**
+     * Gets the current tags for the channel without blocking the calling thread.
+     * <p>
+     * Results that can be served locally or from a fresh cache are returned immediately,
+     * otherwise the lookup runs in the background and joins any in-flight lookup that covers
+     * the requested tags.
+     *
+     * @param tags The requested tags.
+     * @return A pending tag result.
+     */
+    @NonNull
+    public PendingResult<TagGroupResult> getTagsAsync(@NonNull final Map<String, Set<String>> tags) {
+        final PendingResult<TagGroupResult> pendingResult = new PendingResult<>();
+
+        TagGroupResult result = getLocalResult(tags);
+        if (result == null) {
+            result = getFreshCachedResult(tags);
+        }
+
+        if (result != null) {
+            pendingResult.setResult(result);
+            return pendingResult;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                pendingResult.setResult(getTags(tags));
+            }
+        });
+
+        return pendingResult;
+    }
+
     /**
      * Gets the current tags for the channel.
      * <p>
      * Only the tags that are being requested will be returned. If the request that fetched
      * the tags does not contain the requested tags, a new request will be made. When fetching tags,
      * the {@link RequestTagsCallback} will be called to generate the set of tags to be requested.
+     * <p>
+     * Concurrent lookups are coalesced. A lookup whose tags are covered by an in-flight request
+     * waits for that request, and lookups that are not covered are merged into a single
+     * follow-up request.
      *
      * @param tags The requested tags.
      * @return The tag result.
      */
     @NonNull
     @WorkerThread
-    public synchronized TagGroupResult getTags(@NonNull Map<String, Set<String>> tags) {
+    public TagGroupResult getTags(@NonNull Map<String, Set<String>> tags) {
+        TagGroupResult result = getLocalResult(tags);
+        if (result == null) {
+            result = getFreshCachedResult(tags);
+        }
+
+        if (result != null) {
+            return result;
+        }
+
+        awaitRefresh(tags);
+        return getCachedResult(tags);
+    }
+
+    /**
+     * Gets the result for requests that do not need the lookup cache.
+     *
+     * @param tags The requested tags.
+     * @return The tag result, or {@code null} if the tags need to be looked up.
+     */
+    @Nullable
+    private TagGroupResult getLocalResult(@NonNull Map<String, Set<String>> tags) {
         if (requestTagsCallback == null) {
             throw new IllegalStateException("RequestTagsCallback not set");
         }
@@ -237,7 +330,7 @@ public class TagGroupManager {
         // Requesting only `device` tag groups when channel tag registration is enabled
         if (tags.size() == 1 && tags.containsKey(DEVICE_GROUP) && airshipChannel.getChannelTagRegistrationEnabled()) {
             Map<String, Set<String>> deviceTags = new HashMap<>();
-            deviceTags.put(DEVICE_GROUP, airshipChannel.getTags());
+            deviceTags.put(DEVICE_GROUP, airshipChannel.getTagSnapshot());
             return new TagGroupResult(true, deviceTags);
         }
 
@@ -246,81 +339,217 @@ public class TagGroupManager {
             return new TagGroupResult(false, null);
         }
 
-        long cacheStaleReadTime = getCacheStaleReadTimeMilliseconds();
-        long cacheMaxAgeTime = getCacheMaxAgeTimeMilliseconds();
+        return null;
+    }
 
-        TagGroupResponse cachedResponse = null;
-        if (TagGroupUtils.containsAll(getCachedRequestTags(), tags)) {
-            cachedResponse = getCachedResponse();
+    /**
+     * Gets the result from the cache if the cache contains the requested tags and is newer than
+     * the max cache age. Starts a background refresh if the cache is close to the max cache age.
+     *
+     * @param tags The requested tags.
+     * @return The tag result, or {@code null} if the cache needs to be refreshed.
+     */
+    @Nullable
+    private TagGroupResult getFreshCachedResult(@NonNull Map<String, Set<String>> tags) {
+        CachedResponse cache = getCache();
+        if (cache == null || !TagGroupUtils.containsAll(cache.requestedTags, tags)) {
+            return null;
         }
 
-        long cacheCreateDate = getCacheCreateDate();
-
-        if (cachedResponse != null && cacheMaxAgeTime > clock.currentTimeMillis() - cacheCreateDate) {
-            return new TagGroupResult(true, generateTags(tags, cachedResponse, cacheCreateDate));
+        long cacheMaxAgeTime = getCacheMaxAgeTimeMilliseconds();
+        long age = clock.currentTimeMillis() - cache.createDate;
+        if (age >= cacheMaxAgeTime) {
+            return null;
         }
 
-        // Refresh the cache
-        try {
-            refreshCache(tags, cachedResponse);
-            cachedResponse = getCachedResponse();
-            cacheCreateDate = getCacheCreateDate();
-        } catch (Exception e) {
-            Logger.error(e, "Failed to refresh tags.");
+        if (age >= cacheMaxAgeTime * REFRESH_AHEAD_PERCENT / 100) {
+            refreshAhead(cache.requestedTags);
         }
 
-        if (cachedResponse == null) {
+        return new TagGroupResult(true, generateTags(tags, cache.response, cache.createDate));
+    }
+
+    /**
+     * Gets the result from the cache if the cache contains the requested tags and is newer than
+     * the stale read time.
+     *
+     * @param tags The requested tags.
+     * @return The tag result.
+     */
+    @NonNull
+    private TagGroupResult getCachedResult(@NonNull Map<String, Set<String>> tags) {
+        CachedResponse cache = getCache();
+        if (cache == null || !TagGroupUtils.containsAll(cache.requestedTags, tags)) {
             return new TagGroupResult(false, null);
         }
 
-        if (cacheStaleReadTime <= 0 || cacheStaleReadTime > clock.currentTimeMillis() - cacheCreateDate) {
-            return new TagGroupResult(true, generateTags(tags, cachedResponse, cacheCreateDate));
+        long cacheStaleReadTime = getCacheStaleReadTimeMilliseconds();
+        if (cacheStaleReadTime <= 0 || cacheStaleReadTime > clock.currentTimeMillis() - cache.createDate) {
+            return new TagGroupResult(true, generateTags(tags, cache.response, cache.createDate));
         }
 
         return new TagGroupResult(false, null);
     }
 
     /**
-     * Sets the cached response.
+     * Waits for a lookup that covers the requested tags, performing it if no other thread is.
+     * <p>
+     * A refresh ahead that has not started on the executor yet is run by the first lookup that
+     * needs it, so lookups never wait on a task that is still queued behind them.
      *
-     * @param response The response to cache.
+     * @param tags The requested tags.
      */
-    private void setCachedResponse(@NonNull TagGroupResponse response, @NonNull Map<String, Set<String>> requestedTags) {
-        dataStore.put(CACHE_RESPONSE_KEY, response);
-        dataStore.put(CACHE_CREATE_DATE_KEY, clock.currentTimeMillis());
-        dataStore.put(CACHE_REQUESTED_TAGS_KEY, JsonValue.wrapOpt(requestedTags));
+    @WorkerThread
+    private void awaitRefresh(@NonNull Map<String, Set<String>> tags) {
+        Refresh lead = null;
+        Refresh join = null;
+        Refresh previous = null;
+        boolean runPrevious = false;
+
+        synchronized (refreshLock) {
+            if (inFlightRefresh == null) {
+                inFlightRefresh = new Refresh(tags);
+                inFlightRefresh.isStarted = true;
+                lead = inFlightRefresh;
+            } else if (TagGroupUtils.containsAll(inFlightRefresh.tags, tags)) {
+                if (inFlightRefresh.isStarted) {
+                    join = inFlightRefresh;
+                } else {
+                    inFlightRefresh.isStarted = true;
+                    lead = inFlightRefresh;
+                }
+            } else if (queuedRefresh != null) {
+                queuedRefresh.tags = TagGroupUtils.union(queuedRefresh.tags, tags);
+                join = queuedRefresh;
+            } else {
+                queuedRefresh = new Refresh(tags);
+                queuedRefresh.isStarted = true;
+                lead = queuedRefresh;
+                previous = inFlightRefresh;
+                if (!previous.isStarted) {
+                    previous.isStarted = true;
+                    runPrevious = true;
+                }
+            }
+        }
+
+        if (join != null) {
+            join.await();
+            return;
+        }
+
+        // The queued refresh is promoted to in-flight once the previous refresh finishes
+        if (runPrevious) {
+            runRefresh(previous);
+        } else if (previous != null) {
+            previous.await();
+        }
+
+        runRefresh(lead);
     }
 
     /**
-     * Gets the cached response.
+     * Refreshes the cache in the background before it reaches the max cache age.
      *
-     * @return The cached response, or null if not available.
+     * @param tags The cached request tags.
      */
-    @Nullable
-    private TagGroupResponse getCachedResponse() {
-        JsonValue value = dataStore.getJsonValue(CACHE_RESPONSE_KEY);
-        if (value.isNull()) {
-            return null;
+    private void refreshAhead(@NonNull Map<String, Set<String>> tags) {
+        final Refresh refresh;
+        synchronized (refreshLock) {
+            if (inFlightRefresh != null || queuedRefresh != null) {
+                return;
+            }
+
+            // Throttle retries if a previous refresh ahead failed
+            long now = clock.currentTimeMillis();
+            if (lastRefreshAheadTime >= 0 && now - lastRefreshAheadTime < REFRESH_AHEAD_RETRY_INTERVAL_MS) {
+                return;
+            }
+
+            lastRefreshAheadTime = now;
+            refresh = new Refresh(tags);
+            inFlightRefresh = refresh;
+        }
+
+        Logger.verbose("TagGroupManager - Refreshing tag groups ahead of the max cache age.");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (refreshLock) {
+                    // Already run by a lookup that needed it
+                    if (refresh.isStarted) {
+                        return;
+                    }
+                    refresh.isStarted = true;
+                }
+
+                runRefresh(refresh);
+            }
+        });
+    }
+
+    /**
+     * Performs a refresh and releases its waiters.
+     *
+     * @param refresh The refresh.
+     */
+    @WorkerThread
+    private void runRefresh(@NonNull Refresh refresh) {
+        Map<String, Set<String>> tags;
+        synchronized (refreshLock) {
+            tags = refresh.tags;
+        }
+
+        try {
+            refreshCache(tags);
+        } catch (Exception e) {
+            Logger.error(e, "Failed to refresh tags.");
+        } finally {
+            synchronized (refreshLock) {
+                inFlightRefresh = queuedRefresh;
+                queuedRefresh = null;
+            }
+            refresh.latch.countDown();
         }
-        return TagGroupResponse.fromJsonValue(value);
     }
 
     /**
-     * Gets the cache creation date.
+     * Sets the cached response.
      *
-     * @return The cache creation date if available, otherwise {@code -1} will be returned.
+     * @param response The response to cache.
      */
-    private long getCacheCreateDate() {
-        return dataStore.getLong(CACHE_CREATE_DATE_KEY, -1);
+    private void setCachedResponse(@NonNull TagGroupResponse response, @NonNull Map<String, Set<String>> requestedTags) {
+        long createDate = clock.currentTimeMillis();
+        synchronized (cacheLock) {
+            cache = new CachedResponse(response, requestedTags, createDate);
+        }
+
+        dataStore.put(CACHE_RESPONSE_KEY, response);
+        dataStore.put(CACHE_CREATE_DATE_KEY, createDate);
+        dataStore.put(CACHE_REQUESTED_TAGS_KEY, JsonValue.wrapOpt(requestedTags));
     }
 
     /**
-     * Gets the cache creation date.
+     * Gets the cached response, loading it from the data store the first time.
      *
-     * @return The cache creation date if available, otherwise {@code -1} will be returned.
+     * @return The cached response, or null if not available.
      */
-    private Map<String, Set<String>> getCachedRequestTags() {
-        return TagGroupUtils.parseTags(dataStore.getJsonValue(CACHE_REQUESTED_TAGS_KEY));
+    @Nullable
+    private CachedResponse getCache() {
+        synchronized (cacheLock) {
+            if (!isCacheLoaded) {
+                isCacheLoaded = true;
+
+                JsonValue value = dataStore.getJsonValue(CACHE_RESPONSE_KEY);
+                if (!value.isNull()) {
+                    cache = new CachedResponse(TagGroupResponse.fromJsonValue(value),
+                            TagGroupUtils.parseTags(dataStore.getJsonValue(CACHE_REQUESTED_TAGS_KEY)),
+                            dataStore.getLong(CACHE_CREATE_DATE_KEY, -1));
+                }
+            }
+
+            return cache;
+        }
     }
 
     /**
@@ -332,20 +561,24 @@ public class TagGroupManager {
     }
 
     /**
-     * Helper method to generate the tags from the response. Local cache data will be applied.
+     * Helper method to generate the tags from the response. Local cache data will be applied
+     * to a copy of the response tags so the cached response is never modified.
      *
      * @param response The response.
      * @return The tag groups.
      */
     @NonNull
     private Map<String, Set<String>> generateTags(Map<String, Set<String>> requestedTags, TagGroupResponse response, long cacheTime) {
-        Map<String, Set<String>> currentTags = new HashMap<>(response.tags);
+        Map<String, Set<String>> currentTags = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : response.tags.entrySet()) {
+            currentTags.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
 
         this.historian.applyLocalData(currentTags, cacheTime - getPreferLocalTagDataTime());
 
         // Override the device tags if needed
         if (requestedTags.containsKey("device") && airshipChannel.getChannelTagRegistrationEnabled()) {
-            currentTags.put("device", airshipChannel.getTags());
+            currentTags.put("device", airshipChannel.getTagSnapshot());
         }
 
         // Only return the requested tags if available
@@ -356,10 +589,11 @@ public class TagGroupManager {
      * Refreshes the cache.
      *
      * @param tags The requested tags.
-     * @param cachedResponse The cached response.
      */
-    private void refreshCache(Map<String, Set<String>> tags, @Nullable TagGroupResponse cachedResponse) throws Exception {
+    @WorkerThread
+    private void refreshCache(@NonNull Map<String, Set<String>> tags) throws Exception {
         Map<String, Set<String>> requestTags;
+        RequestTagsCallback requestTagsCallback = this.requestTagsCallback;
         if (requestTagsCallback != null) {
             requestTags = TagGroupUtils.union(tags, requestTagsCallback.getTags());
         } else {
@@ -367,8 +601,10 @@ public class TagGroupManager {
         }
 
         // Only use the cached response if it the requested tags are the same
-        if (cachedResponse != null && !requestTags.equals(getCachedRequestTags())) {
-            cachedResponse = null;
+        CachedResponse cache = getCache();
+        TagGroupResponse cachedResponse = null;
+        if (cache != null && requestTags.equals(cache.requestedTags)) {
+            cachedResponse = cache.response;
         }
 
         TagGroupResponse response = client.lookupTagGroups(airshipChannel.getId(), UAirship.shared().getPlatformType(), requestTags, cachedResponse);
@@ -387,4 +623,45 @@ public class TagGroupManager {
         setCachedResponse(response, requestTags);
     }
 
+    /**
+     * The cached lookup response.
+     */
+    private static class CachedResponse {
+
+        final TagGroupResponse response;
+        final Map<String, Set<String>> requestedTags;
+        final long createDate;
+
+        CachedResponse(@NonNull TagGroupResponse response, @NonNull Map<String, Set<String>> requestedTags, long createDate) {
+            this.response = response;
+            this.requestedTags = requestedTags;
+            this.createDate = createDate;
+        }
+
+    }
+
+    /**
+     * A lookup request shared by every lookup it covers.
+     */
+    private static class Refresh {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Map<String, Set<String>> tags;
+        boolean isStarted;
+
+        Refresh(@NonNull Map<String, Set<String>> tags) {
+            this.tags = tags;
+        }
+
+        void await() {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Logger.error(e, "TagGroupManager - Interrupted while waiting for tag groups.");
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
 }
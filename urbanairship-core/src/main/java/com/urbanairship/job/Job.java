@@ -20,7 +20,7 @@ import java.util.concurrent.Executor;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class Job implements Runnable {
 
-    static final Executor EXECUTOR = AirshipExecutors.newSerialExecutor();
+    static final Executor EXECUTOR = AirshipExecutors.newSerialExecutor("jobs");
 
     private static final long AIRSHIP_WAIT_TIME_MS = 5000; // 5 seconds.
 
@@ -0,0 +1,29 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.json;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * A JSON object that can look up a top-level field without building the entire JSON value.
+ * <p>
+ * {@link JsonMatcher} uses the lookup to resolve the first segment of its key path, so a
+ * matcher that only reads a single field never serializes the whole object.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public interface JsonFieldLookup extends JsonSerializable {
+
+    /**
+     * Gets a top-level field. The result must be equal to
+     * {@code toJsonValue().optMap().opt(key)}.
+     *
+     * @param key The field key.
+     * @return The field value, or {@link JsonValue#NULL} if the field is not set.
+     */
+    @NonNull
+    JsonValue optField(@NonNull String key);
+
+}
@@ -5,11 +5,6 @@ package com.urbanairship.json;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.urbanairship.Logger;
-
-import org.json.JSONException;
-import org.json.JSONStringer;
-
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -36,6 +31,17 @@ public class JsonList implements Iterable<JsonValue>, JsonSerializable {
         this.list = list == null ? new ArrayList<JsonValue>() : new ArrayList<>(list);
     }
 
+    /**
+     * Creates a JsonList that optionally takes ownership of the list without copying it. The
+     * list must not be modified afterwards.
+     *
+     * @param list A list of JsonValues.
+     * @param copy {@code true} to copy the list, {@code false} to use it directly.
+     */
+    JsonList(@NonNull List<JsonValue> list, boolean copy) {
+        this.list = copy ? new ArrayList<>(list) : list;
+    }
+
     /**
      * Tests whether this {@code List} contains the specified JSON value.
      *
@@ -150,29 +156,7 @@ public class JsonList implements Iterable<JsonValue>, JsonSerializable {
     @NonNull
     @Override
     public String toString() {
-        try {
-            JSONStringer stringer = new JSONStringer();
-            write(stringer);
-            return stringer.toString();
-        } catch (JSONException e) {
-            // Should never happen
-            Logger.error(e, "JsonList - Failed to create JSON String.");
-            return "";
-        }
-    }
-
-    /**
-     * Helper method that is used to write the list as a JSON String.
-     *
-     * @param stringer The JSONStringer object.
-     * @throws org.json.JSONException If the value is unable to be written as JSON.
-     */
-    void write(@NonNull JSONStringer stringer) throws JSONException {
-        stringer.array();
-        for (JsonValue actionValue : this) {
-            actionValue.write(stringer);
-        }
-        stringer.endArray();
+        return toJsonValue().toString();
     }
 
     @NonNull
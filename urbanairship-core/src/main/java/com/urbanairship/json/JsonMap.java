@@ -5,11 +5,6 @@ package com.urbanairship.json;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.urbanairship.Logger;
-
-import org.json.JSONException;
-import org.json.JSONStringer;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -36,6 +31,17 @@ public class JsonMap implements Iterable<Map.Entry<String, JsonValue>>, JsonSeri
         this.map = map == null ? new HashMap<String, JsonValue>() : new HashMap<>(map);
     }
 
+    /**
+     * Creates a JsonMap that optionally takes ownership of the map without copying it. The map must
+     * not be modified afterwards.
+     *
+     * @param map A map of strings to JsonValues.
+     * @param copy {@code true} to copy the map, {@code false} to use it directly.
+     */
+    JsonMap(@NonNull Map<String, JsonValue> map, boolean copy) {
+        this.map = copy ? new HashMap<>(map) : map;
+    }
+
     /**
      * Factory method to create a new JSON map builder.
      *
@@ -190,30 +196,7 @@ public class JsonMap implements Iterable<Map.Entry<String, JsonValue>>, JsonSeri
     @NonNull
     @Override
     public String toString() {
-        try {
-            JSONStringer stringer = new JSONStringer();
-            write(stringer);
-            return stringer.toString();
-        } catch (JSONException e) {
-            // Should never happen
-            Logger.error(e, "JsonMap - Failed to create JSON String.");
-            return "";
-        }
-    }
-
-    /**
-     * Helper method that is used to write the value as a JSON String.
-     *
-     * @param stringer The JSONStringer object.
-     * @throws org.json.JSONException If the value is unable to be written as JSON.
-     */
-    void write(@NonNull JSONStringer stringer) throws JSONException {
-        stringer.object();
-        for (Map.Entry<String, JsonValue> entry : entrySet()) {
-            stringer.key(entry.getKey());
-            entry.getValue().write(stringer);
-        }
-        stringer.endObject();
+        return toJsonValue().toString();
     }
 
     @NonNull
@@ -33,11 +33,25 @@ public class JsonMatcher implements JsonSerializable, Predicate<JsonSerializable
     @Nullable
     private final Boolean ignoreCase;
 
+    // Scope followed by the key
+    @NonNull
+    private final String[] path;
+
+    private final boolean isIgnoreCase;
+
     private JsonMatcher(@NonNull Builder builder) {
         this.key = builder.key;
         this.scopeList = builder.scope;
         this.value = builder.valueMatcher == null ? ValueMatcher.newIsPresentMatcher() : builder.valueMatcher;
         this.ignoreCase = builder.ignoreCase;
+        this.isIgnoreCase = ignoreCase != null && ignoreCase;
+
+        List<String> path = new ArrayList<>(scopeList);
+        if (key != null) {
+            path.add(key);
+        }
+
+        this.path = path.toArray(new String[0]);
     }
 
     @NonNull
@@ -54,19 +68,32 @@ public class JsonMatcher implements JsonSerializable, Predicate<JsonSerializable
 
     @Override
     public boolean apply(@Nullable JsonSerializable jsonSerializable) {
-        JsonValue jsonValue = jsonSerializable == null ? JsonValue.NULL : jsonSerializable.toJsonValue();
-        for (String scope : scopeList) {
-            jsonValue = jsonValue.optMap().opt(scope);
-            if (jsonValue.isNull()) {
-                break;
-            }
+        JsonValue jsonValue;
+        int index = 0;
+
+        if (jsonSerializable == null) {
+            jsonValue = JsonValue.NULL;
+        } else if (path.length > 0 && jsonSerializable instanceof JsonFieldLookup) {
+            jsonValue = ((JsonFieldLookup) jsonSerializable).optField(path[0]);
+            index = 1;
+        } else {
+            jsonValue = jsonSerializable.toJsonValue();
         }
 
-        if (key != null) {
-            jsonValue = jsonValue.optMap().opt(key);
+        for (; index < path.length && !jsonValue.isNull(); index++) {
+            jsonValue = jsonValue.optMap().opt(path[index]);
         }
 
-        return value.apply(jsonValue, (ignoreCase != null) && ignoreCase);
+        return value.apply(jsonValue, isIgnoreCase);
+    }
+
+    /**
+     * Gets the relative cost of evaluating the matcher, used to order predicate evaluation.
+     *
+     * @return The evaluation cost.
+     */
+    int getEvaluationCost() {
+        return 1 + path.length;
     }
 
     /**
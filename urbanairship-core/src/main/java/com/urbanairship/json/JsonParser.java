@@ -0,0 +1,471 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.json;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single pass JSON parser that builds {@link JsonValue} instances directly from a {@link Reader}.
+ * <p>
+ * The parser accepts the same input as {@code org.json.JSONTokener} and produces the same values
+ * as wrapping the resulting {@code JSONObject}/{@code JSONArray} trees, without allocating the
+ * intermediate org.json representation:
+ * <ul>
+ * <li>Integral numbers are parsed as Integers if they fit, otherwise Longs. Other numbers are
+ * parsed as Doubles.</li>
+ * <li>Null values in objects and arrays are dropped.</li>
+ * <li>Lenient input such as comments, unquoted strings, single quoted strings, {@code =} or
+ * {@code =>} name separators and {@code ;} value separators are accepted.</li>
+ * </ul>
+ */
+class JsonParser {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder builder = new StringBuilder();
+
+    private int position;
+    private int limit;
+    private long offset;
+
+    /**
+     * Default constructor.
+     *
+     * @param reader The reader.
+     */
+    JsonParser(@NonNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Parses the next value.
+     *
+     * @return The parsed value.
+     * @throws JsonException If the input is not valid JSON or unable to be read.
+     */
+    @NonNull
+    JsonValue parse() throws JsonException {
+        try {
+            return JsonValue.wrapParsed(nextValue());
+        } catch (IOException e) {
+            throw new JsonException("Unable to read JSON", e);
+        }
+    }
+
+    /**
+     * Reads the next value.
+     *
+     * @return The raw value, or {@code null} for a JSON null.
+     */
+    @Nullable
+    private Object nextValue() throws IOException, JsonException {
+        int c = nextClean();
+        switch (c) {
+            case EOF:
+                throw syntaxError("End of input");
+
+            case '{':
+                return readObject();
+
+            case '[':
+                return readArray();
+
+            case '\'':
+            case '"':
+                return readString((char) c);
+
+            default:
+                position--;
+                return readLiteral();
+        }
+    }
+
+    /**
+     * Reads an object. The opening brace has already been consumed.
+     */
+    @NonNull
+    private JsonMap readObject() throws IOException, JsonException {
+        Map<String, JsonValue> map = new HashMap<>();
+
+        int first = nextClean();
+        if (first == '}') {
+            return new JsonMap(map, false);
+        } else if (first != EOF) {
+            position--;
+        }
+
+        while (true) {
+            Object name = nextValue();
+            if (!(name instanceof String)) {
+                if (name == null) {
+                    throw syntaxError("Names cannot be null");
+                }
+                throw syntaxError("Names must be strings, but " + name + " is of type " + name.getClass().getName());
+            }
+
+            int separator = nextClean();
+            if (separator != ':' && separator != '=') {
+                throw syntaxError("Expected ':' after " + name);
+            }
+
+            if (separator == '=' && peek() == '>') {
+                position++;
+            }
+
+            Object value = nextValue();
+            if (value == null) {
+                map.remove(name);
+            } else {
+                map.put((String) name, JsonValue.wrapParsed(value));
+            }
+
+            switch (nextClean()) {
+                case '}':
+                    return new JsonMap(map, false);
+                case ';':
+                case ',':
+                    continue;
+                default:
+                    throw syntaxError("Unterminated object");
+            }
+        }
+    }
+
+    /**
+     * Reads an array. The opening bracket has already been consumed.
+     */
+    @NonNull
+    private JsonList readArray() throws IOException, JsonException {
+        List<JsonValue> list = new ArrayList<>();
+
+        while (true) {
+            switch (nextClean()) {
+                case EOF:
+                    throw syntaxError("Unterminated array");
+                case ']':
+                    return new JsonList(list, false);
+                case ',':
+                case ';':
+                    // Empty element, treated as null and dropped
+                    continue;
+                default:
+                    position--;
+            }
+
+            Object value = nextValue();
+            if (value != null) {
+                list.add(JsonValue.wrapParsed(value));
+            }
+
+            switch (nextClean()) {
+                case ']':
+                    return new JsonList(list, false);
+                case ',':
+                case ';':
+                    continue;
+                default:
+                    throw syntaxError("Unterminated array");
+            }
+        }
+    }
+
+    /**
+     * Reads a quoted string. The opening quote has already been consumed.
+     */
+    @NonNull
+    private String readString(char quote) throws IOException, JsonException {
+        builder.setLength(0);
+
+        while (true) {
+            if (position == limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+
+            // Copy runs of plain characters in bulk
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == quote || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            builder.append(buffer, start, position - start);
+
+            if (position == limit) {
+                continue;
+            }
+
+            char c = buffer[position++];
+            if (c == quote) {
+                return builder.toString();
+            }
+
+            builder.append(readEscapeCharacter());
+        }
+    }
+
+    /**
+     * Reads an escaped character. The backslash has already been consumed.
+     */
+    private char readEscapeCharacter() throws IOException, JsonException {
+        int escaped = read();
+        switch (escaped) {
+            case EOF:
+                throw syntaxError("Unterminated escape sequence");
+
+            case 'u':
+                int result = 0;
+                for (int i = 0; i < 4; i++) {
+                    int c = read();
+                    int digit = c == EOF ? -1 : Character.digit((char) c, 16);
+                    if (digit == -1) {
+                        throw syntaxError("Invalid escape sequence");
+                    }
+                    result = (result << 4) + digit;
+                }
+                return (char) result;
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '\'':
+            case '"':
+            case '\\':
+            default:
+                return (char) escaped;
+        }
+    }
+
+    /**
+     * Reads a null, boolean, numeric or unquoted string literal.
+     */
+    @Nullable
+    private Object readLiteral() throws IOException, JsonException {
+        builder.setLength(0);
+
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+
+            int start = position;
+            while (position < limit && !isLiteralTerminator(buffer[position])) {
+                position++;
+            }
+            builder.append(buffer, start, position - start);
+
+            if (position < limit) {
+                break;
+            }
+        }
+
+        String literal = builder.toString();
+        if (literal.length() == 0) {
+            throw syntaxError("Expected literal value");
+        }
+
+        if ("null".equalsIgnoreCase(literal)) {
+            return null;
+        } else if ("true".equalsIgnoreCase(literal)) {
+            return Boolean.TRUE;
+        } else if ("false".equalsIgnoreCase(literal)) {
+            return Boolean.FALSE;
+        }
+
+        // Try to parse as an integral type
+        if (literal.indexOf('.') == -1) {
+            int base = 10;
+            String number = literal;
+            if (number.startsWith("0x") || number.startsWith("0X")) {
+                number = number.substring(2);
+                base = 16;
+            } else if (number.startsWith("0") && number.length() > 1) {
+                number = number.substring(1);
+                base = 8;
+            }
+
+            try {
+                long longValue = Long.parseLong(number, base);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException ignored) {
+                // Fallback to a floating point
+            }
+        }
+
+        // Try to parse as a floating point
+        try {
+            Double d = Double.valueOf(literal);
+            if (d.isInfinite() || d.isNaN()) {
+                throw syntaxError("Invalid Double value: " + d);
+            }
+            return d;
+        } catch (NumberFormatException ignored) {
+            // Unquoted string
+        }
+
+        return literal;
+    }
+
+    private static boolean isLiteralTerminator(char c) {
+        switch (c) {
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case '/':
+            case '\\':
+            case ':':
+            case ',':
+            case '=':
+            case ';':
+            case '#':
+            case ' ':
+            case '\t':
+            case '\f':
+            case '\r':
+            case '\n':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the next character that is not whitespace or part of a comment.
+     */
+    private int nextClean() throws IOException, JsonException {
+        while (true) {
+            int c = read();
+            switch (c) {
+                case '\t':
+                case ' ':
+                case '\n':
+                case '\r':
+                    continue;
+
+                case '/':
+                    int peek = peek();
+                    if (peek == '*') {
+                        position++;
+                        skipBlockComment();
+                        continue;
+                    } else if (peek == '/') {
+                        position++;
+                        skipToEndOfLine();
+                        continue;
+                    }
+                    return c;
+
+                case '#':
+                    skipToEndOfLine();
+                    continue;
+
+                default:
+                    return c;
+            }
+        }
+    }
+
+    private void skipBlockComment() throws IOException, JsonException {
+        int previous = 0;
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                throw syntaxError("Unterminated comment");
+            }
+
+            if (previous == '*' && c == '/') {
+                return;
+            }
+            previous = c;
+        }
+    }
+
+    private void skipToEndOfLine() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF || c == '\r' || c == '\n') {
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Refills the buffer. Only reads once the buffer has been fully consumed. The last consumed
+     * character is kept at the start of the buffer so it can still be pushed back.
+     *
+     * @return {@code true} if more characters are available, otherwise {@code false}.
+     */
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+
+        int keep = limit > 0 ? 1 : 0;
+        char last = keep > 0 ? buffer[limit - 1] : 0;
+
+        int count;
+        do {
+            count = reader.read(buffer, keep, buffer.length - keep);
+        } while (count == 0);
+
+        if (count == EOF) {
+            return false;
+        }
+
+        if (keep > 0) {
+            buffer[0] = last;
+        }
+        offset += limit - keep;
+        position = keep;
+        limit = keep + count;
+        return true;
+    }
+
+    @NonNull
+    private JsonException syntaxError(@NonNull String message) {
+        return new JsonException("Unable to parse string: " + message + " at character " + (offset + position));
+    }
+
+}
@@ -11,6 +11,8 @@ import com.urbanairship.Predicate;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -50,9 +52,35 @@ public class JsonPredicate implements JsonSerializable, Predicate<JsonSerializab
     private final List<Predicate<JsonSerializable>> items;
     private final String type;
 
+    // Items ordered cheapest first. AND and OR short-circuit, so the result is the same for any order.
+    private final Predicate<JsonSerializable>[] evaluationOrder;
+    private final int evaluationCost;
+    private final boolean isNot;
+    private final boolean isAnd;
+
     private JsonPredicate(Builder builder) {
         this.items = builder.items;
         this.type = builder.type;
+
+        List<Predicate<JsonSerializable>> sorted = new ArrayList<>(items);
+        Collections.sort(sorted, new Comparator<Predicate<JsonSerializable>>() {
+            @Override
+            public int compare(Predicate<JsonSerializable> lh, Predicate<JsonSerializable> rh) {
+                return getEvaluationCost(lh) - getEvaluationCost(rh);
+            }
+        });
+
+        //noinspection unchecked
+        this.evaluationOrder = sorted.toArray(new Predicate[0]);
+
+        int cost = 1;
+        for (Predicate<JsonSerializable> item : evaluationOrder) {
+            cost += getEvaluationCost(item);
+        }
+        this.evaluationCost = cost;
+
+        this.isNot = NOT_PREDICATE_TYPE.equals(type);
+        this.isAnd = AND_PREDICATE_TYPE.equals(type);
     }
 
     /**
@@ -139,34 +167,54 @@ public class JsonPredicate implements JsonSerializable, Predicate<JsonSerializab
 
     @Override
     public boolean apply(@Nullable JsonSerializable value) {
-        if (items.size() == 0) {
+        if (evaluationOrder.length == 0) {
             return true;
         }
 
-        switch (type) {
-            case NOT_PREDICATE_TYPE:
-                return !items.get(0).apply(value);
+        // Evaluate against a single materialized value unless the matchers can look up fields lazily
+        if (value != null && !(value instanceof JsonFieldLookup) && !(value instanceof JsonValue)) {
+            value = value.toJsonValue();
+        }
+
+        if (isNot) {
+            return !evaluationOrder[0].apply(value);
+        }
 
-            case AND_PREDICATE_TYPE:
-                for (Predicate<JsonSerializable> item : items) {
-                    if (!item.apply(value)) {
-                        return false;
-                    }
+        if (isAnd) {
+            for (Predicate<JsonSerializable> item : evaluationOrder) {
+                if (!item.apply(value)) {
+                    return false;
                 }
+            }
 
+            return true;
+        }
+
+        for (Predicate<JsonSerializable> item : evaluationOrder) {
+            if (item.apply(value)) {
                 return true;
+            }
+        }
 
-            case OR_PREDICATE_TYPE:
-            default:
-                for (Predicate<JsonSerializable> item : items) {
-                    if (item.apply(value)) {
-                        return true;
-                    }
-                }
+        return false;
+    }
+
+    /**
+     * Gets the relative cost of evaluating a predicate item.
+     *
+     * @param item The predicate item.
+     * @return The evaluation cost.
+     */
+    private static int getEvaluationCost(@NonNull Predicate<JsonSerializable> item) {
+        if (item instanceof JsonMatcher) {
+            return ((JsonMatcher) item).getEvaluationCost();
+        }
 
-                return false;
+        if (item instanceof JsonPredicate) {
+            return ((JsonPredicate) item).evaluationCost;
         }
 
+        return 1;
     }
 
     /**
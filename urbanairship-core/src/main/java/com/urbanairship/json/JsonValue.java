@@ -11,12 +11,20 @@ import com.urbanairship.Logger;
 import com.urbanairship.util.UAStringUtil;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
-import org.json.JSONTokener;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -29,8 +37,8 @@ import java.util.Map;
  * of the following: a JsonMap, a JsonList, a Number, a Boolean, String, or it can contain null.
  * <p>
  * JsonValues can be created from Java Objects by calling {@link #wrap(Object)} or from a JSON
- * String by calling{@link #parseString(String)}. The JsonValue {@link #toString()} returns the
- * JSON String representation of the object.
+ * String by calling {@link #parseString(String)}, or read from a stream with {@link #parse(Reader)}. The JsonValue {@link #toString()} returns the
+ * JSON String representation of the object and {@link #writeTo(Writer)} streams it.
  */
 public class JsonValue implements Parcelable, JsonSerializable {
 
@@ -40,6 +48,17 @@ public class JsonValue implements Parcelable, JsonSerializable {
     @NonNull
     public final static JsonValue NULL = new JsonValue(null);
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte PARCEL_TYPE_NULL = 0;
+    private static final byte PARCEL_TYPE_STRING = 1;
+    private static final byte PARCEL_TYPE_BOOLEAN = 2;
+    private static final byte PARCEL_TYPE_INTEGER = 3;
+    private static final byte PARCEL_TYPE_LONG = 4;
+    private static final byte PARCEL_TYPE_DOUBLE = 5;
+    private static final byte PARCEL_TYPE_MAP = 6;
+    private static final byte PARCEL_TYPE_LIST = 7;
+
     private final Object value;
 
     /**
@@ -387,13 +406,43 @@ public class JsonValue implements Parcelable, JsonSerializable {
             return JsonValue.NULL;
         }
 
-        JSONTokener tokener = new JSONTokener(jsonString);
+        return new JsonParser(new StringReader(jsonString)).parse();
+    }
 
-        try {
-            return JsonValue.wrap(tokener.nextValue());
-        } catch (JSONException e) {
-            throw new JsonException("Unable to parse string", e);
-        }
+    /**
+     * Parses JSON from a reader. The reader is not closed.
+     *
+     * @param reader The reader.
+     * @return A JsonValue from the JSON read from the reader.
+     * @throws JsonException If the JSON was unable to be parsed or read.
+     */
+    @NonNull
+    public static JsonValue parse(@NonNull Reader reader) throws JsonException {
+        return new JsonParser(reader).parse();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON from an input stream. The stream is not closed.
+     *
+     * @param inputStream The input stream.
+     * @return A JsonValue from the JSON read from the stream.
+     * @throws JsonException If the JSON was unable to be parsed or read.
+     */
+    @NonNull
+    public static JsonValue parse(@NonNull InputStream inputStream) throws JsonException {
+        return parse(new InputStreamReader(inputStream, UTF_8));
+    }
+
+    /**
+     * Wraps a value produced by the {@link JsonParser}. The value is expected to be null, a String,
+     * Boolean, Integer, Long, Double, JsonMap, or JsonList.
+     *
+     * @param value The parsed value.
+     * @return The JsonValue.
+     */
+    @NonNull
+    static JsonValue wrapParsed(@Nullable Object value) {
+        return value == null ? NULL : new JsonValue(value);
     }
 
     @Override
@@ -440,46 +489,49 @@ public class JsonValue implements Parcelable, JsonSerializable {
             return "null";
         }
 
-        try {
-            if (value instanceof String) {
-                return JSONObject.quote((String) value);
-            }
+        if (value instanceof Boolean) {
+            return String.valueOf(value);
+        }
 
+        StringWriter writer = new StringWriter();
+        try {
             if (value instanceof Number) {
-                return JSONObject.numberToString((Number) value);
-            }
-
-            if (value instanceof JsonMap || value instanceof JsonList) {
-                return value.toString();
+                return JsonWriter.numberToString((Number) value);
             }
 
-            return String.valueOf(value);
-        } catch (JSONException e) {
-            // Should never happen
+            writeTo(writer);
+        } catch (IOException e) {
+            // Only for numbers that are not finite, the string writer never fails
             Logger.error(e, "JsonValue - Failed to create JSON String.");
             return "";
         }
+
+        return writer.toString();
     }
 
     /**
-     * Helper method that is used to write the value as a JSON String.
+     * Writes the value as JSON to the writer. The writer is not flushed or closed.
      *
-     * @param stringer The JSONStringer object.
-     * @throws JSONException If the value is unable to be written as JSON.
+     * @param writer The writer.
+     * @throws IOException If the writer fails to write, or the value contains a number that is
+     * not finite.
      */
-    void write(@NonNull JSONStringer stringer) throws JSONException {
-        if (isNull()) {
-            stringer.value(null);
-            return;
-        }
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        new JsonWriter(writer).write(this);
+    }
 
-        if (value instanceof JsonList) {
-            ((JsonList) value).write(stringer);
-        } else if (value instanceof JsonMap) {
-            ((JsonMap) value).write(stringer);
-        } else {
-            stringer.value(value);
-        }
+    /**
+     * Writes the value as UTF-8 encoded JSON to the output stream. The stream is flushed but
+     * not closed.
+     *
+     * @param outputStream The output stream.
+     * @throws IOException If the stream fails to write, or the value contains a number that is
+     * not finite.
+     */
+    public void writeTo(@NonNull OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+        writeTo(writer);
+        writer.flush();
     }
 
     /**
@@ -796,9 +848,120 @@ public class JsonValue implements Parcelable, JsonSerializable {
         return 0;
     }
 
+    /**
+     * Writes the value to the parcel using a typed binary encoding. The encoding starts with a
+     * {@code null} string, which the legacy JSON string encoding never writes, so parcels that
+     * contain the legacy encoding can still be read by the {@link #CREATOR}.
+     *
+     * @param dest The parcel.
+     * @param flags The parcel flags.
+     */
     @Override
     public void writeToParcel(@NonNull Parcel dest, int flags) {
-        dest.writeString(this.toString());
+        dest.writeString(null);
+        writeParcelValue(dest, value);
+    }
+
+    /**
+     * Helper method to write a raw value to a parcel.
+     *
+     * @param dest The parcel.
+     * @param value The raw value.
+     */
+    private static void writeParcelValue(@NonNull Parcel dest, @Nullable Object value) {
+        if (value == null) {
+            dest.writeByte(PARCEL_TYPE_NULL);
+        } else if (value instanceof String) {
+            dest.writeByte(PARCEL_TYPE_STRING);
+            dest.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            dest.writeByte(PARCEL_TYPE_BOOLEAN);
+            dest.writeByte((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Integer) {
+            dest.writeByte(PARCEL_TYPE_INTEGER);
+            dest.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            dest.writeByte(PARCEL_TYPE_LONG);
+            dest.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            dest.writeByte(PARCEL_TYPE_DOUBLE);
+            dest.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof JsonMap) {
+            JsonMap map = (JsonMap) value;
+            dest.writeByte(PARCEL_TYPE_MAP);
+            dest.writeInt(map.size());
+            for (Map.Entry<String, JsonValue> entry : map) {
+                dest.writeString(entry.getKey());
+                writeParcelValue(dest, entry.getValue().value);
+            }
+        } else if (value instanceof JsonList) {
+            JsonList list = (JsonList) value;
+            dest.writeByte(PARCEL_TYPE_LIST);
+            dest.writeInt(list.size());
+            for (JsonValue item : list) {
+                writeParcelValue(dest, item.value);
+            }
+        } else {
+            // Should never happen
+            dest.writeByte(PARCEL_TYPE_NULL);
+        }
+    }
+
+    /**
+     * Helper method to read a value written with {@link #writeParcelValue(Parcel, Object)}.
+     *
+     * @param in The parcel.
+     * @return The JsonValue.
+     * @throws JsonException If the parcel contains an unknown type.
+     */
+    @NonNull
+    private static JsonValue readParcelValue(@NonNull Parcel in) throws JsonException {
+        byte type = in.readByte();
+        switch (type) {
+            case PARCEL_TYPE_NULL:
+                return NULL;
+
+            case PARCEL_TYPE_STRING:
+                return wrapParsed(in.readString());
+
+            case PARCEL_TYPE_BOOLEAN:
+                return new JsonValue(in.readByte() != 0);
+
+            case PARCEL_TYPE_INTEGER:
+                return new JsonValue(in.readInt());
+
+            case PARCEL_TYPE_LONG:
+                return new JsonValue(in.readLong());
+
+            case PARCEL_TYPE_DOUBLE:
+                return new JsonValue(in.readDouble());
+
+            case PARCEL_TYPE_MAP:
+                int mapSize = in.readInt();
+                Map<String, JsonValue> map = new HashMap<>();
+                for (int i = 0; i < mapSize; i++) {
+                    String key = in.readString();
+                    JsonValue mapValue = readParcelValue(in);
+                    if (key != null && !mapValue.isNull()) {
+                        map.put(key, mapValue);
+                    }
+                }
+                return new JsonValue(new JsonMap(map, false));
+
+            case PARCEL_TYPE_LIST:
+                int listSize = in.readInt();
+                List<JsonValue> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    JsonValue listValue = readParcelValue(in);
+                    if (!listValue.isNull()) {
+                        list.add(listValue);
+                    }
+                }
+                return new JsonValue(new JsonList(list, false));
+
+            default:
+                throw new JsonException("Invalid parcel value type: " + type);
+        }
     }
 
     /**
@@ -813,7 +976,13 @@ public class JsonValue implements Parcelable, JsonSerializable {
         @Override
         public JsonValue createFromParcel(@NonNull Parcel in) {
             try {
-                return JsonValue.parseString(in.readString());
+                String json = in.readString();
+                if (json == null) {
+                    return readParcelValue(in);
+                }
+
+                // Legacy JSON string encoding
+                return JsonValue.parseString(json);
             } catch (JsonException e) {
                 Logger.error(e, "JsonValue - Unable to create JsonValue from parcel.");
                 return JsonValue.NULL;
@@ -0,0 +1,178 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.json;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes {@link JsonValue} instances as JSON directly to a {@link Writer}.
+ * <p>
+ * The output matches {@code org.json.JSONStringer} so values written with the writer are
+ * identical to {@link JsonValue#toString()}.
+ */
+class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Double NEGATIVE_ZERO = -0d;
+
+    private final Writer writer;
+
+    /**
+     * Default constructor.
+     *
+     * @param writer The writer.
+     */
+    JsonWriter(@NonNull Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the value.
+     *
+     * @param jsonValue The value.
+     * @throws IOException If the writer fails to write.
+     */
+    void write(@NonNull JsonValue jsonValue) throws IOException {
+        Object value = jsonValue.getValue();
+
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Number) {
+            writer.write(numberToString((Number) value));
+        } else if (value instanceof JsonMap) {
+            writeMap((JsonMap) value);
+        } else if (value instanceof JsonList) {
+            writeList((JsonList) value);
+        } else {
+            writer.write(String.valueOf(value));
+        }
+    }
+
+    private void writeMap(@NonNull JsonMap map) throws IOException {
+        writer.write('{');
+
+        boolean first = true;
+        for (Map.Entry<String, JsonValue> entry : map) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writeString(entry.getKey());
+            writer.write(':');
+            write(entry.getValue());
+        }
+
+        writer.write('}');
+    }
+
+    private void writeList(@NonNull JsonList list) throws IOException {
+        writer.write('[');
+
+        boolean first = true;
+        for (JsonValue value : list) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            write(value);
+        }
+
+        writer.write(']');
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     *
+     * @param value The string.
+     * @throws IOException If the writer fails to write.
+     */
+    private void writeString(@NonNull String value) throws IOException {
+        writer.write('"');
+
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+
+            switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '/':
+                    replacement = "\\/";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                default:
+                    if (c > 0x1F) {
+                        continue;
+                    }
+                    replacement = "\\u00" + HEX[c >> 4] + HEX[c & 0xF];
+            }
+
+            if (start < i) {
+                writer.write(value, start, i - start);
+            }
+            writer.write(replacement);
+            start = i + 1;
+        }
+
+        if (start < length) {
+            writer.write(value, start, length - start);
+        }
+
+        writer.write('"');
+    }
+
+    /**
+     * Encodes the number the same way as {@code JSONObject.numberToString}.
+     *
+     * @param number The number.
+     * @return The encoded number.
+     * @throws IOException If the number is not finite, since it can't be represented in JSON.
+     */
+    @NonNull
+    static String numberToString(@NonNull Number number) throws IOException {
+        double doubleValue = number.doubleValue();
+        if (Double.isInfinite(doubleValue) || Double.isNaN(doubleValue)) {
+            throw new IOException("Forbidden numeric value: " + number);
+        }
+
+        if (NEGATIVE_ZERO.equals(number)) {
+            return "-0";
+        }
+
+        long longValue = number.longValue();
+        if (doubleValue == (double) longValue) {
+            return Long.toString(longValue);
+        }
+
+        return number.toString();
+    }
+
+}
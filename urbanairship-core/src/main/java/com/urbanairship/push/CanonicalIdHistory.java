@@ -0,0 +1,245 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.push;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+
+import com.urbanairship.Logger;
+import com.urbanairship.PreferenceDataStore;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonValue;
+import com.urbanairship.util.Clock;
+import com.urbanairship.util.UAStringUtil;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed size history of canonical push IDs used to dedupe redelivered pushes.
+ * <p>
+ * IDs are stored as 64-bit hashes in a ring buffer along with the time they were received,
+ * and indexed by hash so checks do not depend on the size of the history. The ring is persisted
+ * in pages so recording an ID only rewrites the page that holds its slot.
+ */
+class CanonicalIdHistory {
+
+    /**
+     * Key prefix for the persisted ring pages.
+     */
+    private static final String PAGE_KEY_PREFIX = PushManager.KEY_PREFIX + ".CANONICAL_ID_HISTORY_PAGE_";
+
+    /**
+     * Key for the persisted ring head.
+     */
+    private static final String HEAD_KEY = PushManager.KEY_PREFIX + ".CANONICAL_ID_HISTORY_HEAD";
+
+    /**
+     * Key of the legacy JSON list of canonical IDs.
+     */
+    private static final String LEGACY_IDS_KEY = PushManager.KEY_PREFIX + ".LAST_CANONICAL_IDS";
+
+    /**
+     * Entries per persisted page.
+     */
+    static final int PAGE_SIZE = 64;
+
+    // Hash and timestamp
+    private static final int ENTRY_BYTES = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final PreferenceDataStore dataStore;
+    private final Clock clock;
+    private final int capacity;
+    private final long windowMs;
+
+    private final long[] hashes;
+    private final long[] times;
+    private final Map<Long, Integer> slotsByHash = new HashMap<>();
+    private int head;
+    private boolean isLoaded;
+
+    /**
+     * Default constructor.
+     *
+     * @param dataStore The preference data store.
+     * @param clock The clock.
+     * @param capacity The max number of IDs. Rounded up to a multiple of the page size.
+     * @param windowMs How long an ID is considered a duplicate in milliseconds.
+     */
+    CanonicalIdHistory(@NonNull PreferenceDataStore dataStore, @NonNull Clock clock, int capacity, long windowMs) {
+        this.dataStore = dataStore;
+        this.clock = clock;
+        this.capacity = Math.max(1, (capacity + PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+        this.windowMs = windowMs;
+        this.hashes = new long[this.capacity];
+        this.times = new long[this.capacity];
+    }
+
+    /**
+     * Checks if the canonical ID has not been received within the window, and records it if so.
+     *
+     * @param canonicalId The canonical push ID.
+     * @return {@code false} if the ID was received within the window, otherwise {@code true}.
+     */
+    synchronized boolean checkAndRecord(@NonNull String canonicalId) {
+        load();
+
+        long now = clock.currentTimeMillis();
+        long hash = hash(canonicalId);
+
+        Integer slot = slotsByHash.get(hash);
+        if (slot != null && now - times[slot] < windowMs) {
+            return false;
+        }
+
+        record(hash, now);
+        savePage(head / PAGE_SIZE);
+        head = (head + 1) % capacity;
+        dataStore.put(HEAD_KEY, head);
+
+        return true;
+    }
+
+    /**
+     * Gets the history capacity.
+     *
+     * @return The max number of IDs.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Records an ID hash in the slot at the head without persisting it.
+     *
+     * @param hash The ID hash.
+     * @param time The receive time.
+     */
+    private void record(long hash, long time) {
+        // Only drop the evicted hash from the index if it still points to this slot
+        if (times[head] != 0) {
+            Integer evicted = slotsByHash.get(hashes[head]);
+            if (evicted != null && evicted == head) {
+                slotsByHash.remove(hashes[head]);
+            }
+        }
+
+        hashes[head] = hash;
+        times[head] = time;
+        slotsByHash.put(hash, head);
+    }
+
+    /**
+     * Loads the persisted history, migrating the legacy ID list if present.
+     */
+    private void load() {
+        if (isLoaded) {
+            return;
+        }
+
+        isLoaded = true;
+
+        int storedHead = dataStore.getInt(HEAD_KEY, 0);
+        head = storedHead >= 0 && storedHead < capacity ? storedHead : 0;
+
+        for (int page = 0; page < capacity / PAGE_SIZE; page++) {
+            String encoded = dataStore.getString(PAGE_KEY_PREFIX + page, null);
+            if (encoded == null) {
+                continue;
+            }
+
+            byte[] bytes;
+            try {
+                bytes = Base64.decode(encoded, Base64.NO_WRAP);
+            } catch (IllegalArgumentException e) {
+                Logger.debug(e, "CanonicalIdHistory - Unable to decode page %s.", page);
+                continue;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < PAGE_SIZE && buffer.remaining() >= ENTRY_BYTES; i++) {
+                int slot = page * PAGE_SIZE + i;
+                hashes[slot] = buffer.getLong();
+                times[slot] = buffer.getLong();
+            }
+        }
+
+        // Index the slots oldest to newest so the newest slot wins for a repeated hash
+        for (int i = 0; i < capacity; i++) {
+            int slot = (head + i) % capacity;
+            if (times[slot] != 0) {
+                slotsByHash.put(hashes[slot], slot);
+            }
+        }
+
+        migrateLegacyIds();
+    }
+
+    /**
+     * Moves the IDs from the legacy JSON list into the history.
+     */
+    private void migrateLegacyIds() {
+        String legacyIds = dataStore.getString(LEGACY_IDS_KEY, null);
+        if (legacyIds == null) {
+            return;
+        }
+
+        try {
+            long now = clock.currentTimeMillis();
+            for (JsonValue value : JsonValue.parseString(legacyIds).optList()) {
+                String id = value.getString();
+                if (!UAStringUtil.isEmpty(id) && !slotsByHash.containsKey(hash(id))) {
+                    record(hash(id), now);
+                    savePage(head / PAGE_SIZE);
+                    head = (head + 1) % capacity;
+                }
+            }
+            dataStore.put(HEAD_KEY, head);
+        } catch (JsonException e) {
+            Logger.debug(e, "CanonicalIdHistory - Unable to parse legacy canonical IDs.");
+        }
+
+        dataStore.remove(LEGACY_IDS_KEY);
+    }
+
+    /**
+     * Persists a page of the ring.
+     *
+     * @param page The page index.
+     */
+    private void savePage(int page) {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE * ENTRY_BYTES);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            int slot = page * PAGE_SIZE + i;
+            buffer.putLong(hashes[slot]);
+            buffer.putLong(times[slot]);
+        }
+
+        dataStore.put(PAGE_KEY_PREFIX + page, Base64.encodeToString(buffer.array(), Base64.NO_WRAP));
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the ID's characters.
+     *
+     * @param id The ID.
+     * @return The hash.
+     */
+    private static long hash(@NonNull String id) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            hash ^= (c >>> 8);
+            hash *= FNV_PRIME;
+            hash ^= (c & 0xff);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+}
@@ -20,7 +20,6 @@ import com.urbanairship.channel.TagGroupsEditor;
 import com.urbanairship.job.JobDispatcher;
 import com.urbanairship.job.JobInfo;
 import com.urbanairship.json.JsonException;
-import com.urbanairship.json.JsonList;
 import com.urbanairship.json.JsonValue;
 import com.urbanairship.push.notifications.AirshipNotificationProvider;
 import com.urbanairship.push.notifications.LegacyNotificationFactoryProvider;
@@ -28,9 +27,9 @@ import com.urbanairship.push.notifications.NotificationActionButtonGroup;
 import com.urbanairship.push.notifications.NotificationChannelRegistry;
 import com.urbanairship.push.notifications.NotificationFactory;
 import com.urbanairship.push.notifications.NotificationProvider;
+import com.urbanairship.util.Clock;
 import com.urbanairship.util.UAStringUtil;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -172,15 +171,10 @@ public class PushManager extends AirshipComponent {
 
     private final String UA_NOTIFICATION_BUTTON_GROUP_PREFIX = "ua_";
 
-    /**
-     * Key to store the push canonical IDs for push deduping.
-     */
-    private static final String LAST_CANONICAL_IDS_KEY = "com.urbanairship.push.LAST_CANONICAL_IDS";
-
     /**
      * Max amount of canonical IDs to store.
      */
-    private static final int MAX_CANONICAL_IDS = 10;
+    private static final int MAX_CANONICAL_IDS = 1024;
 
     /**
      * Action to display a notification.
@@ -228,7 +222,7 @@ public class PushManager extends AirshipComponent {
 
     private List<PushListener> pushListeners = new CopyOnWriteArrayList<>();
 
-    private final Object uniqueIdLock = new Object();
+    private final CanonicalIdHistory canonicalIdHistory;
 
     private final AirshipChannel airshipChannel;
 
@@ -267,6 +261,8 @@ public class PushManager extends AirshipComponent {
         this.notificationProvider = new AirshipNotificationProvider(context, configOptions);
         this.notificationManagerCompat = NotificationManagerCompat.from(context);
         this.notificationChannelRegistry = new NotificationChannelRegistry(context, configOptions);
+        this.canonicalIdHistory = new CanonicalIdHistory(preferenceDataStore, Clock.DEFAULT_CLOCK,
+                MAX_CANONICAL_IDS, configOptions.canonicalPushIdWindowMS);
 
         this.actionGroupMap.putAll(ActionButtonGroupsParser.fromXml(context, R.xml.ua_notification_buttons));
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -1030,7 +1026,7 @@ public class PushManager extends AirshipComponent {
     }
 
     /**
-     * Check to see if we've seen this ID before. If we have,
+     * Check to see if we've seen this ID within the dedupe window. If we have,
      * return false. If not, add the ID to our history and return true.
      *
      * @param canonicalId The canonical push ID for an incoming notification.
@@ -1041,35 +1037,7 @@ public class PushManager extends AirshipComponent {
             return true;
         }
 
-        synchronized (uniqueIdLock) {
-            JsonList jsonList = null;
-            try {
-                jsonList = JsonValue.parseString(preferenceDataStore.getString(LAST_CANONICAL_IDS_KEY, null)).getList();
-            } catch (JsonException e) {
-                Logger.debug(e, "PushJobHandler - Unable to parse canonical Ids.");
-            }
-
-            List<JsonValue> canonicalIds = jsonList == null ? new ArrayList<JsonValue>() : jsonList.getList();
-
-            // Wrap the canonicalId
-            JsonValue id = JsonValue.wrap(canonicalId);
-
-            // Check if the list contains the canonicalId
-            if (canonicalIds.contains(id)) {
-                return false;
-            }
-
-            // Add it
-            canonicalIds.add(id);
-            if (canonicalIds.size() > MAX_CANONICAL_IDS) {
-                canonicalIds = canonicalIds.subList(canonicalIds.size() - MAX_CANONICAL_IDS, canonicalIds.size());
-            }
-
-            // Store the new list
-            preferenceDataStore.put(LAST_CANONICAL_IDS_KEY, JsonValue.wrapOpt(canonicalIds).toString());
-
-            return true;
-        }
+        return canonicalIdHistory.checkAndRecord(canonicalId);
     }
 
     private void dispatchUpdatePushTokenJob() {
@@ -49,7 +49,7 @@ public class NotificationChannelRegistry {
     public NotificationChannelRegistry(@NonNull Context context, @NonNull AirshipConfigOptions configOptions) {
         this(context,
                 new NotificationChannelRegistryDataManager(context, configOptions.appKey, DATABASE_NAME),
-                AirshipExecutors.newSerialExecutor());
+                AirshipExecutors.newSerialExecutor("notification-channels"));
     }
 
     /**
@@ -16,6 +16,7 @@ import com.urbanairship.AirshipComponent;
 import com.urbanairship.AirshipConfigOptions;
 import com.urbanairship.Logger;
 import com.urbanairship.PreferenceDataStore;
+import com.urbanairship.Predicate;
 import com.urbanairship.UAirship;
 import com.urbanairship.app.ActivityMonitor;
 import com.urbanairship.app.ApplicationListener;
@@ -23,6 +24,7 @@ import com.urbanairship.app.SimpleApplicationListener;
 import com.urbanairship.job.JobDispatcher;
 import com.urbanairship.job.JobInfo;
 import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
 import com.urbanairship.locale.LocaleChangedListener;
 import com.urbanairship.locale.LocaleManager;
 import com.urbanairship.reactive.Function;
@@ -33,11 +35,14 @@ import com.urbanairship.reactive.Supplier;
 import com.urbanairship.util.AirshipHandlerThread;
 import com.urbanairship.util.UAStringUtil;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -96,7 +101,7 @@ public class RemoteData extends AirshipComponent {
 
     @VisibleForTesting
     final
-    Subject<Set<RemoteDataPayload>> payloadUpdates;
+    Subject<PayloadUpdate> payloadUpdates;
 
     @VisibleForTesting
     final
@@ -266,12 +271,25 @@ public class RemoteData extends AirshipComponent {
     @NonNull
     public Observable<Collection<RemoteDataPayload>> payloadsForTypes(@NonNull final Collection<String> types) {
         return Observable.concat(cachedPayloads(types), payloadUpdates)
-                         .map(new Function<Set<RemoteDataPayload>, Map<String, Collection<RemoteDataPayload>>>() {
+                         .filter(new Predicate<PayloadUpdate>() {
+                             @Override
+                             public boolean apply(PayloadUpdate update) {
+                                 // Only emit if one of the types changed
+                                 for (String type : types) {
+                                     if (update.changedTypes.contains(type)) {
+                                         return true;
+                                     }
+                                 }
+
+                                 return false;
+                             }
+                         })
+                         .map(new Function<PayloadUpdate, Map<String, Collection<RemoteDataPayload>>>() {
                              @NonNull
                              @Override
-                             public Map<String, Collection<RemoteDataPayload>> apply(@NonNull Set<RemoteDataPayload> payloads) {
+                             public Map<String, Collection<RemoteDataPayload>> apply(@NonNull PayloadUpdate update) {
                                  Map<String, Collection<RemoteDataPayload>> map = new HashMap<>();
-                                 for (RemoteDataPayload payload : payloads) {
+                                 for (RemoteDataPayload payload : update.payloads) {
                                      Collection<RemoteDataPayload> mappedPayloads = map.get(payload.getType());
                                      if (mappedPayloads == null) {
                                          mappedPayloads = new HashSet<>();
@@ -299,8 +317,42 @@ public class RemoteData extends AirshipComponent {
 
                                  return payloads;
                              }
-                         })
-                         .distinctUntilChanged();
+                         });
+    }
+
+    /**
+     * Produces an Observable of item diffs for a payload type. The payload data is expected to
+     * contain a list of JSON objects under {@code itemsKey}, each identified by {@code idKey}.
+     * Each diff is computed against the previous payload emitted to the same subscriber, so the
+     * first diff contains every item as added.
+     *
+     * @param type The payload type.
+     * @param itemsKey The key of the item list in the payload data.
+     * @param idKey The key of the item ID.
+     * @return An Observable of RemoteDataPayloadDiff.
+     */
+    @NonNull
+    public Observable<RemoteDataPayloadDiff> payloadDiffsForType(@NonNull final String type, @NonNull final String itemsKey, @NonNull final String idKey) {
+        return Observable.defer(new Supplier<Observable<RemoteDataPayloadDiff>>() {
+            @NonNull
+            @Override
+            public Observable<RemoteDataPayloadDiff> apply() {
+                final Map<String, JsonValue> previousItems = new HashMap<>();
+
+                return payloadsForType(type).map(new Function<RemoteDataPayload, RemoteDataPayloadDiff>() {
+                    @NonNull
+                    @Override
+                    public RemoteDataPayloadDiff apply(@NonNull RemoteDataPayload payload) {
+                        Map<String, JsonValue> items = RemoteDataPayloadDiff.getItems(payload, itemsKey, idKey);
+                        RemoteDataPayloadDiff diff = new RemoteDataPayloadDiff(payload, previousItems, items);
+
+                        previousItems.clear();
+                        previousItems.putAll(items);
+                        return diff;
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -344,20 +396,40 @@ public class RemoteData extends AirshipComponent {
         backgroundHandler.post(new Runnable() {
             @Override
             public void run() {
-                // Clear the cache
-                if (!dataStore.deletePayloads()) {
-                    Logger.error("Unable to delete existing payload data");
-                    return;
+                // Only the types whose timestamp or content changed are replaced
+                Map<String, Set<String>> storedVersions = dataStore.getPayloadVersions();
+                Map<String, Set<String>> versions = RemoteDataStore.getPayloadVersions(payloads);
+
+                Set<String> changedTypes = new HashSet<>(storedVersions.keySet());
+                changedTypes.addAll(versions.keySet());
+
+                Iterator<String> iterator = changedTypes.iterator();
+                while (iterator.hasNext()) {
+                    String type = iterator.next();
+                    if (versions.containsKey(type) && versions.get(type).equals(storedVersions.get(type))) {
+                        iterator.remove();
+                    }
+                }
+
+                List<RemoteDataPayload> changedPayloads = new ArrayList<>();
+                for (RemoteDataPayload payload : payloads) {
+                    if (changedTypes.contains(payload.getType())) {
+                        changedPayloads.add(payload);
+                    }
                 }
-                // If successful, save the new payload data.
-                if (!dataStore.savePayloads(payloads)) {
+
+                if (!dataStore.replacePayloads(changedTypes, changedPayloads)) {
                     Logger.error("Unable to save remote data payloads");
+                    return;
                 }
 
                 preferenceDataStore.put(LAST_REFRESH_METADATA, metadata);
                 preferenceDataStore.put(LAST_MODIFIED_KEY, lastModified);
 
-                payloadUpdates.onNext(payloads);
+                if (!changedTypes.isEmpty()) {
+                    Logger.debug("RemoteData - Updated payload types: %s", changedTypes);
+                    payloadUpdates.onNext(new PayloadUpdate(payloads, changedTypes));
+                }
             }
         });
     }
@@ -379,12 +451,12 @@ public class RemoteData extends AirshipComponent {
      * @param types The data types.
      * @return An Observable of RemoteDataPayload.
      */
-    private Observable<Set<RemoteDataPayload>> cachedPayloads(final Collection<String> types) {
-        return Observable.defer(new Supplier<Observable<Set<RemoteDataPayload>>>() {
+    private Observable<PayloadUpdate> cachedPayloads(final Collection<String> types) {
+        return Observable.defer(new Supplier<Observable<PayloadUpdate>>() {
             @NonNull
             @Override
-            public Observable<Set<RemoteDataPayload>> apply() {
-                return Observable.just(dataStore.getPayloads(types))
+            public Observable<PayloadUpdate> apply() {
+                return Observable.just(new PayloadUpdate(dataStore.getPayloads(types), new HashSet<>(types)))
                                  .subscribeOn(Schedulers.looper(backgroundHandler.getLooper()));
             }
         });
@@ -432,4 +504,26 @@ public class RemoteData extends AirshipComponent {
         return preferenceDataStore.getJsonValue(LAST_REFRESH_METADATA).optMap();
     }
 
+    /**
+     * Payload update.
+     */
+    static class PayloadUpdate {
+
+        /**
+         * All the payloads.
+         */
+        final Set<RemoteDataPayload> payloads;
+
+        /**
+         * The types that changed since the last update.
+         */
+        final Set<String> changedTypes;
+
+        PayloadUpdate(@NonNull Set<RemoteDataPayload> payloads, @NonNull Set<String> changedTypes) {
+            this.payloads = payloads;
+            this.changedTypes = changedTypes;
+        }
+
+    }
+
 }
@@ -0,0 +1,131 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.remotedata;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.urbanairship.json.JsonValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Item level changes between two payloads of the same type.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class RemoteDataPayloadDiff {
+
+    @NonNull
+    private final RemoteDataPayload payload;
+    @NonNull
+    private final Set<String> addedIds = new HashSet<>();
+    @NonNull
+    private final Set<String> updatedIds = new HashSet<>();
+    @NonNull
+    private final Set<String> removedIds = new HashSet<>();
+
+    /**
+     * Default constructor.
+     *
+     * @param payload The current payload.
+     * @param previousItems The previous items by ID.
+     * @param items The current items by ID.
+     */
+    RemoteDataPayloadDiff(@NonNull RemoteDataPayload payload, @NonNull Map<String, JsonValue> previousItems,
+                          @NonNull Map<String, JsonValue> items) {
+        this.payload = payload;
+
+        for (Map.Entry<String, JsonValue> entry : items.entrySet()) {
+            JsonValue previous = previousItems.get(entry.getKey());
+            if (previous == null) {
+                addedIds.add(entry.getKey());
+            } else if (!previous.equals(entry.getValue())) {
+                updatedIds.add(entry.getKey());
+            }
+        }
+
+        for (String id : previousItems.keySet()) {
+            if (!items.containsKey(id)) {
+                removedIds.add(id);
+            }
+        }
+    }
+
+    /**
+     * Gets the items of a payload by ID. Items that are not JSON objects or that do not have a
+     * string ID are ignored.
+     *
+     * @param payload The payload.
+     * @param itemsKey The key of the item list in the payload data.
+     * @param idKey The key of the item ID.
+     * @return The items by ID.
+     */
+    @NonNull
+    static Map<String, JsonValue> getItems(@NonNull RemoteDataPayload payload, @NonNull String itemsKey, @NonNull String idKey) {
+        Map<String, JsonValue> items = new HashMap<>();
+        for (JsonValue item : payload.getData().opt(itemsKey).optList()) {
+            String id = item.optMap().opt(idKey).getString();
+            if (id != null) {
+                items.put(id, item);
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Gets the current payload.
+     *
+     * @return The payload.
+     */
+    @NonNull
+    public RemoteDataPayload getPayload() {
+        return payload;
+    }
+
+    /**
+     * Gets the IDs of the added items.
+     *
+     * @return The added item IDs.
+     */
+    @NonNull
+    public Set<String> getAddedIds() {
+        return Collections.unmodifiableSet(addedIds);
+    }
+
+    /**
+     * Gets the IDs of the updated items.
+     *
+     * @return The updated item IDs.
+     */
+    @NonNull
+    public Set<String> getUpdatedIds() {
+        return Collections.unmodifiableSet(updatedIds);
+    }
+
+    /**
+     * Gets the IDs of the removed items.
+     *
+     * @return The removed item IDs.
+     */
+    @NonNull
+    public Set<String> getRemovedIds() {
+        return Collections.unmodifiableSet(removedIds);
+    }
+
+    /**
+     * Checks if any items changed.
+     *
+     * @return {@code true} if no items were added, updated, or removed, otherwise {@code false}.
+     */
+    public boolean isEmpty() {
+        return addedIds.isEmpty() && updatedIds.isEmpty() && removedIds.isEmpty();
+    }
+
+}
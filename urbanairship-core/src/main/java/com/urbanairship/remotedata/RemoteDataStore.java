@@ -19,7 +19,9 @@ import com.urbanairship.util.UAStringUtil;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -46,10 +48,13 @@ public class RemoteDataStore extends DataManager {
     // Metadata JSON-serialized data.
     private static final String COLUMN_NAME_METADATA = "metadata";
 
+    // SHA-256 hash of the serialized data and metadata
+    private static final String COLUMN_NAME_HASH = "hash";
+
     /**
      * The database version.
      */
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 3;
 
     /**
      * RemoteDataStore constructor.
@@ -70,7 +75,8 @@ public class RemoteDataStore extends DataManager {
                 + COLUMN_NAME_TYPE + " TEXT,"
                 + COLUMN_NAME_TIMESTAMP + " INTEGER,"
                 + COLUMN_NAME_DATA + " TEXT,"
-                + COLUMN_NAME_METADATA + " TEXT"
+                + COLUMN_NAME_METADATA + " TEXT,"
+                + COLUMN_NAME_HASH + " TEXT"
                 + ");");
     }
 
@@ -79,6 +85,9 @@ public class RemoteDataStore extends DataManager {
         switch (oldVersion) {
             case 1:
                 db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_NAME_METADATA + " TEXT;");
+            case 2:
+                // Existing payloads have no hash and will be replaced on the next refresh
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_NAME_HASH + " TEXT;");
                 break;
             default:
                 db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
@@ -100,7 +109,18 @@ public class RemoteDataStore extends DataManager {
      * @return A boolean indicating success.
      */
     public boolean savePayloads(@NonNull Set<RemoteDataPayload> payloads) {
-        if (payloads.isEmpty()) {
+        return replacePayloads(Collections.<String>emptySet(), payloads);
+    }
+
+    /**
+     * Replaces the payloads of the given types in a single transaction.
+     *
+     * @param types The types to delete.
+     * @param payloads The payloads to save.
+     * @return A boolean indicating success.
+     */
+    boolean replacePayloads(@NonNull Collection<String> types, @NonNull Collection<RemoteDataPayload> payloads) {
+        if (types.isEmpty() && payloads.isEmpty()) {
             return true;
         }
 
@@ -113,12 +133,18 @@ public class RemoteDataStore extends DataManager {
         try {
             db.beginTransaction();
 
+            if (!types.isEmpty()) {
+                String where = COLUMN_NAME_TYPE + " IN ( " + UAStringUtil.repeat("?", types.size(), ", ") + " )";
+                db.delete(TABLE_NAME, where, types.toArray(new String[0]));
+            }
+
             for (RemoteDataPayload payload : payloads) {
                 ContentValues value = new ContentValues();
                 value.put(COLUMN_NAME_TYPE, payload.getType());
                 value.put(COLUMN_NAME_TIMESTAMP, payload.getTimestamp());
                 value.put(COLUMN_NAME_DATA, payload.getData().toString());
                 value.put(COLUMN_NAME_METADATA, payload.getMetadata().toString());
+                value.put(COLUMN_NAME_HASH, hash(payload));
                 try {
                     long id = db.insert(TABLE_NAME, null, value);
                     if (id == -1) {
@@ -184,6 +210,67 @@ public class RemoteDataStore extends DataManager {
         }
     }
 
+    /**
+     * Gets the stored payload versions by type. A version combines the payload timestamp and the
+     * hash of its content, so a type has changed if its set of versions is different.
+     *
+     * @return The payload versions by type.
+     */
+    @NonNull
+    Map<String, Set<String>> getPayloadVersions() {
+        Cursor cursor = this.query(TABLE_NAME, new String[] { COLUMN_NAME_TYPE, COLUMN_NAME_TIMESTAMP, COLUMN_NAME_HASH },
+                null, null, null);
+
+        if (cursor == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Set<String>> versions = new HashMap<>();
+        while (cursor.moveToNext()) {
+            addVersion(versions, cursor.getString(0), cursor.getLong(1), cursor.getString(2));
+        }
+
+        cursor.close();
+        return versions;
+    }
+
+    /**
+     * Gets the payload versions by type.
+     *
+     * @param payloads The payloads.
+     * @return The payload versions by type.
+     */
+    @NonNull
+    static Map<String, Set<String>> getPayloadVersions(@NonNull Collection<RemoteDataPayload> payloads) {
+        Map<String, Set<String>> versions = new HashMap<>();
+        for (RemoteDataPayload payload : payloads) {
+            addVersion(versions, payload.getType(), payload.getTimestamp(), hash(payload));
+        }
+
+        return versions;
+    }
+
+    private static void addVersion(@NonNull Map<String, Set<String>> versions, @NonNull String type, long timestamp, @Nullable String hash) {
+        Set<String> typeVersions = versions.get(type);
+        if (typeVersions == null) {
+            typeVersions = new HashSet<>();
+            versions.put(type, typeVersions);
+        }
+
+        typeVersions.add(timestamp + ":" + hash);
+    }
+
+    /**
+     * Hashes the payload data and metadata.
+     *
+     * @param payload The payload.
+     * @return The SHA-256 hex string.
+     */
+    @Nullable
+    private static String hash(@NonNull RemoteDataPayload payload) {
+        return UAStringUtil.sha256(payload.getData().toString() + payload.getMetadata().toString());
+    }
+
     /**
      * Deletes all payloads.
      *
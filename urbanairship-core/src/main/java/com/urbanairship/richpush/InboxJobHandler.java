@@ -4,6 +4,7 @@ package com.urbanairship.richpush;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.urbanairship.Logger;
@@ -130,9 +131,11 @@ class InboxJobHandler {
             Logger.debug("InboxJobHandler - User has not been created, canceling messages update");
             airship.getInbox().onUpdateMessagesFinished(false);
         } else {
-            boolean success = this.updateMessages();
-            airship.getInbox().refresh(true);
-            airship.getInbox().onUpdateMessagesFinished(success);
+            RichPushInbox.ChangeSet changeSet = this.updateMessages();
+            if (changeSet != null) {
+                airship.getInbox().applyChanges(changeSet);
+            }
+            airship.getInbox().onUpdateMessagesFinished(changeSet != null);
             this.syncReadMessageState();
             this.syncDeletedMessageState();
         }
@@ -174,14 +177,15 @@ class InboxJobHandler {
     /**
      * Update the inbox messages.
      *
-     * @return <code>true</code> if messages were updated, otherwise <code>false</code>.
+     * @return The changed message IDs if messages were updated, otherwise <code>null</code>.
      */
-    private boolean updateMessages() {
+    @Nullable
+    private RichPushInbox.ChangeSet updateMessages() {
         Logger.info("Refreshing inbox messages.");
 
         URL getMessagesURL = getUserURL(MESSAGES_PATH, user.getId());
         if (getMessagesURL == null) {
-            return false;
+            return null;
         }
 
         Logger.verbose("InboxJobHandler - Fetching inbox messages.");
@@ -199,7 +203,7 @@ class InboxJobHandler {
         // 304
         if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
             Logger.debug("Inbox messages already up-to-date. ");
-            return true;
+            return new RichPushInbox.ChangeSet(new HashSet<String>(), new HashSet<String>(), new HashSet<String>());
         }
 
         // 200
@@ -212,32 +216,38 @@ class InboxJobHandler {
                 }
             } catch (JsonException e) {
                 Logger.error("Failed to update inbox. Unable to parse response body: %s", response.getResponseBody());
-                return false;
+                return null;
             }
 
             if (serverMessages == null) {
                 Logger.debug("Inbox message list is empty.");
-            } else {
-                Logger.info("Received %s inbox messages.", serverMessages.size());
-                updateInbox(serverMessages);
-                dataStore.put(LAST_MESSAGE_REFRESH_TIME, response.getLastModifiedTime());
+                return new RichPushInbox.ChangeSet(new HashSet<String>(), new HashSet<String>(), new HashSet<String>());
             }
 
-            return true;
+            Logger.info("Received %s inbox messages.", serverMessages.size());
+            RichPushInbox.ChangeSet changeSet = updateInbox(serverMessages);
+            dataStore.put(LAST_MESSAGE_REFRESH_TIME, response.getLastModifiedTime());
+            return changeSet;
         }
 
         Logger.debug("Unable to update inbox messages.");
-        return false;
+        return null;
     }
 
     /**
-     * Update the Rich Push Inbox.
+     * Update the Rich Push Inbox. Messages that are unchanged from the stored payload are skipped.
      *
      * @param serverMessages The messages from the server.
+     * @return The changed message IDs.
      */
-    private void updateInbox(JsonList serverMessages) {
+    @NonNull
+    private RichPushInbox.ChangeSet updateInbox(JsonList serverMessages) {
         List<JsonValue> messagesToInsert = new ArrayList<>();
         HashSet<String> serverMessageIds = new HashSet<>();
+        Map<String, String> storedMessages = resolver.getRawMessages();
+
+        Set<String> insertedIds = new HashSet<>();
+        Set<String> updatedIds = new HashSet<>();
 
         for (JsonValue message : serverMessages) {
             if (!message.isJsonMap()) {
@@ -253,8 +263,16 @@ class InboxJobHandler {
 
             serverMessageIds.add(messageId);
 
-            if (resolver.updateMessage(messageId, message) != 1) {
+            String storedMessage = storedMessages.get(messageId);
+            if (storedMessage != null && storedMessage.equals(message.toString())) {
+                continue;
+            }
+
+            if (storedMessage != null && resolver.updateMessage(messageId, message) == 1) {
+                updatedIds.add(messageId);
+            } else {
                 messagesToInsert.add(message);
+                insertedIds.add(messageId);
             }
         }
 
@@ -264,9 +282,13 @@ class InboxJobHandler {
         }
 
         // Delete any messages that did not come down with the message list
-        Set<String> deletedMessageIds = resolver.getMessageIds();
+        Set<String> deletedMessageIds = new HashSet<>(storedMessages.keySet());
         deletedMessageIds.removeAll(serverMessageIds);
-        resolver.deleteMessages(deletedMessageIds);
+        if (!deletedMessageIds.isEmpty()) {
+            resolver.deleteMessages(deletedMessageIds);
+        }
+
+        return new RichPushInbox.ChangeSet(insertedIds, updatedIds, deletedMessageIds);
     }
 
     /**
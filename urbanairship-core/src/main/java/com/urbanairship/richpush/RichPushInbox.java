@@ -39,6 +39,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -70,6 +71,83 @@ public class RichPushInbox extends AirshipComponent {
 
     }
 
+    /**
+     * A listener interface for receiving the message changes of inbox updates.
+     */
+    public interface ChangeListener {
+
+        /**
+         * Called when the inbox is updated.
+         *
+         * @param changeSet The changed message IDs.
+         */
+        void onInboxChanged(@NonNull ChangeSet changeSet);
+
+    }
+
+    /**
+     * The message IDs that were inserted, updated, or deleted by an inbox update.
+     */
+    public static class ChangeSet {
+
+        private final Set<String> insertedIds;
+        private final Set<String> updatedIds;
+        private final Set<String> deletedIds;
+
+        /**
+         * Default constructor.
+         *
+         * @param insertedIds The inserted message IDs.
+         * @param updatedIds The updated message IDs.
+         * @param deletedIds The deleted message IDs.
+         */
+        ChangeSet(@NonNull Set<String> insertedIds, @NonNull Set<String> updatedIds, @NonNull Set<String> deletedIds) {
+            this.insertedIds = Collections.unmodifiableSet(insertedIds);
+            this.updatedIds = Collections.unmodifiableSet(updatedIds);
+            this.deletedIds = Collections.unmodifiableSet(deletedIds);
+        }
+
+        /**
+         * Gets the IDs of the inserted messages.
+         *
+         * @return The inserted message IDs.
+         */
+        @NonNull
+        public Set<String> getInsertedIds() {
+            return insertedIds;
+        }
+
+        /**
+         * Gets the IDs of the updated messages, including read state changes.
+         *
+         * @return The updated message IDs.
+         */
+        @NonNull
+        public Set<String> getUpdatedIds() {
+            return updatedIds;
+        }
+
+        /**
+         * Gets the IDs of the deleted or expired messages.
+         *
+         * @return The deleted message IDs.
+         */
+        @NonNull
+        public Set<String> getDeletedIds() {
+            return deletedIds;
+        }
+
+        /**
+         * Checks if the change set is empty.
+         *
+         * @return {@code true} if no messages changed, otherwise {@code false}.
+         */
+        public boolean isEmpty() {
+            return insertedIds.isEmpty() && updatedIds.isEmpty() && deletedIds.isEmpty();
+        }
+
+    }
+
     /**
      * A callback used to be notified when refreshing messages.
      */
@@ -128,6 +206,7 @@ public class RichPushInbox extends AirshipComponent {
 
     private final static Object inboxLock = new Object();
     private final List<Listener> listeners = new ArrayList<>();
+    private final List<ChangeListener> changeListeners = new ArrayList<>();
 
     private final Set<String> deletedMessageIds = new HashSet<>();
     private final Map<String, RichPushMessage> unreadMessages = new HashMap<>();
@@ -159,7 +238,7 @@ public class RichPushInbox extends AirshipComponent {
     public RichPushInbox(@NonNull Context context, @NonNull PreferenceDataStore dataStore,
                          @NonNull AirshipChannel airshipChannel) {
         this(context, dataStore, JobDispatcher.shared(context), new RichPushUser(dataStore),
-                new RichPushResolver(context), AirshipExecutors.newSerialExecutor(),
+                new RichPushResolver(context), AirshipExecutors.newSerialExecutor("inbox"),
                 GlobalActivityMonitor.shared(context), airshipChannel);
     }
 
@@ -222,7 +301,7 @@ public class RichPushInbox extends AirshipComponent {
             user.addListener(userListener);
         }
 
-        refresh(false);
+        refresh();
 
         activityMonitor.addApplicationListener(listener);
 
@@ -324,6 +403,28 @@ public class RichPushInbox extends AirshipComponent {
         }
     }
 
+    /**
+     * Subscribe a listener for the message changes of inbox updates.
+     *
+     * @param listener An object implementing the {@link RichPushInbox.ChangeListener} interface.
+     */
+    public void addChangeListener(@NonNull ChangeListener listener) {
+        synchronized (listeners) {
+            changeListeners.add(listener);
+        }
+    }
+
+    /**
+     * Unsubscribe a listener for the message changes of inbox updates.
+     *
+     * @param listener An object implementing the {@link RichPushInbox.ChangeListener} interface.
+     */
+    public void removeChangeListener(@NonNull ChangeListener listener) {
+        synchronized (listeners) {
+            changeListeners.remove(listener);
+        }
+    }
+
     /**
      * Fetches the latest inbox changes from Airship.
      * <p>
@@ -589,6 +690,7 @@ public class RichPushInbox extends AirshipComponent {
             }
         });
 
+        Set<String> updatedIds = new HashSet<>();
         synchronized (inboxLock) {
             for (String messageId : messageIds) {
 
@@ -598,11 +700,12 @@ public class RichPushInbox extends AirshipComponent {
                     message.unreadClient = false;
                     unreadMessages.remove(messageId);
                     readMessages.put(messageId, message);
+                    updatedIds.add(messageId);
                 }
             }
-
-            notifyInboxUpdated();
         }
+
+        notifyInboxUpdated(new ChangeSet(new HashSet<String>(), updatedIds, new HashSet<String>()));
     }
 
     /**
@@ -618,6 +721,7 @@ public class RichPushInbox extends AirshipComponent {
             }
         });
 
+        Set<String> updatedIds = new HashSet<>();
         synchronized (inboxLock) {
             for (String messageId : messageIds) {
 
@@ -627,11 +731,12 @@ public class RichPushInbox extends AirshipComponent {
                     message.unreadClient = true;
                     readMessages.remove(messageId);
                     unreadMessages.put(messageId, message);
+                    updatedIds.add(messageId);
                 }
             }
         }
 
-        notifyInboxUpdated();
+        notifyInboxUpdated(new ChangeSet(new HashSet<String>(), updatedIds, new HashSet<String>()));
     }
 
     /**
@@ -650,6 +755,7 @@ public class RichPushInbox extends AirshipComponent {
             }
         });
 
+        Set<String> deletedIds = new HashSet<>();
         synchronized (inboxLock) {
             for (String messageId : messageIds) {
 
@@ -659,19 +765,19 @@ public class RichPushInbox extends AirshipComponent {
                     unreadMessages.remove(messageId);
                     readMessages.remove(messageId);
                     deletedMessageIds.add(messageId);
+                    deletedIds.add(messageId);
                 }
             }
         }
 
-        notifyInboxUpdated();
+        notifyInboxUpdated(new ChangeSet(new HashSet<String>(), new HashSet<String>(), deletedIds));
     }
 
     /**
-     * Refreshes the inbox messages from the DB.
-     *
-     * @param notify {@code true} to notify listeners, otherwise {@code false}.
+     * Reloads all inbox messages from the DB without notifying listeners. Changes made after
+     * init are applied with {@link #applyChanges(ChangeSet)}.
      */
-    void refresh(boolean notify) {
+    void refresh() {
 
         List<RichPushMessage> messageList = richPushResolver.getMessages();
 
@@ -725,17 +831,124 @@ public class RichPushInbox extends AirshipComponent {
                 }
             }
         }
+    }
+
+    /**
+     * Applies message changes from the DB to the inbox. Only the inserted and updated messages
+     * are loaded, and expired messages are removed.
+     *
+     * @param changeSet The message IDs that changed in the DB.
+     */
+    void applyChanges(@NonNull ChangeSet changeSet) {
+        Set<String> changedIds = new HashSet<>(changeSet.getInsertedIds());
+        changedIds.addAll(changeSet.getUpdatedIds());
+
+        List<RichPushMessage> changedMessages = changedIds.isEmpty()
+                ? Collections.<RichPushMessage>emptyList()
+                : richPushResolver.getMessages(changedIds);
+
+        Set<String> insertedIds = new HashSet<>();
+        Set<String> updatedIds = new HashSet<>();
+        Set<String> deletedIds = new HashSet<>();
+
+        synchronized (inboxLock) {
+            for (String messageId : changeSet.getDeletedIds()) {
+                RichPushMessage removed = unreadMessages.remove(messageId);
+                if (removed == null) {
+                    removed = readMessages.remove(messageId);
+                }
+
+                if (removed != null) {
+                    deletedIds.add(messageId);
+                }
+            }
+
+            for (RichPushMessage message : changedMessages) {
+                String messageId = message.getMessageId();
+                boolean exists = unreadMessages.containsKey(messageId) || readMessages.containsKey(messageId);
+
+                if (putMessage(message)) {
+                    if (exists) {
+                        updatedIds.add(messageId);
+                    } else {
+                        insertedIds.add(messageId);
+                    }
+                } else if (exists) {
+                    deletedIds.add(messageId);
+                }
+            }
+
+            deletedIds.addAll(removeExpiredMessages(unreadMessages));
+            deletedIds.addAll(removeExpiredMessages(readMessages));
+        }
 
-        if (notify) {
-            notifyInboxUpdated();
+        ChangeSet appliedChanges = new ChangeSet(insertedIds, updatedIds, deletedIds);
+        if (!appliedChanges.isEmpty()) {
+            notifyInboxUpdated(appliedChanges);
         }
     }
 
+    /**
+     * Adds or replaces a message loaded from the DB. Pending read state changes are kept, and
+     * deleted or expired messages are removed.
+     *
+     * @param message The message.
+     * @return {@code true} if the message is in the inbox, {@code false} if it was removed.
+     */
+    private boolean putMessage(@NonNull RichPushMessage message) {
+        String messageId = message.getMessageId();
+
+        if (message.isDeleted() || message.isExpired() || deletedMessageIds.contains(messageId)) {
+            deletedMessageIds.add(messageId);
+            unreadMessages.remove(messageId);
+            readMessages.remove(messageId);
+            return false;
+        }
+
+        if (unreadMessages.containsKey(messageId)) {
+            message.unreadClient = true;
+            unreadMessages.put(messageId, message);
+        } else if (readMessages.containsKey(messageId)) {
+            message.unreadClient = false;
+            readMessages.put(messageId, message);
+        } else if (message.unreadClient) {
+            unreadMessages.put(messageId, message);
+        } else {
+            readMessages.put(messageId, message);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes expired messages.
+     *
+     * @param messages The messages by ID.
+     * @return The IDs of the removed messages.
+     */
+    @NonNull
+    private Set<String> removeExpiredMessages(@NonNull Map<String, RichPushMessage> messages) {
+        Set<String> expiredIds = new HashSet<>();
+        Iterator<Map.Entry<String, RichPushMessage>> iterator = messages.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RichPushMessage> entry = iterator.next();
+            if (entry.getValue().isExpired()) {
+                iterator.remove();
+                deletedMessageIds.add(entry.getKey());
+                expiredIds.add(entry.getKey());
+            }
+        }
+
+        return expiredIds;
+    }
+
     /**
      * Notifies all of the registered listeners that the
      * inbox updated.
+     *
+     * @param changeSet The changed message IDs.
      */
-    private void notifyInboxUpdated() {
+    private void notifyInboxUpdated(@NonNull final ChangeSet changeSet) {
         handler.post(new Runnable() {
             @Override
             public void run() {
@@ -743,6 +956,10 @@ public class RichPushInbox extends AirshipComponent {
                     for (Listener listener : new ArrayList<>(listeners)) {
                         listener.onInboxUpdated();
                     }
+
+                    for (ChangeListener listener : new ArrayList<>(changeListeners)) {
+                        listener.onInboxChanged(changeSet);
+                    }
                 }
             }
         });
@@ -18,8 +18,11 @@ import com.urbanairship.json.JsonValue;
 import com.urbanairship.util.UAStringUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -33,6 +36,12 @@ class RichPushResolver extends UrbanAirshipResolver {
     private static final String WHERE_CLAUSE_MESSAGE_ID = RichPushTable.COLUMN_NAME_MESSAGE_ID + " = ?";
     private static final String FALSE_VALUE = "0";
     private static final String TRUE_VALUE = "1";
+
+    /**
+     * Max number of message IDs bound to a single query.
+     */
+    private static final int MAX_QUERY_IDS = 500;
+
     private final Uri uri;
 
     /**
@@ -53,13 +62,67 @@ class RichPushResolver extends UrbanAirshipResolver {
     @NonNull
     List<RichPushMessage> getMessages() {
         List<RichPushMessage> messages = new ArrayList<>();
+        readMessages(this.query(this.uri, null, null, null, null), messages);
+        return messages;
+    }
 
-        Cursor cursor = this.query(this.uri, null, null, null, null);
+    /**
+     * Gets the {@link RichPushMessage} instances for the given message IDs from the database.
+     *
+     * @param messageIds The message IDs.
+     * @return A list of {@link RichPushMessage}.
+     */
+    @NonNull
+    List<RichPushMessage> getMessages(@NonNull Collection<String> messageIds) {
+        List<RichPushMessage> messages = new ArrayList<>();
+        List<String> ids = new ArrayList<>(messageIds);
+
+        for (int i = 0; i < ids.size(); i += MAX_QUERY_IDS) {
+            List<String> batch = ids.subList(i, Math.min(i + MAX_QUERY_IDS, ids.size()));
+            Cursor cursor = this.query(this.uri, null,
+                    RichPushTable.COLUMN_NAME_MESSAGE_ID + " IN ( " + UAStringUtil.repeat("?", batch.size(), ", ") + " )",
+                    batch.toArray(new String[0]), null);
+            readMessages(cursor, messages);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Gets the raw message payloads in the database by message ID without parsing them.
+     *
+     * @return A map of message ID to raw message payload.
+     */
+    @NonNull
+    Map<String, String> getRawMessages() {
+        Map<String, String> messages = new HashMap<>();
+
+        Cursor cursor = this.query(this.uri, new String[] { RichPushTable.COLUMN_NAME_MESSAGE_ID, RichPushTable.COLUMN_NAME_RAW_MESSAGE_OBJECT },
+                null, null, null);
         if (cursor == null) {
             return messages;
         }
 
-        // Read all the messages from the database
+        while (cursor.moveToNext()) {
+            messages.put(cursor.getString(0), cursor.getString(1));
+        }
+
+        cursor.close();
+
+        return messages;
+    }
+
+    /**
+     * Reads the messages from the cursor and closes it.
+     *
+     * @param cursor The cursor.
+     * @param messages The list to add the messages to.
+     */
+    private void readMessages(@Nullable Cursor cursor, @NonNull List<RichPushMessage> messages) {
+        if (cursor == null) {
+            return;
+        }
+
         while (cursor.moveToNext()) {
             try {
                 String messageJson = cursor.getString(cursor.getColumnIndex(RichPushTable.COLUMN_NAME_RAW_MESSAGE_OBJECT));
@@ -76,8 +139,6 @@ class RichPushResolver extends UrbanAirshipResolver {
         }
 
         cursor.close();
-
-        return messages;
     }
 
     /**
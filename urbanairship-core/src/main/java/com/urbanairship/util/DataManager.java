@@ -221,6 +221,7 @@ public abstract class DataManager {
         for (ContentValues value : values) {
             try {
                 db.replaceOrThrow(table, null, value);
+                inserted.add(value);
             } catch (Exception ex) {
                 Logger.error(ex, "Unable to insert into database");
                 db.endTransaction();
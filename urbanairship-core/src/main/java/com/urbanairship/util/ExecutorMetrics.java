@@ -0,0 +1,133 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks queue depth, active tasks, and task wait and run times for an executor or subsystem.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class ExecutorMetrics {
+
+    private final String name;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong totalRunTime = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param name The metrics name.
+     */
+    public ExecutorMetrics(@NonNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Wraps a runnable that is about to be queued. The wait time is measured from this call until
+     * the runnable starts running.
+     *
+     * @param runnable The runnable.
+     * @return The wrapped runnable.
+     */
+    @NonNull
+    public Runnable wrap(@NonNull final Runnable runnable) {
+        final long queuedTime = System.nanoTime();
+        queueDepth.incrementAndGet();
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                queueDepth.decrementAndGet();
+                activeCount.incrementAndGet();
+                totalWaitTime.addAndGet(startTime - queuedTime);
+
+                try {
+                    runnable.run();
+                } finally {
+                    totalRunTime.addAndGet(System.nanoTime() - startTime);
+                    activeCount.decrementAndGet();
+                    completedCount.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the metrics name.
+     *
+     * @return The name.
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of tasks waiting to run.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Gets the number of tasks currently running.
+     *
+     * @return The active count.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Gets the number of completed tasks.
+     *
+     * @return The completed count.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Gets the total time completed and running tasks waited before running.
+     *
+     * @param unit The time unit.
+     * @return The total wait time.
+     */
+    public long getTotalWaitTime(@NonNull TimeUnit unit) {
+        return unit.convert(totalWaitTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the total run time of completed tasks.
+     *
+     * @param unit The time unit.
+     * @return The total run time.
+     */
+    public long getTotalRunTime(@NonNull TimeUnit unit) {
+        return unit.convert(totalRunTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s{queued=%d, active=%d, completed=%d, waitMs=%d, runMs=%d}",
+                name, getQueueDepth(), getActiveCount(), getCompletedCount(),
+                getTotalWaitTime(TimeUnit.MILLISECONDS), getTotalRunTime(TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -4,6 +4,7 @@ package com.urbanairship.util;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 import androidx.annotation.WorkerThread;
 
 import com.urbanairship.Logger;
@@ -67,9 +68,54 @@ public abstract class FileUtils {
          */
         public final boolean isSuccess;
 
-        DownloadResult(boolean isSuccess, int statusCode) {
+        /**
+         * The response ETag if available.
+         */
+        @Nullable
+        public final String eTag;
+
+        /**
+         * The response Last-Modified time in milliseconds, or 0 if not available.
+         */
+        public final long lastModified;
+
+        /**
+         * Default constructor.
+         *
+         * @param isSuccess If the file downloaded successfully or not.
+         * @param statusCode The status code.
+         * @hide
+         */
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        public DownloadResult(boolean isSuccess, int statusCode) {
+            this(isSuccess, statusCode, null, 0);
+        }
+
+        /**
+         * Default constructor.
+         *
+         * @param isSuccess If the file downloaded successfully or not.
+         * @param statusCode The status code.
+         * @param eTag The response ETag.
+         * @param lastModified The response Last-Modified time in milliseconds.
+         * @hide
+         */
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        public DownloadResult(boolean isSuccess, int statusCode, @Nullable String eTag, long lastModified) {
             this.isSuccess = isSuccess;
             this.statusCode = statusCode;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Checks if a conditional download was not modified. The file is left untouched
+         * when the response is not modified.
+         *
+         * @return {@code true} if the response status is 304, otherwise {@code false}.
+         */
+        public boolean isNotModified() {
+            return statusCode == HttpURLConnection.HTTP_NOT_MODIFIED;
         }
 
     }
@@ -85,6 +131,23 @@ public abstract class FileUtils {
     @NonNull
     @WorkerThread
     public static DownloadResult downloadFile(@NonNull URL url, @NonNull File file) throws IOException {
+        return downloadFile(url, file, null, 0);
+    }
+
+    /**
+     * Downloads a file to disk if it changed since a previous download.
+     *
+     * @param url The URL image.
+     * @param file The file path where the image will be downloaded.
+     * @param eTag The ETag of the previous download, or {@code null} to skip the ETag check.
+     * @param lastModified The Last-Modified time of the previous download in milliseconds, or 0 to
+     * skip the modified check.
+     * @return The download result. If the file did not change, the result will be not modified.
+     * @throws IOException if output steam read or write operation fails.
+     */
+    @NonNull
+    @WorkerThread
+    public static DownloadResult downloadFile(@NonNull URL url, @NonNull File file, @Nullable String eTag, long lastModified) throws IOException {
         Logger.verbose("Downloading file from: %s to: %s", url, file.getAbsolutePath());
 
         InputStream inputStream = null;
@@ -97,6 +160,14 @@ public abstract class FileUtils {
             conn.setUseCaches(true);
             int statusCode = 0;
 
+            if (eTag != null) {
+                conn.setRequestProperty("If-None-Match", eTag);
+            }
+
+            if (lastModified > 0) {
+                conn.setIfModifiedSince(lastModified);
+            }
+
             if (conn instanceof HttpURLConnection) {
                 statusCode = ((HttpURLConnection) conn).getResponseCode();
                 if (!UAHttpStatusUtil.inSuccessRange(statusCode)) {
@@ -118,7 +189,7 @@ public abstract class FileUtils {
                 outputStream.close();
                 inputStream.close();
 
-                return new DownloadResult(true, statusCode);
+                return new DownloadResult(true, statusCode, conn.getHeaderField("ETag"), conn.getLastModified());
             }
 
             return new DownloadResult(false, statusCode);
@@ -13,6 +13,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 
 /**
@@ -107,6 +108,22 @@ public class RetryingExecutor implements Executor {
         execute(new ChainedOperations(Arrays.asList(operations)));
     }
 
+    /**
+     * Creates an operation that runs the given operations concurrently. The first operation runs on
+     * the calling thread and the rest run on the executor, and the operation returns once they all
+     * finish. If any operation cancels, the operation cancels, any operations that have not
+     * started are skipped, and any running {@link CancelableOperation} is cancelled. If any
+     * operation retries, only the operations that did not finish are run again on retry.
+     *
+     * @param executor The executor that runs the concurrent operations.
+     * @param operations The operations.
+     * @return The operation.
+     */
+    @NonNull
+    public static Operation parallel(@NonNull Executor executor, @NonNull Operation... operations) {
+        return new ParallelOperations(executor, Arrays.asList(operations));
+    }
+
     /**
      * Helper method that handles executing an operation.
      *
@@ -180,6 +197,156 @@ public class RetryingExecutor implements Executor {
 
     }
 
+    /**
+     * Operation that can be cancelled while it is running.
+     */
+    public interface CancelableOperation extends Operation {
+
+        /**
+         * Called when the operation should stop early, for instance when a concurrent operation
+         * cancels. The operation should return {@link #RESULT_CANCEL} as soon as possible.
+         */
+        void cancel();
+
+    }
+
+    /**
+     * Operation that runs a list of operations concurrently.
+     */
+    private static class ParallelOperations implements Operation {
+
+        private final Executor executor;
+        private final List<Operation> operations;
+
+        ParallelOperations(@NonNull Executor executor, @NonNull List<? extends Operation> operations) {
+            this.executor = executor;
+            this.operations = new ArrayList<>(operations);
+        }
+
+        @Override
+        public int run() {
+            final List<Operation> pending;
+            synchronized (operations) {
+                pending = new ArrayList<>(operations);
+            }
+
+            if (pending.isEmpty()) {
+                return RESULT_FINISHED;
+            }
+
+            final Execution execution = new Execution(pending);
+            final CountDownLatch latch = new CountDownLatch(pending.size() - 1);
+
+            for (int i = 1; i < pending.size(); i++) {
+                final int index = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        execution.run(index);
+                        latch.countDown();
+                    }
+                });
+            }
+
+            execution.run(0);
+
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return execution.isCancelled() ? RESULT_CANCEL : RESULT_RETRY;
+            }
+
+            if (execution.isCancelled()) {
+                return RESULT_CANCEL;
+            }
+
+            boolean retry = false;
+            synchronized (operations) {
+                for (int i = 0; i < pending.size(); i++) {
+                    if (execution.getResult(i) == RESULT_FINISHED) {
+                        operations.remove(pending.get(i));
+                    } else {
+                        retry = true;
+                    }
+                }
+            }
+
+            return retry ? RESULT_RETRY : RESULT_FINISHED;
+        }
+
+    }
+
+    /**
+     * A single run of parallel operations.
+     */
+    private static class Execution {
+
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_FINISHED = 2;
+
+        private final List<Operation> operations;
+        private final int[] states;
+        private final int[] results;
+        private boolean isCancelled;
+
+        Execution(@NonNull List<Operation> operations) {
+            this.operations = operations;
+            this.states = new int[operations.size()];
+            this.results = new int[operations.size()];
+        }
+
+        /**
+         * Runs an operation. If it cancels, the other running operations are cancelled.
+         *
+         * @param index The operation index.
+         */
+        void run(int index) {
+            Operation operation = operations.get(index);
+
+            synchronized (this) {
+                if (isCancelled) {
+                    states[index] = STATE_FINISHED;
+                    results[index] = RESULT_CANCEL;
+                    return;
+                }
+
+                states[index] = STATE_RUNNING;
+            }
+
+            int result = operation.run();
+
+            List<CancelableOperation> running = new ArrayList<>();
+            synchronized (this) {
+                states[index] = STATE_FINISHED;
+                results[index] = result;
+
+                if (result == RESULT_CANCEL && !isCancelled) {
+                    isCancelled = true;
+                    for (int i = 0; i < operations.size(); i++) {
+                        if (states[i] == STATE_RUNNING && operations.get(i) instanceof CancelableOperation) {
+                            running.add((CancelableOperation) operations.get(i));
+                        }
+                    }
+                }
+            }
+
+            for (CancelableOperation cancelableOperation : running) {
+                cancelableOperation.cancel();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return isCancelled;
+        }
+
+        synchronized int getResult(int index) {
+            return results[index];
+        }
+
+    }
+
     /**
      * Operation that runs a list of operations in order. If any of the operations
      * cancels, the rest of the operations will be cancelled.
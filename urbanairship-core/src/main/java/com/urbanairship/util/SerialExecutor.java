@@ -15,6 +15,7 @@ import java.util.concurrent.Executor;
 public class SerialExecutor implements Executor {
 
     private final Executor executor;
+    private final ExecutorMetrics metrics;
     private final ArrayDeque<Runnable> runnables = new ArrayDeque<>();
     private boolean isExecuting = false;
 
@@ -24,7 +25,18 @@ public class SerialExecutor implements Executor {
      * @param executor The executor that performs the runnables.
      */
     public SerialExecutor(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * Creates a serial executor that records metrics for its runnables.
+     *
+     * @param executor The executor that performs the runnables.
+     * @param metrics The metrics, or {@code null} to not record metrics.
+     */
+    public SerialExecutor(Executor executor, @Nullable ExecutorMetrics metrics) {
         this.executor = executor;
+        this.metrics = metrics;
     }
 
     @Override
@@ -33,11 +45,12 @@ public class SerialExecutor implements Executor {
             return;
         }
 
+        final Runnable task = metrics == null ? runnable : metrics.wrap(runnable);
         Runnable wrapped = new Runnable() {
             @Override
             public void run() {
                 try {
-                    runnable.run();
+                    task.run();
                 } finally {
                     next();
                 }
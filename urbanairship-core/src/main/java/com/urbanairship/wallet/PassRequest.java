@@ -34,7 +34,7 @@ import java.util.concurrent.Executor;
  */
 public class PassRequest {
 
-    private static final Executor DEFAULT_REQUEST_EXECUTOR = AirshipExecutors.newSerialExecutor();
+    private static final Executor DEFAULT_REQUEST_EXECUTOR = AirshipExecutors.newSerialExecutor("wallet");
 
     private static final String DEPRECATED_PATH_FORMAT = "v1/pass/%s?api_key=%s";
     private static final String PATH_FORMAT = "v1/pass/%s";
@@ -52,6 +52,7 @@ public class AirshipConfigOptionsTest extends BaseTestCase {
         assertTrue(production.inProduction);
         assertFalse(production.analyticsEnabled);
         assertEquals(2700, production.backgroundReportingIntervalMS);
+        assertEquals(3600000, production.canonicalPushIdWindowMS);
         assertTrue(production.clearNamedUser);
         assertFalse(production.autoLaunchApplication);
         assertTrue(production.channelCreationDelayEnabled);
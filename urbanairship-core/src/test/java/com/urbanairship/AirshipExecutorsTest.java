@@ -0,0 +1,76 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship;
+
+import com.urbanairship.util.ExecutorMetrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class AirshipExecutorsTest extends BaseTestCase {
+
+    /**
+     * Test the shared pool runs more than 2 tasks at once.
+     */
+    @Test
+    public void testPoolGrows() throws Exception {
+        final int parties = 4;
+        final CyclicBarrier barrier = new CyclicBarrier(parties);
+        final CountDownLatch latch = new CountDownLatch(parties);
+        final AtomicInteger passed = new AtomicInteger();
+
+        for (int i = 0; i < parties; i++) {
+            AirshipExecutors.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                        passed.incrementAndGet();
+                    } catch (Exception ignored) {
+                        // Barrier broken
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(parties, passed.get());
+    }
+
+    /**
+     * Test serial executors record metrics by subsystem.
+     */
+    @Test
+    public void testSubsystemMetrics() throws Exception {
+        ExecutorMetrics metrics = AirshipExecutors.getMetrics("AirshipExecutorsTest");
+        assertSame(metrics, AirshipExecutors.getMetrics("AirshipExecutorsTest"));
+        assertTrue(AirshipExecutors.getMetrics().contains(metrics));
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        Executor executor = AirshipExecutors.newSerialExecutor("AirshipExecutorsTest");
+        for (int i = 0; i < 2; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, metrics.getQueueDepth());
+        assertTrue(AirshipExecutors.getMetrics().contains(AirshipExecutors.getMetrics(AirshipExecutors.POOL_METRICS_NAME)));
+    }
+
+}
@@ -0,0 +1,82 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship;
+
+import org.junit.Assume;
+
+import java.util.Locale;
+
+/**
+ * Minimal JMH style micro benchmark runner for unit tests. Runs a number of warmup iterations
+ * followed by measured iterations and reports the average time per operation.
+ * <p>
+ * Benchmarks are skipped unless the {@code airship.benchmark} system property is set, e.g.
+ * {@code ./gradlew urbanairship-core:testDebugUnitTest -Dairship.benchmark=true}.
+ */
+public class Benchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    /**
+     * A benchmarked operation.
+     */
+    public interface Operation {
+
+        void run() throws Exception;
+
+    }
+
+    private final String name;
+    private final int operationsPerIteration;
+
+    /**
+     * Default constructor.
+     *
+     * @param name The benchmark name.
+     * @param operationsPerIteration The number of times the operation runs per iteration.
+     */
+    public Benchmark(String name, int operationsPerIteration) {
+        this.name = name;
+        this.operationsPerIteration = operationsPerIteration;
+    }
+
+    /**
+     * Skips the calling test unless benchmarks are enabled.
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Benchmarks disabled", Boolean.getBoolean("airship.benchmark"));
+    }
+
+    /**
+     * Measures the operation.
+     *
+     * @param label The operation label.
+     * @param operation The operation.
+     * @return The average time per operation in nanoseconds.
+     * @throws Exception If the operation throws an exception.
+     */
+    public double measure(String label, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(operation);
+        }
+
+        long total = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            total += runIteration(operation);
+        }
+
+        double average = (double) total / (MEASURED_ITERATIONS * operationsPerIteration);
+        System.out.println(String.format(Locale.US, "%s.%s: %.3f us/op", name, label, average / 1000));
+        return average;
+    }
+
+    private long runIteration(Operation operation) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < operationsPerIteration; i++) {
+            operation.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+}
@@ -2,7 +2,13 @@
 
 package com.urbanairship;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 
 import com.urbanairship.json.JsonException;
@@ -11,15 +17,30 @@ import com.urbanairship.json.JsonValue;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class PreferenceDataStoreTest extends BaseTestCase {
 
@@ -137,4 +158,184 @@ public class PreferenceDataStoreTest extends BaseTestCase {
         assertTrue(testPrefs.getJsonValue("value").isNull());
     }
 
+    /**
+     * Test parsed values are memoized until the value changes.
+     */
+    @Test
+    public void testParsedValuesMemoized() throws JsonException {
+        testPrefs.put("json", JsonValue.parseString("{\"foo\":\"bar\"}"));
+        testPrefs.put("long", 100L);
+
+        JsonValue json = testPrefs.getJsonValue("json");
+        assertEquals(0, testPrefs.getAvoidedParseCount());
+
+        assertSame(json, testPrefs.getJsonValue("json"));
+        assertEquals(100L, testPrefs.getLong("long", -1));
+        assertEquals(100L, testPrefs.getLong("long", -1));
+        assertEquals(100, testPrefs.getInt("long", -1));
+        assertEquals(2, testPrefs.getAvoidedParseCount());
+
+        // Changing the value invalidates the parsed value
+        testPrefs.put("json", JsonValue.parseString("{\"foo\":\"baz\"}"));
+        assertEquals("baz", testPrefs.getJsonValue("json").optMap().opt("foo").getString());
+
+        testPrefs.put("long", 200L);
+        assertEquals(200L, testPrefs.getLong("long", -1));
+        assertEquals(2, testPrefs.getAvoidedParseCount());
+
+        // Invalid numbers fall back to the default value
+        testPrefs.put("long", "not a number");
+        assertEquals(-1, testPrefs.getLong("long", -1));
+        assertEquals(-1, testPrefs.getInt("long", -1));
+    }
+
+    /**
+     * Test puts are coalesced and written in a single batch.
+     */
+    @Test
+    public void testWriteBehind() {
+        UrbanAirshipResolver resolver = mock(UrbanAirshipResolver.class);
+        when(resolver.bulkInsert(any(Uri.class), any(ContentValues[].class))).thenReturn(2);
+
+        PreferenceDataStore dataStore = createDataStore(resolver);
+        dataStore.put("first", "one");
+        dataStore.put("first", "two");
+        dataStore.put("second", 2);
+        dataStore.put("third", true);
+        dataStore.remove("third");
+
+        // Nothing written until the delay
+        verify(resolver, never()).bulkInsert(any(Uri.class), any(ContentValues[].class));
+        assertEquals("two", dataStore.getString("first", null));
+
+        runBackgroundTasks();
+
+        ArgumentCaptor<ContentValues[]> captor = ArgumentCaptor.forClass(ContentValues[].class);
+        verify(resolver, times(1)).bulkInsert(eq(UrbanAirshipProvider.getPreferencesContentUri(context)), captor.capture());
+
+        Map<String, String> written = new HashMap<>();
+        for (ContentValues values : captor.getValue()) {
+            written.put(values.getAsString(PreferencesDataManager.COLUMN_NAME_KEY), values.getAsString(PreferencesDataManager.COLUMN_NAME_VALUE));
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("first", "two");
+        expected.put("second", "2");
+        assertEquals(expected, written);
+
+        verify(resolver).delete(UrbanAirshipProvider.getPreferencesContentUri(context), PreferencesDataManager.COLUMN_NAME_KEY + " IN (?)", new String[] { "third" });
+        verify(resolver, never()).insert(any(Uri.class), any(ContentValues.class));
+        verify(resolver, times(1)).notifyChange(eq(UrbanAirshipProvider.getPreferencesContentUri(context)), any(ContentObserver.class));
+    }
+
+    /**
+     * Test putSync writes immediately and replaces any pending write for the key.
+     */
+    @Test
+    public void testPutSyncReplacesPendingWrite() {
+        UrbanAirshipResolver resolver = mock(UrbanAirshipResolver.class);
+        when(resolver.insert(any(Uri.class), any(ContentValues.class))).thenReturn(Uri.EMPTY);
+
+        PreferenceDataStore dataStore = createDataStore(resolver);
+        dataStore.put("key", "pending");
+        assertTrue(dataStore.putSync("key", "sync"));
+
+        verify(resolver).insert(any(Uri.class), any(ContentValues.class));
+        assertEquals("sync", dataStore.getString("key", null));
+
+        runBackgroundTasks();
+        verify(resolver, never()).bulkInsert(any(Uri.class), any(ContentValues[].class));
+    }
+
+    /**
+     * Test failed writes are retained and retried with backoff.
+     */
+    @Test
+    public void testWriteBehindFailure() {
+        UrbanAirshipResolver resolver = mock(UrbanAirshipResolver.class);
+        when(resolver.bulkInsert(any(Uri.class), any(ContentValues[].class))).thenReturn(-1);
+
+        PreferenceDataStore dataStore = createDataStore(resolver);
+        dataStore.put("first", "one");
+        idleBackground(100);
+        verify(resolver, times(1)).bulkInsert(any(Uri.class), any(ContentValues[].class));
+
+        // Retried after the initial retry delay
+        idleBackground(PreferenceDataStore.INITIAL_RETRY_DELAY_MS);
+        verify(resolver, times(2)).bulkInsert(any(Uri.class), any(ContentValues[].class));
+
+        // Backs off
+        idleBackground(PreferenceDataStore.INITIAL_RETRY_DELAY_MS);
+        verify(resolver, times(2)).bulkInsert(any(Uri.class), any(ContentValues[].class));
+
+        // New values are written with the retry
+        when(resolver.bulkInsert(any(Uri.class), any(ContentValues[].class))).thenReturn(2);
+        dataStore.put("second", "two");
+        idleBackground(PreferenceDataStore.INITIAL_RETRY_DELAY_MS);
+
+        ArgumentCaptor<ContentValues[]> captor = ArgumentCaptor.forClass(ContentValues[].class);
+        verify(resolver, times(3)).bulkInsert(any(Uri.class), captor.capture());
+        assertEquals(2, captor.getValue().length);
+        verify(resolver, times(1)).notifyChange(any(Uri.class), any(ContentObserver.class));
+
+        // Nothing left to write
+        idleBackground(60000);
+        verify(resolver, times(3)).bulkInsert(any(Uri.class), any(ContentValues[].class));
+    }
+
+    /**
+     * Test a sync from the database does not revert a value that is put while the sync is reading.
+     */
+    @Test
+    public void testSyncDuringPut() {
+        UrbanAirshipResolver resolver = mock(UrbanAirshipResolver.class);
+        when(resolver.query(any(Uri.class), ArgumentMatchers.<String[]>any(), ArgumentMatchers.<String>any(), ArgumentMatchers.<String[]>any(), ArgumentMatchers.<String>any()))
+                .thenReturn(new MatrixCursor(new String[] { PreferencesDataManager.COLUMN_NAME_KEY, PreferencesDataManager.COLUMN_NAME_VALUE }));
+
+        final PreferenceDataStore dataStore = createDataStore(resolver);
+        dataStore.init();
+
+        ArgumentCaptor<ContentObserver> observerCaptor = ArgumentCaptor.forClass(ContentObserver.class);
+        verify(resolver).registerContentObserver(any(Uri.class), eq(true), observerCaptor.capture());
+
+        // Another process changed the value, and the app puts a new value while it is being read
+        when(resolver.query(any(Uri.class), ArgumentMatchers.<String[]>any(), ArgumentMatchers.<String>any(), ArgumentMatchers.<String[]>any(), ArgumentMatchers.<String>any()))
+                .thenAnswer(new Answer<Cursor>() {
+                    @Override
+                    public Cursor answer(InvocationOnMock invocation) {
+                        dataStore.put("key", "new");
+
+                        MatrixCursor cursor = new MatrixCursor(new String[] { PreferencesDataManager.COLUMN_NAME_VALUE });
+                        cursor.addRow(new Object[] { "other process" });
+                        return cursor;
+                    }
+                });
+
+        Uri uri = Uri.withAppendedPath(UrbanAirshipProvider.getPreferencesContentUri(context), "key");
+        observerCaptor.getValue().onChange(false, uri);
+
+        assertEquals("new", dataStore.getString("key", null));
+    }
+
+    private PreferenceDataStore createDataStore(UrbanAirshipResolver resolver) {
+        PreferenceDataStore dataStore = new PreferenceDataStore(context, resolver);
+        dataStore.executor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                command.run();
+            }
+        };
+        return dataStore;
+    }
+
+    private void idleBackground(long millis) {
+        // Advance the main looper as well so the system clock used to schedule retries keeps up
+        Shadows.shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+        Shadows.shadowOf(AirshipLoopers.getBackgroundLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runBackgroundTasks() {
+        Shadows.shadowOf(AirshipLoopers.getBackgroundLooper()).runToEndOfTasks();
+    }
+
 }
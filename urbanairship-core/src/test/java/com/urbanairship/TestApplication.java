@@ -65,7 +65,7 @@ public class TestApplication extends Application implements TestLifecycleApplica
         UAirship.sharedAirship.platform = UAirship.ANDROID_PLATFORM;
         UAirship.sharedAirship.preferenceDataStore = preferenceDataStore;
 
-        TagGroupRegistrar tagGroupRegistrar = new TagGroupRegistrar(UAirship.ANDROID_PLATFORM, airshipConfigOptions, preferenceDataStore);
+        TagGroupRegistrar tagGroupRegistrar = new TagGroupRegistrar(this, UAirship.ANDROID_PLATFORM, airshipConfigOptions, preferenceDataStore);
 
         UAirship.sharedAirship.channel = new AirshipChannel(this, preferenceDataStore, airshipConfigOptions, UAirship.ANDROID_PLATFORM, tagGroupRegistrar);
 
@@ -7,6 +7,8 @@ import androidx.annotation.NonNull;
 import com.urbanairship.http.Request;
 import com.urbanairship.http.Response;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URL;
 import java.util.Map;
 
@@ -17,6 +19,7 @@ public class TestRequest extends Request {
 
     public Response response;
     private long ifModifiedSince;
+    private String writtenBody;
 
     public TestRequest() {
         super(null, null);
@@ -24,6 +27,16 @@ public class TestRequest extends Request {
 
     @Override
     public Response execute() {
+        if (bodyWriter != null) {
+            // Capture the body while any streamed source is still open
+            StringWriter writer = new StringWriter();
+            try {
+                bodyWriter.writeTo(writer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            writtenBody = writer.toString();
+        }
         return response;
     }
 
@@ -33,6 +46,12 @@ public class TestRequest extends Request {
      * @return The request body.
      */
     public String getRequestBody() {
+        if (jsonBody != null) {
+            return jsonBody.toString();
+        }
+        if (bodyWriter != null) {
+            return writtenBody;
+        }
         return body;
     }
 
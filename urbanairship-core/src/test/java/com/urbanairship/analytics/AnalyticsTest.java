@@ -15,6 +15,7 @@ import com.urbanairship.job.JobDispatcher;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
@@ -119,6 +120,26 @@ public class AnalyticsTest extends BaseTestCase {
         verify(mockEventManager).addEvent(Mockito.any(AppBackgroundEvent.class), Mockito.anyString());
     }
 
+    /**
+     * Test that buffered events are written after the background event when the app goes into
+     * the background, even if analytics is disabled.
+     */
+    @Test
+    public void testOnBackgroundFlushesEvents() {
+        analytics.onBackground(0);
+
+        InOrder inOrder = Mockito.inOrder(mockEventManager);
+        inOrder.verify(mockEventManager).addEvent(Mockito.any(AppBackgroundEvent.class), Mockito.anyString());
+        inOrder.verify(mockEventManager).flushPendingEvents();
+
+        Mockito.reset(mockEventManager);
+        analytics.setEnabled(false);
+        analytics.onBackground(0);
+
+        verify(mockEventManager, never()).addEvent(Mockito.any(Event.class), Mockito.anyString());
+        verify(mockEventManager).flushPendingEvents();
+    }
+
     /**
      * Test setting the conversion conversion send id
      */
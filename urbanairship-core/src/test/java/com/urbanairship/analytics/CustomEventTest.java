@@ -7,6 +7,8 @@ import android.os.Bundle;
 import com.urbanairship.BaseTestCase;
 import com.urbanairship.TestApplication;
 import com.urbanairship.json.JsonList;
+import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
 import com.urbanairship.push.PushManager;
 import com.urbanairship.push.PushMessage;
 import com.urbanairship.richpush.RichPushMessage;
@@ -608,4 +610,25 @@ public class CustomEventTest extends BaseTestCase {
         return builder.toString();
     }
 
-}
\ No newline at end of file
+    /**
+     * Test the lazy field lookup matches the serialized event.
+     */
+    @Test
+    public void testOptField() {
+        CustomEvent event = CustomEvent.newBuilder("event name")
+                                       .setTransactionId("transaction id")
+                                       .setInteraction("interaction type", "interaction id")
+                                       .setEventValue(100.123456)
+                                       .addProperty("property", "value")
+                                       .build();
+
+        JsonMap json = event.toJsonValue().optMap();
+        for (String key : json.keySet()) {
+            assertEquals(json.opt(key), event.optField(key));
+        }
+
+        assertEquals(JsonValue.NULL, event.optField("not a field"));
+        assertEquals(JsonValue.NULL, CustomEvent.newBuilder("event name").build().optField(CustomEvent.EVENT_VALUE));
+    }
+
+}
@@ -2,6 +2,7 @@
 
 package com.urbanairship.analytics.data;
 
+import android.database.MatrixCursor;
 import android.os.Build;
 
 import com.urbanairship.AirshipConfigOptions;
@@ -67,7 +68,7 @@ public class EventApiClientTest extends BaseTestCase {
      */
     @Test
     public void testSendEmptyEvents() {
-        assertNull(client.sendEvents(UAirship.shared(), new ArrayList<String>()));
+        assertNull(client.sendEvents(UAirship.shared(), createBatch(new ArrayList<String>())));
         assertNull(null);
     }
 
@@ -81,7 +82,7 @@ public class EventApiClientTest extends BaseTestCase {
                                        .setResponseBody(events.toString())
                                        .build();
 
-        EventResponse response = client.sendEvents(UAirship.shared(), events);
+        EventResponse response = client.sendEvents(UAirship.shared(), createBatch(events));
 
         assertEquals("Event request body should match", testRequest.getRequestBody(), events.toString());
         assertNotNull("Event response should not be null", response);
@@ -122,7 +123,7 @@ public class EventApiClientTest extends BaseTestCase {
 
         UAirship.shared().getAnalytics().registerSDKExtension("cordova", "1.2.3");
 
-        client.sendEvents(UAirship.shared(), events);
+        client.sendEvents(UAirship.shared(), createBatch(events));
         Map<String, String> requestHeaders = testRequest.getRequestHeaders();
 
         for (String[] keyValuePair : expectedHeaders) {
@@ -143,7 +144,7 @@ public class EventApiClientTest extends BaseTestCase {
                                        .setResponseBody(events.toString())
                                        .build();
 
-        client.sendEvents(UAirship.shared(), events);
+        client.sendEvents(UAirship.shared(), createBatch(events));
 
         Map<String, String> requestHeaders = testRequest.getRequestHeaders();
         String deviceFamily = requestHeaders.get("X-UA-Device-Family");
@@ -163,7 +164,7 @@ public class EventApiClientTest extends BaseTestCase {
                                        .setResponseBody(events.toString())
                                        .build();
 
-        client.sendEvents(UAirship.shared(), events);
+        client.sendEvents(UAirship.shared(), createBatch(events));
 
         Map<String, String> requestHeaders = testRequest.getRequestHeaders();
         assertNull(requestHeaders.get("X-UA-Locale-Country"));
@@ -182,7 +183,7 @@ public class EventApiClientTest extends BaseTestCase {
                                        .setResponseBody(events.toString())
                                        .build();
 
-        client.sendEvents(UAirship.shared(), events);
+        client.sendEvents(UAirship.shared(), createBatch(events));
 
         Map<String, String> requestHeaders = testRequest.getRequestHeaders();
         assertNull(requestHeaders.get("X-UA-Locale-Variant"));
@@ -201,7 +202,7 @@ public class EventApiClientTest extends BaseTestCase {
                                        .setResponseBody(events.toString())
                                        .build();
 
-        client.sendEvents(UAirship.shared(), events);
+        client.sendEvents(UAirship.shared(), createBatch(events));
 
         Map<String, String> requestHeaders = testRequest.getRequestHeaders();
         assertNull(requestHeaders.get("X-UA-Locale-Language"));
@@ -215,8 +216,40 @@ public class EventApiClientTest extends BaseTestCase {
     @Test
     public void testNullResponse() {
         testRequest.response = null;
-        EventResponse response = client.sendEvents(UAirship.shared(), events);
+        EventResponse response = client.sendEvents(UAirship.shared(), createBatch(events));
         assertNull(response);
     }
 
+    /**
+     * Test the stored payloads are spliced into the body as is and invalid payloads are skipped.
+     */
+    @Test
+    public void testSendBodySplicesPayloads() {
+        testRequest.response = Response.newBuilder(HttpURLConnection.HTTP_OK).build();
+
+        List<String> payloads = new ArrayList<>();
+        payloads.add("{\"a\":1.0}");
+        payloads.add("invalid");
+        payloads.add("{\"b\":\"\\/\"}");
+
+        EventBatch batch = createBatch(payloads);
+        client.sendEvents(UAirship.shared(), batch);
+
+        assertEquals("[{\"a\":1.0},{\"b\":\"\\/\"}]", testRequest.getRequestBody());
+        assertEquals(3, batch.getRowIds().length);
+    }
+
+    private static EventBatch createBatch(List<String> payloads) {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "_id", "data" });
+        long id = 0;
+        for (String payload : payloads) {
+            cursor.addRow(new Object[] { id++, payload });
+        }
+
+        // The batch is read up front and does not need the cursor after
+        EventBatch batch = new EventBatch(cursor);
+        cursor.close();
+        return batch;
+    }
+
 }
@@ -1,5 +1,9 @@
 package com.urbanairship.analytics.data;
 
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+
+import com.urbanairship.AirshipLoopers;
 import com.urbanairship.BaseTestCase;
 import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.TestApplication;
@@ -15,14 +19,17 @@ import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.mockito.internal.verification.Times;
+import org.robolectric.Shadows;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import static com.urbanairship.analytics.data.EventManager.MIN_BATCH_INTERVAL_KEY;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -62,11 +69,16 @@ public class EventManagerTest extends BaseTestCase {
      */
     @Test
     public void testAddEventAfterNextSendTime() {
-        CustomEvent customEvent = CustomEvent.newBuilder("event name").build();
+        final CustomEvent customEvent = CustomEvent.newBuilder("event name").build();
         eventManager.addEvent(customEvent, "session");
 
         // Verify we add an event.
-        verify(mockEventResolver, new Times(1)).insertEvent(customEvent, "session");
+        verify(mockEventResolver, new Times(1)).insertEvents(Mockito.argThat(new ArgumentMatcher<List<ContentValues>>() {
+            @Override
+            public boolean matches(List<ContentValues> events) {
+                return events.size() == 1 && customEvent.getEventId().equals(events.get(0).getAsString(EventsStorage.Events.COLUMN_NAME_EVENT_ID));
+            }
+        }));
 
         // Check it schedules an upload
         verify(mockDispatcher).dispatch(Mockito.argThat(new ArgumentMatcher<JobInfo>() {
@@ -105,20 +117,15 @@ public class EventManagerTest extends BaseTestCase {
      */
     @Test
     public void testSendingEvents() {
-        Map<String, String> events = new HashMap<>();
-        events.put("firstEvent", "{ 'firstEventBody' }");
+        EventBatch events = createBatch("{ 'firstEventBody' }");
 
         // Set up data manager to return 2 count for events.
-        // Note: we only have one event, but it should only ask for one to upload
-        // having it return 2 will make it schedule to upload events in the future
+        // Note: we only have one event in the batch, having it return 2 will make it
+        // schedule to upload events in the future
         when(mockEventResolver.getEventCount()).thenReturn(2);
 
-        // Return 200 bytes in size.  It should only be able to do 100 bytes so only
-        // the first event.
-        when(mockEventResolver.getDatabaseSize()).thenReturn(200);
-
-        // Return the event when it asks for 1
-        when(mockEventResolver.getEvents(1)).thenReturn(events);
+        // Return the event when it asks for a batch of 100 bytes
+        when(mockEventResolver.getEventBatch(500, 100)).thenReturn(events);
 
         // Set the max batch size to 100
         dataStore.put(EventManager.MAX_BATCH_SIZE_KEY, 100);
@@ -131,16 +138,16 @@ public class EventManagerTest extends BaseTestCase {
         when(response.getMinBatchInterval()).thenReturn(100);
 
         // Return the response
-        when(mockClient.sendEvents(UAirship.shared(), events.values())).thenReturn(response);
+        when(mockClient.sendEvents(UAirship.shared(), events)).thenReturn(response);
 
         // Start the upload process
         assertTrue(eventManager.uploadEvents(UAirship.shared()));
 
         // Check mockClients receives the events
-        verify(mockClient).sendEvents(UAirship.shared(), events.values());
+        verify(mockClient).sendEvents(UAirship.shared(), events);
 
         // Check data manager deletes events
-        verify(mockEventResolver).deleteEvents(events.keySet());
+        verify(mockEventResolver).deleteEvents(events.getRowIds());
 
         // Verify responses are being saved
         assertEquals(200, dataStore.getInt(EventManager.MAX_TOTAL_DB_SIZE_KEY, 0));
@@ -157,21 +164,19 @@ public class EventManagerTest extends BaseTestCase {
     }
 
     /**
-     * Test event batching only sends a max of 500 events.
+     * Test event batching asks for a batch of the max batch size, with a max of 500 events.
      */
     @Test
     public void testSendEventMaxCount() {
-        // Make the match batch size greater than 500
         dataStore.put(EventManager.MAX_BATCH_SIZE_KEY, 100000);
 
         // Fake the resolver to act like it has more than 500 events
-        when(mockEventResolver.getDatabaseSize()).thenReturn(100000);
         when(mockEventResolver.getEventCount()).thenReturn(1000);
 
         eventManager.uploadEvents(UAirship.shared());
 
-        // Verify it only asked for 500
-        verify(mockEventResolver).getEvents(500);
+        // Verify it only asked for 500 events up to the max batch size
+        verify(mockEventResolver).getEventBatch(500, 100000);
     }
 
     /**
@@ -179,24 +184,22 @@ public class EventManagerTest extends BaseTestCase {
      */
     @Test
     public void testSendEventsFails() {
-        Map<String, String> events = new HashMap<>();
-        events.put("firstEvent", "{ 'firstEventBody' }");
+        EventBatch events = createBatch("{ 'firstEventBody' }");
         when(mockEventResolver.getEventCount()).thenReturn(1);
-        when(mockEventResolver.getDatabaseSize()).thenReturn(100);
-        when(mockEventResolver.getEvents(1)).thenReturn(events);
+        when(mockEventResolver.getEventBatch(500, 100)).thenReturn(events);
 
         dataStore.put(EventManager.MAX_BATCH_SIZE_KEY, 100);
 
         // Start the upload process
-        when(mockClient.sendEvents(UAirship.shared(), events.values())).thenReturn(null);
+        when(mockClient.sendEvents(UAirship.shared(), events)).thenReturn(null);
 
         assertFalse(eventManager.uploadEvents(UAirship.shared()));
 
         // Check mockClient receives the events
-        verify(mockClient).sendEvents(UAirship.shared(), events.values());
+        verify(mockClient).sendEvents(UAirship.shared(), events);
 
         // If it fails, it should skip deleting events
-        verify(mockEventResolver, never()).deleteEvents(events.keySet());
+        verify(mockEventResolver, never()).deleteEvents(any(long[].class));
     }
 
     /**
@@ -233,4 +236,91 @@ public class EventManagerTest extends BaseTestCase {
         verify(mockEventResolver).deleteAllEvents();
     }
 
+    /**
+     * Test events added in the foreground are buffered and written in a single batch after a delay.
+     */
+    @Test
+    public void testForegroundEventsFlushAfterDelay() {
+        eventManager.executor = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        when(mockActivityMonitor.isAppForegrounded()).thenReturn(true);
+
+        eventManager.addEvent(CustomEvent.newBuilder("one").build(), "session");
+        eventManager.addEvent(CustomEvent.newBuilder("two").build(), "session");
+        verify(mockEventResolver, never()).insertEvents(anyList());
+
+        Shadows.shadowOf(AirshipLoopers.getBackgroundLooper()).runToEndOfTasks();
+
+        verify(mockEventResolver).insertEvents(Mockito.argThat(new ArgumentMatcher<List<ContentValues>>() {
+            @Override
+            public boolean matches(List<ContentValues> events) {
+                return events.size() == 2;
+            }
+        }));
+    }
+
+    /**
+     * Test the event buffer is written once it is full.
+     */
+    @Test
+    public void testForegroundEventsFlushWhenFull() {
+        when(mockActivityMonitor.isAppForegrounded()).thenReturn(true);
+
+        for (int i = 0; i < EventManager.MAX_PENDING_EVENTS - 1; i++) {
+            eventManager.addEvent(CustomEvent.newBuilder("event").build(), "session");
+        }
+        verify(mockEventResolver, never()).insertEvents(anyList());
+
+        eventManager.addEvent(CustomEvent.newBuilder("event").build(), "session");
+        verify(mockEventResolver).insertEvents(Mockito.argThat(new ArgumentMatcher<List<ContentValues>>() {
+            @Override
+            public boolean matches(List<ContentValues> events) {
+                return events.size() == EventManager.MAX_PENDING_EVENTS;
+            }
+        }));
+    }
+
+    /**
+     * Test uploading flushes the buffered events first.
+     */
+    @Test
+    public void testUploadFlushesPendingEvents() {
+        when(mockActivityMonitor.isAppForegrounded()).thenReturn(true);
+        eventManager.addEvent(CustomEvent.newBuilder("event").build(), "session");
+
+        when(mockEventResolver.getEventCount()).thenReturn(0);
+        assertTrue(eventManager.uploadEvents(UAirship.shared()));
+
+        verify(mockEventResolver).insertEvents(anyList());
+    }
+
+    /**
+     * Test writing the buffered events trims the database.
+     */
+    @Test
+    public void testFlushTrimsDatabase() {
+        dataStore.put(EventManager.MAX_TOTAL_DB_SIZE_KEY, 1000);
+
+        eventManager.addEvent(CustomEvent.newBuilder("event").build(), "session");
+        verify(mockEventResolver).trimDatabase(1000);
+    }
+
+    private static EventBatch createBatch(String... payloads) {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "_id", "data" });
+        long id = 0;
+        for (String payload : payloads) {
+            cursor.addRow(new Object[] { id++, payload });
+        }
+
+        // The batch is read up front and does not need the cursor after
+        EventBatch batch = new EventBatch(cursor);
+        cursor.close();
+        return batch;
+    }
+
 }
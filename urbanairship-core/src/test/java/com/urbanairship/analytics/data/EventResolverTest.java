@@ -2,18 +2,27 @@
 
 package com.urbanairship.analytics.data;
 
+import android.database.Cursor;
+
 import androidx.annotation.NonNull;
 
 import com.urbanairship.BaseTestCase;
 import com.urbanairship.analytics.Event;
+import com.urbanairship.UrbanAirshipProvider;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonList;
 import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.robolectric.RuntimeEnvironment;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.UUID;
@@ -36,15 +45,15 @@ public class EventResolverTest extends BaseTestCase {
      * to retrieve the data for the event
      */
     @Test
-    public void testInsertEvent() {
+    public void testInsertEvent() throws Exception {
         TestEvent event = new TestEvent("some-id");
 
         eventResolver.insertEvent(event, "session id");
         assertEquals(1, eventResolver.getEventCount());
 
-        Map<String, String> eventData = eventResolver.getEvents(1);
+        Map<String, String> eventData = getEvents(1);
         assertEquals(1, eventData.size());
-        Assert.assertEquals(event.createEventPayload("session id"), eventData.get("some-id"));
+        Assert.assertEquals(JsonValue.parseString(event.createEventPayload("session id")), JsonValue.parseString(eventData.get("some-id")));
     }
 
     /**
@@ -68,6 +77,28 @@ public class EventResolverTest extends BaseTestCase {
         assertEquals(0, eventResolver.getEventCount());
     }
 
+    /**
+     * Test trimming the database only deletes the oldest events needed to get under the specified size.
+     */
+    @Test
+    public void testTrimDatabaseDeletesOldestEvents() throws Exception {
+        int eventSize = new TestEvent("id-1").createEventPayload("session-id").length();
+
+        eventResolver.insertEvent(new TestEvent("id-1"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-2"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-3"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-4"), "session-id");
+
+        // Leave room for two and a half events
+        eventResolver.trimDatabase(eventSize * 2 + eventSize / 2);
+
+        assertEquals(2, eventResolver.getEventCount());
+        assertEquals(eventSize * 2, eventResolver.getDatabaseSize());
+
+        Map<String, String> events = getEvents(10);
+        assertEquals(new HashSet<>(Arrays.asList("id-3", "id-4")), events.keySet());
+    }
+
     /**
      * Test trimming the database when the oldest session ID is null does not throw
      * an exception.
@@ -86,7 +117,7 @@ public class EventResolverTest extends BaseTestCase {
      * Test deleting several events at once
      */
     @Test
-    public void testDeleteEvents() {
+    public void testDeleteEvents() throws Exception {
         eventResolver.insertEvent(new TestEvent("id-1"), "session-id");
         eventResolver.insertEvent(new TestEvent("id-2"), "session-id");
         eventResolver.insertEvent(new TestEvent("id-3"), "session-id");
@@ -95,10 +126,11 @@ public class EventResolverTest extends BaseTestCase {
         assertEquals(4, eventResolver.getEventCount());
 
         // Delete all but id-3
-        assertTrue(eventResolver.deleteEvents(new HashSet<>(Arrays.asList("id-1", "id-2", "id-4"))));
+        long[] rowIds = eventResolver.getEventBatch(4, Integer.MAX_VALUE).getRowIds();
+        assertTrue(eventResolver.deleteEvents(new long[] { rowIds[0], rowIds[1], rowIds[3] }));
 
         assertEquals(1, eventResolver.getEventCount());
-        assertTrue(eventResolver.getEvents(1).containsKey("id-3"));
+        assertTrue(getEvents(1).containsKey("id-3"));
     }
 
     /**
@@ -107,7 +139,7 @@ public class EventResolverTest extends BaseTestCase {
      */
     @Test
     public void testDeleteEventsEmptyDatabase() {
-        assertFalse(eventResolver.deleteEvents(new HashSet<>(Arrays.asList("id", "another-id"))));
+        assertFalse(eventResolver.deleteEvents(new long[] { 1, 2 }));
         assertEquals(0, eventResolver.getEventCount());
     }
 
@@ -116,7 +148,7 @@ public class EventResolverTest extends BaseTestCase {
      * from oldest to newest
      */
     @Test
-    public void testGetEvents() {
+    public void testGetEvents() throws Exception {
         eventResolver.insertEvent(new TestEvent("oldest-id"), UUID.randomUUID().toString());
         eventResolver.insertEvent(new TestEvent("older-id"), UUID.randomUUID().toString());
         eventResolver.insertEvent(new TestEvent("newer-id"), UUID.randomUUID().toString());
@@ -124,7 +156,7 @@ public class EventResolverTest extends BaseTestCase {
         assertEquals(3, eventResolver.getEventCount());
 
         //Should return the oldest events
-        Map<String, String> eventData = eventResolver.getEvents(2);
+        Map<String, String> eventData = getEvents(2);
 
         assertEquals(2, eventData.size());
         assertTrue(eventData.containsKey("oldest-id"));
@@ -135,9 +167,9 @@ public class EventResolverTest extends BaseTestCase {
      * Test asking for more events than what is currently available.
      */
     @Test
-    public void testGetEventsMoreThanAvailable() {
+    public void testGetEventsMoreThanAvailable() throws Exception {
         eventResolver.insertEvent(new TestEvent("oldest-id"), UUID.randomUUID().toString());
-        Map<String, String> eventData = eventResolver.getEvents(300);
+        Map<String, String> eventData = getEvents(300);
         assertEquals(1, eventData.size());
     }
 
@@ -146,11 +178,53 @@ public class EventResolverTest extends BaseTestCase {
      * map
      */
     @Test
-    public void testGetEventsEmptyDatabase() {
-        Map<String, String> eventData = eventResolver.getEvents(300);
+    public void testGetEventsEmptyDatabase() throws Exception {
+        Map<String, String> eventData = getEvents(300);
         assertEquals(0, eventData.size());
     }
 
+    /**
+     * Test deleting events by row ID.
+     */
+    @Test
+    public void testDeleteEventsByRowId() throws Exception {
+        eventResolver.insertEvent(new TestEvent("id-1"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-2"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-3"), "session-id");
+
+        EventBatch batch = eventResolver.getEventBatch(2, Integer.MAX_VALUE);
+        assertEquals(2, batch.size());
+
+        assertTrue(eventResolver.deleteEvents(batch.getRowIds()));
+        assertEquals(1, eventResolver.getEventCount());
+        assertTrue(getEvents(1).containsKey("id-3"));
+    }
+
+    /**
+     * Test event batches are filled up to the max batch size.
+     */
+    @Test
+    public void testGetEventBatchMaxBatchSize() throws Exception {
+        TestEvent event = new TestEvent("id-1");
+        int eventSize = event.createEventPayload("session-id").length();
+
+        eventResolver.insertEvent(event, "session-id");
+        eventResolver.insertEvent(new TestEvent("id-2"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-3"), "session-id");
+
+        // Room for 2 events, the brackets and a separator
+        EventBatch batch = eventResolver.getEventBatch(500, eventSize * 2 + 3);
+        assertEquals(2, batch.size());
+
+        // Always includes the oldest event
+        batch = eventResolver.getEventBatch(500, 1);
+        assertEquals(1, batch.size());
+
+        // Limited by count
+        batch = eventResolver.getEventBatch(1, Integer.MAX_VALUE);
+        assertEquals(1, batch.size());
+    }
+
     /**
      * Test getting the database size
      */
@@ -169,6 +243,26 @@ public class EventResolverTest extends BaseTestCase {
         assertEquals(eventSize * 3, eventResolver.getDatabaseSize());
     }
 
+    /**
+     * Test the event totals are updated when events are deleted.
+     */
+    @Test
+    public void testTotalsAfterDelete() throws Exception {
+        int eventSize = new TestEvent().createEventPayload("session-id").length();
+
+        eventResolver.insertEvent(new TestEvent("id-1"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-2"), "session-id");
+        eventResolver.insertEvent(new TestEvent("id-3"), "session-id");
+
+        eventResolver.deleteEvents(eventResolver.getEventBatch(2, Integer.MAX_VALUE).getRowIds());
+        assertEquals(1, eventResolver.getEventCount());
+        assertEquals(eventSize, eventResolver.getDatabaseSize());
+
+        eventResolver.deleteAllEvents();
+        assertEquals(0, eventResolver.getEventCount());
+        assertEquals(0, eventResolver.getDatabaseSize());
+    }
+
     /**
      * Test getting the event count
      */
@@ -183,6 +277,30 @@ public class EventResolverTest extends BaseTestCase {
         assertEquals(3, eventResolver.getEventCount());
     }
 
+    /**
+     * Reads an event batch and maps the stored event IDs to the spliced event payloads.
+     */
+    private Map<String, String> getEvents(int count) throws JsonException, IOException {
+        EventBatch batch = eventResolver.getEventBatch(count, Integer.MAX_VALUE);
+        StringWriter writer = new StringWriter();
+        batch.writeTo(writer);
+
+        JsonList payloads = JsonValue.parseString(writer.toString()).optList();
+        assertEquals(batch.size(), payloads.size());
+
+        Map<String, String> events = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Cursor cursor = RuntimeEnvironment.application.getContentResolver().query(UrbanAirshipProvider.getEventsContentUri(RuntimeEnvironment.application),
+                    new String[] { EventsStorage.Events.COLUMN_NAME_EVENT_ID }, EventsStorage.Events._ID + " = ?",
+                    new String[] { String.valueOf(batch.getRowIds()[i]) }, null);
+
+            assertTrue(cursor.moveToFirst());
+            events.put(cursor.getString(0), payloads.get(i).toString());
+            cursor.close();
+        }
+        return events;
+    }
+
     /**
      * Testing class for testing events
      */
@@ -17,8 +17,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class AutomationDataManagerTest extends BaseTestCase {
 
@@ -325,6 +327,98 @@ public class AutomationDataManagerTest extends BaseTestCase {
 
     }
 
+    @Test
+    public void testActiveTriggersFollowScheduleState() {
+        ScheduleEntry entry = createEntry("schedule", "group", 0, System.currentTimeMillis() + 100000);
+        dataManager.saveSchedule(entry);
+        assertEquals(1, dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_FOREGROUND).size());
+
+        entry.setExecutionState(ScheduleEntry.STATE_TIME_DELAYED);
+        dataManager.saveSchedule(entry);
+        assertTrue(dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_FOREGROUND).isEmpty());
+
+        entry.setExecutionState(ScheduleEntry.STATE_IDLE);
+        dataManager.saveSchedules(Collections.singletonList(entry));
+        assertEquals(1, dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_FOREGROUND).size());
+
+        dataManager.deleteGroup("group");
+        assertTrue(dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_FOREGROUND).isEmpty());
+    }
+
+    @Test
+    public void testLoadedSchedulesShareActiveTriggers() {
+        dataManager.saveSchedules(createSchedules(2));
+
+        TriggerEntry trigger = dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_FOREGROUND, "schedule_id_1").get(0);
+        ScheduleEntry entry = dataManager.getScheduleEntry("schedule_id_1");
+        assertTrue(entry.triggerEntries.contains(trigger));
+
+        trigger.setProgress(4);
+        dataManager.saveTriggers(Collections.singletonList(trigger));
+        assertEquals(4, dataManager.getScheduleEntry("schedule_id_1").triggerEntries.get(entry.triggerEntries.indexOf(trigger)).getProgress(), 0.0);
+    }
+
+    @Test
+    public void testActiveTriggersLoadedFromDatabase() {
+        dataManager.saveSchedules(createSchedules(3));
+
+        TriggerEntry trigger = dataManager.getActiveTriggerEntries(Trigger.LIFE_CYCLE_BACKGROUND, "schedule_id_2").get(0);
+        trigger.setProgress(2);
+        dataManager.saveTriggers(Collections.singletonList(trigger));
+
+        AutomationDataManager other = new AutomationDataManager(RuntimeEnvironment.application, "appKey", "test");
+        try {
+            assertEquals(3, other.getActiveTriggerEntries(Trigger.LIFE_CYCLE_BACKGROUND).size());
+            assertEquals(2, other.getActiveTriggerEntries(Trigger.LIFE_CYCLE_BACKGROUND, "schedule_id_2").get(0).getProgress(), 0.0);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void testGetScheduleIdsByGroup() {
+        AutomationDataManager sourceDataManager = new AutomationDataManager(RuntimeEnvironment.application, "appKey", "test", "source");
+        try {
+            sourceDataManager.saveSchedules(createSchedules(2));
+            sourceDataManager.saveSchedule(createSourceEntry("remote_schedule", "remote group", "remote-data"));
+            sourceDataManager.saveSchedule(createSourceEntry("app_schedule", "app group", "app-defined"));
+
+            Map<String, String> scheduleIds = sourceDataManager.getScheduleIdsByGroup("remote-data");
+            assertEquals(Collections.singletonMap("remote group", "remote_schedule"), scheduleIds);
+
+            // Edits that change the data source update the lookup
+            ScheduleEntry entry = sourceDataManager.getScheduleEntry("app_schedule");
+            entry.applyEdits(ActionScheduleEdits.newBuilder()
+                                                .setActions(Collections.singletonMap("source", JsonValue.wrap("remote-data")))
+                                                .build());
+            sourceDataManager.saveSchedule(entry);
+
+            scheduleIds = sourceDataManager.getScheduleIdsByGroup("remote-data");
+            assertEquals(2, scheduleIds.size());
+            assertEquals("app_schedule", scheduleIds.get("app group"));
+        } finally {
+            sourceDataManager.close();
+        }
+    }
+
+    @Test
+    public void testGetScheduleIdsByGroupWithoutSourceKey() {
+        dataManager.saveSchedule(createSourceEntry("remote_schedule", "remote group", "remote-data"));
+
+        // Schedule data is not interpreted without a source key
+        assertTrue(dataManager.getScheduleIdsByGroup("remote-data").isEmpty());
+    }
+
+    private ScheduleEntry createSourceEntry(String id, String group, String source) {
+        ActionScheduleInfo schedule = ActionScheduleInfo.newBuilder()
+                                                        .setGroup(group)
+                                                        .addAction("source", JsonValue.wrap(source))
+                                                        .addTrigger(Triggers.newAppInitTriggerBuilder().setGoal(1).build())
+                                                        .build();
+
+        return new ScheduleEntry(id, schedule, JsonMap.EMPTY_MAP);
+    }
+
     private List<ScheduleEntry> createSchedules(int amount) {
         List<ScheduleEntry> scheduleEntries = new ArrayList<>();
         for (int i = 0; i < amount; i++) {
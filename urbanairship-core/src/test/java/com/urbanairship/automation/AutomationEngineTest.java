@@ -27,9 +27,12 @@ import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -51,6 +54,8 @@ public class AutomationEngineTest extends BaseTestCase {
     private AutomationEngine<ActionSchedule> automationEngine;
     private TestActivityMonitor activityMonitor;
     private ApplicationMetrics mockMetrics;
+    private int triggerWriteCount;
+    private boolean failTriggerWrites;
 
     private ActionScheduleInfo scheduleInfo;
 
@@ -77,7 +82,15 @@ public class AutomationEngineTest extends BaseTestCase {
         };
 
         driver = new TestActionScheduleDriver();
-        automationDataManager = new AutomationDataManager(TestApplication.getApplication(), "appKey", "AutomationEngineTest");
+        automationDataManager = new AutomationDataManager(TestApplication.getApplication(), "appKey", "AutomationEngineTest") {
+            @Override
+            boolean saveTriggers(@NonNull Collection<TriggerEntry> triggerEntries) {
+                if (!triggerEntries.isEmpty()) {
+                    triggerWriteCount++;
+                }
+                return !failTriggerWrites && super.saveTriggers(triggerEntries);
+            }
+        };
         automationEngine = new AutomationEngine.Builder<ActionSchedule>()
                 .setAnalytics(UAirship.shared().getAnalytics())
                 .setDataManager(automationDataManager)
@@ -268,6 +281,104 @@ public class AutomationEngineTest extends BaseTestCase {
         });
     }
 
+    @Test
+    public void testTriggerProgressWriteBehind() throws Exception {
+        ActionScheduleInfo scheduleInfo = ActionScheduleInfo.newBuilder()
+                                                            .addTrigger(Triggers.newCustomEventTriggerBuilder()
+                                                                                .setCountGoal(5000)
+                                                                                .setEventName("event")
+                                                                                .build())
+                                                            .addAction("test_action", JsonValue.wrap("action_value"))
+                                                            .build();
+
+        Future<ActionSchedule> pendingResult = automationEngine.schedule(scheduleInfo, JsonMap.EMPTY_MAP);
+        runLooperTasks();
+        ActionSchedule schedule = pendingResult.get();
+
+        // Before: progress is written for every event while backgrounded
+        activityMonitor.background();
+        triggerWriteCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            CustomEvent.newBuilder("event").build().track();
+        }
+        runLooperTasks();
+        int writeThroughCount = triggerWriteCount;
+        assertEquals(1000, writeThroughCount);
+
+        // After: progress is checkpointed while foregrounded
+        activityMonitor.foreground();
+        triggerWriteCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            CustomEvent.newBuilder("event").build().track();
+        }
+        runLooperTasks();
+        assertEquals(0, triggerWriteCount);
+
+        advanceAutomationLooperScheduler(AutomationEngine.TRIGGER_CHECKPOINT_DELAY_MS);
+        int writeBehindCount = triggerWriteCount;
+        assertEquals(1, writeBehindCount);
+        assertTrue(writeBehindCount * 1000 <= writeThroughCount);
+
+        assertEquals(2000.0, getStoredProgress(schedule.getId()));
+    }
+
+    @Test
+    public void testTriggerProgressCheckpointRetried() throws Exception {
+        activityMonitor.foreground();
+
+        ActionScheduleInfo scheduleInfo = ActionScheduleInfo.newBuilder()
+                                                            .addTrigger(Triggers.newCustomEventTriggerBuilder()
+                                                                                .setCountGoal(10)
+                                                                                .setEventName("event")
+                                                                                .build())
+                                                            .addAction("test_action", JsonValue.wrap("action_value"))
+                                                            .build();
+
+        Future<ActionSchedule> pendingResult = automationEngine.schedule(scheduleInfo, JsonMap.EMPTY_MAP);
+        runLooperTasks();
+        ActionSchedule schedule = pendingResult.get();
+        triggerWriteCount = 0;
+
+        failTriggerWrites = true;
+        CustomEvent.newBuilder("event").build().track();
+        runLooperTasks();
+        advanceLoopers(AutomationEngine.TRIGGER_CHECKPOINT_DELAY_MS);
+        assertEquals(1, triggerWriteCount);
+        assertEquals(0.0, getStoredProgress(schedule.getId()));
+
+        // Progress is kept and written on the next checkpoint
+        failTriggerWrites = false;
+        advanceLoopers(AutomationEngine.TRIGGER_CHECKPOINT_DELAY_MS);
+        assertEquals(2, triggerWriteCount);
+        assertEquals(1.0, getStoredProgress(schedule.getId()));
+    }
+
+    @Test
+    public void testTriggerProgressSavedOnBackground() throws Exception {
+        activityMonitor.foreground();
+
+        ActionScheduleInfo scheduleInfo = ActionScheduleInfo.newBuilder()
+                                                            .addTrigger(Triggers.newCustomEventTriggerBuilder()
+                                                                                .setCountGoal(10)
+                                                                                .setEventName("event")
+                                                                                .build())
+                                                            .addAction("test_action", JsonValue.wrap("action_value"))
+                                                            .build();
+
+        automationEngine.schedule(scheduleInfo, JsonMap.EMPTY_MAP);
+        runLooperTasks();
+        triggerWriteCount = 0;
+
+        CustomEvent.newBuilder("event").build().track();
+        Shadows.shadowOf(Looper.getMainLooper()).idle();
+        Shadows.shadowOf(automationEngine.backgroundThread.getLooper()).idle();
+        assertEquals(0, triggerWriteCount);
+
+        activityMonitor.background();
+        Shadows.shadowOf(automationEngine.backgroundThread.getLooper()).idle();
+        assertEquals(1, triggerWriteCount);
+    }
+
     @Test
     public void testSecondsDelay() throws Exception {
         ScheduleDelay delay = ScheduleDelay.newBuilder()
@@ -605,6 +716,39 @@ public class AutomationEngineTest extends BaseTestCase {
         assertEquals(edits.getEnd().longValue(), updated.getInfo().getEnd());
     }
 
+    @Test
+    public void testEditSchedules() throws Exception {
+        ActionSchedule first = schedule(scheduleInfo);
+        ActionSchedule second = schedule(scheduleInfo);
+
+        Map<String, ActionScheduleEdits> edits = new HashMap<>();
+        edits.put(first.getId(), ActionScheduleEdits.newBuilder()
+                                                    .setPriority(10)
+                                                    .build());
+        edits.put(second.getId(), ActionScheduleEdits.newBuilder()
+                                                     .setEnd(0)
+                                                     .build());
+        edits.put("missing", ActionScheduleEdits.newBuilder()
+                                                .setPriority(20)
+                                                .build());
+
+        Future<Collection<ActionSchedule>> future = automationEngine.editSchedules(edits);
+        runLooperTasks();
+
+        Map<String, ActionSchedule> updated = new HashMap<>();
+        for (ActionSchedule schedule : future.get()) {
+            updated.put(schedule.getId(), schedule);
+        }
+
+        // Missing schedules are omitted
+        assertEquals(2, updated.size());
+        assertEquals(10, updated.get(first.getId()).getInfo().getPriority());
+        assertEquals(0, updated.get(second.getId()).getInfo().getEnd());
+
+        assertEquals(ScheduleEntry.STATE_IDLE, automationDataManager.getScheduleEntry(first.getId()).getExecutionState());
+        assertEquals(ScheduleEntry.STATE_FINISHED, automationDataManager.getScheduleEntry(second.getId()).getExecutionState());
+    }
+
     @Test
     public void testInterval() throws Exception {
         final ActionScheduleInfo scheduleInfo = ActionScheduleInfo.newBuilder()
@@ -642,6 +786,27 @@ public class AutomationEngineTest extends BaseTestCase {
         assertEquals(automationDataManager.getScheduleEntry(schedule.getId()).getExecutionState(), ScheduleEntry.STATE_IDLE);
     }
 
+    @Test
+    public void testGetScheduleIdsByTriggerType() throws Exception {
+        ActionSchedule foreground = schedule(ActionScheduleInfo.newBuilder()
+                                                               .addTrigger(Triggers.newForegroundTriggerBuilder().setGoal(1).build())
+                                                               .addAction("test_action", JsonValue.wrap("action_value"))
+                                                               .build());
+
+        ActionSchedule background = schedule(ActionScheduleInfo.newBuilder()
+                                                               .addTrigger(Triggers.newBackgroundTriggerBuilder().setGoal(1).build())
+                                                               .addAction("test_action", JsonValue.wrap("action_value"))
+                                                               .build());
+
+        // Custom event schedule
+        schedule(scheduleInfo);
+
+        PendingResult<Set<String>> result = automationEngine.getScheduleIdsByTriggerType(Trigger.LIFE_CYCLE_FOREGROUND, Trigger.LIFE_CYCLE_BACKGROUND);
+        runLooperTasks();
+
+        assertEquals(new HashSet<>(Arrays.asList(foreground.getId(), background.getId())), result.get());
+    }
+
     @Test
     public void testOnScheduleChangeBeforeEngineStarts() {
         OperationScheduler scheduler = new OperationScheduler() {
@@ -909,6 +1074,22 @@ public class AutomationEngineTest extends BaseTestCase {
         automationLooper.getScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
     }
 
+    private double getStoredProgress(String scheduleId) {
+        // Reads the database directly instead of the engine's in-memory triggers
+        AutomationDataManager other = new AutomationDataManager(TestApplication.getApplication(), "appKey", "AutomationEngineTest");
+        try {
+            return other.getScheduleEntry(scheduleId).triggerEntries.get(0).getProgress();
+        } finally {
+            other.close();
+        }
+    }
+
+    private void advanceLoopers(long millis) {
+        // SystemClock follows the main looper, so it has to advance for delayed reposts
+        Shadows.shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+        advanceAutomationLooperScheduler(millis);
+    }
+
     private ActionSchedule schedule(ActionScheduleInfo scheduleInfo) throws ExecutionException, InterruptedException {
         PendingResult<ActionSchedule> future = automationEngine.schedule(scheduleInfo, JsonMap.EMPTY_MAP);
         runLooperTasks();
@@ -13,6 +13,7 @@ import com.urbanairship.UAirship;
 import com.urbanairship.http.Response;
 import com.urbanairship.job.JobDispatcher;
 import com.urbanairship.job.JobInfo;
+import com.urbanairship.json.JsonValue;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +21,7 @@ import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -35,7 +37,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
@@ -673,6 +677,48 @@ public class AirshipChannelTests extends BaseTestCase {
         assertEquals(tags, airshipChannel.getTags());
     }
 
+    /**
+     * Test the tag snapshot is replaced on edit and getTags returns a mutable copy.
+     */
+    @Test
+    public void testTagSnapshot() {
+        airshipChannel.setTags(new HashSet<>(Arrays.asList("one", "two")));
+
+        Set<String> snapshot = airshipChannel.getTagSnapshot();
+        assertSame(snapshot, airshipChannel.getTagSnapshot());
+
+        try {
+            snapshot.add("three");
+            fail("Snapshot should be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+
+        Set<String> tags = airshipChannel.getTags();
+        tags.add("three");
+        assertEquals(2, airshipChannel.getTagSnapshot().size());
+
+        airshipChannel.editTags().addTag("three").apply();
+        assertEquals(new HashSet<>(Arrays.asList("one", "two")), snapshot);
+        assertEquals(new HashSet<>(Arrays.asList("one", "two", "three")), airshipChannel.getTagSnapshot());
+    }
+
+    /**
+     * Test the tag snapshot is reloaded when the stored tags change outside of the channel,
+     * for example from another process.
+     */
+    @Test
+    public void testTagSnapshotStoredTagsChanged() {
+        airshipChannel.init();
+        airshipChannel.setTags(new HashSet<>(Arrays.asList("one", "two")));
+        assertEquals(new HashSet<>(Arrays.asList("one", "two")), airshipChannel.getTagSnapshot());
+
+        getApplication().preferenceDataStore.put("com.urbanairship.push.TAGS", JsonValue.wrapOpt(Arrays.asList("three")));
+
+        assertEquals(Collections.singleton("three"), airshipChannel.getTagSnapshot());
+        assertEquals(Collections.singleton("three"), airshipChannel.getTags());
+    }
+
 
     /**
      * Tests trimming of tag's white space when tag is only white space.
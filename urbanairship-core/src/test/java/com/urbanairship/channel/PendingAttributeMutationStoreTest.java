@@ -3,13 +3,17 @@
 package com.urbanairship.channel;
 
 import com.urbanairship.BaseTestCase;
+import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.TestApplication;
 import com.urbanairship.json.JsonValue;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
@@ -19,10 +23,20 @@ import static junit.framework.Assert.assertTrue;
 public class PendingAttributeMutationStoreTest extends BaseTestCase {
 
     private PendingAttributeMutationStore store;
+    private PendingMutationDataManager dataManager;
+    private PreferenceDataStore dataStore;
 
     @Before
     public void setup() {
-        store = new PendingAttributeMutationStore(TestApplication.getApplication().preferenceDataStore, "test");
+        dataStore = TestApplication.getApplication().preferenceDataStore;
+        dataManager = new PendingMutationDataManager(RuntimeEnvironment.application, "appKey", "test");
+        store = new PendingAttributeMutationStore(dataStore, dataManager, "test");
+    }
+
+    @After
+    public void teardown() {
+        dataManager.clear("test");
+        dataManager.close();
     }
 
     @Test
@@ -132,4 +146,45 @@ public class PendingAttributeMutationStoreTest extends BaseTestCase {
 
         assertEquals(expectedResult, JsonValue.wrapOpt(store.peek()).toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCollapseBatch() {
+        for (int i = 0; i < PendingAttributeMutationStore.COLLAPSE_BATCH_SIZE + 1; i++) {
+            List<AttributeMutation> mutations = new ArrayList<>();
+            mutations.add(AttributeMutation.newSetAttributeMutation("key", "value-" + i));
+            store.add(PendingAttributeMutation.fromAttributeMutations(mutations, i));
+        }
+
+        store.collapseAndSaveMutations();
+
+        // Only the head batch is collapsed, the rest stays queued in order
+        List<List<PendingAttributeMutation>> allMutations = store.getMutations();
+        assertEquals(2, allMutations.size());
+        assertEquals(1, allMutations.get(0).size());
+        assertEquals("value-99", allMutations.get(0).get(0).toJsonValue().optMap().opt("value").getString());
+        assertEquals("value-100", allMutations.get(1).get(0).toJsonValue().optMap().opt("value").getString());
+    }
+
+    @Test
+    public void testCollapseEmpty() {
+        store.add(new ArrayList<PendingAttributeMutation>());
+
+        store.collapseAndSaveMutations();
+
+        assertNull(store.peek());
+        assertTrue(store.getMutations().isEmpty());
+    }
+
+    @Test
+    public void testMigratePreferenceMutations() {
+        List<AttributeMutation> mutations = new ArrayList<>();
+        mutations.add(AttributeMutation.newSetAttributeMutation("expected_key", "expected_value"));
+        List<PendingAttributeMutation> stored = PendingAttributeMutation.fromAttributeMutations(mutations, 0);
+        dataStore.put("test", JsonValue.wrapOpt(Collections.singletonList(stored)));
+
+        assertEquals(JsonValue.wrapOpt(stored), JsonValue.wrapOpt(store.pop()));
+        assertNull(store.pop());
+        assertTrue(dataStore.getJsonValue("test").isNull());
+    }
+
+}
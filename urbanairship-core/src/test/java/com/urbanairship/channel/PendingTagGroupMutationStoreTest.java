@@ -4,13 +4,17 @@ package com.urbanairship.channel;
 
 import com.urbanairship.BaseTestCase;
 import com.urbanairship.TestApplication;
-import com.urbanairship.channel.PendingTagGroupMutationStore;
+import com.urbanairship.PreferenceDataStore;
+import com.urbanairship.json.JsonValue;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -22,10 +26,20 @@ import static junit.framework.Assert.assertTrue;
 public class PendingTagGroupMutationStoreTest extends BaseTestCase {
 
     PendingTagGroupMutationStore store;
+    PendingMutationDataManager dataManager;
+    PreferenceDataStore dataStore;
 
     @Before
     public void setup() {
-        store = new PendingTagGroupMutationStore(TestApplication.getApplication().preferenceDataStore, "test");
+        dataStore = TestApplication.getApplication().preferenceDataStore;
+        dataManager = new PendingMutationDataManager(RuntimeEnvironment.application, "appKey", "test");
+        store = new PendingTagGroupMutationStore(dataStore, dataManager, "test");
+    }
+
+    @After
+    public void teardown() {
+        dataManager.clear("test");
+        dataManager.close();
     }
 
     @Test
@@ -90,6 +104,52 @@ public class PendingTagGroupMutationStoreTest extends BaseTestCase {
         assertEquals(collapseMutations.get(0), store.peek());
     }
 
+    @Test
+    public void testPeekCount() {
+        List<TagGroupsMutation> mutations = new ArrayList<>();
+        mutations.add(TagGroupsMutation.newAddTagsMutation("group-one", createTagSet("cool")));
+        mutations.add(TagGroupsMutation.newSetTagsMutation("group-two", createTagSet("whatever")));
+        mutations.add(TagGroupsMutation.newRemoveTagsMutation("group-three", createTagSet("story")));
+
+        store.add(mutations);
+
+        assertEquals(mutations.subList(0, 2), store.peek(2));
+        assertEquals(mutations, store.peek(10));
+    }
+
+    @Test
+    public void testCollapseBatch() {
+        List<TagGroupsMutation> mutations = new ArrayList<>();
+        for (int i = 0; i < PendingTagGroupMutationStore.COLLAPSE_BATCH_SIZE + 1; i++) {
+            mutations.add(TagGroupsMutation.newAddTagsMutation("group", createTagSet("tag-" + i)));
+        }
+        store.add(mutations);
+
+        store.collapseMutations();
+
+        // Only the head batch is collapsed, the rest stays queued in order
+        List<TagGroupsMutation> expected = new ArrayList<>();
+        expected.addAll(TagGroupsMutation.collapseMutations(mutations.subList(0, PendingTagGroupMutationStore.COLLAPSE_BATCH_SIZE)));
+        expected.add(mutations.get(PendingTagGroupMutationStore.COLLAPSE_BATCH_SIZE));
+        assertEquals(expected, store.getMutations());
+    }
+
+    @Test
+    public void testMigratePreferenceMutations() {
+        List<TagGroupsMutation> mutations = new ArrayList<>();
+        mutations.add(TagGroupsMutation.newAddTagsMutation("group-one", createTagSet("cool")));
+        mutations.add(TagGroupsMutation.newSetTagsMutation("group-two", createTagSet("whatever")));
+        dataStore.put("test", JsonValue.wrapOpt(mutations));
+
+        TagGroupsMutation added = TagGroupsMutation.newRemoveTagsMutation("group-three", createTagSet("story"));
+        store.add(Collections.singletonList(added));
+
+        List<TagGroupsMutation> expected = new ArrayList<>(mutations);
+        expected.add(added);
+        assertEquals(expected, store.getMutations());
+        assertTrue(dataStore.getJsonValue("test").isNull());
+    }
+
     private Set<String> createTagSet(String... tags) {
         return new HashSet<>(Arrays.asList(tags));
     }
@@ -12,10 +12,12 @@ import com.urbanairship.channel.TagGroupApiClient;
 import com.urbanairship.channel.TagGroupRegistrar;
 import com.urbanairship.http.Response;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.robolectric.RuntimeEnvironment;
 
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
@@ -26,7 +28,12 @@ import java.util.List;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -38,17 +45,24 @@ public class TagGroupRegistrarTests extends BaseTestCase {
     private PendingTagGroupMutationStore channelStore;
     private TagGroupApiClient mockClient;
     private TagGroupRegistrar registrar;
+    private PendingMutationDataManager dataManager;
 
     @Before
     public void setup() {
         mockClient = mock(TagGroupApiClient.class);
-        namedUserStore = new PendingTagGroupMutationStore(TestApplication.getApplication().preferenceDataStore, "TagGroupRegistrarTests.named-user");
-        channelStore = new PendingTagGroupMutationStore(TestApplication.getApplication().preferenceDataStore, "TagGroupRegistrarTests.channel");
+        dataManager = new PendingMutationDataManager(RuntimeEnvironment.application, "appKey", "TagGroupRegistrarTests");
+        namedUserStore = new PendingTagGroupMutationStore(TestApplication.getApplication().preferenceDataStore, dataManager, "TagGroupRegistrarTests.named-user");
+        channelStore = new PendingTagGroupMutationStore(TestApplication.getApplication().preferenceDataStore, dataManager, "TagGroupRegistrarTests.channel");
 
         namedUserStore.clear();
         channelStore.clear();
 
-        registrar = new TagGroupRegistrar(mockClient, channelStore, namedUserStore);
+        registrar = new TagGroupRegistrar(mockClient, dataManager, channelStore, namedUserStore);
+    }
+
+    @After
+    public void teardown() {
+        dataManager.close();
     }
 
     @Test
@@ -150,6 +164,68 @@ public class TagGroupRegistrarTests extends BaseTestCase {
         verifyRequest(response, TagGroupRegistrar.CHANNEL, channelStore, true);
     }
 
+    /**
+     * Test mutations are uploaded in order from a single read of the store.
+     */
+    @Test
+    public void testUploadBatch() {
+        Response response = Response.newBuilder(HttpURLConnection.HTTP_OK).build();
+
+        TagGroupsMutation setMutation = TagGroupsMutation.newSetTagsMutation("set-group", new HashSet<>(Lists.newArrayList("tag1")));
+        TagGroupsMutation addMutation = TagGroupsMutation.newAddTagsMutation("add-group", new HashSet<>(Lists.newArrayList("tag2")));
+        registrar.addMutations(TagGroupRegistrar.CHANNEL, Lists.newArrayList(setMutation, addMutation));
+
+        channelStore.collapseMutations();
+        List<TagGroupsMutation> expected = channelStore.peek(TagGroupRegistrar.UPLOAD_BATCH_SIZE);
+        assertEquals(2, expected.size());
+
+        PendingTagGroupMutationStore spyStore = spy(channelStore);
+        registrar = new TagGroupRegistrar(mockClient, dataManager, spyStore, namedUserStore);
+
+        TestListener listener = new TestListener();
+        registrar.addListener(listener);
+        when(mockClient.updateTagGroups(eq(TagGroupRegistrar.CHANNEL), eq("identifier"), any(TagGroupsMutation.class))).thenReturn(response);
+
+        assertTrue(registrar.uploadMutations(TagGroupRegistrar.CHANNEL, "identifier"));
+        assertEquals(expected, listener.mutations);
+        assertTrue(channelStore.getMutations().isEmpty());
+
+        // One read for the batch and one to find the store empty
+        verify(spyStore, times(2)).peekEntries(TagGroupRegistrar.UPLOAD_BATCH_SIZE);
+    }
+
+    /**
+     * Test mutations added after the store changes during an upload are not removed without being uploaded.
+     */
+    @Test
+    public void testStoreChangedDuringUpload() {
+        final Response response = Response.newBuilder(HttpURLConnection.HTTP_OK).build();
+
+        TestListener listener = new TestListener();
+        registrar.addListener(listener);
+
+        TagGroupsMutation first = TagGroupsMutation.newAddTagsMutation("first", new HashSet<>(Lists.newArrayList("tag1")));
+        final TagGroupsMutation second = TagGroupsMutation.newAddTagsMutation("second", new HashSet<>(Lists.newArrayList("tag2")));
+        registrar.addMutations(TagGroupRegistrar.CHANNEL, Collections.singletonList(first));
+
+        when(mockClient.updateTagGroups(TagGroupRegistrar.CHANNEL, "identifier", first)).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                channelStore.clear();
+                registrar.addMutations(TagGroupRegistrar.CHANNEL, Collections.singletonList(second));
+                return response;
+            }
+        });
+
+        when(mockClient.updateTagGroups(TagGroupRegistrar.CHANNEL, "identifier", second)).thenReturn(response);
+
+        assertTrue(registrar.uploadMutations(TagGroupRegistrar.CHANNEL, "identifier"));
+
+        verify(mockClient).updateTagGroups(TagGroupRegistrar.CHANNEL, "identifier", second);
+        assertEquals(Lists.newArrayList(first, second), listener.mutations);
+        assertTrue(channelStore.getMutations().isEmpty());
+    }
+
     @Test
     public void testClearTagsDuringUpload() {
         final Response response = new Response.Builder(200)
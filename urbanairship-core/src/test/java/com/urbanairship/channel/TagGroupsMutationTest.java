@@ -223,6 +223,15 @@ public class TagGroupsMutationTest extends BaseTestCase {
         assertFalse(collapsed.isEmpty());
     }
 
+    @Test
+    public void testEquals() {
+        TagGroupsMutation mutation = TagGroupsMutation.newAddTagsMutation("group", tagSet("tag1", "tag2"));
+
+        assertEquals(mutation, TagGroupsMutation.newAddTagsMutation("group", tagSet("tag2", "tag1")));
+        assertFalse(mutation.equals(TagGroupsMutation.newAddTagsMutation("group", tagSet("tag1"))));
+        assertFalse(mutation.equals(TagGroupsMutation.newRemoveTagsMutation("group", tagSet("tag1", "tag2"))));
+    }
+
     /**
      * Helper method to create a set.
      *
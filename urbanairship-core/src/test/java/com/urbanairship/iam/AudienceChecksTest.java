@@ -140,7 +140,7 @@ public class AudienceChecksTest extends BaseTestCase {
     @Test
     public void testTagSelector() {
         final Set<String> tags = new HashSet<>();
-        when(airshipChannel.getTags()).then(new Answer<Set<String>>() {
+        when(airshipChannel.getTagSnapshot()).then(new Answer<Set<String>>() {
             @Override
             public Set<String> answer(InvocationOnMock invocation) throws Throwable {
                 return tags;
@@ -160,7 +160,7 @@ public class AudienceChecksTest extends BaseTestCase {
     @Test
     public void testTagSelectorWithGroups() {
         final Set<String> tags = new HashSet<>();
-        when(airshipChannel.getTags()).then(new Answer<Set<String>>() {
+        when(airshipChannel.getTagSnapshot()).then(new Answer<Set<String>>() {
             @Override
             public Set<String> answer(InvocationOnMock invocation) throws Throwable {
                 return tags;
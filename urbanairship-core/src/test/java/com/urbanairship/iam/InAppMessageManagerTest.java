@@ -9,6 +9,7 @@ import androidx.annotation.Nullable;
 
 import com.urbanairship.AirshipLoopers;
 import com.urbanairship.BaseTestCase;
+import com.urbanairship.PendingResult;
 import com.urbanairship.PreferenceDataStore;
 import com.urbanairship.TestActivityMonitor;
 import com.urbanairship.TestApplication;
@@ -19,6 +20,7 @@ import com.urbanairship.actions.StubbedActionRunRequest;
 import com.urbanairship.analytics.Analytics;
 import com.urbanairship.automation.AutomationDriver;
 import com.urbanairship.automation.AutomationEngine;
+import com.urbanairship.automation.Trigger;
 import com.urbanairship.automation.Triggers;
 import com.urbanairship.iam.assets.AssetManager;
 import com.urbanairship.iam.assets.Assets;
@@ -40,16 +42,23 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.Shadows;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import static com.urbanairship.iam.tags.TestUtils.tagSet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -89,6 +98,7 @@ public class InAppMessageManagerTest extends BaseTestCase {
     private DisplayCoordinator mockCoordinator;
     private TestInAppRemoteDataObserver testObserver;
     private AssetManager mockAssetManager;
+    private TestActivityMonitor activityMonitor;
 
     @Before
     public void setup() {
@@ -139,7 +149,8 @@ public class InAppMessageManagerTest extends BaseTestCase {
             }
         });
 
-        manager = new InAppMessageManager(TestApplication.getApplication(), TestApplication.getApplication().preferenceDataStore, mockAnalytics, new TestActivityMonitor(),
+        activityMonitor = new TestActivityMonitor();
+        manager = new InAppMessageManager(TestApplication.getApplication(), TestApplication.getApplication().preferenceDataStore, mockAnalytics, activityMonitor,
                 executor, mockDriver, mockEngine, mockRemoteData, UAirship.shared().getChannel(), actionRunRequestFactory, mockTagManager, testObserver, mockAssetManager);
 
         InAppMessageScheduleInfo info = InAppMessageScheduleInfo.newBuilder()
@@ -463,6 +474,9 @@ public class InAppMessageManagerTest extends BaseTestCase {
         // Return cancel result
         verify(mockDriver).schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_CANCEL);
 
+        // Assets are released once
+        verify(mockAssetManager, times(1)).onDisplayFinished(schedule);
+
         // Advance the looper to make sure its not called again
         Looper mainLooper = Looper.getMainLooper();
         Shadows.shadowOf(mainLooper).runToEndOfTasks();
@@ -590,6 +604,53 @@ public class InAppMessageManagerTest extends BaseTestCase {
         verify(mockDriver).schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_CONTINUE);
     }
 
+    @Test
+    public void testAudienceMissReleasesAssets() {
+        Map<String, Set<String>> tagGroups = new HashMap<>();
+        tagGroups.put("expected group", tagSet("expected tag"));
+
+        Audience audience = Audience.newBuilder()
+                                    .setTagSelector(TagSelector.tag("expected tag", "expected group"))
+                                    .build();
+
+        InAppMessageScheduleInfo info = InAppMessageScheduleInfo.newBuilder()
+                                                                .addTrigger(Triggers.newAppInitTriggerBuilder().setGoal(1).build())
+                                                                .setMessage(InAppMessage.newBuilder()
+                                                                                        .setDisplayContent(new CustomDisplayContent(JsonValue.NULL))
+                                                                                        .setId("message id")
+                                                                                        .setAudience(audience)
+                                                                                        .build())
+                                                                .build();
+
+        schedule = new InAppMessageSchedule("schedule id", JsonMap.EMPTY_MAP, info);
+
+        // Miss the audience only once the assets have started preparing
+        final CountDownLatch assetsStarted = new CountDownLatch(1);
+        when(mockAssetManager.onPrepare(schedule, schedule.getInfo().getInAppMessage())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                assetsStarted.countDown();
+                return AssetManager.PREPARE_RESULT_OK;
+            }
+        });
+
+        when(mockTagManager.getTags(tagGroups)).thenAnswer(new Answer<TagGroupResult>() {
+            @Override
+            public TagGroupResult answer(InvocationOnMock invocation) throws Throwable {
+                assetsStarted.await(5, TimeUnit.SECONDS);
+                return new TagGroupResult(true, Collections.<String, Set<String>>emptyMap());
+            }
+        });
+
+        // Prepare the schedule
+        driverListener.onPrepareSchedule(schedule);
+
+        verify(mockDriver).schedulePrepared(schedule.getId(), AutomationDriver.PREPARE_RESULT_PENALIZE);
+        verify(mockAssetManager).onPrepare(schedule, schedule.getInfo().getInAppMessage());
+        verify(mockAssetManager, times(1)).onDisplayFinished(schedule);
+        verify(mockAdapter, never()).onPrepare(any(Context.class), any(Assets.class));
+    }
+
     @Test
     public void testMessageExtending() {
         manager.setMessageExtender(new InAppMessageExtender() {
@@ -761,6 +822,63 @@ public class InAppMessageManagerTest extends BaseTestCase {
         verify(mockAssetManager, times(3)).onScheduleFinished(schedule);
     }
 
+    @Test
+    public void testSpeculativePrepareOnBackground() {
+        // Already prepared schedules are skipped
+        InAppMessageSchedule prepared = new InAppMessageSchedule("prepared", JsonMap.EMPTY_MAP, schedule.getInfo());
+        when(mockAdapter.onPrepare(any(Context.class), any(Assets.class))).thenReturn(InAppMessageAdapter.OK);
+        driverListener.onPrepareSchedule(prepared);
+        verify(mockDriver).schedulePrepared(prepared.getId(), AutomationDriver.PREPARE_RESULT_CONTINUE);
+
+        final List<Runnable> prepareTasks = new ArrayList<>();
+        manager.prepareExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                prepareTasks.add(runnable);
+            }
+        };
+
+        PendingResult<Set<String>> idsResult = new PendingResult<>();
+        idsResult.setResult(new HashSet<>(Arrays.asList(schedule.getId(), prepared.getId())));
+        when(mockEngine.getScheduleIdsByTriggerType(Trigger.LIFE_CYCLE_FOREGROUND, Trigger.LIFE_CYCLE_APP_INIT)).thenReturn(idsResult);
+
+        PendingResult<Collection<InAppMessageSchedule>> schedulesResult = new PendingResult<>();
+        schedulesResult.setResult(Collections.singletonList(schedule));
+        when(mockEngine.getSchedules(Collections.singleton(schedule.getId()))).thenReturn(schedulesResult);
+
+        // Disabled by default
+        activityMonitor.background();
+        runLooperTasks();
+        assertTrue(prepareTasks.isEmpty());
+
+        manager.setSpeculativePrepareLimit(1);
+        activityMonitor.background();
+        runLooperTasks();
+
+        // Runs on the prepare executor, not the in-app executor
+        verify(mockAssetManager, never()).onSpeculativePrepare(any(InAppMessageSchedule.class), any(InAppMessage.class));
+        assertEquals(1, prepareTasks.size());
+        prepareTasks.get(0).run();
+
+        // Only the schedules with matching triggers that are not prepared are loaded
+        verify(mockEngine, never()).getSchedules();
+        verify(mockAssetManager).onSpeculativePrepare(eq(schedule), any(InAppMessage.class));
+        assertEquals(1, manager.getMetrics().getSpeculativePrepareCount());
+    }
+
+    @Test
+    public void testMetrics() {
+        when(mockAdapter.onPrepare(any(Context.class), any(Assets.class))).thenReturn(InAppMessageAdapter.OK);
+        when(mockAdapter.isReady(any(Context.class))).thenReturn(true);
+
+        driverListener.onPrepareSchedule(schedule);
+        assertEquals(1, manager.getMetrics().getPreparedCount());
+
+        assertEquals(AutomationDriver.READY_RESULT_CONTINUE, driverListener.onCheckExecutionReadiness(schedule));
+        driverListener.onExecuteSchedule(schedule);
+        assertEquals(1, manager.getMetrics().getDisplayedCount());
+    }
+
     /**
      * Helper method to run all the looper tasks.
      */
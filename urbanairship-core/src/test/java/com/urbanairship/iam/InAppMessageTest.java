@@ -2,9 +2,11 @@
 
 package com.urbanairship.iam;
 
+import android.graphics.Color;
 import android.os.Parcel;
 
 import com.urbanairship.BaseTestCase;
+import com.urbanairship.Benchmark;
 import com.urbanairship.iam.banner.BannerDisplayContent;
 import com.urbanairship.iam.custom.CustomDisplayContent;
 import com.urbanairship.iam.fullscreen.FullScreenDisplayContent;
@@ -179,6 +181,102 @@ public class InAppMessageTest extends BaseTestCase {
         InAppMessage.fromJson(jsonMap.toJsonValue());
     }
 
+    @Test
+    public void testLegacyParcel() {
+        InAppMessage message = createFullScreenMessage();
+
+        // Messages used to be parceled as a JSON string
+        Parcel parcel = Parcel.obtain();
+        parcel.writeString(message.toJsonValue().toString());
+        parcel.setDataPosition(0);
+
+        assertEquals(message, InAppMessage.CREATOR.createFromParcel(parcel));
+    }
+
+    /**
+     * Benchmarks parceling a full screen message with the binary encoding against the legacy
+     * JSON string encoding.
+     */
+    @Test
+    public void benchmarkParcel() throws Exception {
+        Benchmark.assumeEnabled();
+
+        final InAppMessage message = createFullScreenMessage();
+        Benchmark benchmark = new Benchmark("InAppMessageParcel", 1000);
+
+        benchmark.measure("jsonString", new Benchmark.Operation() {
+            @Override
+            public void run() throws Exception {
+                Parcel parcel = Parcel.obtain();
+                parcel.writeString(message.toJsonValue().toString());
+                parcel.setDataPosition(0);
+                InAppMessage.fromJson(JsonValue.parseString(parcel.readString()));
+                parcel.recycle();
+            }
+        });
+
+        benchmark.measure("binary", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                Parcel parcel = Parcel.obtain();
+                message.writeToParcel(parcel, 0);
+                parcel.setDataPosition(0);
+                InAppMessage.CREATOR.createFromParcel(parcel);
+                parcel.recycle();
+            }
+        });
+    }
+
+    private InAppMessage createFullScreenMessage() {
+        FullScreenDisplayContent.Builder builder = FullScreenDisplayContent.newBuilder()
+                                                                           .setHeading(TextInfo.newBuilder()
+                                                                                               .setText("Full screen heading")
+                                                                                               .setColor(Color.BLACK)
+                                                                                               .setFontSize(24)
+                                                                                               .addStyle(TextInfo.STYLE_BOLD)
+                                                                                               .addFontFamily("sans-serif")
+                                                                                               .build())
+                                                                           .setBody(TextInfo.newBuilder()
+                                                                                            .setText(UAStringUtil.repeat("Full screen body text.", 20, " "))
+                                                                                            .setAlignment(TextInfo.ALIGNMENT_CENTER)
+                                                                                            .build())
+                                                                           .setMedia(MediaInfo.newBuilder()
+                                                                                              .setUrl("https://example.com/hero.jpg")
+                                                                                              .setType(MediaInfo.TYPE_IMAGE)
+                                                                                              .setDescription("Hero image")
+                                                                                              .build())
+                                                                           .setFooter(ButtonInfo.newBuilder()
+                                                                                                .setId("footer")
+                                                                                                .setLabel(TextInfo.newBuilder().setText("Terms").build())
+                                                                                                .addAction("open_external_url_action", JsonValue.wrap("https://example.com/terms"))
+                                                                                                .build());
+
+        for (int i = 0; i < 3; i++) {
+            builder.addButton(ButtonInfo.newBuilder()
+                                        .setId("button " + i)
+                                        .setLabel(TextInfo.newBuilder()
+                                                          .setText("Button " + i)
+                                                          .setColor(Color.WHITE)
+                                                          .build())
+                                        .setBackgroundColor(Color.BLUE)
+                                        .setBorderRadius(5)
+                                        .addAction("add_tags_action", JsonValue.wrapOpt("tag " + i))
+                                        .build());
+        }
+
+        return InAppMessage.newBuilder()
+                           .setDisplayContent(builder.build())
+                           .setId("messageId")
+                           .setName("full screen message name")
+                           .setExtras(JsonMap.newBuilder()
+                                             .put("campaign", "spring")
+                                             .put("priority", 5)
+                                             .build())
+                           .addAction("deep_link_action", JsonValue.wrap("app://deeplink"))
+                           .setRenderedLocale(renderedLocale)
+                           .build();
+    }
+
     private void verifyParcelable(InAppMessage message) {
         // Write the message to a parcel
         Parcel parcel = Parcel.obtain();
@@ -280,7 +280,7 @@ public class InAppRemoteDataObserverTest extends BaseTestCase {
 
     }
 
-    private static class TestScheduler implements InAppMessageScheduler {
+    private static class TestScheduler implements InAppRemoteDataScheduler {
 
         private final Map<String, InAppMessageSchedule> schedules = new HashMap<>();
         private final Map<String, InAppMessageScheduleEdits> scheduleEdits = new HashMap<>();
@@ -400,6 +400,23 @@ public class InAppRemoteDataObserverTest extends BaseTestCase {
             return result;
         }
 
+        @NonNull
+        @Override
+        public PendingResult<Map<String, String>> getScheduleIds(@NonNull String source) {
+            PendingResult<Map<String, String>> result = new PendingResult<>();
+            Map<String, String> scheduleIds = new HashMap<>();
+
+            for (InAppMessageSchedule schedule : schedules.values()) {
+                InAppMessage message = schedule.getInfo().getInAppMessage();
+                if (source.equals(message.getSource())) {
+                    scheduleIds.put(message.getId(), schedule.getId());
+                }
+            }
+
+            result.setResult(scheduleIds);
+            return result;
+        }
+
         @NonNull
         @Override
         public PendingResult<InAppMessageSchedule> editSchedule(@NonNull String scheduleId, @NonNull InAppMessageScheduleEdits edits) {
@@ -414,6 +431,23 @@ public class InAppRemoteDataObserverTest extends BaseTestCase {
             return result;
         }
 
+        @NonNull
+        @Override
+        public PendingResult<Collection<InAppMessageSchedule>> editSchedules(@NonNull Map<String, InAppMessageScheduleEdits> edits) {
+            PendingResult<Collection<InAppMessageSchedule>> result = new PendingResult<>();
+            List<InAppMessageSchedule> updated = new ArrayList<>();
+
+            for (Map.Entry<String, InAppMessageScheduleEdits> entry : edits.entrySet()) {
+                InAppMessageSchedule schedule = editSchedule(entry.getKey(), entry.getValue()).getResult();
+                if (schedule != null) {
+                    updated.add(schedule);
+                }
+            }
+
+            result.setResult(updated);
+            return result;
+        }
+
 
         public boolean isMessageScheduled(@NonNull String messageId) {
             return isMessageScheduled(messageId, null);
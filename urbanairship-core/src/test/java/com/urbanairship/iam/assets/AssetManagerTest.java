@@ -2,7 +2,11 @@
 
 package com.urbanairship.iam.assets;
 
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
 import com.urbanairship.BaseTestCase;
+import com.urbanairship.TestApplication;
 import com.urbanairship.automation.Triggers;
 import com.urbanairship.iam.InAppMessage;
 import com.urbanairship.iam.InAppMessageSchedule;
@@ -13,10 +17,28 @@ import com.urbanairship.json.JsonValue;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Shadows;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -29,6 +51,7 @@ public class AssetManagerTest extends BaseTestCase {
 
     private AssetManager assetManager;
     private AssetCache mockCache;
+    private AssetPrefetcher mockPrefetcher;
     private PrepareAssetsDelegate mockAssetsDelegate;
     private CachePolicyDelegate mockCachePolicyDelegate;
 
@@ -39,7 +62,8 @@ public class AssetManagerTest extends BaseTestCase {
         mockCache = mock(AssetCache.class);
         mockAssetsDelegate = mock(PrepareAssetsDelegate.class);
         mockCachePolicyDelegate = mock(CachePolicyDelegate.class);
-        assetManager = new AssetManager(mockCache);
+        mockPrefetcher = mock(AssetPrefetcher.class);
+        assetManager = new AssetManager(mockCache, mockPrefetcher);
         assetManager.setPrepareAssetDelegate(mockAssetsDelegate);
         assetManager.setCachePolicyDelegate(mockCachePolicyDelegate);
 
@@ -92,6 +116,219 @@ public class AssetManagerTest extends BaseTestCase {
         });
 
         verifyZeroInteractions(mockAssetsDelegate);
+        verify(mockPrefetcher).prefetch(eq(schedule), any(Callable.class));
+    }
+
+    /**
+     * Test schedules that are not cached on schedule are prefetched in the background
+     * with the extended message.
+     */
+    @Test
+    public void testPrefetchOnSchedule() {
+        final InAppMessage extendedMessage = InAppMessage.newBuilder(schedule.getInfo().getInAppMessage())
+                                                         .addAction("cool", JsonValue.wrap("story"))
+                                                         .build();
+
+        Assets mockAssets = mock(Assets.class);
+        when(mockCache.getAssets("some-id")).thenReturn(mockAssets);
+        when(mockCachePolicyDelegate.shouldCacheOnSchedule(schedule)).thenReturn(false);
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        assetManager = new AssetManager(TestApplication.getApplication(), mockCache, executor, Looper.getMainLooper());
+        assetManager.setPrepareAssetDelegate(mockAssetsDelegate);
+        assetManager.setCachePolicyDelegate(mockCachePolicyDelegate);
+        assetManager.setPrefetchPolicy(AssetManager.PREFETCH_POLICY_ANY_NETWORK);
+
+        assetManager.onSchedule(schedule, new Callable<InAppMessage>() {
+            @Override
+            public InAppMessage call() {
+                return extendedMessage;
+            }
+        });
+
+        // Batched
+        verifyZeroInteractions(mockAssetsDelegate);
+
+        Shadows.shadowOf(Looper.getMainLooper()).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+
+        InOrder inOrder = Mockito.inOrder(mockAssetsDelegate, mockCache);
+        inOrder.verify(mockAssetsDelegate).onSchedule(schedule, extendedMessage, mockAssets);
+        inOrder.verify(mockCache).releaseAssets("some-id", false);
+    }
+
+    /**
+     * Test finishing a schedule waits for a running prefetch before deleting its assets.
+     */
+    @Test
+    public void testScheduleFinishedWaitsForPrefetch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+
+        Assets mockAssets = mock(Assets.class);
+        when(mockCache.getAssets("some-id")).thenReturn(mockAssets);
+        when(mockCachePolicyDelegate.shouldCacheOnSchedule(schedule)).thenReturn(false);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                finish.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(mockAssetsDelegate).onSchedule(eq(schedule), any(InAppMessage.class), eq(mockAssets));
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            assetManager = new AssetManager(TestApplication.getApplication(), mockCache, executorService, Looper.getMainLooper());
+            assetManager.setPrepareAssetDelegate(mockAssetsDelegate);
+            assetManager.setCachePolicyDelegate(mockCachePolicyDelegate);
+            assetManager.setPrefetchPolicy(AssetManager.PREFETCH_POLICY_ANY_NETWORK);
+
+            assetManager.onSchedule(schedule, new Callable<InAppMessage>() {
+                @Override
+                public InAppMessage call() {
+                    return schedule.getInfo().getInAppMessage();
+                }
+            });
+
+            Shadows.shadowOf(Looper.getMainLooper()).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Thread finishThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    assetManager.onScheduleFinished(schedule);
+                }
+            });
+            finishThread.start();
+
+            // Wait for the finish to block on the running prefetch
+            long deadline = System.currentTimeMillis() + 5000;
+            while (finishThread.getState() != Thread.State.WAITING && finishThread.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            finish.countDown();
+            finishThread.join(5000);
+
+            InOrder inOrder = Mockito.inOrder(mockCache);
+            inOrder.verify(mockCache).releaseAssets("some-id", false);
+            inOrder.verify(mockCache).releaseAssets("some-id", true);
+        } finally {
+            finish.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Test speculatively preparing assets downloads them in the background and keeps them.
+     */
+    @Test
+    public void testSpeculativePrepare() {
+        Assets mockAssets = mock(Assets.class);
+        when(mockCache.getAssets("some-id")).thenReturn(mockAssets);
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        assetManager = new AssetManager(TestApplication.getApplication(), mockCache, executor, Looper.getMainLooper());
+        assetManager.setPrepareAssetDelegate(mockAssetsDelegate);
+
+        InAppMessage message = schedule.getInfo().getInAppMessage();
+        assetManager.onSpeculativePrepare(schedule, message);
+
+        InOrder inOrder = Mockito.inOrder(mockAssetsDelegate, mockCache);
+        inOrder.verify(mockAssetsDelegate).onPrepare(schedule, message, mockAssets);
+        inOrder.verify(mockCache).releaseAssets("some-id", false);
+    }
+
+    /**
+     * Test a real prepare waits for a running speculative prepare of the schedule.
+     */
+    @Test
+    public void testPrepareWaitsForSpeculativePrepare() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final InAppMessage message = schedule.getInfo().getInAppMessage();
+
+        Assets mockAssets = mock(Assets.class);
+        when(mockCache.getAssets("some-id")).thenReturn(mockAssets);
+        doAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                if (started.getCount() > 0) {
+                    started.countDown();
+                    finish.await(5, TimeUnit.SECONDS);
+                    events.add("speculative");
+                } else {
+                    events.add("prepare");
+                }
+                return AssetManager.PREPARE_RESULT_OK;
+            }
+        }).when(mockAssetsDelegate).onPrepare(schedule, message, mockAssets);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            assetManager = new AssetManager(TestApplication.getApplication(), mockCache, executorService, Looper.getMainLooper());
+            assetManager.setPrepareAssetDelegate(mockAssetsDelegate);
+
+            assetManager.onSpeculativePrepare(schedule, message);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Thread prepareThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    assetManager.onPrepare(schedule, message);
+                }
+            });
+            prepareThread.start();
+
+            // Wait for the prepare to block on the running speculative prepare
+            long deadline = System.currentTimeMillis() + 5000;
+            while (prepareThread.getState() != Thread.State.WAITING && prepareThread.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            finish.countDown();
+            prepareThread.join(5000);
+
+            assertEquals(Arrays.asList("speculative", "prepare"), events);
+        } finally {
+            finish.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Test prefetch hits and misses are counted when a message is prepared.
+     */
+    @Test
+    public void testPrefetchHitMissCounts() {
+        Assets mockAssets = mock(Assets.class);
+        when(mockCache.getAssets("some-id")).thenReturn(mockAssets);
+        when(mockAssets.hasStoredFiles()).thenReturn(true);
+        when(mockAssets.getDownloadCount()).thenReturn(0);
+
+        assetManager.onPrepare(schedule, schedule.getInfo().getInAppMessage());
+        assertEquals(1, assetManager.getPrefetchHitCount());
+        assertEquals(0, assetManager.getPrefetchMissCount());
+        verify(mockPrefetcher).cancel(schedule.getId());
+
+        // Download during prepare
+        when(mockAssets.getDownloadCount()).thenReturn(0, 1);
+        assetManager.onPrepare(schedule, schedule.getInfo().getInAppMessage());
+        assertEquals(1, assetManager.getPrefetchHitCount());
+        assertEquals(1, assetManager.getPrefetchMissCount());
     }
 
     /**
@@ -140,6 +377,7 @@ public class AssetManagerTest extends BaseTestCase {
     public void testClearOnScheduleFinished() {
         assetManager.onScheduleFinished(schedule);
         verify(mockCache).releaseAssets(schedule.getId(), true);
+        verify(mockPrefetcher).cancel(schedule.getId());
     }
 
 }
\ No newline at end of file
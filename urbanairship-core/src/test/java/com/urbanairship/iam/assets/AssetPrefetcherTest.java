@@ -0,0 +1,298 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.assets;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
+import com.urbanairship.BaseTestCase;
+import com.urbanairship.TestApplication;
+import com.urbanairship.automation.Triggers;
+import com.urbanairship.iam.InAppMessage;
+import com.urbanairship.iam.InAppMessageSchedule;
+import com.urbanairship.iam.InAppMessageScheduleInfo;
+import com.urbanairship.iam.custom.CustomDisplayContent;
+import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.Shadows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AssetPrefetcher}.
+ */
+public class AssetPrefetcherTest extends BaseTestCase {
+
+    private TestAssetPrefetcher prefetcher;
+    private List<String> prefetched;
+    private Looper looper;
+    private Executor executor;
+
+    @Before
+    public void setup() {
+        prefetched = new ArrayList<>();
+        looper = Looper.getMainLooper();
+
+        executor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        prefetcher = new TestAssetPrefetcher(TestApplication.getApplication(), executor, looper, new AssetPrefetcher.PrefetchCallback() {
+            @Override
+            public void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+                prefetched.add(schedule.getId());
+            }
+        });
+        prefetcher.setPolicy(AssetManager.PREFETCH_POLICY_ANY_NETWORK);
+    }
+
+    /**
+     * Test prefetching is disabled by default.
+     */
+    @Test
+    public void testDefaultPolicy() {
+        AssetPrefetcher defaultPrefetcher = new TestAssetPrefetcher(TestApplication.getApplication(), executor, looper, new AssetPrefetcher.PrefetchCallback() {
+            @Override
+            public void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+                prefetched.add(schedule.getId());
+            }
+        });
+
+        assertEquals(AssetManager.PREFETCH_POLICY_NEVER, defaultPrefetcher.getPolicy());
+
+        defaultPrefetcher.prefetch(createSchedule("schedule", 0, -1), MESSAGE_CALLABLE);
+        Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertTrue(prefetched.isEmpty());
+    }
+
+    /**
+     * Test prefetches are batched and run in priority then end date order.
+     */
+    @Test
+    public void testPrefetchOrder() {
+        prefetcher.prefetch(createSchedule("low", 10, -1), MESSAGE_CALLABLE);
+        prefetcher.prefetch(createSchedule("high-no-end", 1, -1), MESSAGE_CALLABLE);
+        prefetcher.prefetch(createSchedule("high-ending", 1, 1000), MESSAGE_CALLABLE);
+
+        // Batched
+        assertTrue(prefetched.isEmpty());
+
+        Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("high-ending", "high-no-end", "low"), prefetched);
+        assertEquals(0, prefetcher.getQueuedCount());
+    }
+
+    /**
+     * Test prefetches are deferred until the policy allows them.
+     */
+    @Test
+    public void testDeferred() {
+        prefetcher.isAllowed = false;
+        prefetcher.prefetch(createSchedule("schedule", 0, -1), MESSAGE_CALLABLE);
+
+        Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertTrue(prefetched.isEmpty());
+        assertEquals(1, prefetcher.getQueuedCount());
+
+        // Connectivity change
+        prefetcher.isAllowed = true;
+        TestApplication.getApplication().sendBroadcast(new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+        Shadows.shadowOf(looper).runToEndOfTasks();
+
+        assertEquals(Arrays.asList("schedule"), prefetched);
+        assertEquals(0, prefetcher.getQueuedCount());
+    }
+
+    /**
+     * Test cancelling and disabling prefetches.
+     */
+    @Test
+    public void testCancel() {
+        prefetcher.prefetch(createSchedule("cancelled", 0, -1), MESSAGE_CALLABLE);
+        prefetcher.prefetch(createSchedule("disabled", 0, -1), MESSAGE_CALLABLE);
+        prefetcher.cancel("cancelled");
+        assertEquals(1, prefetcher.getQueuedCount());
+
+        prefetcher.setPolicy(AssetManager.PREFETCH_POLICY_NEVER);
+        assertEquals(0, prefetcher.getQueuedCount());
+
+        prefetcher.prefetch(createSchedule("ignored", 0, -1), MESSAGE_CALLABLE);
+        Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertTrue(prefetched.isEmpty());
+    }
+
+    /**
+     * Test cancelling a running prefetch waits for the prefetch to finish.
+     */
+    @Test
+    public void testCancelWaitsForRunningPrefetch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            prefetcher = new TestAssetPrefetcher(TestApplication.getApplication(), executorService, looper, new AssetPrefetcher.PrefetchCallback() {
+                @Override
+                public void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+                    started.countDown();
+                    try {
+                        finish.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    events.add("prefetched");
+                }
+            });
+            prefetcher.setPolicy(AssetManager.PREFETCH_POLICY_ANY_NETWORK);
+
+            prefetcher.prefetch(createSchedule("running", 0, -1), MESSAGE_CALLABLE);
+            Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Thread cancelThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    prefetcher.cancel("running");
+                    events.add("cancelled");
+                }
+            });
+            cancelThread.start();
+
+            // Wait for the cancel to block on the running prefetch
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cancelThread.getState() != Thread.State.WAITING && cancelThread.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            finish.countDown();
+            cancelThread.join(5000);
+
+            assertEquals(Arrays.asList("prefetched", "cancelled"), events);
+        } finally {
+            finish.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Test immediate prefetches ignore the prefetch policy and replace a queued prefetch.
+     */
+    @Test
+    public void testPrefetchNow() {
+        prefetcher.setPolicy(AssetManager.PREFETCH_POLICY_NEVER);
+        prefetcher.prefetchNow("schedule", new Runnable() {
+            @Override
+            public void run() {
+                prefetched.add("now");
+            }
+        });
+        assertEquals(Collections.singletonList("now"), prefetched);
+
+        prefetched.clear();
+        prefetcher.setPolicy(AssetManager.PREFETCH_POLICY_ANY_NETWORK);
+        prefetcher.prefetch(createSchedule("schedule", 0, -1), MESSAGE_CALLABLE);
+        prefetcher.prefetchNow("schedule", new Runnable() {
+            @Override
+            public void run() {
+                prefetched.add("now");
+            }
+        });
+
+        Shadows.shadowOf(looper).idleFor(AssetPrefetcher.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(Collections.singletonList("now"), prefetched);
+        assertEquals(0, prefetcher.getQueuedCount());
+    }
+
+    /**
+     * Test cancelling drops an immediate prefetch that has not started instead of waiting for it.
+     */
+    @Test
+    public void testCancelDropsPendingImmediatePrefetch() {
+        final List<Runnable> queued = new ArrayList<>();
+        prefetcher = new TestAssetPrefetcher(TestApplication.getApplication(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                queued.add(runnable);
+            }
+        }, looper, new AssetPrefetcher.PrefetchCallback() {
+            @Override
+            public void onPrefetch(@NonNull InAppMessageSchedule schedule, @NonNull Callable<InAppMessage> extendedMessageCallable) {
+                prefetched.add(schedule.getId());
+            }
+        });
+
+        prefetcher.prefetchNow("schedule", new Runnable() {
+            @Override
+            public void run() {
+                prefetched.add("now");
+            }
+        });
+
+        // Does not block on the queued prefetch
+        prefetcher.cancel("schedule");
+
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        assertTrue(prefetched.isEmpty());
+    }
+
+    private static InAppMessageSchedule createSchedule(String id, int priority, long end) {
+        InAppMessageScheduleInfo.Builder builder = InAppMessageScheduleInfo.newBuilder()
+                                                                           .addTrigger(Triggers.newActiveSessionTriggerBuilder().build())
+                                                                           .setPriority(priority)
+                                                                           .setMessage(InAppMessage.newBuilder()
+                                                                                                   .setId(id)
+                                                                                                   .setDisplayContent(new CustomDisplayContent(JsonValue.NULL))
+                                                                                                   .build());
+        if (end > 0) {
+            builder.setEnd(end);
+        }
+
+        return new InAppMessageSchedule(id, JsonMap.EMPTY_MAP, builder.build());
+    }
+
+    private static final Callable<InAppMessage> MESSAGE_CALLABLE = new Callable<InAppMessage>() {
+        @Override
+        public InAppMessage call() {
+            return null;
+        }
+    };
+
+    private static class TestAssetPrefetcher extends AssetPrefetcher {
+
+        boolean isAllowed = true;
+
+        TestAssetPrefetcher(@NonNull Context context, @NonNull Executor executor, @NonNull Looper looper, @NonNull PrefetchCallback callback) {
+            super(context, executor, looper, callback);
+        }
+
+        @Override
+        boolean isAllowed(int policy) {
+            return isAllowed && policy != AssetManager.PREFETCH_POLICY_NEVER;
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.assets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.urbanairship.BaseTestCase;
+import com.urbanairship.TestApplication;
+import com.urbanairship.TestClock;
+import com.urbanairship.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AssetStore}.
+ */
+public class AssetStoreTest extends BaseTestCase {
+
+    private File directory;
+    private TestClock clock;
+    private TestAssetStore store;
+
+    @Before
+    public void setup() {
+        directory = new File(TestApplication.getApplication().getCacheDir(), "asset-store-test");
+        FileUtils.deleteRecursively(directory);
+        clock = new TestClock();
+        store = new TestAssetStore(directory, clock, 10);
+    }
+
+    /**
+     * Test schedules that use the same URL or the same content share a single stored file.
+     */
+    @Test
+    public void testFetchSharesContent() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        store.contents.put("https://example.com/b", "hero");
+
+        AssetStore.FetchResult first = store.fetch("https://example.com/a", "schedule-1");
+        AssetStore.FetchResult second = store.fetch("https://example.com/a", "schedule-2");
+        AssetStore.FetchResult third = store.fetch("https://example.com/b", "schedule-3");
+
+        assertTrue(first.downloadResult.isSuccess);
+        assertNotNull(first.blobId);
+        assertEquals(first.blobId, second.blobId);
+        assertEquals(first.blobId, third.blobId);
+        assertTrue(store.getFile(first.blobId).exists());
+
+        // Only the second URL triggered another download
+        assertEquals(2, store.requests.size());
+        assertEquals(4, store.getSize());
+    }
+
+    /**
+     * Test stale files are revalidated with the previous ETag.
+     */
+    @Test
+    public void testRevalidate() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        store.eTag = "v1";
+        AssetStore.FetchResult first = store.fetch("https://example.com/a", "schedule-1");
+
+        clock.currentTimeMillis += AssetStore.REVALIDATE_INTERVAL_MS;
+        store.notModified = true;
+        AssetStore.FetchResult second = store.fetch("https://example.com/a", "schedule-2");
+
+        assertTrue(second.downloadResult.isSuccess);
+        assertEquals(first.blobId, second.blobId);
+        assertEquals(2, store.requests.size());
+        assertEquals("v1", store.requestETags.get(1));
+
+        // Validated, so the next fetch is served from the store
+        store.fetch("https://example.com/a", "schedule-3");
+        assertEquals(2, store.requests.size());
+    }
+
+    /**
+     * Test client errors do not store a file.
+     */
+    @Test
+    public void testClientError() throws IOException {
+        AssetStore.FetchResult result = store.fetch("https://example.com/missing", "schedule-1");
+        assertFalse(result.downloadResult.isSuccess);
+        assertEquals(404, result.downloadResult.statusCode);
+        assertNull(result.blobId);
+        assertEquals(0, store.getSize());
+    }
+
+    /**
+     * Test unreferenced files are evicted least recently used first once the store is full,
+     * and referenced files are kept.
+     */
+    @Test
+    public void testEviction() throws IOException {
+        store.contents.put("https://example.com/a", "aaaa");
+        store.contents.put("https://example.com/b", "bbbb");
+        store.contents.put("https://example.com/c", "cccc");
+
+        AssetStore.FetchResult a = store.fetch("https://example.com/a", "schedule-a");
+        clock.currentTimeMillis += 1;
+        AssetStore.FetchResult b = store.fetch("https://example.com/b", "schedule-b");
+        clock.currentTimeMillis += 1;
+
+        store.release("schedule-a");
+        store.release("schedule-b");
+
+        // Still fits
+        assertTrue(store.getFile(a.blobId).exists());
+
+        AssetStore.FetchResult c = store.fetch("https://example.com/c", "schedule-c");
+        assertFalse(store.getFile(a.blobId).exists());
+        assertTrue(store.getFile(b.blobId).exists());
+        assertTrue(store.getFile(c.blobId).exists());
+        assertEquals(8, store.getSize());
+
+        // Referenced files are kept even over the max size
+        store.contents.put("https://example.com/d", "dddddddd");
+        store.fetch("https://example.com/d", "schedule-d");
+        assertFalse(store.getFile(b.blobId).exists());
+        assertTrue(store.getFile(c.blobId).exists());
+        assertEquals(12, store.getSize());
+    }
+
+    /**
+     * Test the index is restored.
+     */
+    @Test
+    public void testPersistence() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        AssetStore.FetchResult first = store.fetch("https://example.com/a", "schedule-1");
+
+        TestAssetStore restored = new TestAssetStore(directory, clock, 10);
+        AssetStore.FetchResult second = restored.fetch("https://example.com/a", "schedule-2");
+        assertEquals(first.blobId, second.blobId);
+        assertTrue(restored.requests.isEmpty());
+        assertEquals(4, restored.getSize());
+    }
+
+    /**
+     * Test the index is replaced without leaving a partial write behind.
+     */
+    @Test
+    public void testSaveIndex() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        store.fetch("https://example.com/a", "schedule-1");
+
+        assertTrue(new File(directory, "index").exists());
+        assertFalse(new File(directory, "index.tmp").exists());
+    }
+
+    /**
+     * Test stored files are kept when the index can't be read.
+     */
+    @Test
+    public void testUnreadableIndex() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        AssetStore.FetchResult first = store.fetch("https://example.com/a", "schedule-1");
+
+        FileOutputStream outputStream = new FileOutputStream(new File(directory, "index"));
+        outputStream.write("{\"blobs\":".getBytes("UTF-8"));
+        outputStream.close();
+
+        TestAssetStore restored = new TestAssetStore(directory, clock, 10);
+        assertEquals(4, restored.getSize());
+        assertTrue(restored.getFile(first.blobId).exists());
+
+        // Recovered files are unreferenced, so they can be evicted
+        restored.contents.put("https://example.com/b", "bbbbbbbb");
+        restored.fetch("https://example.com/b", "schedule-2");
+        assertFalse(restored.getFile(first.blobId).exists());
+        assertEquals(8, restored.getSize());
+    }
+
+    /**
+     * Test URL locks are removed once the fetches finish.
+     */
+    @Test
+    public void testUrlLocksRemoved() throws IOException {
+        store.contents.put("https://example.com/a", "hero");
+        store.fetch("https://example.com/a", "schedule-1");
+        store.fetch("https://example.com/missing", "schedule-1");
+
+        try {
+            store.fetch("not a url", "schedule-1");
+        } catch (IOException expected) {
+            // expected
+        }
+
+        assertEquals(0, store.getUrlLockCount());
+    }
+
+    static class TestAssetStore extends AssetStore {
+
+        final Map<String, String> contents = new HashMap<>();
+        final List<String> requests = new ArrayList<>();
+        final List<String> requestETags = new ArrayList<>();
+        String eTag;
+        boolean notModified;
+
+        TestAssetStore(@NonNull File directory, @NonNull TestClock clock, long maxSize) {
+            super(directory, clock, maxSize);
+        }
+
+        @NonNull
+        @Override
+        FileUtils.DownloadResult download(@NonNull URL url, @NonNull File file, @Nullable String eTag, long lastModified) throws IOException {
+            requests.add(url.toString());
+            requestETags.add(eTag);
+
+            if (notModified && eTag != null) {
+                return new FileUtils.DownloadResult(false, 304);
+            }
+
+            String content = contents.get(url.toString());
+            if (content == null) {
+                return new FileUtils.DownloadResult(false, 404);
+            }
+
+            FileOutputStream outputStream = new FileOutputStream(file);
+            outputStream.write(content.getBytes("UTF-8"));
+            outputStream.close();
+            return new FileUtils.DownloadResult(true, 200, this.eTag, 0);
+        }
+
+    }
+
+}
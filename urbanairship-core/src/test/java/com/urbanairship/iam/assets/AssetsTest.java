@@ -0,0 +1,98 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.iam.assets;
+
+import android.os.Parcel;
+
+import com.urbanairship.BaseTestCase;
+import com.urbanairship.TestApplication;
+import com.urbanairship.TestClock;
+import com.urbanairship.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Assets}.
+ */
+public class AssetsTest extends BaseTestCase {
+
+    private File directory;
+    private AssetStoreTest.TestAssetStore store;
+
+    @Before
+    public void setup() {
+        directory = new File(TestApplication.getApplication().getCacheDir(), "assets-test");
+        FileUtils.deleteRecursively(directory);
+        store = new AssetStoreTest.TestAssetStore(new File(directory, "store"), new TestClock(), 10);
+        store.contents.put("https://example.com/a", "hero");
+    }
+
+    /**
+     * Test downloads are stored in the shared store and files for the URL map to the stored file.
+     */
+    @Test
+    public void testDownload() throws IOException {
+        Assets first = Assets.load(new File(directory, "schedule-1"), "schedule-1", store);
+        Assets second = Assets.load(new File(directory, "schedule-2"), "schedule-2", store);
+        assertFalse(first.hasStoredFiles());
+
+        assertTrue(first.download("https://example.com/a").isSuccess);
+        assertTrue(second.download("https://example.com/a").isSuccess);
+
+        assertTrue(first.hasStoredFiles());
+        assertEquals(1, first.getDownloadCount());
+
+        File file = first.file("https://example.com/a");
+        assertEquals(store.getDirectory(), file.getParentFile());
+        assertEquals(file, second.file("https://example.com/a"));
+        assertTrue(file.exists());
+        assertEquals(4, file.length());
+
+        // Only downloaded once
+        assertEquals(1, store.requests.size());
+
+        // Keys that were not downloaded use the assets' own directory
+        assertEquals(new File(directory, "schedule-1"), first.file("other").getParentFile().getParentFile());
+    }
+
+    /**
+     * Test failed downloads are not mapped to the store.
+     */
+    @Test
+    public void testDownloadFailed() throws IOException {
+        Assets assets = Assets.load(new File(directory, "schedule-1"), "schedule-1", store);
+
+        assertFalse(assets.download("https://example.com/missing").isSuccess);
+        assertFalse(assets.hasStoredFiles());
+        assertFalse(store.getDirectory().equals(assets.file("https://example.com/missing").getParentFile()));
+    }
+
+    /**
+     * Test parceling keeps the stored files.
+     */
+    @Test
+    public void testParcelStoredFiles() throws IOException {
+        Assets assets = Assets.load(new File(directory, "schedule-1"), "schedule-1", store);
+        assets.download("https://example.com/a");
+
+        Parcel parcel = Parcel.obtain();
+        assets.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Assets fromParcel = Assets.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertNotNull(fromParcel);
+        assertTrue(fromParcel.hasStoredFiles());
+        assertEquals(assets.file("https://example.com/a"), fromParcel.file("https://example.com/a"));
+    }
+
+}
@@ -11,10 +11,12 @@ import com.urbanairship.json.JsonMap;
 import com.urbanairship.json.JsonValue;
 import com.urbanairship.channel.TagGroupRegistrar;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -22,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.urbanairship.iam.tags.TestUtils.tagSet;
 import static junit.framework.Assert.assertEquals;
@@ -39,6 +42,7 @@ public class TagGroupHistorianTest extends BaseTestCase {
     private TagGroupHistorian historian;
     private TagGroupRegistrar mockRegistrar;
     private TestClock clock;
+    private TagGroupHistoryDataManager dataManager;
 
     private List<TagGroupsMutation> pendingNamedUserMutations;
     private List<TagGroupsMutation> pendingChannelMutations;
@@ -63,10 +67,17 @@ public class TagGroupHistorianTest extends BaseTestCase {
 
         clock = new TestClock();
 
-        historian = new TagGroupHistorian(mockRegistrar, TestApplication.getApplication().preferenceDataStore, clock);
+        dataManager = new TagGroupHistoryDataManager(RuntimeEnvironment.application, "appKey", "test");
+        historian = new TagGroupHistorian(mockRegistrar, TestApplication.getApplication().preferenceDataStore, dataManager, clock);
         historian.init();
     }
 
+    @After
+    public void teardown() {
+        dataManager.deleteRecords(Long.MAX_VALUE);
+        dataManager.close();
+    }
+
     /**
      * Test applying local data includes pending and sent mutations.
      */
@@ -157,5 +168,46 @@ public class TagGroupHistorianTest extends BaseTestCase {
         historian.applyLocalData(tags, clock.currentTimeMillis - 10);
     }
 
-}
+    /**
+     * Test records older than the max record age are expired.
+     */
+    @Test
+    public void testMaxRecordAge() {
+        historian.setMaxRecordAge(10, TimeUnit.MILLISECONDS);
+
+        listener.onMutationUploaded(TagGroupsMutation.newAddTagsMutation("history-group", tagSet("one")));
+        clock.currentTimeMillis += 5;
+        listener.onMutationUploaded(TagGroupsMutation.newAddTagsMutation("history-group", tagSet("two")));
+        clock.currentTimeMillis += 6;
+
+        // First record is dated but not expired yet
+        Map<String, Set<String>> tags = new HashMap<>();
+        historian.applyLocalData(tags, 0);
+        assertEquals(tagSet("two"), tags.get("history-group"));
+
+        // Recording expires dated records
+        listener.onMutationUploaded(TagGroupsMutation.newAddTagsMutation("history-group", tagSet("three")));
+        assertEquals(2, dataManager.getRecords(0).size());
+    }
+
+    /**
+     * Test records stored in the preference data store are migrated.
+     */
+    @Test
+    public void testMigrateRecords() {
+        PreferenceDataStore dataStore = TestApplication.getApplication().preferenceDataStore;
+        JsonMap record = JsonMap.newBuilder()
+                                .put("time", clock.currentTimeMillis)
+                                .put("mutation", TagGroupsMutation.newAddTagsMutation("history-group", tagSet("one")))
+                                .build();
+        dataStore.put(TagGroupHistorian.RECORDS_KEY, JsonValue.wrapOpt(Arrays.asList(record)));
 
+        listener.onMutationUploaded(TagGroupsMutation.newAddTagsMutation("history-group", tagSet("two")));
+
+        Map<String, Set<String>> tags = new HashMap<>();
+        historian.applyLocalData(tags, 0);
+        assertEquals(tagSet("one", "two"), tags.get("history-group"));
+        assertTrue(dataStore.getJsonValue(TagGroupHistorian.RECORDS_KEY).isNull());
+    }
+
+}
@@ -5,6 +5,7 @@ package com.urbanairship.iam.tags;
 import androidx.annotation.NonNull;
 
 import com.urbanairship.BaseTestCase;
+import com.urbanairship.PendingResult;
 import com.urbanairship.TestApplication;
 import com.urbanairship.TestClock;
 import com.urbanairship.UAirship;
@@ -13,12 +14,17 @@ import com.urbanairship.push.PushManager;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import static com.urbanairship.iam.tags.TestUtils.tagSet;
@@ -30,6 +36,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -85,7 +92,12 @@ public class TagGroupManagerTest extends BaseTestCase {
         });
 
         mockHistorian = mock(TagGroupHistorian.class);
-        manager = new TagGroupManager(mockClient, mockChannel, mockHistorian, TestApplication.getApplication().preferenceDataStore, clock);
+        manager = new TagGroupManager(mockClient, mockChannel, mockHistorian, TestApplication.getApplication().preferenceDataStore, clock, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        });
 
         callback = new TestCallback();
         manager.setRequestTagsCallback(callback);
@@ -177,7 +189,7 @@ public class TagGroupManagerTest extends BaseTestCase {
     public void getTagsDeviceGroup() {
         // Setup push to return device tags
         Set<String> deviceTags = tagSet("local tag");
-        when(mockChannel.getTags()).thenReturn(deviceTags);
+        when(mockChannel.getTagSnapshot()).thenReturn(deviceTags);
         when(mockChannel.getChannelTagRegistrationEnabled()).thenReturn(true);
 
         // Have the response return a server side device tag
@@ -234,7 +246,7 @@ public class TagGroupManagerTest extends BaseTestCase {
     public void getTagsOnlyDeviceTags() {
         // Setup push to return device tags
         Set<String> deviceTags = tagSet("local tag");
-        when(mockChannel.getTags()).thenReturn(deviceTags);
+        when(mockChannel.getTagSnapshot()).thenReturn(deviceTags);
         when(mockChannel.getChannelTagRegistrationEnabled()).thenReturn(true);
 
         // Request only the local tag
@@ -429,6 +441,292 @@ public class TagGroupManagerTest extends BaseTestCase {
         verifyZeroInteractions(mockClient);
     }
 
+    /**
+     * Test local data is applied to a copy of the cached response.
+     */
+    @Test
+    public void getTagsDoesNotModifyCache() {
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenReturn(new TagGroupResponse(200, clientResponseTags, "lastModifiedTime"));
+
+        // Simulate a pending remove of the "cool" tag
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                Map<String, Set<String>> tags = invocation.getArgument(0);
+                tags.get("some-group").remove("cool");
+                return null;
+            }
+        }).when(mockHistorian).applyLocalData(ArgumentMatchers.<Map<String, Set<String>>>any(), anyLong());
+
+        assertTrue(manager.getTags(requestTags).tagGroups.get("some-group").isEmpty());
+
+        // Pending mutation was uploaded and is no longer applied
+        reset(mockHistorian);
+        assertEquals(tagSet("cool"), manager.getTags(requestTags).tagGroups.get("some-group"));
+        assertEquals(tagSet("cool"), clientResponseTags.get("some-group"));
+    }
+
+    /**
+     * Test getTagsAsync returns cached results immediately and performs lookups without
+     * blocking the calling thread.
+     */
+    @Test
+    public void getTagsAsync() throws Exception {
+        final List<Runnable> pending = new ArrayList<>();
+        manager = new TagGroupManager(mockClient, mockChannel, mockHistorian, TestApplication.getApplication().preferenceDataStore, clock, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                pending.add(runnable);
+            }
+        });
+        manager.setRequestTagsCallback(callback);
+
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenReturn(new TagGroupResponse(200, clientResponseTags, "lastModifiedTime"));
+
+        // Lookup is dispatched to the executor
+        PendingResult<TagGroupResult> pendingResult = manager.getTagsAsync(requestTags);
+        assertFalse(pendingResult.isDone());
+        verifyZeroInteractions(mockClient);
+
+        assertEquals(1, pending.size());
+        pending.remove(0).run();
+        assertTrue(pendingResult.isDone());
+        assertTrue(pendingResult.get().success);
+
+        // Cached
+        pendingResult = manager.getTagsAsync(requestTags);
+        assertTrue(pendingResult.isDone());
+        assertTrue(pending.isEmpty());
+        assertEquals(tagSet("cool"), pendingResult.get().tagGroups.get("some-group"));
+
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null);
+    }
+
+    /**
+     * Test a cache hit close to the max cache age refreshes the cache in the background.
+     */
+    @Test
+    public void getTagsRefreshAhead() {
+        manager.setCacheMaxAgeTime(TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS, TimeUnit.MILLISECONDS);
+
+        TagGroupResponse response = new TagGroupResponse(200, clientResponseTags, "lastModifiedTime");
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenReturn(response);
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response))
+                .thenReturn(response);
+
+        manager.getTags(requestTags);
+
+        // Before the refresh ahead time
+        clock.currentTimeMillis += TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS * TagGroupManager.REFRESH_AHEAD_PERCENT / 100 - 1;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, never()).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        // Refreshes ahead while still returning the cached result
+        clock.currentTimeMillis += 1;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        // Cache was refreshed so it is not expired at the original max age
+        clock.currentTimeMillis += TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS / 2;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+    }
+
+    /**
+     * Test failed refresh ahead attempts are throttled.
+     */
+    @Test
+    public void getTagsRefreshAheadThrottled() {
+        manager.setCacheMaxAgeTime(TagGroupManager.DEFAULT_CACHE_MAX_AGE_TIME_MS, TimeUnit.MILLISECONDS);
+
+        TagGroupResponse response = new TagGroupResponse(200, clientResponseTags, "lastModifiedTime");
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenReturn(response);
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response))
+                .thenReturn(new TagGroupResponse(500, null, null));
+
+        manager.getTags(requestTags);
+
+        // First attempt fails
+        clock.currentTimeMillis += TagGroupManager.DEFAULT_CACHE_MAX_AGE_TIME_MS * TagGroupManager.REFRESH_AHEAD_PERCENT / 100;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        // Not retried until the retry interval
+        clock.currentTimeMillis += TagGroupManager.REFRESH_AHEAD_RETRY_INTERVAL_MS - 1;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        clock.currentTimeMillis += 1;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(2)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+    }
+
+    /**
+     * Test a lookup that needs a refresh ahead that has not started on the executor runs it
+     * inline instead of waiting on it.
+     */
+    @Test
+    public void getTagsRunsQueuedRefreshAhead() {
+        final List<Runnable> pending = new ArrayList<>();
+        manager = new TagGroupManager(mockClient, mockChannel, mockHistorian, TestApplication.getApplication().preferenceDataStore, clock, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                pending.add(runnable);
+            }
+        });
+        manager.setRequestTagsCallback(callback);
+        manager.setCacheMaxAgeTime(TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS, TimeUnit.MILLISECONDS);
+
+        TagGroupResponse response = new TagGroupResponse(200, clientResponseTags, "lastModifiedTime");
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenReturn(response);
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response))
+                .thenReturn(response);
+
+        manager.getTags(requestTags);
+
+        // Refresh ahead is queued on the executor
+        clock.currentTimeMillis += TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS * TagGroupManager.REFRESH_AHEAD_PERCENT / 100;
+        assertTrue(manager.getTags(requestTags).success);
+        assertEquals(1, pending.size());
+        verify(mockClient, never()).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        // Cache expires before the refresh starts, the lookup runs it instead of blocking
+        clock.currentTimeMillis += TagGroupManager.MIN_CACHE_MAX_AGE_TIME_MS;
+        assertTrue(manager.getTags(requestTags).success);
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+
+        // Queued task is a no-op
+        pending.remove(0).run();
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), response);
+    }
+
+    /**
+     * Test concurrent lookups for covered tags wait on the in-flight request instead of
+     * blocking on a lock, and share the single request.
+     */
+    @Test
+    public void getTagsCoalesced() throws Exception {
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch finishRequest = new CountDownLatch(1);
+
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenAnswer(new Answer<TagGroupResponse>() {
+                    @Override
+                    public TagGroupResponse answer(InvocationOnMock invocation) throws Throwable {
+                        requestStarted.countDown();
+                        finishRequest.await();
+                        return new TagGroupResponse(200, clientResponseTags, "lastModifiedTime");
+                    }
+                });
+
+        final TagGroupResult[] results = new TagGroupResult[2];
+        Thread first = startGetTags(requestTags, results, 0);
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        Map<String, Set<String>> coveredTags = new HashMap<>();
+        coveredTags.put("some-group", tagSet("cool"));
+        Thread second = startGetTags(coveredTags, results, 1);
+
+        // Parked on the in-flight request's latch, not blocked on a monitor
+        awaitWaiting(second);
+
+        finishRequest.countDown();
+        first.join();
+        second.join();
+
+        assertTrue(results[0].success);
+        assertTrue(results[1].success);
+        assertEquals(tagSet("cool"), results[1].tagGroups.get("some-group"));
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null);
+    }
+
+    /**
+     * Test lookups that are not covered by the in-flight request are merged into a single
+     * follow-up request.
+     */
+    @Test
+    public void getTagsMergedFollowUp() throws Exception {
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch finishRequest = new CountDownLatch(1);
+
+        when(mockClient.lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null))
+                .thenAnswer(new Answer<TagGroupResponse>() {
+                    @Override
+                    public TagGroupResponse answer(InvocationOnMock invocation) throws Throwable {
+                        requestStarted.countDown();
+                        finishRequest.await();
+                        return new TagGroupResponse(200, clientResponseTags, "lastModifiedTime");
+                    }
+                });
+
+        Map<String, Set<String>> secondTags = new HashMap<>();
+        secondTags.put("second-group", tagSet("two"));
+
+        Map<String, Set<String>> thirdTags = new HashMap<>();
+        thirdTags.put("third-group", tagSet("three"));
+
+        Map<String, Set<String>> followUpTags = TagGroupUtils.union(getExpectedClientRequestTags(), TagGroupUtils.union(secondTags, thirdTags));
+        Map<String, Set<String>> followUpResponseTags = new HashMap<>(clientResponseTags);
+        followUpResponseTags.put("second-group", tagSet("two"));
+        followUpResponseTags.put("third-group", tagSet("three"));
+
+        when(mockClient.lookupTagGroups(eq(channelId), eq(UAirship.ANDROID_PLATFORM), eq(followUpTags), ArgumentMatchers.<TagGroupResponse>any()))
+                .thenReturn(new TagGroupResponse(200, followUpResponseTags, "lastModifiedTime"));
+
+        final TagGroupResult[] results = new TagGroupResult[3];
+        Thread first = startGetTags(requestTags, results, 0);
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        // Queues the follow-up and waits for the in-flight request
+        Thread second = startGetTags(secondTags, results, 1);
+        awaitWaiting(second);
+
+        // Merges into the queued follow-up
+        Thread third = startGetTags(thirdTags, results, 2);
+        awaitWaiting(third);
+
+        finishRequest.countDown();
+        first.join();
+        second.join();
+        third.join();
+
+        assertTrue(results[0].success);
+        assertEquals(tagSet("two"), results[1].tagGroups.get("second-group"));
+        assertEquals(tagSet("three"), results[2].tagGroups.get("third-group"));
+
+        verify(mockClient, times(1)).lookupTagGroups(channelId, UAirship.ANDROID_PLATFORM, getExpectedClientRequestTags(), null);
+        verify(mockClient, times(1)).lookupTagGroups(eq(channelId), eq(UAirship.ANDROID_PLATFORM), eq(followUpTags), ArgumentMatchers.<TagGroupResponse>any());
+        verifyNoMoreInteractions(mockClient);
+    }
+
+    private Thread startGetTags(@NonNull final Map<String, Set<String>> tags, @NonNull final TagGroupResult[] results, final int index) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[index] = manager.getTags(tags);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Waits for the thread to park on a latch. A lookup blocked on a monitor stays
+     * {@link Thread.State#BLOCKED} and fails the wait.
+     */
+    private static void awaitWaiting(@NonNull Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("Thread never waited: " + thread.getState(), System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
     private Map<String, Set<String>> getExpectedClientRequestTags() {
         return TagGroupUtils.union(callbackResponseTags, requestTags);
     }
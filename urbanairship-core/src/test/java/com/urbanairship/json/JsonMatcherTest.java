@@ -2,6 +2,8 @@
 
 package com.urbanairship.json;
 
+import androidx.annotation.NonNull;
+
 import com.urbanairship.BaseTestCase;
 
 import org.junit.Test;
@@ -148,4 +150,34 @@ public class JsonMatcherTest extends BaseTestCase {
         JsonMatcher.parse(json);
     }
 
+    @Test
+    public void testFieldLookup() {
+        JsonMatcher matcher = JsonMatcher.newBuilder()
+                                         .setKey("key")
+                                         .setScope("properties")
+                                         .setValueMatcher(ValueMatcher.newValueMatcher(JsonValue.wrap("value")))
+                                         .build();
+
+        final JsonMap properties = JsonMap.newBuilder()
+                                          .put("key", "value")
+                                          .build();
+
+        // Only the first path segment is looked up, the value is never fully serialized
+        JsonFieldLookup lookup = new JsonFieldLookup() {
+            @NonNull
+            @Override
+            public JsonValue optField(@NonNull String key) {
+                return "properties".equals(key) ? properties.toJsonValue() : JsonValue.NULL;
+            }
+
+            @NonNull
+            @Override
+            public JsonValue toJsonValue() {
+                throw new AssertionError("Unexpected serialization");
+            }
+        };
+
+        assertTrue(matcher.apply(lookup));
+    }
+
 }
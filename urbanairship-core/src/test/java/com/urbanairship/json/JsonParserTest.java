@@ -0,0 +1,187 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.json;
+
+import com.urbanairship.BaseTestCase;
+import com.urbanairship.Benchmark;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class JsonParserTest extends BaseTestCase {
+
+    private static final String[] VALID = new String[] {
+            "{}",
+            "[]",
+            "1",
+            "-0",
+            "1.5",
+            "1e5",
+            "9223372036854775807",
+            "9223372036854775808",
+            "-2147483649",
+            "true",
+            "FALSE",
+            "null",
+            "unquoted",
+            "\"a\\u0041\\n\\t\\/\\\"\"",
+            "'single'",
+            "[1,,2,]",
+            "[null, 1, null]",
+            "{\"a\":null}",
+            "{\"a\":1,\"a\":2}",
+            "{\"a\":1,\"a\":null}",
+            "{a:1, 'b'=>2; c=3}",
+            "/* comment */ {\"a\" : // comment\n [1, 2.0, \"\\uD83D\\uDE00\"]} # comment",
+            "{\"nested\":{\"list\":[{\"map\":{}}, [[]]]}}"
+    };
+
+    private static final String[] INVALID = new String[] {
+            "  ",
+            "{",
+            "[1",
+            "\"abc",
+            "{a}",
+            "{1:2}",
+            "{a:1,}",
+            "[1 2]",
+            "NaN",
+            "1e999",
+            "\"\\u00\""
+    };
+
+    /**
+     * Test the parser produces the same values as the org.json path.
+     */
+    @Test
+    public void testMatchesJSONTokener() throws JsonException, JSONException {
+        for (String json : VALID) {
+            JsonValue expected = JsonValue.wrap(new JSONTokener(json).nextValue());
+            assertEquals(json, expected, JsonValue.parseString(json));
+            assertTypesEqual(expected, JsonValue.parseString(json));
+        }
+    }
+
+    /**
+     * Test invalid JSON throws a JsonException.
+     */
+    @Test
+    public void testInvalid() {
+        for (String json : INVALID) {
+            try {
+                JsonValue.parseString(json);
+                fail("Expected exception: " + json);
+            } catch (JsonException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test parsing across read boundaries.
+     */
+    @Test
+    public void testParseReader() throws JsonException {
+        String json = createPayload(100).toString();
+
+        Reader reader = new FilterReader(new StringReader(json)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+
+        assertEquals(JsonValue.parseString(json), JsonValue.parse(reader));
+    }
+
+    /**
+     * Test parsing UTF-8 from an input stream.
+     */
+    @Test
+    public void testParseInputStream() throws Exception {
+        String json = "{\"emoji\":\"\uD83D\uDE00\",\"accent\":\"\u00e9\"}";
+        JsonValue value = JsonValue.parse(new ByteArrayInputStream(json.getBytes("UTF-8")));
+
+        assertEquals("\uD83D\uDE00", value.optMap().opt("emoji").getString());
+        assertEquals("\u00e9", value.optMap().opt("accent").getString());
+    }
+
+    /**
+     * Benchmarks the streaming parser against the org.json path. The timings are only reported,
+     * since wall clock results depend on the machine running the tests.
+     */
+    @Test
+    public void benchmarkParse() throws Exception {
+        Benchmark.assumeEnabled();
+
+        final String json = createPayload(500).toString();
+        Benchmark benchmark = new Benchmark("JsonParser", 100);
+
+        benchmark.measure("jsonTokener", new Benchmark.Operation() {
+            @Override
+            public void run() throws Exception {
+                JsonValue.wrap(new JSONTokener(json).nextValue());
+            }
+        });
+
+        benchmark.measure("parseString", new Benchmark.Operation() {
+            @Override
+            public void run() throws Exception {
+                JsonValue.parseString(json);
+            }
+        });
+    }
+
+    private static JsonValue createPayload(int count) {
+        StringBuilder builder = new StringBuilder("{\"messages\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"message_id\":\"id-").append(i)
+                   .append("\",\"title\":\"Title \\\"").append(i).append("\\\" \\u00e9\"")
+                   .append(",\"sent\":").append(1577836800000L + i)
+                   .append(",\"score\":").append(i * 1.5)
+                   .append(",\"unread\":true")
+                   .append(",\"extra\":{\"list\":[1,2,3,\"four\",null,{\"key\":\"value\"}]}}");
+        }
+        builder.append("]}");
+
+        try {
+            return JsonValue.wrap(new JSONTokener(builder.toString()).nextValue());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void assertTypesEqual(JsonValue expected, JsonValue actual) {
+        if (expected.isNull()) {
+            assertTrue(actual.isNull());
+            return;
+        }
+
+        assertEquals(expected.getValue().getClass(), actual.getValue().getClass());
+
+        if (expected.isJsonMap()) {
+            for (String key : expected.optMap().keySet()) {
+                assertTypesEqual(expected.optMap().opt(key), actual.optMap().opt(key));
+            }
+        } else if (expected.isJsonList()) {
+            for (int i = 0; i < expected.optList().size(); i++) {
+                assertTypesEqual(expected.optList().get(i), actual.optList().get(i));
+            }
+        }
+    }
+
+}
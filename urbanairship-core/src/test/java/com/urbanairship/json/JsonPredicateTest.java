@@ -2,11 +2,18 @@
 
 package com.urbanairship.json;
 
+import androidx.annotation.NonNull;
+
 import com.urbanairship.BaseTestCase;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
@@ -415,4 +422,84 @@ public class JsonPredicateTest extends BaseTestCase {
         JsonPredicate.parse(JsonValue.wrap("not valid"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testEvaluationOrder() throws JsonException {
+        List<String> calls = new ArrayList<>();
+        RecordingValueMatcher shallow = new RecordingValueMatcher("shallow", calls);
+        RecordingValueMatcher scoped = new RecordingValueMatcher("scoped", calls);
+        RecordingValueMatcher deep = new RecordingValueMatcher("deep", calls);
+
+        JsonPredicate nested = JsonPredicate.newBuilder()
+                                            .setPredicateType(JsonPredicate.OR_PREDICATE_TYPE)
+                                            .addMatcher(JsonMatcher.newBuilder()
+                                                                   .setScope(Arrays.asList("schedule", "week"))
+                                                                   .setKey("monday")
+                                                                   .setValueMatcher(deep)
+                                                                   .build())
+                                            .addMatcher(JsonMatcher.newBuilder()
+                                                                   .setScope("schedule")
+                                                                   .setKey("sleep")
+                                                                   .setValueMatcher(scoped)
+                                                                   .build())
+                                            .build();
+
+        JsonPredicate predicate = JsonPredicate.newBuilder()
+                                               .setPredicateType(JsonPredicate.AND_PREDICATE_TYPE)
+                                               .addPredicate(nested)
+                                               .addMatcher(JsonMatcher.newBuilder()
+                                                                      .setKey("name")
+                                                                      .setValueMatcher(shallow)
+                                                                      .build())
+                                               .build();
+
+        // Shortest key path first, the OR stops at its first match
+        assertTrue(predicate.apply(catJson));
+        assertEquals(Arrays.asList("shallow", "scoped"), calls);
+
+        // The AND stops at its first mismatch
+        calls.clear();
+        shallow.result = false;
+        assertFalse(predicate.apply(catJson));
+        assertEquals(Collections.singletonList("shallow"), calls);
+
+        // The OR falls through to the deeper matcher
+        calls.clear();
+        shallow.result = true;
+        scoped.result = false;
+        assertTrue(predicate.apply(catJson));
+        assertEquals(Arrays.asList("shallow", "scoped", "deep"), calls);
+
+        // Serialization keeps the original order
+        assertEquals(nested.toJsonValue(), predicate.toJsonValue().optMap().opt("and").optList().get(0));
+        assertEquals("monday", nested.toJsonValue().optMap().opt("or").optList().get(0).optMap().opt("key").getString());
+    }
+
+    /**
+     * Value matcher that records when it is evaluated.
+     */
+    private static class RecordingValueMatcher extends ValueMatcher {
+
+        private final String name;
+        private final List<String> calls;
+        boolean result = true;
+
+        RecordingValueMatcher(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        protected boolean apply(@NonNull JsonValue jsonValue, boolean ignoreCase) {
+            calls.add(name);
+            return result;
+        }
+
+        @NonNull
+        @Override
+        public JsonValue toJsonValue() {
+            return JsonMap.newBuilder().put("recording", name).build().toJsonValue();
+        }
+
+    }
+
+}
@@ -10,15 +10,20 @@ import com.urbanairship.BaseTestCase;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONStringer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +32,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 public class JsonValueTest extends BaseTestCase {
 
@@ -329,6 +335,102 @@ public class JsonValueTest extends BaseTestCase {
         assertEquals(JsonValue.wrap(jsonArray), JsonValue.parseString(jsonArray.toString()));
     }
 
+    /**
+     * Test writing the value to a writer and stream produces the expected JSON.
+     */
+    @Test
+    public void testWriteTo() throws JsonException, IOException {
+        JsonValue value = JsonValue.wrap(JsonMap.newBuilder()
+                                                .put("list", new JsonList(Arrays.asList(JsonValue.wrap(1), JsonValue.wrap("a"),
+                                                        JsonValue.wrap(true), JsonValue.NULL, JsonValue.wrap(-0.0), JsonValue.wrap(1.5),
+                                                        JsonValue.wrap(Collections.singletonMap("escaped", "\"q\" / \\ \n\t\u0001 é")))))
+                                                .build());
+
+        String expected = "{\"list\":[1,\"a\",true,null,-0,1.5,{\"escaped\":\"\\\"q\\\" \\/ \\\\ \\n\\t\\u0001 é\"}]}";
+
+        assertEquals(expected, write(value));
+        assertEquals(expected, value.toString());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        value.writeTo(outputStream);
+        assertEquals(expected, outputStream.toString("UTF-8"));
+    }
+
+    /**
+     * Test strings are escaped the same way as JSONStringer.
+     */
+    @Test
+    public void testWriteToEscapingMatchesJSONStringer() throws JsonException, JSONException, IOException {
+        StringBuilder allChars = new StringBuilder();
+        for (char c = 0; c < 0x80; c++) {
+            allChars.append(c);
+        }
+
+        String[] strings = new String[] {
+                "",
+                "plain",
+                "\"quotes\" 'single'",
+                "/slash\\back",
+                "\b\f\n\r\t",
+                "\u0000\u001f\u007f",
+                "é  😀",
+                allChars.toString()
+        };
+
+        for (String string : strings) {
+            String expected = new JSONStringer().array().value(string).endArray().toString();
+            assertEquals(expected, write(JsonValue.wrap(Collections.singletonList(string))));
+        }
+    }
+
+    /**
+     * Test numbers are written the same way as JSONStringer.
+     */
+    @Test
+    public void testWriteToNumbersMatchesJSONStringer() throws JsonException, JSONException, IOException {
+        Number[] numbers = new Number[] {
+                0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+                0.0, -0.0, 1.5, -2.25, 100.0, 0.1, 1e-7, 1e21, Double.MAX_VALUE, Double.MIN_VALUE
+        };
+
+        for (Number number : numbers) {
+            String expected = new JSONStringer().array().value(number).endArray().toString();
+            assertEquals(expected, write(JsonValue.wrap(Collections.singletonList(number))));
+            assertEquals(JSONObject.numberToString(number), JsonValue.wrapOpt(number).toString());
+        }
+    }
+
+    /**
+     * Test numbers that are not finite are never written as invalid JSON.
+     */
+    @Test
+    public void testWriteToNonFiniteNumbers() throws JsonException, IOException {
+        // Wrapped doubles become null
+        JsonList doubles = new JsonList(Arrays.asList(JsonValue.wrapOpt(Double.NaN),
+                JsonValue.wrapOpt(Double.POSITIVE_INFINITY), JsonValue.wrapOpt(Double.NEGATIVE_INFINITY)));
+        assertEquals("[null,null,null]", write(doubles.toJsonValue()));
+
+        // Floats are kept, but can't be written, the same as JSONStringer
+        JsonValue infinity = JsonValue.wrap((Object) Float.POSITIVE_INFINITY);
+        JsonValue list = JsonValue.wrap(Collections.singletonList(infinity));
+
+        try {
+            write(list);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // expected
+        }
+
+        assertEquals("", infinity.toString());
+        assertEquals("", list.toString());
+    }
+
+    private static String write(JsonValue value) throws IOException {
+        StringWriter writer = new StringWriter();
+        value.writeTo(writer);
+        return writer.toString();
+    }
+
     /**
      * Test trying to wrap Double.NaN throws an exception.
      */
@@ -374,6 +476,44 @@ public class JsonValueTest extends BaseTestCase {
         assertEquals(jsonValue, fromParcel);
     }
 
+    /**
+     * Test saving and reading nested values from a parcel preserves the value types.
+     */
+    @Test
+    public void testParcelableNested() throws JsonException {
+        JsonValue jsonValue = JsonMap.newBuilder()
+                                     .put("map", JsonValue.wrap(primitiveMap))
+                                     .put("list", JsonValue.wrap(primitiveList))
+                                     .put("long", Long.MAX_VALUE)
+                                     .put("empty map", JsonMap.EMPTY_MAP)
+                                     .put("empty list", JsonList.EMPTY_LIST)
+                                     .build()
+                                     .toJsonValue();
+
+        Parcel parcel = Parcel.obtain();
+        jsonValue.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        JsonValue fromParcel = JsonValue.CREATOR.createFromParcel(parcel);
+        assertEquals(jsonValue, fromParcel);
+        assertTrue(fromParcel.optMap().opt("long").isLong());
+        assertTrue(fromParcel.optMap().opt("map").optMap().opt("int").isInteger());
+    }
+
+    /**
+     * Test reading a JsonValue from a parcel that contains the legacy JSON string encoding.
+     */
+    @Test
+    public void testParcelableLegacyString() throws JsonException {
+        JsonValue jsonValue = JsonValue.wrap(primitiveMap);
+
+        Parcel parcel = Parcel.obtain();
+        parcel.writeString(jsonValue.toString());
+        parcel.setDataPosition(0);
+
+        assertEquals(jsonValue, JsonValue.CREATOR.createFromParcel(parcel));
+    }
+
     /**
      * Test isNull is true for null values.
      */
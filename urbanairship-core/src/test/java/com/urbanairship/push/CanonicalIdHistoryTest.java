@@ -0,0 +1,109 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.push;
+
+import com.urbanairship.BaseTestCase;
+import com.urbanairship.PreferenceDataStore;
+import com.urbanairship.TestApplication;
+import com.urbanairship.TestClock;
+import com.urbanairship.json.JsonValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CanonicalIdHistoryTest extends BaseTestCase {
+
+    private static final long WINDOW_MS = 1000;
+
+    private PreferenceDataStore dataStore;
+    private TestClock clock;
+    private CanonicalIdHistory history;
+
+    @Before
+    public void setup() {
+        dataStore = TestApplication.getApplication().preferenceDataStore;
+        clock = new TestClock();
+        history = new CanonicalIdHistory(dataStore, clock, 100, WINDOW_MS);
+    }
+
+    /**
+     * Test the capacity is rounded up to whole pages.
+     */
+    @Test
+    public void testCapacity() {
+        assertEquals(2 * CanonicalIdHistory.PAGE_SIZE, history.getCapacity());
+    }
+
+    /**
+     * Test duplicates are detected within the window.
+     */
+    @Test
+    public void testCheckAndRecord() {
+        assertTrue(history.checkAndRecord("one"));
+        assertTrue(history.checkAndRecord("two"));
+        assertFalse(history.checkAndRecord("one"));
+        assertFalse(history.checkAndRecord("two"));
+
+        clock.currentTimeMillis += WINDOW_MS;
+        assertTrue(history.checkAndRecord("one"));
+        assertFalse(history.checkAndRecord("one"));
+    }
+
+    /**
+     * Test the oldest IDs are evicted once the history is full.
+     */
+    @Test
+    public void testEviction() {
+        for (int i = 0; i < history.getCapacity(); i++) {
+            assertTrue(history.checkAndRecord("id-" + i));
+        }
+
+        assertFalse(history.checkAndRecord("id-0"));
+
+        // Evicts id-0
+        assertTrue(history.checkAndRecord("new"));
+        assertTrue(history.checkAndRecord("id-0"));
+        assertFalse(history.checkAndRecord("id-" + (history.getCapacity() - 1)));
+    }
+
+    /**
+     * Test the history is restored from the data store.
+     */
+    @Test
+    public void testPersistence() {
+        for (int i = 0; i < 70; i++) {
+            assertTrue(history.checkAndRecord("id-" + i));
+        }
+
+        CanonicalIdHistory restored = new CanonicalIdHistory(dataStore, clock, 100, WINDOW_MS);
+        assertFalse(restored.checkAndRecord("id-0"));
+        assertFalse(restored.checkAndRecord("id-69"));
+        assertTrue(restored.checkAndRecord("id-70"));
+
+        // Verify the head was restored by checking the newest ID was written after id-69
+        CanonicalIdHistory again = new CanonicalIdHistory(dataStore, clock, 100, WINDOW_MS);
+        assertFalse(again.checkAndRecord("id-70"));
+        assertFalse(again.checkAndRecord("id-69"));
+    }
+
+    /**
+     * Test the legacy canonical ID list is migrated.
+     */
+    @Test
+    public void testMigrateLegacyIds() {
+        dataStore.put("com.urbanairship.push.LAST_CANONICAL_IDS", JsonValue.wrapOpt(Arrays.asList("one", "two")).toString());
+
+        assertFalse(history.checkAndRecord("one"));
+        assertFalse(history.checkAndRecord("two"));
+        assertTrue(history.checkAndRecord("three"));
+        assertNull(dataStore.getString("com.urbanairship.push.LAST_CANONICAL_IDS", null));
+    }
+
+}
@@ -432,10 +432,10 @@ public class RemoteDataTest extends BaseTestCase {
     public void testHandleRefreshResponse() {
         final Set<RemoteDataPayload> subscribedPayloads = new HashSet<>();
 
-        remoteData.payloadUpdates.subscribe(new Subscriber<Set<RemoteDataPayload>>() {
+        remoteData.payloadUpdates.subscribe(new Subscriber<RemoteData.PayloadUpdate>() {
             @Override
-            public void onNext(@NonNull Set<RemoteDataPayload> payloads) {
-                subscribedPayloads.addAll(payloads);
+            public void onNext(@NonNull RemoteData.PayloadUpdate update) {
+                subscribedPayloads.addAll(update.payloads);
             }
         });
 
@@ -457,6 +457,88 @@ public class RemoteDataTest extends BaseTestCase {
         Assert.assertEquals(remoteData.dataStore.getPayloads(), asSet(otherPayload));
     }
 
+    /**
+     * Test that only the types whose content changed are emitted.
+     */
+    @Test
+    public void testPayloadsForTypeOnlyChangedTypes() {
+        final List<RemoteDataPayload> subscribedPayloads = new ArrayList<>();
+        remoteData.payloadsForType("type").subscribe(new Subscriber<RemoteDataPayload>() {
+            @Override
+            public void onNext(@NonNull RemoteDataPayload value) {
+                subscribedPayloads.add(value);
+            }
+        });
+
+        remoteData.onNewData(asSet(payload, otherPayload), "lastModified", JsonMap.EMPTY_MAP);
+        runLooperTasks();
+        subscribedPayloads.clear();
+
+        // Update only the other type
+        RemoteDataPayload changedOtherPayload = RemoteDataPayload.newBuilder()
+                                                                 .setType(otherPayload.getType())
+                                                                 .setTimeStamp(otherPayload.getTimestamp())
+                                                                 .setData(JsonMap.newBuilder()
+                                                                                 .put("baz", "changed")
+                                                                                 .build())
+                                                                 .build();
+
+        remoteData.onNewData(asSet(payload, changedOtherPayload), "lastModified", JsonMap.EMPTY_MAP);
+        runLooperTasks();
+
+        Assert.assertTrue(subscribedPayloads.isEmpty());
+        Assert.assertEquals(asSet(payload, changedOtherPayload), remoteData.dataStore.getPayloads());
+        Assert.assertEquals(RemoteDataStore.getPayloadVersions(asSet(payload, changedOtherPayload)), remoteData.dataStore.getPayloadVersions());
+    }
+
+    /**
+     * Test payload item diffs.
+     */
+    @Test
+    public void testPayloadDiffsForType() {
+        final List<RemoteDataPayloadDiff> diffs = new ArrayList<>();
+        remoteData.payloadDiffsForType("messages", "items", "id").subscribe(new Subscriber<RemoteDataPayloadDiff>() {
+            @Override
+            public void onNext(@NonNull RemoteDataPayloadDiff value) {
+                diffs.add(value);
+            }
+        });
+
+        remoteData.onNewData(asSet(createItemsPayload(1, item("a", 1), item("b", 1), item("c", 1))), "lastModified", JsonMap.EMPTY_MAP);
+        runLooperTasks();
+
+        // Empty cache followed by the first payload
+        Assert.assertEquals(2, diffs.size());
+        Assert.assertTrue(diffs.get(0).isEmpty());
+        Assert.assertEquals(asSet("a", "b", "c"), diffs.get(1).getAddedIds());
+
+        remoteData.onNewData(asSet(createItemsPayload(2, item("a", 1), item("b", 2), item("d", 1))), "lastModified", JsonMap.EMPTY_MAP);
+        runLooperTasks();
+
+        Assert.assertEquals(3, diffs.size());
+        RemoteDataPayloadDiff diff = diffs.get(2);
+        Assert.assertEquals(asSet("d"), diff.getAddedIds());
+        Assert.assertEquals(asSet("b"), diff.getUpdatedIds());
+        Assert.assertEquals(asSet("c"), diff.getRemovedIds());
+    }
+
+    private static JsonMap item(String id, int version) {
+        return JsonMap.newBuilder()
+                      .put("id", id)
+                      .put("version", version)
+                      .build();
+    }
+
+    private static RemoteDataPayload createItemsPayload(long timestamp, JsonMap... items) {
+        return RemoteDataPayload.newBuilder()
+                                .setType("messages")
+                                .setTimeStamp(timestamp)
+                                .setData(JsonMap.newBuilder()
+                                                .putOpt("items", Arrays.asList(items))
+                                                .build())
+                                .build();
+    }
+
     /**
      * Helper method to run all the looper tasks.
      */
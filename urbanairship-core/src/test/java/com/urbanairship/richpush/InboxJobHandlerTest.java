@@ -14,15 +14,22 @@ import com.urbanairship.http.Request;
 import com.urbanairship.http.RequestFactory;
 import com.urbanairship.http.Response;
 import com.urbanairship.job.JobInfo;
+import com.urbanairship.json.JsonException;
+import com.urbanairship.json.JsonList;
+import com.urbanairship.json.JsonMap;
+import com.urbanairship.json.JsonValue;
 import com.urbanairship.push.PushManager;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,7 +38,9 @@ import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.assertEquals;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,6 +54,7 @@ public class InboxJobHandlerTest extends BaseTestCase {
     private Map<String, Response> responses;
 
     private AirshipChannel mockChannel;
+    private RichPushResolver mockResolver;
 
     private RichPushUser user;
     private PreferenceDataStore dataStore;
@@ -86,9 +96,10 @@ public class InboxJobHandlerTest extends BaseTestCase {
         // Clear any user or password
         user.setUser(null, null);
 
+        mockResolver = mock(RichPushResolver.class);
         jobHandler = new InboxJobHandler(UAirship.shared(),
                 TestApplication.getApplication().preferenceDataStore,
-                requestFactory, mock(RichPushResolver.class));
+                requestFactory, mockResolver);
     }
 
     /**
@@ -221,7 +232,9 @@ public class InboxJobHandlerTest extends BaseTestCase {
         assertEquals(600L, dataStore.getLong(InboxJobHandler.LAST_MESSAGE_REFRESH_TIME, 0));
 
         // Verify we updated the inbox
-        verify(inbox).refresh(true);
+        ArgumentCaptor<RichPushInbox.ChangeSet> captor = ArgumentCaptor.forClass(RichPushInbox.ChangeSet.class);
+        verify(inbox).applyChanges(captor.capture());
+        assertTrue(captor.getValue().isEmpty());
     }
 
     /**
@@ -272,7 +285,57 @@ public class InboxJobHandlerTest extends BaseTestCase {
         assertEquals(600L, dataStore.getLong(InboxJobHandler.LAST_MESSAGE_REFRESH_TIME, 0));
 
         // Verify we updated the inbox
-        verify(inbox).refresh(true);
+        ArgumentCaptor<RichPushInbox.ChangeSet> captor = ArgumentCaptor.forClass(RichPushInbox.ChangeSet.class);
+        verify(inbox).applyChanges(captor.capture());
+        assertEquals(Collections.singleton("some_mesg_id"), captor.getValue().getInsertedIds());
+        assertTrue(captor.getValue().getUpdatedIds().isEmpty());
+        assertTrue(captor.getValue().getDeletedIds().isEmpty());
+    }
+
+    /**
+     * Test updateMessages only writes the messages that changed.
+     */
+    @Test
+    public void testUpdateMessagesChangeSet() throws JsonException {
+        user.setUser("fakeUserId", "password");
+        when(mockChannel.getId()).thenReturn("channelID");
+
+        JsonValue unchanged = JsonValue.parseString("{\"message_id\": \"unchanged\", \"title\": \"Title\"}");
+        JsonValue changed = JsonValue.parseString("{\"message_id\": \"changed\", \"title\": \"New title\"}");
+        JsonValue inserted = JsonValue.parseString("{\"message_id\": \"inserted\", \"title\": \"Title\"}");
+
+        Map<String, String> storedMessages = new HashMap<>();
+        storedMessages.put("unchanged", unchanged.toString());
+        storedMessages.put("changed", "{\"message_id\": \"changed\", \"title\": \"Title\"}");
+        storedMessages.put("removed", "{\"message_id\": \"removed\"}");
+        when(mockResolver.getRawMessages()).thenReturn(storedMessages);
+        when(mockResolver.updateMessage("changed", changed)).thenReturn(1);
+
+        responses.put("https://device-api.urbanairship.com/api/user/fakeUserId/messages/",
+                Response.newBuilder(HttpURLConnection.HTTP_OK)
+                        .setResponseMessage("OK")
+                        .setLastModified(600L)
+                        .setResponseBody(JsonMap.newBuilder()
+                                                .put("messages", new JsonList(Arrays.asList(unchanged, changed, inserted)))
+                                                .build()
+                                                .toString())
+                        .build());
+
+        JobInfo jobInfo = JobInfo.newBuilder()
+                                 .setAction(InboxJobHandler.ACTION_RICH_PUSH_MESSAGES_UPDATE)
+                                 .build();
+
+        assertEquals(JobInfo.JOB_FINISHED, jobHandler.performJob(jobInfo));
+
+        verify(mockResolver, never()).updateMessage(Mockito.eq("unchanged"), any(JsonValue.class));
+        verify(mockResolver).insertMessages(Collections.singletonList(inserted));
+        verify(mockResolver).deleteMessages(Collections.singleton("removed"));
+
+        ArgumentCaptor<RichPushInbox.ChangeSet> captor = ArgumentCaptor.forClass(RichPushInbox.ChangeSet.class);
+        verify(inbox).applyChanges(captor.capture());
+        assertEquals(Collections.singleton("inserted"), captor.getValue().getInsertedIds());
+        assertEquals(Collections.singleton("changed"), captor.getValue().getUpdatedIds());
+        assertEquals(Collections.singleton("removed"), captor.getValue().getDeletedIds());
     }
 
     /**
@@ -310,8 +373,8 @@ public class InboxJobHandlerTest extends BaseTestCase {
         // Verify LAST_MESSAGE_REFRESH_TIME was not updated
         assertEquals(300L, dataStore.getLong(InboxJobHandler.LAST_MESSAGE_REFRESH_TIME, 0));
 
-        // Verify we updated the inbox
-        verify(inbox).refresh(true);
+        // Verify the inbox was not updated
+        verify(inbox, never()).applyChanges(any(RichPushInbox.ChangeSet.class));
     }
 
     @Test
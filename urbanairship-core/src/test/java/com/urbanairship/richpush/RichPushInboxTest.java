@@ -23,11 +23,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 import androidx.annotation.NonNull;
@@ -35,6 +39,7 @@ import androidx.annotation.NonNull;
 import static junit.framework.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
@@ -88,7 +93,7 @@ public class RichPushInboxTest extends BaseTestCase {
             RichPushTestUtils.insertMessage(String.valueOf(i + 1) + "_message_id", null, true);
         }
 
-        inbox.refresh(false);
+        inbox.refresh();
     }
 
     /**
@@ -247,6 +252,52 @@ public class RichPushInboxTest extends BaseTestCase {
         assertEquals(0, inbox.getReadCount());
     }
 
+    /**
+     * Test applying changes only patches the changed messages and notifies the change set.
+     */
+    @Test
+    public void testApplyChanges() {
+        final List<RichPushInbox.ChangeSet> changeSets = new ArrayList<>();
+        inbox.addChangeListener(new RichPushInbox.ChangeListener() {
+            @Override
+            public void onInboxChanged(@NonNull RichPushInbox.ChangeSet changeSet) {
+                changeSets.add(changeSet);
+            }
+        });
+
+        // Mark a message read locally before applying the changes
+        inbox.markMessagesRead(Collections.singleton("1_message_id"));
+        ShadowLooper.runUiThreadTasks();
+        changeSets.clear();
+
+        RichPushResolver resolver = new RichPushResolver(RuntimeEnvironment.application);
+        RichPushTestUtils.insertMessage("16_message_id");
+        resolver.deleteMessages(Collections.singleton("2_message_id"));
+
+        Set<String> insertedIds = new HashSet<>(Collections.singleton("16_message_id"));
+        Set<String> updatedIds = new HashSet<>(Collections.singleton("1_message_id"));
+        Set<String> deletedIds = new HashSet<>(Collections.singleton("2_message_id"));
+        inbox.applyChanges(new RichPushInbox.ChangeSet(insertedIds, updatedIds, deletedIds));
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(10, inbox.getCount());
+        assertNotNull(inbox.getMessage("16_message_id"));
+        assertNull(inbox.getMessage("2_message_id"));
+
+        // The pending read state is kept
+        assertTrue(inbox.getMessage("1_message_id").isRead());
+
+        assertEquals(1, changeSets.size());
+        assertEquals(insertedIds, changeSets.get(0).getInsertedIds());
+        assertEquals(updatedIds, changeSets.get(0).getUpdatedIds());
+        assertEquals(deletedIds, changeSets.get(0).getDeletedIds());
+
+        // Applying the same changes again does not change the inbox
+        inbox.applyChanges(new RichPushInbox.ChangeSet(new HashSet<String>(), new HashSet<String>(), deletedIds));
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, changeSets.size());
+    }
+
     /**
      * Test fetch messages starts the AirshipService.
      */
@@ -0,0 +1,90 @@
+/* Copyright Airship and Contributors */
+
+package com.urbanairship.util;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.urbanairship.BaseTestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DataManagerTest extends BaseTestCase {
+
+    private static final String TABLE = "items";
+
+    private DataManager dataManager;
+
+    @Before
+    public void setup() {
+        dataManager = new DataManager(RuntimeEnvironment.application, "appKey", "data-manager-test", 1) {
+            @Override
+            protected void onCreate(@NonNull SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE " + TABLE + " (id TEXT PRIMARY KEY, value TEXT NOT NULL);");
+            }
+        };
+    }
+
+    @After
+    public void teardown() {
+        dataManager.delete(TABLE, null, null);
+        dataManager.close();
+    }
+
+    /**
+     * Test bulkInsert returns the inserted values.
+     */
+    @Test
+    public void testBulkInsert() {
+        ContentValues[] values = new ContentValues[] { values("one", "1"), values("two", "2") };
+
+        List<ContentValues> inserted = dataManager.bulkInsert(TABLE, values);
+
+        assertEquals(2, inserted.size());
+        assertSame(values[0], inserted.get(0));
+        assertSame(values[1], inserted.get(1));
+        assertEquals(2, count());
+    }
+
+    /**
+     * Test bulkInsert returns an empty list and rolls back when an insert fails.
+     */
+    @Test
+    public void testBulkInsertFailure() {
+        ContentValues[] values = new ContentValues[] { values("one", "1"), values("two", null) };
+
+        List<ContentValues> inserted = dataManager.bulkInsert(TABLE, values);
+
+        assertTrue(inserted.isEmpty());
+        assertEquals(0, count());
+    }
+
+    private static ContentValues values(String id, String value) {
+        ContentValues values = new ContentValues();
+        values.put("id", id);
+        values.put("value", value);
+        return values;
+    }
+
+    private int count() {
+        Cursor cursor = dataManager.query(TABLE, null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
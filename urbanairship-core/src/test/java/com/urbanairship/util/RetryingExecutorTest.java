@@ -12,7 +12,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.robolectric.Shadows;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
@@ -112,6 +115,102 @@ public class RetryingExecutorTest extends BaseTestCase {
         assertEquals(4, operation.runCount);
     }
 
+    @Test
+    public void testExecuteParallelOperations() {
+        TestOperation firstOperation = new TestOperation(RetryingExecutor.RESULT_FINISHED);
+        TestOperation secondOperation = new TestOperation(RetryingExecutor.RESULT_RETRY);
+        TestOperation thirdOperation = new TestOperation(RetryingExecutor.RESULT_FINISHED);
+
+        ExecutorService parallelExecutor = Executors.newFixedThreadPool(2);
+        try {
+            executor.execute(RetryingExecutor.parallel(parallelExecutor, firstOperation, secondOperation), thirdOperation);
+            assertEquals(1, firstOperation.runCount);
+            assertEquals(1, secondOperation.runCount);
+            assertEquals(0, thirdOperation.runCount);
+
+            // Only the operation that retried runs again
+            secondOperation.result = RetryingExecutor.RESULT_FINISHED;
+            advanceLooper(30000);
+
+            assertEquals(1, firstOperation.runCount);
+            assertEquals(2, secondOperation.runCount);
+            assertEquals(1, thirdOperation.runCount);
+        } finally {
+            parallelExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecuteParallelOperationsCancelsRunning() throws InterruptedException {
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        final CountDownLatch secondCancelled = new CountDownLatch(1);
+
+        // Runs until cancelled
+        RetryingExecutor.CancelableOperation secondOperation = new RetryingExecutor.CancelableOperation() {
+            @Override
+            public int run() {
+                secondStarted.countDown();
+                try {
+                    return secondCancelled.await(5, TimeUnit.SECONDS) ? RetryingExecutor.RESULT_CANCEL : RetryingExecutor.RESULT_FINISHED;
+                } catch (InterruptedException e) {
+                    return RetryingExecutor.RESULT_RETRY;
+                }
+            }
+
+            @Override
+            public void cancel() {
+                secondCancelled.countDown();
+            }
+        };
+
+        // Cancels once the second operation is running
+        RetryingExecutor.Operation firstOperation = new RetryingExecutor.Operation() {
+            @Override
+            public int run() {
+                try {
+                    secondStarted.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return RetryingExecutor.RESULT_RETRY;
+                }
+                return RetryingExecutor.RESULT_CANCEL;
+            }
+        };
+
+        ExecutorService parallelExecutor = Executors.newFixedThreadPool(1);
+        try {
+            assertEquals(RetryingExecutor.RESULT_CANCEL, RetryingExecutor.parallel(parallelExecutor, firstOperation, secondOperation).run());
+            assertEquals(0, secondCancelled.getCount());
+        } finally {
+            parallelExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecuteParallelOperationsCancel() {
+        TestOperation firstOperation = new TestOperation(RetryingExecutor.RESULT_FINISHED);
+        TestOperation secondOperation = new TestOperation(RetryingExecutor.RESULT_CANCEL);
+        TestOperation thirdOperation = new TestOperation(RetryingExecutor.RESULT_FINISHED);
+
+        // The direct executor runs the second operation before the first, which runs on the calling thread
+        Executor directExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        executor.execute(RetryingExecutor.parallel(directExecutor, firstOperation, secondOperation), thirdOperation);
+        assertEquals(0, firstOperation.runCount);
+        assertEquals(1, secondOperation.runCount);
+        assertEquals(0, thirdOperation.runCount);
+
+        // Verify nothing is retried
+        Shadows.shadowOf(mainLooper).runToEndOfTasks();
+        assertEquals(0, firstOperation.runCount);
+        assertEquals(1, secondOperation.runCount);
+        assertEquals(0, thirdOperation.runCount);
+    }
+
     @Test
     public void testPause() {
         TestOperation operation = new TestOperation(RetryingExecutor.RESULT_RETRY);
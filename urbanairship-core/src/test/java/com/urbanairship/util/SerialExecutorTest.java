@@ -45,4 +45,36 @@ public class SerialExecutorTest extends BaseTestCase {
         assertEquals(expected, actual);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMetrics() {
+        ExecutorMetrics metrics = new ExecutorMetrics("test");
+        final List<Runnable> pending = new ArrayList<>();
+        executor = new SerialExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                pending.add(runnable);
+            }
+        }, metrics);
+
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        executor.execute(runnable);
+        executor.execute(runnable);
+        assertEquals(2, metrics.getQueueDepth());
+
+        // Runs the first task, which schedules the second
+        pending.remove(0).run();
+        assertEquals(1, metrics.getQueueDepth());
+        assertEquals(1, metrics.getCompletedCount());
+
+        pending.remove(0).run();
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(0, metrics.getActiveCount());
+        assertEquals(2, metrics.getCompletedCount());
+    }
+
+}